@@ -24,11 +24,19 @@ package org.apache.tiles;
 import static org.apache.tiles.CompareUtil.*;
 
 import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.tiles.request.CachingRequest;
 import org.apache.tiles.request.Request;
+import org.apache.tiles.request.collection.BoundedCache;
 
 /**
  * Common implementation of attribute definition.
@@ -42,6 +50,27 @@ public class Attribute implements Serializable, Cloneable {
      */
     private static final String TEMPLATE_RENDERER = "template";
 
+    /**
+     * The maximum number of role sets kept by {@link #setRole(String)}.
+     */
+    private static final int MAX_SHARED_ROLE_SETS = 1024;
+
+    /**
+     * Maps a comma-separated list of roles to its shared, unmodifiable set.
+     */
+    private static final BoundedCache<String, RoleSet> ROLE_SETS =
+        new BoundedCache<String, RoleSet>(MAX_SHARED_ROLE_SETS);
+
+    /**
+     * The name of the request-scope attribute that holds the results of the
+     * role checks of the current request. A request that changes its user
+     * while rendering, e.g. through a login or a logout, must remove it.
+     *
+     * @since 4.0.0
+     */
+    public static final String ROLE_DECISIONS_ATTRIBUTE_NAME = Attribute.class
+            .getName() + ".ROLE_DECISIONS";
+
     /**
      * The roles that can render this attribute.
      * @since 2.0.6
@@ -91,11 +120,8 @@ public class Attribute implements Serializable, Cloneable {
     public Attribute(Attribute attribute) {
         this.roles = attribute.roles;
         this.value = attribute.getValue();
-        if (attribute.expressionObject != null) {
-            this.expressionObject = new Expression(attribute.expressionObject);
-        } else {
-            this.expressionObject = null;
-        }
+        // Expressions are immutable, they can be shared.
+        this.expressionObject = attribute.expressionObject;
         this.renderer = attribute.renderer;
     }
 
@@ -124,7 +150,7 @@ public class Attribute implements Serializable, Cloneable {
     public Attribute(Object value, Expression expression, String role, String rendererName) {
         this.value = value;
         this.expressionObject = expression;
-        this.renderer = rendererName;
+        this.renderer = internRenderer(rendererName);
         setRole(role);
     }
 
@@ -218,17 +244,19 @@ public class Attribute implements Serializable, Cloneable {
     }
 
     /**
-     * Set role.
+     * Set role. The resulting set of roles is unmodifiable, and may be shared
+     * with other attributes.
      *
      * @param role Associated role.
      */
     public void setRole(String role) {
         if (role != null && role.trim().length() > 0) {
-            String[] rolesStrings = role.split("\\s*,\\s*");
-            roles = new HashSet<String>();
-            for (int i = 0; i < rolesStrings.length; i++) {
-                roles.add(rolesStrings[i]);
+            RoleSet roleSet = ROLE_SETS.get(role);
+            if (roleSet == null) {
+                String[] rolesStrings = role.split("\\s*,\\s*");
+                roleSet = ROLE_SETS.putIfAbsent(role, new RoleSet(Arrays.asList(rolesStrings)));
             }
+            roles = roleSet;
         } else {
             roles = null;
         }
@@ -309,7 +337,7 @@ public class Attribute implements Serializable, Cloneable {
      * @since 2.1.0
      */
     public void setRenderer(String rendererName) {
-        this.renderer = rendererName;
+        this.renderer = internRenderer(rendererName);
     }
 
     /**
@@ -327,7 +355,7 @@ public class Attribute implements Serializable, Cloneable {
         if (targetExpressionObject != null
                 && (expressionObject == null || expressionObject
                         .getExpression() == null)) {
-            expressionObject = new Expression(targetExpressionObject);
+            expressionObject = targetExpressionObject;
         }
         if (roles == null || roles.isEmpty()) {
             roles = attribute.getRoles();
@@ -349,6 +377,13 @@ public class Attribute implements Serializable, Cloneable {
 
     /**
      * Checks if the current user can use this attribute.
+     * <p>
+     * If the request is a {@link CachingRequest}, the result of the check of
+     * each role, and of each set of roles, is kept in the request scope,
+     * under {@link #ROLE_DECISIONS_ATTRIBUTE_NAME}, and cached in the request
+     * object. Hence the user is checked at most once for each role during the
+     * request, even by the request objects that tags create for themselves.
+     * </p>
      *
      * @param request The request context.
      * @return <code>true</code> if the current user can see this attribute.
@@ -359,6 +394,10 @@ public class Attribute implements Serializable, Cloneable {
             return true;
         }
 
+        if (request instanceof CachingRequest) {
+            return getRoleDecisions((CachingRequest) request).isPermitted(roles, request);
+        }
+
         boolean retValue = false;
 
         for (Iterator<String> roleIt = roles.iterator(); roleIt.hasNext()
@@ -381,4 +420,149 @@ public class Attribute implements Serializable, Cloneable {
     public Attribute clone() {
         return new Attribute(this);
     }
+
+    /**
+     * Interns a renderer name, since there are only a few of them, used by
+     * many attributes.
+     *
+     * @param rendererName The renderer name.
+     * @return The interned name.
+     */
+    private static String internRenderer(String rendererName) {
+        return rendererName != null ? rendererName.intern() : null;
+    }
+
+    /**
+     * Returns the role decisions of the current request, creating them if
+     * needed.
+     *
+     * @param request The request.
+     * @return The role decisions.
+     */
+    private static RoleDecisions getRoleDecisions(CachingRequest request) {
+        RoleDecisions retValue = (RoleDecisions) request
+                .getCachedObject(ROLE_DECISIONS_ATTRIBUTE_NAME);
+        if (retValue == null) {
+            Map<String, Object> requestScope = request.getContext(Request.REQUEST_SCOPE);
+            Object decisions = requestScope.get(ROLE_DECISIONS_ATTRIBUTE_NAME);
+            // Another web application may have stored its own class.
+            if (decisions instanceof RoleDecisions) {
+                retValue = (RoleDecisions) decisions;
+            } else {
+                retValue = new RoleDecisions();
+                requestScope.put(ROLE_DECISIONS_ATTRIBUTE_NAME, retValue);
+            }
+            request.setCachedObject(ROLE_DECISIONS_ATTRIBUTE_NAME, retValue);
+        }
+        return retValue;
+    }
+
+    /**
+     * An unmodifiable set of roles, whose hash code is computed once, since
+     * it is looked up at each role check.
+     */
+    private static final class RoleSet extends AbstractSet<String> implements Serializable {
+
+        /**
+         * The roles.
+         */
+        private final Set<String> roles;
+
+        /**
+         * The hash code of the roles.
+         */
+        private final int hashCode;
+
+        /**
+         * Constructor.
+         *
+         * @param roles The roles, that are copied.
+         */
+        private RoleSet(Collection<String> roles) {
+            this.roles = new HashSet<String>(roles);
+            this.hashCode = this.roles.hashCode();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Iterator<String> iterator() {
+            return Collections.unmodifiableSet(roles).iterator();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int size() {
+            return roles.size();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean contains(Object o) {
+            return roles.contains(o);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The results of the role checks done during a request.
+     */
+    private static final class RoleDecisions {
+
+        /**
+         * Maps a set of roles to the result of its check. The sets are compared
+         * by content. Sets other than the shared ones of
+         * {@link Attribute#setRole(String)} are copied when stored, so that a
+         * set modified after the check does not get its result.
+         */
+        private final Map<Set<String>, Boolean> roleSetDecisions =
+            new HashMap<Set<String>, Boolean>();
+
+        /**
+         * Maps a role to the result of its check.
+         */
+        private final Map<String, Boolean> roleDecisions = new HashMap<String, Boolean>();
+
+        /**
+         * Checks if the current user is in at least one of the roles.
+         *
+         * @param roles The roles.
+         * @param request The request.
+         * @return <code>true</code> if the user is in one of the roles.
+         */
+        public boolean isPermitted(Set<String> roles, Request request) {
+            Boolean retValue = roleSetDecisions.get(roles);
+            if (retValue == null) {
+                retValue = Boolean.FALSE;
+                for (String role : roles) {
+                    if (isUserInRole(role, request)) {
+                        retValue = Boolean.TRUE;
+                        break;
+                    }
+                }
+                roleSetDecisions.put(roles instanceof RoleSet ? roles : new RoleSet(roles), retValue);
+            }
+            return retValue;
+        }
+
+        /**
+         * Checks if the current user is in a role.
+         *
+         * @param role The role.
+         * @param request The request.
+         * @return <code>true</code> if the user is in the role.
+         */
+        private boolean isUserInRole(String role, Request request) {
+            Boolean retValue = roleDecisions.get(role);
+            if (retValue == null) {
+                retValue = request.isUserInRole(role);
+                roleDecisions.put(role, retValue);
+            }
+            return retValue;
+        }
+    }
 }
@@ -23,14 +23,30 @@ package org.apache.tiles;
 
 import static org.apache.tiles.CompareUtil.*;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 
 /**
  * Basic implementation for <code>AttributeContext</code>.
+ * <p>
+ * When a context is copied from another <code>BasicAttributeContext</code>,
+ * or inherits its cascaded attributes, the attributes it has itself are
+ * cloned into a snapshot, while the snapshots it has been copied from are
+ * shared as they are, since no context modifies them. The new context looks
+ * attributes up in these snapshots, and clones an attribute only when it is
+ * accessed for the first time. Hence the copy keeps seeing the attributes as
+ * they were, even if the original ones are modified afterwards. The original
+ * context is only read, so it can be copied by several threads at the same
+ * time. Since even a read can modify a copied context, a copied context must
+ * not be read by more than one thread at the same time.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.1.0
@@ -63,6 +79,27 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
      */
     protected Map<String, Attribute> cascadedAttributes = null;
 
+    /**
+     * The maximum number of shared maps that a context looks up, before
+     * merging them in a single one.
+     */
+    private static final int MAX_SHARED_MAPS = 8;
+
+    /**
+     * Local attribute maps of the contexts this one has been copied from, in
+     * lookup order. Their attributes are cloned into {@link #attributes} when
+     * first accessed. These maps are never modified.
+     */
+    private transient List<Map<String, Attribute>> sharedAttributes = null;
+
+    /**
+     * Cascaded attribute maps of the contexts this one has been copied from,
+     * in lookup order. Their attributes are cloned into
+     * {@link #cascadedAttributes} when first accessed. These maps are never
+     * modified.
+     */
+    private transient List<Map<String, Attribute>> sharedCascadedAttributes = null;
+
     /**
      * Constructor.
      *
@@ -148,7 +185,7 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     @Override
     public void inheritCascadedAttributes(AttributeContext context) {
         if (context instanceof BasicAttributeContext) {
-            copyCascadedAttributes((BasicAttributeContext) context);
+            shareCascadedAttributes((BasicAttributeContext) context);
         } else {
             this.cascadedAttributes = new HashMap<String, Attribute>();
             Set<String> parentAttributeNames = context.getCascadedAttributeNames();
@@ -221,9 +258,8 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
         }
 
         // Sets attributes.
-        cascadedAttributes = addMissingAttributes(parent.cascadedAttributes,
-                cascadedAttributes);
-        attributes = addMissingAttributes(parent.attributes, attributes);
+        addMissingAttributes(parent, true);
+        addMissingAttributes(parent, false);
     }
 
     /**
@@ -241,12 +277,12 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
             return;
         }
 
-        if (attributes == null) {
+        if (attributes == null && sharedAttributes == null) {
             attributes = new HashMap<String, Attribute>(newAttributes);
             return;
         }
 
-        attributes.putAll(newAttributes);
+        getWritableAttributes(false).putAll(newAttributes);
     }
 
     /**
@@ -264,21 +300,21 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
             return;
         }
 
-        if (attributes == null) {
+        if (attributes == null && sharedAttributes == null) {
             attributes = new HashMap<String, Attribute>();
-            if (cascadedAttributes == null || cascadedAttributes.isEmpty()) {
+            if ((cascadedAttributes == null || cascadedAttributes.isEmpty())
+                    && sharedCascadedAttributes == null) {
                 attributes.putAll(defaultAttributes);
                 return;
             }
         }
 
+        Map<String, Attribute> localAttributes = getWritableAttributes(false);
         Set<Map.Entry<String, Attribute>> entries = defaultAttributes.entrySet();
         for (Map.Entry<String, Attribute> entry : entries) {
             String key = entry.getKey();
-            if (!attributes.containsKey(key)
-                    && (cascadedAttributes == null || !cascadedAttributes
-                            .containsKey(key))) {
-                attributes.put(entry.getKey(), entry.getValue());
+            if (!containsAttribute(key, false) && !containsAttribute(key, true)) {
+                localAttributes.put(entry.getKey(), entry.getValue());
             }
         }
     }
@@ -286,13 +322,10 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     /** {@inheritDoc} */
     @Override
     public Attribute getAttribute(String name) {
-        Attribute retValue = null;
-        if (attributes != null) {
-            retValue = attributes.get(name);
-        }
+        Attribute retValue = lookupAttribute(name, false);
 
-        if (retValue == null && cascadedAttributes != null) {
-            retValue = cascadedAttributes.get(name);
+        if (retValue == null) {
+            retValue = lookupAttribute(name, true);
         }
 
         return retValue;
@@ -301,26 +334,19 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     /** {@inheritDoc} */
     @Override
     public Attribute getLocalAttribute(String name) {
-        if (attributes == null) {
-            return null;
-        }
-
-        return attributes.get(name);
+        return lookupAttribute(name, false);
     }
 
     /** {@inheritDoc} */
     @Override
     public Attribute getCascadedAttribute(String name) {
-        if (cascadedAttributes == null) {
-            return null;
-        }
-
-        return cascadedAttributes.get(name);
+        return lookupAttribute(name, true);
     }
 
     /** {@inheritDoc} */
     @Override
     public Set<String> getLocalAttributeNames() {
+        copySharedAttributes(false);
         if (attributes != null && !attributes.isEmpty()) {
             return attributes.keySet();
         }
@@ -330,6 +356,7 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     /** {@inheritDoc} */
     @Override
     public Set<String> getCascadedAttributeNames() {
+        copySharedAttributes(true);
         if (cascadedAttributes != null && !cascadedAttributes.isEmpty()) {
             return cascadedAttributes.keySet();
         }
@@ -339,29 +366,13 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     /** {@inheritDoc} */
     @Override
     public void putAttribute(String name, Attribute value) {
-        if (attributes == null) {
-            attributes = new HashMap<String, Attribute>();
-        }
-
-        attributes.put(name, value);
+        getWritableAttributes(false).put(name, value);
     }
 
     /** {@inheritDoc} */
     @Override
     public void putAttribute(String name, Attribute value, boolean cascade) {
-        Map<String, Attribute> mapToUse;
-        if (cascade) {
-            if (cascadedAttributes == null) {
-                cascadedAttributes = new HashMap<String, Attribute>();
-            }
-            mapToUse = cascadedAttributes;
-        } else {
-            if (attributes == null) {
-                attributes = new HashMap<String, Attribute>();
-            }
-            mapToUse = attributes;
-        }
-        mapToUse.put(name, value);
+        getWritableAttributes(cascade).put(name, value);
     }
 
     /** {@inheritDoc} */
@@ -369,14 +380,22 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     public void clear() {
         templateAttribute = null;
         preparer = null;
-        attributes.clear();
-        cascadedAttributes.clear();
+        sharedAttributes = null;
+        sharedCascadedAttributes = null;
+        if (attributes != null) {
+            attributes.clear();
+        }
+        if (cascadedAttributes != null) {
+            cascadedAttributes.clear();
+        }
     }
 
     /** {@inheritDoc} */
     @Override
     public boolean equals(Object obj) {
         BasicAttributeContext bac = (BasicAttributeContext) obj;
+        copySharedAttributes();
+        bac.copySharedAttributes();
         return nullSafeEquals(templateAttribute, bac.templateAttribute)
                 && nullSafeEquals(preparer, bac.preparer)
                 && nullSafeEquals(attributes, bac.attributes)
@@ -386,11 +405,24 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
     /** {@inheritDoc} */
     @Override
     public int hashCode() {
+        copySharedAttributes();
         return nullSafeHashCode(templateAttribute) + nullSafeHashCode(preparer)
                 + nullSafeHashCode(attributes)
                 + nullSafeHashCode(cascadedAttributes);
     }
 
+    /**
+     * Clones the attributes still shared with the contexts this one has been
+     * copied from, so that {@link #attributes} and {@link #cascadedAttributes}
+     * contain all the attributes of this context.
+     *
+     * @since 4.0.0
+     */
+    protected void copySharedAttributes() {
+        copySharedAttributes(false);
+        copySharedAttributes(true);
+    }
+
     /**
      * Inherits the parent template attribute.
      *
@@ -418,52 +450,277 @@ public class BasicAttributeContext implements AttributeContext, Serializable {
             this.templateAttribute = new Attribute(parentTemplateAttribute);
         }
         preparer = context.preparer;
-        if (context.attributes != null && !context.attributes.isEmpty()) {
-            attributes = deepCopyAttributeMap(context.attributes);
+        sharedAttributes = context.shareAttributes(false);
+        shareCascadedAttributes(context);
+    }
+
+    /**
+     * Shares the cascaded attributes of another context with the current
+     * context, replacing its own cascaded attributes if there are any to share.
+     *
+     * @param context The context to share the attributes of.
+     */
+    private void shareCascadedAttributes(BasicAttributeContext context) {
+        List<Map<String, Attribute>> maps = context.shareAttributes(true);
+        if (maps != null) {
+            cascadedAttributes = null;
+            sharedCascadedAttributes = maps;
+        }
+    }
+
+    /**
+     * Returns the maps that another context must look up to see the local or
+     * cascaded attributes of this one. This context is only read, so that
+     * contexts read by many threads, like definitions, can be copied
+     * concurrently: its own attributes, that it may still modify, are cloned
+     * into a snapshot, and the maps it shares itself are never modified.
+     *
+     * @param cascade If <code>true</code>, the cascaded attributes are shared.
+     * @return The maps to look up, in order, or <code>null</code> if there are
+     * no attributes.
+     */
+    private List<Map<String, Attribute>> shareAttributes(boolean cascade) {
+        Map<String, Attribute> ownAttributes = cascade ? cascadedAttributes : attributes;
+        List<Map<String, Attribute>> maps = cascade ? sharedCascadedAttributes : sharedAttributes;
+        boolean hasOwnAttributes = ownAttributes != null && !ownAttributes.isEmpty();
+        if (!hasOwnAttributes) {
+            return maps;
+        }
+        if (maps != null && maps.size() >= MAX_SHARED_MAPS) {
+            // Too many levels: merge them.
+            Map<String, Attribute> merged = new HashMap<String, Attribute>();
+            for (int i = maps.size() - 1; i >= 0; i--) {
+                merged.putAll(maps.get(i));
+            }
+            merged.putAll(deepCopyAttributeMap(ownAttributes));
+            List<Map<String, Attribute>> retValue = new ArrayList<Map<String, Attribute>>(1);
+            retValue.add(merged);
+            return retValue;
+        }
+        List<Map<String, Attribute>> retValue = new ArrayList<Map<String, Attribute>>(
+                maps != null ? maps.size() + 1 : 1);
+        retValue.add(deepCopyAttributeMap(ownAttributes));
+        if (maps != null) {
+            retValue.addAll(maps);
         }
-        copyCascadedAttributes(context);
+        return retValue;
     }
 
     /**
-     * Copies the cascaded attributes to the current context.
+     * Returns the map of local or cascaded attributes of this context, ready
+     * to be modified.
      *
-     * @param context The context to copy from.
+     * @param cascade If <code>true</code>, the cascaded attributes are
+     * returned.
+     * @return The attribute map, never <code>null</code>.
      */
-    private void copyCascadedAttributes(BasicAttributeContext context) {
-        if (context.cascadedAttributes != null
-                && !context.cascadedAttributes.isEmpty()) {
-            cascadedAttributes = deepCopyAttributeMap(context.cascadedAttributes);
+    private Map<String, Attribute> getWritableAttributes(boolean cascade) {
+        if (cascade) {
+            if (cascadedAttributes == null) {
+                cascadedAttributes = new HashMap<String, Attribute>();
+            }
+            return cascadedAttributes;
+        }
+        if (attributes == null) {
+            attributes = new HashMap<String, Attribute>();
         }
+        return attributes;
     }
 
     /**
-     * Adds missing attributes to the destination map.
+     * Looks up a local or cascaded attribute, cloning it if it is still shared
+     * with the context this one has been copied from.
      *
-     * @param source The source attribute map.
-     * @param destination The destination attribute map.
-     * @return The destination attribute map if not null, a new one otherwise.
+     * @param name The name of the attribute.
+     * @param cascade If <code>true</code>, a cascaded attribute is looked up.
+     * @return The attribute, or <code>null</code> if not found.
      */
-    private Map<String, Attribute> addMissingAttributes(Map<String, Attribute> source,
-            Map<String, Attribute> destination) {
-        if (source != null && !source.isEmpty()) {
-            if (destination == null) {
-                destination = new HashMap<String, Attribute>();
+    private Attribute lookupAttribute(String name, boolean cascade) {
+        Map<String, Attribute> ownAttributes = cascade ? cascadedAttributes : attributes;
+        List<Map<String, Attribute>> maps = cascade ? sharedCascadedAttributes : sharedAttributes;
+        Attribute retValue = null;
+        if (ownAttributes != null) {
+            retValue = ownAttributes.get(name);
+            if (retValue != null || ownAttributes.containsKey(name)) {
+                return retValue;
             }
-            for (Map.Entry<String, Attribute> entry : source.entrySet()) {
+        }
+        if (maps != null) {
+            for (Map<String, Attribute> map : maps) {
+                Attribute attribute = map.get(name);
+                if (attribute != null || map.containsKey(name)) {
+                    if (attribute != null) {
+                        retValue = attribute.clone();
+                    }
+                    getWritableAttributes(cascade).put(name, retValue);
+                    break;
+                }
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns a local or cascaded attribute, without cloning it if it is still
+     * shared with other contexts. The returned attribute must not be modified.
+     *
+     * @param name The name of the attribute.
+     * @param cascade If <code>true</code>, a cascaded attribute is returned.
+     * @return The attribute, or <code>null</code> if not found.
+     */
+    private Attribute peekAttribute(String name, boolean cascade) {
+        Map<String, Attribute> ownAttributes = cascade ? cascadedAttributes : attributes;
+        if (ownAttributes != null && ownAttributes.containsKey(name)) {
+            return ownAttributes.get(name);
+        }
+        List<Map<String, Attribute>> maps = cascade ? sharedCascadedAttributes : sharedAttributes;
+        if (maps != null) {
+            for (Map<String, Attribute> map : maps) {
+                if (map.containsKey(name)) {
+                    return map.get(name);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a local or cascaded attribute name is present, without cloning
+     * the attribute.
+     *
+     * @param name The name of the attribute.
+     * @param cascade If <code>true</code>, cascaded attributes are checked.
+     * @return <code>true</code> if the name is present.
+     */
+    private boolean containsAttribute(String name, boolean cascade) {
+        Map<String, Attribute> ownAttributes = cascade ? cascadedAttributes : attributes;
+        if (ownAttributes != null && ownAttributes.containsKey(name)) {
+            return true;
+        }
+        List<Map<String, Attribute>> maps = cascade ? sharedCascadedAttributes : sharedAttributes;
+        if (maps != null) {
+            for (Map<String, Attribute> map : maps) {
+                if (map.containsKey(name)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Clones the local or cascaded attributes still shared with the contexts
+     * this one has been copied from.
+     *
+     * @param cascade If <code>true</code>, the cascaded attributes are copied.
+     */
+    private void copySharedAttributes(boolean cascade) {
+        List<Map<String, Attribute>> maps = cascade ? sharedCascadedAttributes : sharedAttributes;
+        if (maps == null) {
+            return;
+        }
+        Map<String, Attribute> ownAttributes = getWritableAttributes(cascade);
+        for (Map<String, Attribute> map : maps) {
+            for (Map.Entry<String, Attribute> entry : map.entrySet()) {
                 String key = entry.getKey();
-                Attribute destAttribute = destination.get(key);
-                if (destAttribute == null) {
-                    destination.put(key, entry.getValue());
-                } else if (destAttribute instanceof ListAttribute
-                        && entry.getValue() instanceof ListAttribute
-                        && ((ListAttribute) destAttribute).isInherit()) {
-                    ((ListAttribute) destAttribute)
-                            .inherit((ListAttribute) entry.getValue());
+                Attribute toCopy = entry.getValue();
+                if (toCopy != null && !ownAttributes.containsKey(key)) {
+                    ownAttributes.put(key, toCopy.clone());
                 }
             }
         }
+        if (cascade) {
+            sharedCascadedAttributes = null;
+        } else {
+            sharedAttributes = null;
+        }
+    }
+
+    /**
+     * Adds the local or cascaded attributes of the parent that are missing in
+     * this context, inheriting list attributes if needed.
+     *
+     * @param parent The parent context.
+     * @param cascade If <code>true</code>, the cascaded attributes are added.
+     */
+    private void addMissingAttributes(BasicAttributeContext parent, boolean cascade) {
+        Map<String, Attribute> parentAttributes = cascade ? parent.cascadedAttributes : parent.attributes;
+        List<Map<String, Attribute>> parentMaps = cascade ? parent.sharedCascadedAttributes
+                : parent.sharedAttributes;
+        if (parentAttributes != null) {
+            for (Map.Entry<String, Attribute> entry : parentAttributes.entrySet()) {
+                addMissingAttribute(entry.getKey(), entry.getValue(), cascade);
+            }
+        }
+        if (parentMaps != null) {
+            for (int i = 0; i < parentMaps.size(); i++) {
+                for (Map.Entry<String, Attribute> entry : parentMaps.get(i).entrySet()) {
+                    String key = entry.getKey();
+                    if (!isHidden(key, parentAttributes, parentMaps, i)) {
+                        addMissingAttribute(key, entry.getValue(), cascade);
+                    }
+                }
+            }
+        }
+    }
 
-        return destination;
+    /**
+     * Checks if an attribute name, found in one of the shared maps of a
+     * context, is hidden by its own map or by a previous shared map.
+     *
+     * @param name The name of the attribute.
+     * @param ownAttributes The own map of the context.
+     * @param maps The shared maps of the context.
+     * @param index The index of the map where the name has been found.
+     * @return <code>true</code> if the name is hidden.
+     */
+    private static boolean isHidden(String name, Map<String, Attribute> ownAttributes,
+            List<Map<String, Attribute>> maps, int index) {
+        if (ownAttributes != null && ownAttributes.containsKey(name)) {
+            return true;
+        }
+        for (int i = 0; i < index; i++) {
+            if (maps.get(i).containsKey(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Adds an attribute if missing in this context, inheriting it if both are
+     * list attributes.
+     *
+     * @param name The name of the attribute.
+     * @param attribute The attribute to add.
+     * @param cascade If <code>true</code>, a cascaded attribute is added.
+     */
+    private void addMissingAttribute(String name, Attribute attribute, boolean cascade) {
+        if (attribute == null) {
+            return;
+        }
+        Attribute destAttribute = peekAttribute(name, cascade);
+        if (destAttribute == null) {
+            getWritableAttributes(cascade).put(name, attribute);
+        } else if (destAttribute instanceof ListAttribute
+                && attribute instanceof ListAttribute
+                && ((ListAttribute) destAttribute).isInherit()) {
+            // The list may be shared with other contexts, inherit in a copy.
+            ListAttribute listAttribute = ((ListAttribute) destAttribute).clone();
+            listAttribute.inherit((ListAttribute) attribute);
+            getWritableAttributes(cascade).put(name, listAttribute);
+        }
+    }
+
+    /**
+     * Clones the shared attributes before serializing.
+     *
+     * @param out The output stream.
+     * @throws IOException If something goes wrong while writing.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        copySharedAttributes();
+        out.defaultWriteObject();
     }
 
     /**
@@ -59,6 +59,8 @@ public class Definition extends BasicAttributeContext {
      */
     public Definition(Definition definition) {
         super(definition);
+        // Definitions may be shared between threads: do not copy lazily.
+        copySharedAttributes();
         this.name = definition.name;
         this.inherit = definition.inherit;
     }
@@ -23,15 +23,47 @@ package org.apache.tiles;
 
 import static org.apache.tiles.CompareUtil.*;
 
+import java.util.regex.Pattern;
+
+import org.apache.tiles.request.collection.BoundedCache;
+
 /**
  * It is an expression, along with the expression language (e.g. EL, MVEL, OGNL)
  * it is expressed with.
+ * <p>
+ * Expressions are immutable, so the same instance can be shared between
+ * attributes. The factory methods return shared instances for the most used
+ * expressions.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.0
  */
 public class Expression {
 
+    /**
+     * The maximum number of expressions kept by the factory methods.
+     */
+    private static final int MAX_SHARED_EXPRESSIONS = 4096;
+
+    /**
+     * The pattern of an expression in the form <code>LANGUAGE:EXPRESSION</code>.
+     */
+    private static final Pattern DESCRIBED_EXPRESSION_PATTERN = Pattern.compile("[a-zA-Z0-9]+:.+");
+
+    /**
+     * Maps an expression in the form <code>LANGUAGE:EXPRESSION</code> to its
+     * shared object.
+     */
+    private static final BoundedCache<String, Expression> DESCRIBED_EXPRESSIONS =
+        new BoundedCache<String, Expression>(MAX_SHARED_EXPRESSIONS);
+
+    /**
+     * The shared expression objects.
+     */
+    private static final BoundedCache<Expression, Expression> EXPRESSIONS =
+        new BoundedCache<Expression, Expression>(MAX_SHARED_EXPRESSIONS);
+
     /**
      * The expression itself.
      */
@@ -83,17 +115,23 @@ public class Expression {
      * <code>LANGUAGE:EXPRESSION</code>. The LANGUAGE part should be expressed
      * only with letters and numbers.
      * @return The created object, or <code>null</code> if the expression is null.
+     * It may be shared with other callers.
      * @since 2.2.0
      */
     public static Expression createExpressionFromDescribedExpression(String describedExpression) {
         if (describedExpression != null) {
+            Expression retValue = DESCRIBED_EXPRESSIONS.get(describedExpression);
+            if (retValue != null) {
+                return retValue;
+            }
             String language = null;
             String expression = describedExpression;
-            if (describedExpression.matches("[a-zA-Z0-9]+:.+")) {
+            if (DESCRIBED_EXPRESSION_PATTERN.matcher(describedExpression).matches()) {
                 language = describedExpression.substring(0, describedExpression.indexOf(':'));
                 expression = describedExpression.substring(describedExpression.indexOf(':') + 1);
             }
-            return new Expression(expression, language);
+            return DESCRIBED_EXPRESSIONS.putIfAbsent(describedExpression,
+                    share(new Expression(expression, language)));
         }
 
         return null;
@@ -105,16 +143,32 @@ public class Expression {
      * @param expression The expression itself.
      * @param language The language of the expression.
      * @return The created object, or <code>null</code> if the expression is null.
+     * It may be shared with other callers.
      * @since 2.2.0
      */
     public static Expression createExpression(String expression, String language) {
         if (expression != null) {
-            return new Expression(expression, language);
+            return share(new Expression(expression, language));
         }
 
         return null;
     }
 
+    /**
+     * Returns the shared instance equal to the given expression, sharing it
+     * if there is none.
+     *
+     * @param expression The expression.
+     * @return The shared expression, or the given one.
+     */
+    private static Expression share(Expression expression) {
+        Expression retValue = EXPRESSIONS.get(expression);
+        if (retValue == null) {
+            retValue = EXPRESSIONS.putIfAbsent(expression, expression);
+        }
+        return retValue;
+    }
+
     /**
      * Returns the expression string.
      *
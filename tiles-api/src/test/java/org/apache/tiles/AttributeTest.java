@@ -24,11 +24,15 @@ import static org.apache.tiles.CompareUtil.*;
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
+import org.apache.tiles.request.CachingRequest;
 import org.apache.tiles.request.Request;
+import org.easymock.Capture;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -138,6 +142,25 @@ class AttributeTest {
         assertNull(attribute.getExpressionObject());
     }
 
+    /**
+     * Tests that {@link Attribute#Attribute(Attribute)} and
+     * {@link Attribute#setRole(String)} share immutable values.
+     */
+    @Test
+    void testSharedValues() {
+        Expression expression = new Expression("my.expression", "MYLANG");
+        Attribute attribute = new Attribute("my.value", expression, "role1, role2", new String("myrenderer"));
+        Attribute copy = new Attribute(attribute);
+        assertSame(expression, copy.getExpressionObject());
+        assertSame(attribute.getRoles(), copy.getRoles());
+        assertSame("myrenderer", copy.getRenderer());
+
+        Attribute other = new Attribute("other.value", "role1, role2");
+        assertSame(attribute.getRoles(), other.getRoles());
+        Set<String> roles = other.getRoles();
+        assertThrows(UnsupportedOperationException.class, () -> roles.add("role3"));
+    }
+
     /**
      * Tests {@link Attribute#equals(Object)}.
      */
@@ -286,4 +309,80 @@ class AttributeTest {
         assertFalse(attribute.isPermitted(requestContext), "The role is not permitted");
         verify(requestContext);
     }
+
+    /**
+     * Tests {@link Attribute#isPermitted(Request)} when the role checks are
+     * cached in the request.
+     */
+    @Test
+    void testIsPermittedCached() {
+        CachingRequest request = createMock(CachingRequest.class);
+        Capture<Object> decisions = Capture.newInstance();
+
+        expect(request.getCachedObject(isA(String.class))).andReturn(null);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(new HashMap<String, Object>());
+        request.setCachedObject(isA(String.class), capture(decisions));
+        expect(request.getCachedObject(isA(String.class))).andAnswer(decisions::getValue).anyTimes();
+        expect(request.isUserInRole("first")).andReturn(Boolean.FALSE);
+        expect(request.isUserInRole("second")).andReturn(Boolean.TRUE);
+
+        replay(request);
+        Attribute attribute = new Attribute("myvalue", "first,second");
+        assertTrue(attribute.isPermitted(request));
+        assertTrue(new Attribute("othervalue", "first,second").isPermitted(request));
+        assertFalse(new Attribute("thirdvalue", "first").isPermitted(request));
+        assertTrue(new Attribute("fourthvalue").isPermitted(request));
+        verify(request);
+    }
+
+    /**
+     * Tests that the role checks are shared by the request objects that wrap
+     * the same request, like the ones that tags create.
+     */
+    @Test
+    void testIsPermittedSharedByRequestObjects() {
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        CachingRequest first = createMock(CachingRequest.class);
+        CachingRequest second = createMock(CachingRequest.class);
+        expect(first.getCachedObject(Attribute.ROLE_DECISIONS_ATTRIBUTE_NAME)).andReturn(null);
+        expect(first.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope);
+        first.setCachedObject(eq(Attribute.ROLE_DECISIONS_ATTRIBUTE_NAME), notNull());
+        expect(first.isUserInRole("first")).andReturn(Boolean.TRUE);
+        expect(second.getCachedObject(Attribute.ROLE_DECISIONS_ATTRIBUTE_NAME)).andReturn(null);
+        expect(second.getContext(Request.REQUEST_SCOPE)).andReturn(requestScope);
+        second.setCachedObject(eq(Attribute.ROLE_DECISIONS_ATTRIBUTE_NAME), notNull());
+
+        replay(first, second);
+        assertTrue(new Attribute("myvalue", "first").isPermitted(first));
+        assertTrue(new Attribute("othervalue", "first").isPermitted(second));
+        verify(first, second);
+    }
+
+    /**
+     * Tests that a set of roles modified after being checked is checked
+     * again, when the role checks are cached in the request.
+     */
+    @Test
+    void testIsPermittedCachedModifiedRoles() {
+        CachingRequest request = createMock(CachingRequest.class);
+        Capture<Object> decisions = Capture.newInstance();
+
+        expect(request.getCachedObject(isA(String.class))).andReturn(null);
+        expect(request.getContext(Request.REQUEST_SCOPE)).andReturn(new HashMap<String, Object>());
+        request.setCachedObject(isA(String.class), capture(decisions));
+        expect(request.getCachedObject(isA(String.class))).andAnswer(decisions::getValue).anyTimes();
+        expect(request.isUserInRole("first")).andReturn(Boolean.TRUE);
+        expect(request.isUserInRole("second")).andReturn(Boolean.FALSE);
+
+        replay(request);
+        Set<String> roles = new HashSet<String>();
+        roles.add("first");
+        Attribute attribute = new Attribute("myvalue");
+        attribute.setRoles(roles);
+        assertTrue(attribute.isPermitted(request));
+        roles.clear();
+        roles.add("second");
+        assertFalse(attribute.isPermitted(request));
+        verify(request);
+    }
 }
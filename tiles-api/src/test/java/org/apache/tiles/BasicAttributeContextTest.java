@@ -24,6 +24,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.easymock.EasyMock.*;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
@@ -741,4 +742,148 @@ class BasicAttributeContextTest {
         assertTrue(attribute instanceof ListAttribute);
         assertTrue(((ListAttribute) attribute).isInherit());
     }
+
+    /**
+     * Tests that a copied context and the original one do not see each other's
+     * modifications.
+     */
+    @Test
+    void testCopyOnWrite() {
+        BasicAttributeContext toCopy = new BasicAttributeContext();
+        Attribute attribute1 = new Attribute("value1");
+        toCopy.putAttribute("name1", attribute1, false);
+        toCopy.putAttribute("name2", new Attribute("value2"), true);
+        BasicAttributeContext context = new BasicAttributeContext(toCopy);
+        toCopy.putAttribute("name3", new Attribute("value3"), false);
+        toCopy.putAttribute("name4", new Attribute("value4"), true);
+        context.putAttribute("name5", new Attribute("value5"), false);
+
+        assertNull(context.getAttribute("name3"));
+        assertNull(context.getAttribute("name4"));
+        assertNull(toCopy.getAttribute("name5"));
+        Attribute attribute = context.getLocalAttribute("name1");
+        assertNotSame(attribute1, attribute);
+        assertEquals(attribute1, attribute);
+        assertSame(attribute, context.getLocalAttribute("name1"));
+        assertEquals("value2", context.getCascadedAttribute("name2").getValue());
+        assertEquals(new HashSet<String>(Arrays.asList("name1", "name5")),
+                context.getLocalAttributeNames());
+        assertEquals(new HashSet<String>(Arrays.asList("name2")),
+                context.getCascadedAttributeNames());
+    }
+
+    /**
+     * Tests that copying a context does not modify it, so that contexts read
+     * by many threads, like definitions, can be copied concurrently.
+     */
+    @Test
+    void testCopyDoesNotModifyOriginal() {
+        BasicAttributeContext toCopy = new BasicAttributeContext();
+        toCopy.putAttribute("name1", new Attribute("value1"), false);
+        toCopy.putAttribute("name2", new Attribute("value2"), true);
+        Map<String, Attribute> attributes = toCopy.attributes;
+        Map<String, Attribute> cascadedAttributes = toCopy.cascadedAttributes;
+        BasicAttributeContext context = new BasicAttributeContext(toCopy);
+        BasicAttributeContext child = new BasicAttributeContext();
+        child.inheritCascadedAttributes(toCopy);
+        toCopy.putAttribute("name3", new Attribute("value3"), false);
+        toCopy.putAttribute("name4", new Attribute("value4"), true);
+
+        assertSame(attributes, toCopy.attributes);
+        assertSame(cascadedAttributes, toCopy.cascadedAttributes);
+        assertNull(context.getAttribute("name3"));
+        assertNull(context.getAttribute("name4"));
+        assertNull(child.getAttribute("name4"));
+        assertEquals("value2", child.getCascadedAttribute("name2").getValue());
+    }
+
+    /**
+     * Tests that a copy does not see the changes made to the attributes of
+     * the original context afterwards.
+     */
+    @Test
+    void testCopyIsolatedFromOriginal() {
+        BasicAttributeContext toCopy = new BasicAttributeContext();
+        toCopy.putAttribute("name1", new Attribute("old"), false);
+        ListAttribute list = new ListAttribute();
+        list.add(new Attribute("item1"));
+        toCopy.putAttribute("list", list, true);
+        BasicAttributeContext context = new BasicAttributeContext(toCopy);
+        BasicAttributeContext child = new BasicAttributeContext();
+        child.inheritCascadedAttributes(toCopy);
+
+        toCopy.getAttribute("name1").setValue("new");
+        ((ListAttribute) toCopy.getAttribute("list")).add(new Attribute("item2"));
+
+        assertEquals("old", context.getAttribute("name1").getValue());
+        assertEquals(1, ((ListAttribute) context.getAttribute("list")).getValue().size());
+        assertEquals(1, ((ListAttribute) child.getAttribute("list")).getValue().size());
+        assertEquals("new", toCopy.getAttribute("name1").getValue());
+        assertEquals(2, ((ListAttribute) toCopy.getAttribute("list")).getValue().size());
+    }
+
+    /**
+     * Tests {@link BasicAttributeContext#inheritCascadedAttributes(AttributeContext)}
+     * when the parent is modified after the inheritance.
+     */
+    @Test
+    void testInheritCascadedAttributesCopyOnWrite() {
+        BasicAttributeContext parent = new BasicAttributeContext();
+        parent.putAttribute("name1", new Attribute("value1"), true);
+        BasicAttributeContext context = new BasicAttributeContext();
+        context.inheritCascadedAttributes(parent);
+        parent.putAttribute("name2", new Attribute("value2"), true);
+        parent.clear();
+
+        assertEquals("value1", context.getAttribute("name1").getValue());
+        assertNull(context.getAttribute("name2"));
+        assertNull(parent.getAttribute("name1"));
+    }
+
+    /**
+     * Tests cascaded attributes inherited through many levels of contexts.
+     */
+    @Test
+    void testInheritCascadedAttributesManyLevels() {
+        BasicAttributeContext context = new BasicAttributeContext();
+        final int levels = 20;
+        for (int i = 0; i < levels; i++) {
+            BasicAttributeContext child = new BasicAttributeContext();
+            child.inheritCascadedAttributes(context);
+            child.putAttribute("name" + i, new Attribute("value" + i), true);
+            child.putAttribute("common", new Attribute("value" + i), true);
+            context = child;
+        }
+
+        for (int i = 0; i < levels; i++) {
+            assertEquals("value" + i, context.getAttribute("name" + i).getValue());
+        }
+        assertEquals("value" + (levels - 1), context.getAttribute("common").getValue());
+        assertEquals(levels + 1, context.getCascadedAttributeNames().size());
+    }
+
+    /**
+     * Tests {@link BasicAttributeContext#inherit(BasicAttributeContext)} on a
+     * copied context, checking that list attributes of the original context
+     * are not modified.
+     */
+    @Test
+    void testInheritListAttributeCopied() {
+        BasicAttributeContext toCopy = new BasicAttributeContext();
+        ListAttribute listAttribute = new ListAttribute();
+        listAttribute.setInherit(true);
+        listAttribute.add(new Attribute("second"));
+        toCopy.putAttribute("list", listAttribute);
+        BasicAttributeContext parent = new BasicAttributeContext();
+        ListAttribute parentListAttribute = new ListAttribute();
+        parentListAttribute.add(new Attribute("first"));
+        parent.putAttribute("list", parentListAttribute);
+
+        BasicAttributeContext context = new BasicAttributeContext(toCopy);
+        context.inherit(parent);
+
+        assertEquals(2, ((ListAttribute) context.getAttribute("list")).getValue().size());
+        assertEquals(1, listAttribute.getValue().size());
+        assertSame(listAttribute, toCopy.getAttribute("list"));
+    }
 }
@@ -103,6 +103,18 @@ class ExpressionTest {
         assertNull(expression);
     }
 
+    /**
+     * Tests that the factory methods of {@link Expression} share the created
+     * objects.
+     */
+    @Test
+    void testSharedExpressions() {
+        Expression expression = Expression.createExpressionFromDescribedExpression("MYLANG:shared.expression");
+        assertSame(expression, Expression.createExpressionFromDescribedExpression("MYLANG:shared.expression"));
+        assertSame(expression, Expression.createExpression("shared.expression", "MYLANG"));
+        assertNotSame(expression, Expression.createExpression("shared.expression", null));
+    }
+
     /**
      * Test method for {@link org.apache.tiles.Expression#equals(java.lang.Object)}.
      */
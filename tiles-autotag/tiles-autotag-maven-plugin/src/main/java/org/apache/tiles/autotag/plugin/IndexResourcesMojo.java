@@ -0,0 +1,159 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.autotag.plugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.codehaus.plexus.util.Scanner;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Writes the index of the Tiles resources of a project, i.e. the list of
+ * their paths, one per line, so that the
+ * <code>WildcardServletApplicationContext</code> can find them in the jar
+ * of the project without listing its entries. The index is written in the
+ * output directory, to be packaged with the classes.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+@Mojo(name = "index-resources", defaultPhase = LifecyclePhase.PROCESS_CLASSES)
+public class IndexResourcesMojo extends AbstractMojo {
+
+    /**
+     * The path indexed by default even if it is not in the output directory.
+     */
+    private static final String DEFAULT_ADDITIONAL_ENTRY = "META-INF/MANIFEST.MF";
+
+    /**
+     * The directory containing the resources to index, where the index is
+     * written.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    File outputDirectory;
+
+    /**
+     * Included resources, relative to the output directory. By default
+     * <code>META-INF/**&#47;tiles*.xml</code>.
+     */
+    @Parameter
+    Set<String> includes;
+
+    /**
+     * Excluded resources.
+     */
+    @Parameter
+    Set<String> excludes;
+
+    /**
+     * Paths indexed even if they are not in the output directory, because
+     * they are added when packaging. By default
+     * <code>META-INF/MANIFEST.MF</code>, that the jar plugin adds and that
+     * the modular initializer looks for in every jar.
+     */
+    @Parameter
+    Set<String> additionalEntries;
+
+    /**
+     * The path of the index, relative to the output directory.
+     */
+    @Parameter(defaultValue = "META-INF/tiles.index", required = true)
+    String indexPath;
+
+    @Component
+    BuildContext buildContext;
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute() throws MojoExecutionException {
+        Set<String> entries = new TreeSet<String>();
+        if (additionalEntries == null) {
+            entries.add(DEFAULT_ADDITIONAL_ENTRY);
+        } else {
+            entries.addAll(additionalEntries);
+        }
+        for (String fileName : getInclusionScanner().getIncludedFiles()) {
+            entries.add(fileName.replace(File.separatorChar, '/'));
+        }
+        entries.remove(indexPath);
+        StringBuilder content = new StringBuilder();
+        for (String entry : entries) {
+            content.append(entry).append('\n');
+        }
+        byte[] bytes = content.toString().getBytes(StandardCharsets.UTF_8);
+        File indexFile = new File(outputDirectory, indexPath);
+        try {
+            // Keep the file untouched if nothing changed, not to trigger rebuilds.
+            if (indexFile.exists() && new String(Files.readAllBytes(indexFile.toPath()),
+                    StandardCharsets.UTF_8).equals(content.toString())) {
+                return;
+            }
+            indexFile.getParentFile().mkdirs();
+            OutputStream stream = buildContext.newFileOutputStream(indexFile);
+            try {
+                stream.write(bytes);
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("error", e);
+        }
+    }
+
+    /**
+     * Creates an inclusion scanner of the output directory.
+     *
+     * @return The inclusion scanner.
+     */
+    private Scanner getInclusionScanner() {
+        Scanner scanner = buildContext.newScanner(outputDirectory, true);
+        if (includes == null) {
+            includes = new HashSet<String>();
+        }
+        if (excludes == null) {
+            excludes = new HashSet<String>();
+        }
+
+        if (includes.isEmpty()) {
+            scanner.setIncludes(new String[] {"META-INF/**/tiles*.xml"});
+        } else {
+            scanner.setIncludes(includes.toArray(new String[includes.size()]));
+        }
+        if (!excludes.isEmpty()) {
+            scanner.setExcludes(excludes.toArray(new String[excludes.size()]));
+        }
+        scanner.scan();
+        return scanner;
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.autotag.plugin;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.PrecompiledDefinitions;
+import org.apache.tiles.definition.dao.PrecompiledLocaleDefinitionDAO;
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.apache.tiles.definition.pattern.BasicPatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.PrefixedPatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.regexp.RegexpDefinitionPatternMatcherFactory;
+import org.apache.tiles.definition.pattern.wildcard.WildcardDefinitionPatternMatcherFactory;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.locale.URLApplicationResource;
+import org.codehaus.plexus.util.Scanner;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Reads the Tiles definition files of a project, checks that they are valid
+ * and that their inheritances and patterns can be resolved, and writes them
+ * as {@link PrecompiledDefinitions}, to be loaded by
+ * {@link PrecompiledLocaleDefinitionDAO} without parsing XML. Invalid
+ * definitions fail the build, as well as definitions of the same locale
+ * defined in more than one file: at runtime the last loaded source wins, and
+ * the order of the sources there (configured or classpath order) cannot be
+ * known at build time.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+@Mojo(name = "precompile-definitions", defaultPhase = LifecyclePhase.PROCESS_RESOURCES)
+public class PrecompileDefinitionsMojo extends AbstractMojo {
+
+    /**
+     * The directory containing the definition files.
+     */
+    @Parameter(defaultValue = "${basedir}/src/main/webapp", required = true)
+    File sourceDirectory;
+
+    /**
+     * Included definition files, relative to the source directory. By default
+     * <code>WEB-INF/**&#47;tiles*.xml</code>.
+     */
+    @Parameter
+    Set<String> includes;
+
+    /**
+     * Excluded definition files.
+     */
+    @Parameter
+    Set<String> excludes;
+
+    /**
+     * The directory where the precompiled definitions are written. It is
+     * added to the resources of the project.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/tiles-definitions", required = true)
+    File outputDirectory;
+
+    /**
+     * The path of the precompiled definitions, relative to the output
+     * directory.
+     */
+    @Parameter(defaultValue = "META-INF/tiles-definitions.bin", required = true)
+    String outputPath;
+
+    /**
+     * Whether the definition files are validated against their DTD.
+     */
+    @Parameter(defaultValue = "true")
+    boolean validating;
+
+    /**
+     * Whether pattern definitions use the <code>WILDCARD:</code> and
+     * <code>REGEXP:</code> prefixes, as in the complete autoload
+     * configuration, instead of plain wildcards.
+     */
+    @Parameter(defaultValue = "false")
+    boolean prefixedPatterns;
+
+    /**
+     * The file recording the definition files and the parameters used to
+     * write the precompiled definitions, so that they are written again when
+     * a file is removed or renamed, or when a parameter changes.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/tiles-definitions.inputs", required = true)
+    File inputsFile;
+
+    @Parameter(property = "project", required = true, readonly = true)
+    MavenProject project;
+
+    @Component
+    BuildContext buildContext;
+
+    /** {@inheritDoc} */
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        try {
+            String[] fileNames = getSourceInclusionScanner().getIncludedFiles();
+            // Names defined in more than one source fail the build, so the
+            // order only keeps the recorded inputs stable.
+            Arrays.sort(fileNames);
+            File outputFile = new File(outputDirectory, outputPath);
+            List<String> inputs = getInputs(fileNames);
+            boolean uptodate = outputFile.exists() && inputs.equals(readInputs());
+            for (String fileName : fileNames) {
+                uptodate &= buildContext.isUptodate(outputFile, new File(sourceDirectory, fileName));
+            }
+            if (!uptodate) {
+                PrecompiledDefinitions definitions = readDefinitions(fileNames);
+                validateDefinitions(definitions);
+                writeDefinitions(outputFile, definitions);
+                writeInputs(inputs);
+            }
+            addResourceDirectory(outputDirectory.getAbsolutePath());
+        } catch (IOException e) {
+            throw new MojoExecutionException("error", e);
+        }
+    }
+
+    /**
+     * Reads the definition files.
+     *
+     * @param fileNames The names of the files, relative to the source
+     * directory.
+     * @return The read definitions.
+     * @throws IOException If a file cannot be read.
+     * @throws MojoFailureException If a file is not valid, or if a
+     * definition is defined in more than one file for the same locale.
+     */
+    private PrecompiledDefinitions readDefinitions(String[] fileNames)
+            throws IOException, MojoFailureException {
+        PrecompiledDefinitions retValue = new PrecompiledDefinitions();
+        Map<Locale, Map<String, String>> locale2sources = new HashMap<Locale, Map<String, String>>();
+        DigesterDefinitionsReader reader = new DigesterDefinitionsReader();
+        reader.setValidating(validating);
+        for (String fileName : fileNames) {
+            File file = new File(sourceDirectory, fileName);
+            // The locale is taken from the file name, as it is done at runtime.
+            URLApplicationResource resource = new URLApplicationResource(
+                    "/" + fileName.replace(File.separatorChar, '/'), file.toURI().toURL());
+            InputStream stream = new FileInputStream(file);
+            try {
+                Map<String, Definition> definitions = reader.read(stream);
+                checkDuplicates(locale2sources, resource.getLocale(), fileName, definitions.keySet());
+                retValue.addDefinitions(resource.getLocale(), definitions);
+            } catch (RuntimeException e) {
+                throw new MojoFailureException("Invalid definitions in " + file + ": " + e.getMessage(), e);
+            } finally {
+                stream.close();
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Checks that definitions have not been defined by another file for the
+     * same locale.
+     *
+     * @param locale2sources The file defining each definition name, per
+     * locale. It is updated with the checked names.
+     * @param locale The locale of the file.
+     * @param fileName The name of the file.
+     * @param names The names of the definitions of the file.
+     * @throws MojoFailureException If a name has already been defined.
+     */
+    private void checkDuplicates(Map<Locale, Map<String, String>> locale2sources, Locale locale,
+            String fileName, Collection<String> names) throws MojoFailureException {
+        Map<String, String> sources = locale2sources.get(locale);
+        if (sources == null) {
+            sources = new HashMap<String, String>();
+            locale2sources.put(locale, sources);
+        }
+        for (String name : names) {
+            String previous = sources.put(name, fileName);
+            if (previous != null) {
+                throw new MojoFailureException("Definition '" + name + "' is defined in both " + previous
+                        + " and " + fileName + ", which one is used depends on the order of the sources"
+                        + " at runtime");
+            }
+        }
+    }
+
+    /**
+     * Resolves the definitions of every locale, to check inheritances and
+     * patterns.
+     *
+     * @param definitions The definitions to check.
+     * @throws MojoFailureException If definitions cannot be resolved.
+     */
+    private void validateDefinitions(PrecompiledDefinitions definitions) throws MojoFailureException {
+        PrecompiledLocaleDefinitionDAO dao = new PrecompiledLocaleDefinitionDAO(
+                new SourceDirectoryApplicationContext(sourceDirectory));
+        dao.setPrecompiledDefinitions(definitions);
+        dao.setPatternDefinitionResolver(createPatternDefinitionResolver());
+        for (Locale locale : definitions.getLocales()) {
+            try {
+                dao.getDefinitions(locale);
+            } catch (RuntimeException e) {
+                throw new MojoFailureException("Invalid definitions for locale '" + locale + "': "
+                        + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Returns what the precompiled definitions depend on, besides the
+     * content of the definition files: the parameters and the names of the
+     * files.
+     *
+     * @param fileNames The names of the definition files, sorted.
+     * @return The inputs, one per line.
+     */
+    private List<String> getInputs(String[] fileNames) {
+        List<String> retValue = new ArrayList<String>();
+        retValue.add("validating=" + validating);
+        retValue.add("prefixedPatterns=" + prefixedPatterns);
+        retValue.add("outputPath=" + outputPath);
+        for (String fileName : fileNames) {
+            retValue.add("file=" + fileName.replace(File.separatorChar, '/'));
+        }
+        return retValue;
+    }
+
+    /**
+     * Reads the inputs recorded when the precompiled definitions have been
+     * written.
+     *
+     * @return The inputs, or <code>null</code> if they have not been
+     * recorded.
+     * @throws IOException If something goes wrong.
+     */
+    private List<String> readInputs() throws IOException {
+        if (!inputsFile.isFile()) {
+            return null;
+        }
+        return Files.readAllLines(inputsFile.toPath(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records the inputs of the written precompiled definitions.
+     *
+     * @param inputs The inputs.
+     * @throws IOException If something goes wrong.
+     */
+    private void writeInputs(List<String> inputs) throws IOException {
+        inputsFile.getAbsoluteFile().getParentFile().mkdirs();
+        Files.write(inputsFile.toPath(), inputs, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the precompiled definitions.
+     *
+     * @param outputFile The file to write.
+     * @param definitions The definitions to write.
+     * @throws IOException If something goes wrong.
+     * @throws MojoFailureException If definitions cannot be precompiled.
+     */
+    private void writeDefinitions(File outputFile, PrecompiledDefinitions definitions)
+            throws IOException, MojoFailureException {
+        outputFile.getParentFile().mkdirs();
+        OutputStream stream = buildContext.newFileOutputStream(outputFile);
+        try {
+            definitions.write(stream);
+        } catch (RuntimeException e) {
+            throw new MojoFailureException(e.getMessage(), e);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Creates the pattern resolver used to check pattern definitions.
+     *
+     * @return The pattern resolver.
+     */
+    private PatternDefinitionResolver<Locale> createPatternDefinitionResolver() {
+        WildcardDefinitionPatternMatcherFactory wildcardFactory = new WildcardDefinitionPatternMatcherFactory();
+        if (prefixedPatterns) {
+            PrefixedPatternDefinitionResolver<Locale> resolver = new PrefixedPatternDefinitionResolver<Locale>();
+            resolver.registerDefinitionPatternMatcherFactory("WILDCARD", wildcardFactory);
+            resolver.registerDefinitionPatternMatcherFactory("REGEXP",
+                    new RegexpDefinitionPatternMatcherFactory());
+            return resolver;
+        }
+        return new BasicPatternDefinitionResolver<Locale>(wildcardFactory, wildcardFactory);
+    }
+
+    /**
+     * Adds a directory to the resources of the project, if not already
+     * present.
+     *
+     * @param directory The directory.
+     */
+    private void addResourceDirectory(String directory) {
+        List<Resource> resources = project.getResources();
+        for (Resource resource : resources) {
+            if (directory.equals(resource.getDirectory())) {
+                return;
+            }
+        }
+        Resource resource = new Resource();
+        resource.setDirectory(directory);
+        project.addResource(resource);
+    }
+
+    /**
+     * Creates a source inclusion scanner.
+     *
+     * @return The inclusion scanner.
+     */
+    private Scanner getSourceInclusionScanner() {
+        Scanner scanner = buildContext.newScanner(sourceDirectory);
+        if (includes == null) {
+            includes = new HashSet<String>();
+        }
+        if (excludes == null) {
+            excludes = new HashSet<String>();
+        }
+
+        if (includes.isEmpty()) {
+            scanner.setIncludes(new String[] {"WEB-INF/**/tiles*.xml"});
+        } else {
+            scanner.setIncludes(includes.toArray(new String[includes.size()]));
+        }
+        if (!excludes.isEmpty()) {
+            scanner.setExcludes(excludes.toArray(new String[excludes.size()]));
+        }
+        scanner.scan();
+        return scanner;
+    }
+
+    /**
+     * The application context given to the DAO that resolves the
+     * definitions, reading resources from the source directory.
+     */
+    private static final class SourceDirectoryApplicationContext implements ApplicationContext {
+
+        /**
+         * The directory containing the definition files.
+         */
+        private final File sourceDirectory;
+
+        /**
+         * Constructor.
+         *
+         * @param sourceDirectory The directory containing the definition files.
+         */
+        private SourceDirectoryApplicationContext(File sourceDirectory) {
+            this.sourceDirectory = sourceDirectory;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object getContext() {
+            return sourceDirectory;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Map<String, Object> getApplicationScope() {
+            return Collections.emptyMap();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Map<String, String> getInitParams() {
+            return Collections.emptyMap();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ApplicationResource getResource(String localePath) {
+            File file = new File(sourceDirectory, localePath);
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                return new URLApplicationResource(localePath, file.toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new IllegalArgumentException("Invalid path " + localePath, e);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public ApplicationResource getResource(ApplicationResource base, Locale locale) {
+            return getResource(base.getLocalePath(locale));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Collection<ApplicationResource> getResources(String path) {
+            ApplicationResource resource = getResource(path);
+            if (resource == null) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(resource);
+        }
+    }
+}
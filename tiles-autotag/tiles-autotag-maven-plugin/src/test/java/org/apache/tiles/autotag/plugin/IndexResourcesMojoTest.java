@@ -0,0 +1,157 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.autotag.plugin;
+
+import static org.easymock.EasyMock.aryEq;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.util.Scanner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Tests {@link IndexResourcesMojo}.
+ *
+ * @version $Rev$ $Date$
+ */
+class IndexResourcesMojoTest {
+
+    /**
+     * The output directory.
+     */
+    @TempDir
+    Path directory;
+
+    private BuildContext buildContext;
+
+    private Scanner scanner;
+
+    private IndexResourcesMojo mojo;
+
+    private File indexFile;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        buildContext = createMock(BuildContext.class);
+        scanner = createMock(Scanner.class);
+        mojo = new IndexResourcesMojo();
+        mojo.outputDirectory = directory.toFile();
+        mojo.indexPath = "META-INF/tiles.index";
+        mojo.buildContext = buildContext;
+        indexFile = new File(mojo.outputDirectory, "META-INF/tiles.index");
+    }
+
+    /**
+     * Tests that the index lists the found resources, sorted.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws MojoExecutionException If something goes wrong.
+     */
+    @Test
+    void testExecute() throws IOException, MojoExecutionException {
+        mojo.additionalEntries = Collections.singleton("META-INF/MANIFEST.MF");
+        indexFile.getParentFile().mkdirs();
+        expectScan("META-INF/tiles.xml", "META-INF" + File.separator + "a" + File.separator + "tiles_fr.xml");
+        expect(buildContext.newFileOutputStream(indexFile)).andReturn(new FileOutputStream(indexFile));
+        replay(buildContext, scanner);
+
+        mojo.execute();
+
+        assertEquals("META-INF/MANIFEST.MF\nMETA-INF/a/tiles_fr.xml\nMETA-INF/tiles.xml\n",
+                new String(Files.readAllBytes(indexFile.toPath()), StandardCharsets.UTF_8));
+        verify(buildContext, scanner);
+    }
+
+    /**
+     * Tests that, by default, the index lists the definition files and the
+     * manifest, that is added to the jar after the classes are processed.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws MojoExecutionException If something goes wrong.
+     */
+    @Test
+    void testExecuteDefaults() throws IOException, MojoExecutionException {
+        expect(buildContext.newScanner(mojo.outputDirectory, true)).andReturn(scanner);
+        scanner.setIncludes(aryEq(new String[] {"META-INF/**/tiles*.xml"}));
+        scanner.scan();
+        expect(scanner.getIncludedFiles()).andReturn(new String[] {"META-INF/tiles.xml"});
+        expect(buildContext.newFileOutputStream(indexFile)).andAnswer(() -> {
+            indexFile.getParentFile().mkdirs();
+            return new FileOutputStream(indexFile);
+        });
+        replay(buildContext, scanner);
+
+        mojo.execute();
+
+        assertEquals("META-INF/MANIFEST.MF\nMETA-INF/tiles.xml\n",
+                new String(Files.readAllBytes(indexFile.toPath()), StandardCharsets.UTF_8));
+        verify(buildContext, scanner);
+    }
+
+    /**
+     * Tests that an up-to-date index is not written again.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws MojoExecutionException If something goes wrong.
+     */
+    @Test
+    void testExecuteUptodate() throws IOException, MojoExecutionException {
+        indexFile.getParentFile().mkdirs();
+        Files.write(indexFile.toPath(), "META-INF/MANIFEST.MF\nMETA-INF/tiles.xml\n"
+                .getBytes(StandardCharsets.UTF_8));
+        expectScan("META-INF/tiles.xml");
+        replay(buildContext, scanner);
+
+        mojo.execute();
+        verify(buildContext, scanner);
+    }
+
+    /**
+     * Expects the scan of the output directory.
+     *
+     * @param fileNames The names of the found files.
+     */
+    private void expectScan(String... fileNames) {
+        expect(buildContext.newScanner(mojo.outputDirectory, true)).andReturn(scanner);
+        scanner.setIncludes(isA(String[].class));
+        scanner.scan();
+        expect(scanner.getIncludedFiles()).andReturn(fileNames);
+    }
+}
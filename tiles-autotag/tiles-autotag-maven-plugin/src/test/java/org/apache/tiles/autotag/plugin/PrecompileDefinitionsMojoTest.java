@@ -0,0 +1,282 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.autotag.plugin;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.isA;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+
+import org.apache.maven.model.Resource;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.apache.tiles.definition.dao.PrecompiledDefinitions;
+import org.codehaus.plexus.util.Scanner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Tests {@link PrecompileDefinitionsMojo}.
+ *
+ * @version $Rev$ $Date$
+ */
+class PrecompileDefinitionsMojoTest {
+
+    /**
+     * The directory containing the sources and the output.
+     */
+    @TempDir
+    Path directory;
+
+    private MavenProject mavenProject;
+
+    private BuildContext buildContext;
+
+    private Scanner scanner;
+
+    private PrecompileDefinitionsMojo mojo;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        mavenProject = createMock(MavenProject.class);
+        buildContext = createMock(BuildContext.class);
+        scanner = createMock(Scanner.class);
+        mojo = new PrecompileDefinitionsMojo();
+        mojo.sourceDirectory = directory.resolve("webapp").toFile();
+        mojo.outputDirectory = directory.resolve("output").toFile();
+        mojo.outputPath = "META-INF/tiles-definitions.bin";
+        mojo.validating = true;
+        mojo.inputsFile = directory.resolve("tiles-definitions.inputs").toFile();
+        mojo.project = mavenProject;
+        mojo.buildContext = buildContext;
+    }
+
+    /**
+     * Tests that definitions of all locales are precompiled.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws MojoExecutionException If something goes wrong.
+     * @throws MojoFailureException If something goes wrong.
+     */
+    @Test
+    void testExecute() throws IOException, MojoExecutionException, MojoFailureException {
+        writeSource("WEB-INF/tiles.xml", "<definition name=\"parent\" template=\"/parent.jsp\">"
+                + "<put-attribute name=\"title\" value=\"Parent\"/></definition>"
+                + "<definition name=\"child\" extends=\"parent\"/>");
+        writeSource("WEB-INF/tiles_fr.xml", "<definition name=\"child\" extends=\"parent\">"
+                + "<put-attribute name=\"title\" value=\"Enfant\"/></definition>");
+        File outputFile = new File(mojo.outputDirectory, "META-INF/tiles-definitions.bin");
+        outputFile.getParentFile().mkdirs();
+        expectScan("WEB-INF/tiles_fr.xml", "WEB-INF/tiles.xml");
+        expect(buildContext.newFileOutputStream(outputFile)).andReturn(new FileOutputStream(outputFile));
+        expect(mavenProject.getResources()).andReturn(Collections.emptyList());
+        mavenProject.addResource(isA(Resource.class));
+        replay(mavenProject, buildContext, scanner);
+
+        mojo.execute();
+
+        PrecompiledDefinitions definitions;
+        try (InputStream stream = new FileInputStream(outputFile)) {
+            definitions = PrecompiledDefinitions.read(stream);
+        }
+        assertEquals(new HashSet<Locale>(Arrays.asList(Locale.ROOT, Locale.FRENCH)), definitions.getLocales());
+        assertEquals(2, definitions.getDefinitions(Locale.ROOT).size());
+        assertEquals("Enfant", definitions.getDefinitions(Locale.FRENCH).get("child")
+                .getAttribute("title").getValue());
+        verify(mavenProject, buildContext, scanner);
+    }
+
+    /**
+     * Tests that definitions are written again when a definition file is
+     * removed or a parameter changes, even if the remaining files are older
+     * than the output.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws MojoExecutionException If something goes wrong.
+     * @throws MojoFailureException If something goes wrong.
+     */
+    @Test
+    void testExecuteChangedInputs() throws IOException, MojoExecutionException, MojoFailureException {
+        writeSource("WEB-INF/tiles.xml", "<definition name=\"parent\" template=\"/parent.jsp\"/>");
+        writeSource("WEB-INF/tiles_fr.xml", "<definition name=\"child\" extends=\"parent\"/>");
+        File outputFile = new File(mojo.outputDirectory, "META-INF/tiles-definitions.bin");
+        outputFile.getParentFile().mkdirs();
+        Files.write(outputFile.toPath(), new byte[0]);
+        Files.write(mojo.inputsFile.toPath(), Arrays.asList("validating=true", "prefixedPatterns=false",
+                "outputPath=META-INF/tiles-definitions.bin", "file=WEB-INF/tiles.xml",
+                "file=WEB-INF/tiles_fr.xml"), StandardCharsets.UTF_8);
+
+        // Same inputs, nothing is written.
+        expectUptodateScan("WEB-INF/tiles.xml", "WEB-INF/tiles_fr.xml");
+        expect(mavenProject.getResources()).andReturn(Collections.emptyList());
+        mavenProject.addResource(isA(Resource.class));
+        replay(mavenProject, buildContext, scanner);
+        mojo.execute();
+        verify(mavenProject, buildContext, scanner);
+
+        // A file has been removed.
+        reset(mavenProject, buildContext, scanner);
+        expectUptodateScan("WEB-INF/tiles.xml");
+        expect(buildContext.newFileOutputStream(outputFile)).andReturn(new FileOutputStream(outputFile));
+        expect(mavenProject.getResources()).andReturn(Collections.emptyList());
+        mavenProject.addResource(isA(Resource.class));
+        replay(mavenProject, buildContext, scanner);
+        mojo.execute();
+        verify(mavenProject, buildContext, scanner);
+        try (InputStream stream = new FileInputStream(outputFile)) {
+            assertEquals(Collections.singleton(Locale.ROOT), PrecompiledDefinitions.read(stream).getLocales());
+        }
+
+        // A parameter changed.
+        reset(mavenProject, buildContext, scanner);
+        mojo.prefixedPatterns = true;
+        expectUptodateScan("WEB-INF/tiles.xml");
+        expect(buildContext.newFileOutputStream(outputFile)).andReturn(new FileOutputStream(outputFile));
+        expect(mavenProject.getResources()).andReturn(Collections.emptyList());
+        mavenProject.addResource(isA(Resource.class));
+        replay(mavenProject, buildContext, scanner);
+        mojo.execute();
+        verify(mavenProject, buildContext, scanner);
+        assertTrue(Files.readAllLines(mojo.inputsFile.toPath(), StandardCharsets.UTF_8)
+                .contains("prefixedPatterns=true"));
+    }
+
+    /**
+     * Tests that a definition extending an unknown one fails the build.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testExecuteMissingParent() throws IOException {
+        writeSource("WEB-INF/tiles.xml", "<definition name=\"child\" extends=\"unknown\"/>");
+        expectScan("WEB-INF/tiles.xml");
+        replay(mavenProject, buildContext, scanner);
+
+        assertThrows(MojoFailureException.class, () -> mojo.execute());
+        verify(mavenProject, buildContext, scanner);
+    }
+
+    /**
+     * Tests that a definition defined in two files for the same locale fails
+     * the build, while overriding it in a localized file does not.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testExecuteDuplicate() throws IOException {
+        writeSource("WEB-INF/tiles.xml", "<definition name=\"test\" template=\"/test.jsp\"/>");
+        writeSource("WEB-INF/tiles_fr.xml", "<definition name=\"test\" template=\"/test_fr.jsp\"/>");
+        writeSource("WEB-INF/tiles-other.xml", "<definition name=\"test\" template=\"/other.jsp\"/>");
+        expectScan("WEB-INF/tiles.xml", "WEB-INF/tiles_fr.xml", "WEB-INF/tiles-other.xml");
+        replay(mavenProject, buildContext, scanner);
+
+        MojoFailureException e = assertThrows(MojoFailureException.class, () -> mojo.execute());
+        assertTrue(e.getMessage().contains("WEB-INF/tiles-other.xml"));
+        assertTrue(e.getMessage().contains("WEB-INF/tiles.xml"));
+        verify(mavenProject, buildContext, scanner);
+    }
+
+    /**
+     * Tests that a malformed file fails the build.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testExecuteMalformed() throws IOException {
+        writeSource("WEB-INF/tiles.xml", "<definition name=\"test\" template=\"/test.jsp\">");
+        expectScan("WEB-INF/tiles.xml");
+        replay(mavenProject, buildContext, scanner);
+
+        assertThrows(MojoFailureException.class, () -> mojo.execute());
+        verify(mavenProject, buildContext, scanner);
+    }
+
+    /**
+     * Expects the scan of the source directory.
+     *
+     * @param fileNames The names of the found files.
+     */
+    private void expectScan(String... fileNames) {
+        expect(buildContext.newScanner(mojo.sourceDirectory)).andReturn(scanner);
+        scanner.setIncludes(isA(String[].class));
+        scanner.scan();
+        expect(scanner.getIncludedFiles()).andReturn(fileNames);
+        expect(buildContext.isUptodate(isA(File.class), isA(File.class))).andReturn(false)
+                .times(fileNames.length);
+    }
+
+    /**
+     * Expects the scan of the source directory, finding files older than
+     * the output.
+     *
+     * @param fileNames The names of the found files.
+     */
+    private void expectUptodateScan(String... fileNames) {
+        expect(buildContext.newScanner(mojo.sourceDirectory)).andReturn(scanner);
+        scanner.setIncludes(isA(String[].class));
+        scanner.scan();
+        expect(scanner.getIncludedFiles()).andReturn(fileNames);
+        expect(buildContext.isUptodate(isA(File.class), isA(File.class))).andReturn(true)
+                .times(fileNames.length);
+    }
+
+    /**
+     * Writes a definition file.
+     *
+     * @param fileName The name of the file, relative to the source directory.
+     * @param definitions The XML of the definitions.
+     * @throws IOException If something goes wrong.
+     */
+    private void writeSource(String fileName, String definitions) throws IOException {
+        Path file = mojo.sourceDirectory.toPath().resolve(fileName);
+        Files.createDirectories(file.getParent());
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\" ?>\n"
+                + "<!DOCTYPE tiles-definitions PUBLIC "
+                + "\"-//Apache Software Foundation//DTD Tiles Configuration 3.0//EN\" "
+                + "\"http://tiles.apache.org/dtds/tiles-config_3_0.dtd\">\n"
+                + "<tiles-definitions>" + definitions + "</tiles-definitions>";
+        Files.write(file, xml.getBytes(StandardCharsets.ISO_8859_1));
+    }
+}
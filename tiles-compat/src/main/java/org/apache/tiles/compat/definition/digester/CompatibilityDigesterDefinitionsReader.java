@@ -256,9 +256,9 @@ public class CompatibilityDigesterDefinitionsReader extends
         /** {@inheritDoc} */
         @Override
         public void begin(String namespace, String name, Attributes attributes) {
-            Object obj = digester.pop();
+            Object obj = getDigester().pop();
             Attribute attribute = new Attribute(obj);
-            digester.push(attribute);
+            getDigester().push(attribute);
         }
     }
 }
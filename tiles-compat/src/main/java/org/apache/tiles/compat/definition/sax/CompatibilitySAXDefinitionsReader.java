@@ -0,0 +1,246 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.compat.definition.sax;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.ListAttribute;
+import org.apache.tiles.beans.SimpleMenuItem;
+import org.apache.tiles.definition.sax.SAXDefinitionsReader;
+import org.apache.tiles.request.reflect.CannotInstantiateObjectException;
+import org.apache.tiles.request.reflect.ClassUtil;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+
+/**
+ * SAX reader that can read Tiles 1.1, 1.2, 1.3, 1.4 and 2.0 files. It builds
+ * the same definitions as
+ * {@link org.apache.tiles.compat.definition.digester.CompatibilityDigesterDefinitionsReader}.
+ * Only the beans declared with &lt;item&gt; and &lt;bean&gt; are created and
+ * filled by reflection, since their class can be chosen in the file.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class CompatibilitySAXDefinitionsReader extends SAXDefinitionsReader {
+
+    /**
+     * The root element of Tiles 1.x component definitions files.
+     */
+    private static final String COMPONENT_DEFINITIONS_ELEMENT = "component-definitions";
+
+    /**
+     * The root element of Tiles 1.x component instances files.
+     */
+    private static final String COMPONENT_INSTANCES_ELEMENT = "component-instances";
+
+    /**
+     * The &lt;instance&gt; element, the old name of &lt;definition&gt;.
+     */
+    private static final String INSTANCE_ELEMENT = "instance";
+
+    /**
+     * The &lt;put&gt; element.
+     */
+    private static final String PUT_ELEMENT = "put";
+
+    /**
+     * The &lt;putList&gt; element.
+     */
+    private static final String PUT_LIST_ELEMENT = "putList";
+
+    /**
+     * The &lt;add&gt; element.
+     */
+    private static final String ADD_ELEMENT = "add";
+
+    /**
+     * The &lt;item&gt; element.
+     */
+    private static final String ITEM_ELEMENT = "item";
+
+    /**
+     * The &lt;bean&gt; element.
+     */
+    private static final String BEAN_ELEMENT = "bean";
+
+    /**
+     * The &lt;set-property&gt; element.
+     */
+    private static final String SET_PROPERTY_ELEMENT = "set-property";
+
+    /**
+     * The set of public identifiers, and corresponding resource names for the
+     * versions of the configuration file DTDs we know about. There <strong>MUST</strong>
+     * be an even number of Strings in this list!
+     */
+    protected String[] registrations;
+
+    /** {@inheritDoc} */
+    @Override
+    protected Object startElement(String name, ParsedElement parent, Attributes attributes,
+            DefinitionsHandler handler) throws SAXException {
+        if (parent != null) {
+            Object parentObject = parent.getObject();
+            switch (name) {
+            case DEFINITION_ELEMENT:
+                if (parent.isRoot() && COMPONENT_DEFINITIONS_ELEMENT.equals(parent.getName())) {
+                    return createDefinition(attributes);
+                }
+                break;
+            case INSTANCE_ELEMENT:
+                if (parent.isRoot() && COMPONENT_INSTANCES_ELEMENT.equals(parent.getName())) {
+                    return createDefinition(attributes);
+                }
+                break;
+            case PUT_ELEMENT:
+                if (isTopLevelDefinition(parent)) {
+                    Attribute attribute = createAttribute(attributes);
+                    putAttribute((Definition) parentObject, attribute, attributes);
+                    return attribute;
+                }
+                break;
+            case PUT_LIST_ELEMENT:
+                if (isTopLevelDefinition(parent)) {
+                    ListAttribute attribute = createListAttribute(attributes);
+                    putAttribute((Definition) parentObject, attribute, attributes);
+                    return attribute;
+                }
+                if (parentObject instanceof ListAttribute && PUT_LIST_ELEMENT.equals(parent.getName())) {
+                    return createListAttribute(attributes);
+                }
+                break;
+            case ADD_ELEMENT:
+                if (parentObject instanceof ListAttribute && PUT_LIST_ELEMENT.equals(parent.getName())) {
+                    return createAttribute(attributes);
+                }
+                break;
+            case ITEM_ELEMENT:
+            case BEAN_ELEMENT:
+                if (parentObject instanceof ListAttribute) {
+                    return new Attribute(createBean(attributes));
+                }
+                break;
+            case SET_PROPERTY_ELEMENT:
+                if (parentObject instanceof Attribute && BEAN_ELEMENT.equals(parent.getName())) {
+                    setProperty(parentObject, attributes.getValue("property"), attributes.getValue("value"));
+                }
+                return null;
+            default:
+                break;
+            }
+        }
+        return super.startElement(name, parent, attributes, handler);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected String[] getRegistrations() {
+        if (registrations == null) {
+            registrations = new String[] {
+                "-//Apache Software Foundation//DTD Tiles Configuration 3.0//EN",
+                "/org/apache/tiles/resources/tiles-config_3_0.dtd",
+                "-//Apache Software Foundation//DTD Tiles Configuration 2.0//EN",
+                "/org/apache/tiles/compat/resources/tiles-config_2_0.dtd",
+                "-//Apache Software Foundation//DTD Tiles Configuration 2.1//EN",
+                "/org/apache/tiles/compat/resources/tiles-config_2_1.dtd",
+                "-//Apache Software Foundation//DTD Tiles Configuration 1.1//EN",
+                "/org/apache/tiles/compat/resources/tiles-config_1_1.dtd",
+                "-//Apache Software Foundation//DTD Tiles Configuration 1.3//EN",
+                "/org/apache/tiles/compat/resources/tiles-config_1_3.dtd",
+                "-//Apache Software Foundation//DTD Tiles Configuration 1.4//EN",
+                "/org/apache/tiles/compat/resources/tiles-config_1_4.dtd"};
+        }
+        return registrations;
+    }
+
+    /**
+     * Checks if an element is a definition directly under the root element,
+     * where the old &lt;put&gt; and &lt;putList&gt; elements are allowed.
+     *
+     * @param element The element to check.
+     * @return <code>true</code> if it is a top level definition.
+     */
+    private static boolean isTopLevelDefinition(ParsedElement element) {
+        return element.getObject() instanceof Definition && !element.isRoot()
+                && element.getParent().isRoot();
+    }
+
+    /**
+     * Creates the bean of an &lt;item&gt; or &lt;bean&gt; element. Its class
+     * is {@link SimpleMenuItem} unless specified by the "classtype" XML
+     * attribute, and its properties are set from the XML attributes.
+     *
+     * @param attributes The XML attributes.
+     * @return The bean.
+     * @throws SAXException If the bean cannot be created.
+     */
+    private static Object createBean(Attributes attributes) throws SAXException {
+        String className = attributes.getValue("classtype");
+        Object bean;
+        try {
+            bean = className != null ? ClassUtil.instantiate(className) : new SimpleMenuItem();
+        } catch (CannotInstantiateObjectException e) {
+            throw new SAXException("Cannot create bean of class " + className, e);
+        }
+        Map<String, String> properties = new HashMap<String, String>();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            String name = attributes.getLocalName(i);
+            if (name == null || name.isEmpty()) {
+                name = attributes.getQName(i);
+            }
+            properties.put(name, attributes.getValue(i));
+        }
+        try {
+            BeanUtils.populate(bean, properties);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new SAXException("Cannot set the properties of " + className, e);
+        }
+        return bean;
+    }
+
+    /**
+     * Sets a property of the attribute of a &lt;bean&gt; element, as
+     * specified by a nested &lt;set-property&gt; element.
+     *
+     * @param object The object whose property will be set.
+     * @param property The name of the property.
+     * @param value The value of the property.
+     * @throws SAXException If the property cannot be set.
+     */
+    private static void setProperty(Object object, String property, String value) throws SAXException {
+        try {
+            if (PropertyUtils.getPropertyDescriptor(object, property) == null) {
+                throw new SAXException("Bean has no property named " + property);
+            }
+            BeanUtils.setProperty(object, property, value);
+        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            throw new SAXException("Cannot set property " + property, e);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.compat.definition.sax;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.ListAttribute;
+import org.apache.tiles.beans.SimpleMenuItem;
+import org.apache.tiles.compat.definition.digester.CompatibilityDigesterDefinitionsReader;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.definition.DefinitionsReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link CompatibilitySAXDefinitionsReader}.
+ *
+ * @version $Rev$ $Date$
+ */
+class CompatibilitySAXDefinitionsReaderTest {
+
+    /**
+     * The definitions reader.
+     */
+    private CompatibilitySAXDefinitionsReader reader;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        reader = new CompatibilitySAXDefinitionsReader();
+    }
+
+    /**
+     * Tests that Tiles 1.1, 2.0 and 2.1 files are read as
+     * {@link CompatibilityDigesterDefinitionsReader} does.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testSameAsDigester() throws IOException {
+        for (String file : new String[] {"org/apache/tiles/config/tiles-defs-1.1.xml",
+                "org/apache/tiles/config/tiles-defs-2.0.xml", "org/apache/tiles/config/tiles-defs-2.1.xml"}) {
+            Map<String, Definition> expected = read(new CompatibilityDigesterDefinitionsReader(), file);
+            Map<String, Definition> actual = read(reader, file);
+            assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()), file);
+            for (Map.Entry<String, Definition> entry : expected.entrySet()) {
+                assertSameDefinition(entry.getValue(), actual.get(entry.getKey()));
+            }
+        }
+    }
+
+    /**
+     * Tests reading menu items.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testReadItems() throws IOException {
+        Map<String, Definition> definitions = read(reader, "org/apache/tiles/config/tiles-defs-1.1.xml");
+        ListAttribute items = (ListAttribute) definitions.get("doc.menu.links").getAttribute("items");
+        SimpleMenuItem item = (SimpleMenuItem) items.getValue().get(0).getValue();
+        assertEquals("Home", item.getValue());
+        assertEquals("/index.jsp", item.getLink());
+    }
+
+    /**
+     * Tests reading the Tiles 1.x component syntax.
+     */
+    @Test
+    void testReadComponentDefinitions() {
+        String xml = "<component-definitions><definition name=\"test\" template=\"/test.jsp\">"
+                + "<put name=\"title\" value=\"Title\"/>"
+                + "<putList name=\"list\"><add value=\"/one.jsp\"/><putList><add value=\"/two.jsp\"/></putList>"
+                + "<bean><set-property property=\"role\" value=\"admin\"/></bean></putList>"
+                + "</definition></component-definitions>";
+        Map<String, Definition> definitions = reader.read(new ByteArrayInputStream(
+                xml.getBytes(StandardCharsets.UTF_8)));
+        Definition definition = definitions.get("test");
+        assertEquals("Title", definition.getAttribute("title").getValue());
+        List<Attribute> list = ((ListAttribute) definition.getAttribute("list")).getValue();
+        assertEquals(3, list.size());
+        assertEquals("/one.jsp", list.get(0).getValue());
+        assertEquals("/two.jsp", ((ListAttribute) list.get(1)).getValue().get(0).getValue());
+        assertInstanceOf(SimpleMenuItem.class, list.get(2).getValue());
+        assertEquals("admin", list.get(2).getRole());
+    }
+
+    /**
+     * Tests read with bad input source.
+     */
+    @Test
+    void testBadSource() {
+        assertThrows(DefinitionsFactoryException.class, () -> reader.read("Bad Input"));
+    }
+
+    /**
+     * Checks that two definitions are the same, comparing beans through their
+     * string representation.
+     *
+     * @param expected The expected definition.
+     * @param actual The actual definition.
+     */
+    private void assertSameDefinition(Definition expected, Definition actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getExtends(), actual.getExtends());
+        assertEquals(expected.getPreparer(), actual.getPreparer());
+        assertEquals(expected.getTemplateAttribute(), actual.getTemplateAttribute());
+        assertSameAttributes(expected, actual, expected.getLocalAttributeNames(), actual.getLocalAttributeNames());
+        assertSameAttributes(expected, actual, expected.getCascadedAttributeNames(),
+                actual.getCascadedAttributeNames());
+    }
+
+    /**
+     * Checks that two definitions have the same attributes.
+     *
+     * @param expected The expected definition.
+     * @param actual The actual definition.
+     * @param expectedNames The names of the expected attributes.
+     * @param actualNames The names of the actual attributes.
+     */
+    private void assertSameAttributes(Definition expected, Definition actual, Set<String> expectedNames,
+            Set<String> actualNames) {
+        assertEquals(expectedNames, actualNames);
+        if (expectedNames != null) {
+            for (String name : expectedNames) {
+                assertSameAttribute(expected.getAttribute(name), actual.getAttribute(name));
+            }
+        }
+    }
+
+    /**
+     * Checks that two attributes are the same, comparing beans through their
+     * string representation.
+     *
+     * @param expected The expected attribute.
+     * @param actual The actual attribute.
+     */
+    private void assertSameAttribute(Attribute expected, Attribute actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getRole(), actual.getRole());
+        assertEquals(expected.getRenderer(), actual.getRenderer());
+        assertEquals(expected.getExpressionObject(), actual.getExpressionObject());
+        if (expected instanceof ListAttribute) {
+            assertEquals(((ListAttribute) expected).isInherit(), ((ListAttribute) actual).isInherit());
+            List<Attribute> expectedList = ((ListAttribute) expected).getValue();
+            List<Attribute> actualList = ((ListAttribute) actual).getValue();
+            assertEquals(expectedList.size(), actualList.size());
+            for (int i = 0; i < expectedList.size(); i++) {
+                assertSameAttribute(expectedList.get(i), actualList.get(i));
+            }
+        } else {
+            assertEquals(String.valueOf(expected.getValue()), String.valueOf(actual.getValue()));
+        }
+    }
+
+    /**
+     * Reads a definition file from the classpath.
+     *
+     * @param definitionsReader The reader to use.
+     * @param file The path of the file in the classpath.
+     * @return The read definitions.
+     * @throws IOException If something goes wrong.
+     */
+    private Map<String, Definition> read(DefinitionsReader definitionsReader, String file) throws IOException {
+        URL configFile = this.getClass().getClassLoader().getResource(file);
+        assertNotNull(configFile, "Config file not found");
+        try (InputStream source = configFile.openStream()) {
+            return definitionsReader.read(source);
+        }
+    }
+}
@@ -22,8 +22,13 @@
 package org.apache.tiles.definition;
 
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
+import org.apache.tiles.definition.dao.DefinitionDAO;
 import org.apache.tiles.request.Request;
 
 /**
@@ -35,6 +40,15 @@ import org.apache.tiles.request.Request;
  * {@link org.apache.tiles.definition.digester.DigesterDefinitionsReader DigesterDefinitionsReader}
  * class unless another implementation is specified.
  * </p>
+ * <p>
+ * By default inheritance is resolved at each call. With
+ * {@link #setFlatteningMode(FlatteningMode)}, definitions are flattened once
+ * per locale, and kept until the definition DAO returns new definitions for
+ * that locale. This requires a {@link CachingLocaleUrlDefinitionDAO}, that
+ * returns the same definitions until they change. If the definition DAO is a
+ * {@link org.apache.tiles.definition.dao.LocaleCanonicalizer}, they are kept
+ * only for canonical locales.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.1.0
@@ -42,34 +56,199 @@ import org.apache.tiles.request.Request;
 public class LocaleDefinitionsFactory extends
         UnresolvingLocaleDefinitionsFactory {
 
+    /**
+     * The way definitions with resolved inheritance are returned.
+     *
+     * @since 4.0.0
+     */
+    public enum FlatteningMode {
+
+        /**
+         * Inheritance is resolved at each call, on a new copy of the
+         * definition.
+         */
+        NONE,
+
+        /**
+         * Inheritance is resolved once per locale, and each call returns a
+         * copy of the resolved definition, so that callers can modify it. The
+         * ancestors are not looked up and inherited again, but the attributes
+         * are still cloned at each call.
+         */
+        COPY
+    }
+
+    /**
+     * Initialization parameter to set the flattening mode, the name of one
+     * of the {@link FlatteningMode} constants.
+     *
+     * @since 4.0.0
+     */
+    public static final String FLATTENING_MODE_INIT_PARAMETER =
+        "org.apache.tiles.definition.LocaleDefinitionsFactory.FLATTENING_MODE";
+
+    /**
+     * The way definitions are returned.
+     */
+    private FlatteningMode flatteningMode = FlatteningMode.NONE;
+
+    /**
+     * Maps a locale to its flattened definitions.
+     */
+    private final ConcurrentMap<Locale, FlattenedDefinitions> locale2flattenedDefinitions =
+        new ConcurrentHashMap<Locale, FlattenedDefinitions>();
+
+    /**
+     * Sets the way definitions are returned. If not called, the default is
+     * {@link FlatteningMode#NONE}. Other modes require a
+     * {@link CachingLocaleUrlDefinitionDAO}, that returns the same map from
+     * {@link org.apache.tiles.definition.dao.DefinitionDAO#getDefinitions(Object)}
+     * until definitions change, without loading them again.
+     *
+     * @param flatteningMode The flattening mode.
+     * @throws IllegalStateException If definitions are flattened and the
+     * definition DAO is not a {@link CachingLocaleUrlDefinitionDAO}.
+     * @since 4.0.0
+     */
+    public void setFlatteningMode(FlatteningMode flatteningMode) {
+        checkFlatteningMode(flatteningMode, definitionDao);
+        this.flatteningMode = flatteningMode;
+        locale2flattenedDefinitions.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException If definitions are flattened and the
+     * definition DAO is not a {@link CachingLocaleUrlDefinitionDAO}.
+     */
+    @Override
+    public void setDefinitionDAO(DefinitionDAO<Locale> definitionDao) {
+        checkFlatteningMode(flatteningMode, definitionDao);
+        super.setDefinitionDAO(definitionDao);
+        locale2flattenedDefinitions.clear();
+    }
+
     /** {@inheritDoc} */
     @Override
     public Definition getDefinition(String name,
             Request tilesContext) {
         Definition retValue;
-        Locale locale = null;
+        Locale locale = resolveLocale(tilesContext);
 
-        if (tilesContext != null) {
-            locale = localeResolver.resolveLocale(tilesContext);
+        if (flatteningMode == FlatteningMode.NONE) {
+            retValue = definitionDao.getDefinition(name, locale);
+            if (retValue != null) {
+                retValue = resolveInheritance(retValue, locale);
+            }
+            return retValue;
         }
 
-        retValue = definitionDao.getDefinition(name, locale);
-        if (retValue != null) {
-            retValue = new Definition(retValue);
-            String parentDefinitionName = retValue.getExtends();
-            while (parentDefinitionName != null) {
-                Definition parent = definitionDao.getDefinition(
-                        parentDefinitionName, locale);
-                if (parent == null) {
-                    throw new NoSuchDefinitionException("Cannot find definition '"
-                            + parentDefinitionName + "' ancestor of '"
-                            + retValue.getName() + "'");
+        FlattenedDefinitions flattenedDefinitions = getFlattenedDefinitions(locale);
+        retValue = flattenedDefinitions.definitions.get(name);
+        if (retValue == null) {
+            retValue = definitionDao.getDefinition(name, locale);
+            if (retValue == null) {
+                return null;
+            }
+            retValue = resolveInheritance(retValue, locale);
+            // Definitions resolved through patterns are not kept.
+            if (flattenedDefinitions.sourceDefinitions != null
+                    && flattenedDefinitions.sourceDefinitions.containsKey(name)) {
+                Definition existing = flattenedDefinitions.definitions.putIfAbsent(name, retValue);
+                if (existing != null) {
+                    retValue = existing;
                 }
-                retValue.inherit(parent);
-                parentDefinitionName = parent.getExtends();
             }
         }
+        return new Definition(retValue);
+    }
+
+    /**
+     * Checks that definitions can be flattened with a definition DAO.
+     *
+     * @param flatteningMode The flattening mode.
+     * @param definitionDao The definition DAO, or <code>null</code> if not
+     * set yet.
+     */
+    private static void checkFlatteningMode(FlatteningMode flatteningMode,
+            DefinitionDAO<Locale> definitionDao) {
+        if (flatteningMode != FlatteningMode.NONE && definitionDao != null
+                && !(definitionDao instanceof CachingLocaleUrlDefinitionDAO)) {
+            throw new IllegalStateException("Definitions can be flattened only with a "
+                    + CachingLocaleUrlDefinitionDAO.class.getName() + ", not with a "
+                    + definitionDao.getClass().getName());
+        }
+    }
+
+    /**
+     * Returns the flattened definitions of a locale, discarding them if the
+     * definition DAO returns new definitions.
+     *
+     * @param locale The locale.
+     * @return The flattened definitions.
+     */
+    private FlattenedDefinitions getFlattenedDefinitions(Locale locale) {
+        Map<String, Definition> sourceDefinitions = definitionDao.getDefinitions(locale);
+        Locale key = locale != null ? locale : Locale.ROOT;
+        FlattenedDefinitions retValue = locale2flattenedDefinitions.get(key);
+        if (retValue == null || retValue.sourceDefinitions != sourceDefinitions) {
+            retValue = new FlattenedDefinitions(sourceDefinitions);
+            locale2flattenedDefinitions.put(key, retValue);
+        }
+        return retValue;
+    }
 
+    /**
+     * Copies a definition and resolves its inheritance, walking up its
+     * ancestors.
+     *
+     * @param definition The definition to resolve.
+     * @param locale The locale.
+     * @return A new definition, with resolved inheritance.
+     * @throws NoSuchDefinitionException If an ancestor cannot be found.
+     */
+    private Definition resolveInheritance(Definition definition, Locale locale) {
+        Definition retValue = new Definition(definition);
+        String parentDefinitionName = retValue.getExtends();
+        while (parentDefinitionName != null) {
+            Definition parent = definitionDao.getDefinition(
+                    parentDefinitionName, locale);
+            if (parent == null) {
+                throw new NoSuchDefinitionException("Cannot find definition '"
+                        + parentDefinitionName + "' ancestor of '"
+                        + retValue.getName() + "'");
+            }
+            retValue.inherit(parent);
+            parentDefinitionName = parent.getExtends();
+        }
         return retValue;
     }
+
+    /**
+     * The flattened definitions of a locale.
+     */
+    private static final class FlattenedDefinitions {
+
+        /**
+         * The definitions, as returned by the definition DAO, that have been
+         * flattened.
+         */
+        private final Map<String, Definition> sourceDefinitions;
+
+        /**
+         * The flattened definitions.
+         */
+        private final ConcurrentMap<String, Definition> definitions =
+            new ConcurrentHashMap<String, Definition>();
+
+        /**
+         * Constructor.
+         *
+         * @param sourceDefinitions The definitions returned by the DAO.
+         */
+        private FlattenedDefinitions(Map<String, Definition> sourceDefinitions) {
+            this.sourceDefinitions = sourceDefinitions;
+        }
+    }
 }
@@ -21,10 +21,13 @@
 
 package org.apache.tiles.definition;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Locale;
 
 import org.apache.tiles.Definition;
 import org.apache.tiles.definition.dao.DefinitionDAO;
+import org.apache.tiles.definition.dao.LocaleCanonicalizer;
 import org.apache.tiles.locale.LocaleResolver;
 import org.apache.tiles.request.Request;
 
@@ -41,7 +44,7 @@ import org.apache.tiles.request.Request;
  * @version $Rev$ $Date$
  * @since 2.2.1
  */
-public class UnresolvingLocaleDefinitionsFactory implements DefinitionsFactory {
+public class UnresolvingLocaleDefinitionsFactory implements DefinitionsFactory, Closeable {
 
     /**
      * The definition DAO that extracts the definitions from the sources.
@@ -81,12 +84,41 @@ public class UnresolvingLocaleDefinitionsFactory implements DefinitionsFactory {
     @Override
     public Definition getDefinition(String name,
                                     Request tilesContext) {
+        return definitionDao.getDefinition(name, resolveLocale(tilesContext));
+    }
+
+    /**
+     * Closes the definition DAO, if it is {@link Closeable}.
+     *
+     * @throws IOException If the DAO cannot be closed.
+     * @since 4.0.0
+     */
+    @Override
+    public void close() throws IOException {
+        if (definitionDao instanceof Closeable) {
+            ((Closeable) definitionDao).close();
+        }
+    }
+
+    /**
+     * Resolves the locale of a request. If the definition DAO is a
+     * {@link LocaleCanonicalizer}, the locale is mapped to its canonical
+     * locale, so that locales sharing the same definitions are seen as one.
+     *
+     * @param tilesContext The request, may be <code>null</code>.
+     * @return The locale, <code>null</code> if not known.
+     * @since 4.0.0
+     */
+    protected Locale resolveLocale(Request tilesContext) {
         Locale locale = null;
 
         if (tilesContext != null) {
             locale = localeResolver.resolveLocale(tilesContext);
         }
+        if (definitionDao instanceof LocaleCanonicalizer) {
+            locale = ((LocaleCanonicalizer) definitionDao).getCanonicalLocale(locale);
+        }
 
-        return definitionDao.getDefinition(name, locale);
+        return locale;
     }
 }
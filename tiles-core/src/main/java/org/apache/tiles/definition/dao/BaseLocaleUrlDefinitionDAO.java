@@ -25,11 +25,11 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.tiles.Definition;
 import org.apache.tiles.definition.DefinitionsFactoryException;
@@ -84,12 +84,20 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
      */
     protected ApplicationContext applicationContext;
 
+    /**
+     * The cache of parsed sources, <code>null</code> if sources are always
+     * parsed.
+     *
+     * @since 4.0.0
+     */
+    protected BinaryDefinitionsCache definitionsCache;
+
     /**
      * Constructor.
      */
     public BaseLocaleUrlDefinitionDAO(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
-        lastModifiedDates = new HashMap<String, Long>();
+        lastModifiedDates = new ConcurrentHashMap<String, Long>();
     }
 
     public void setSources(List<ApplicationResource> sources) {
@@ -107,19 +115,48 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
         this.reader = reader;
     }
 
+    /**
+     * Returns the application context used to locate the sources.
+     *
+     * @return The application context.
+     * @since 4.0.0
+     */
+    public ApplicationContext getApplicationContext() {
+        return applicationContext;
+    }
+
+    /**
+     * Returns the dates that the loaded sources were last modified.
+     *
+     * @return A read-only view of the dates, mapped by the locale path of the
+     * sources, as returned by {@link ApplicationResource#getLocalePath()}.
+     * @since 4.0.0
+     */
+    public Map<String, Long> getLastModifiedDates() {
+        return Collections.unmodifiableMap(lastModifiedDates);
+    }
+
+    /**
+     * Sets the cache of parsed sources. If set, sources whose content did not
+     * change since they were cached are not parsed again.
+     *
+     * @param definitionsCache The cache of parsed sources.
+     * @since 4.0.0
+     */
+    public void setDefinitionsCache(BinaryDefinitionsCache definitionsCache) {
+        this.definitionsCache = definitionsCache;
+    }
+
     /** {@inheritDoc} */
     @Override
     public boolean refreshRequired() {
         boolean status = false;
 
-        Set<String> paths = lastModifiedDates.keySet();
-
         try {
-            for (String path : paths) {
-                Long lastModifiedDate = lastModifiedDates.get(path);
-                ApplicationResource resource = applicationContext.getResource(path);
+            for (Map.Entry<String, Long> entry : lastModifiedDates.entrySet()) {
+                ApplicationResource resource = applicationContext.getResource(entry.getKey());
                 long newModDate = resource.getLastModified();
-                if (newModDate != lastModifiedDate) {
+                if (newModDate != entry.getValue()) {
                     status = true;
                     break;
                 }
@@ -138,6 +175,22 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
      * @return The definition map that has been read.
      */
     protected Map<String, Definition> loadDefinitionsFromResource(ApplicationResource resource) {
+        return loadDefinitionsFromResource(resource, reader);
+    }
+
+    /**
+     * Loads definitions from an URL without loading from "parent" URLs, using
+     * a specific reader. Since it does not use any other state than
+     * {@link #lastModifiedDates}, it can be called concurrently, provided that
+     * each thread uses its own reader.
+     *
+     * @param resource The URL to read.
+     * @param definitionsReader The reader to use.
+     * @return The definition map that has been read.
+     * @since 4.0.0
+     */
+    protected Map<String, Definition> loadDefinitionsFromResource(ApplicationResource resource,
+            DefinitionsReader definitionsReader) {
         Map<String, Definition> defsMap = null;
 
         InputStream stream = null;
@@ -148,7 +201,11 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
             // Definition must be collected, starting from the base
             // source up to the last localized file.
             stream = resource.getInputStream();
-            defsMap = reader.read(stream);
+            if (definitionsCache != null) {
+                defsMap = definitionsCache.load(resource.getLocalePath(), stream, definitionsReader);
+            } else {
+                defsMap = definitionsReader.read(stream);
+            }
         } catch (FileNotFoundException e) {
             // File not found. continue.
             if (log.isDebugEnabled()) {
@@ -170,4 +227,15 @@ public abstract class BaseLocaleUrlDefinitionDAO implements
 
         return defsMap;
     }
+
+    /**
+     * Writes the parsed sources to the cache, if a cache has been set.
+     *
+     * @since 4.0.0
+     */
+    protected void storeDefinitionsCache() {
+        if (definitionsCache != null) {
+            definitionsCache.save();
+        }
+    }
 }
@@ -0,0 +1,370 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.ListAttribute;
+import org.apache.tiles.definition.DefinitionsReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Caches the definitions read from sources in a binary file, so that the
+ * sources do not need to be parsed again at the next startup.
+ * </p>
+ * <p>
+ * Each source is stored with the checksum of its content and the class of the
+ * reader that parsed it: when both match, the definitions are decoded from the
+ * file, which is memory-mapped, instead of being parsed. Only definitions made
+ * of {@link Attribute}s, {@link ListAttribute}s and string values can be
+ * stored, the other sources are always parsed. New entries are kept in memory
+ * until {@link #save()} is called, and entries of sources that are no longer
+ * used can be dropped with {@link #retainEntries(Collection)}.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class BinaryDefinitionsCache {
+
+    /**
+     * The first bytes of a cache file.
+     */
+    private static final int MAGIC = 0x54494c53;
+
+    /**
+     * The version of the format of the cache file.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(BinaryDefinitionsCache.class);
+
+    /**
+     * The cache file.
+     */
+    private final File file;
+
+    /**
+     * Maps a source path to its cached entry.
+     */
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * <code>true</code> if the cache file has already been read.
+     */
+    private boolean opened = false;
+
+    /**
+     * <code>true</code> if entries changed since the file has been read or
+     * written.
+     */
+    private volatile boolean dirty = false;
+
+    /**
+     * Serializes the writes of the cache file, that are done without holding
+     * the lock of this object.
+     */
+    private final Object saveLock = new Object();
+
+    /**
+     * Constructor.
+     *
+     * @param file The cache file. It does not need to exist.
+     */
+    public BinaryDefinitionsCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the cache file.
+     *
+     * @return The cache file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Returns the definitions of a source, from the cache if the content of
+     * the source did not change, otherwise by parsing it. It can be called
+     * concurrently, provided that each thread uses its own reader.
+     *
+     * @param path The path of the source.
+     * @param stream The content of the source. It is not closed.
+     * @param reader The reader to use if the source is not cached.
+     * @return The definitions.
+     * @throws IOException If the source cannot be read.
+     */
+    public Map<String, Definition> load(String path, InputStream stream, DefinitionsReader reader)
+            throws IOException {
+        byte[] content = stream.readAllBytes();
+        CRC32C crc = new CRC32C();
+        crc.update(content);
+        long checksum = crc.getValue();
+        String readerClass = reader.getClass().getName();
+
+        Entry entry = getEntry(path);
+        if (entry != null && entry.checksum == checksum && entry.readerClass.equals(readerClass)) {
+            try {
+                return DefinitionsCodec.readDefinitions(entry.payload.duplicate());
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                log.warn("Corrupted cache entry for " + path + ", parsing it", e);
+            }
+        }
+
+        Map<String, Definition> retValue = reader.read(new ByteArrayInputStream(content));
+        if (retValue != null) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            if (DefinitionsCodec.writeDefinitions(new DataOutputStream(buffer), retValue)) {
+                putEntry(path, new Entry(checksum, readerClass, ByteBuffer.wrap(buffer.toByteArray())));
+            } else {
+                log.debug("Definitions of {} cannot be cached", path);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Writes the entries to the cache file, if they changed. The file is
+     * written to a temporary file first, and then moved, so that a partially
+     * written file is never read. Entries read from the previous file are
+     * copied in memory first, so that the file is no longer mapped when it is
+     * replaced. Sources can still be loaded while the file is written. Errors
+     * are logged.
+     */
+    public void save() {
+        if (!dirty) {
+            return;
+        }
+        synchronized (saveLock) {
+            Map<String, Entry> snapshot = detachEntries();
+            if (snapshot == null) {
+                return;
+            }
+            if (!write(snapshot)) {
+                dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Drops the entries of the sources that are not in the given paths, so
+     * that removed sources are not kept in the cache file forever.
+     *
+     * @param paths The paths of the sources that are still used.
+     */
+    public synchronized void retainEntries(Collection<String> paths) {
+        ensureOpened();
+        if (entries.keySet().retainAll(paths)) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Copies the entries read from the cache file in memory, and returns a
+     * snapshot of all the entries to write.
+     *
+     * @return The entries to write, or <code>null</code> if they did not
+     * change.
+     */
+    private synchronized Map<String, Entry> detachEntries() {
+        if (!dirty) {
+            return null;
+        }
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            if (entry.payload.isDirect()) {
+                ByteBuffer payload = entry.payload.duplicate();
+                byte[] bytes = new byte[payload.remaining()];
+                payload.get(bytes);
+                mapEntry.setValue(new Entry(entry.checksum, entry.readerClass, ByteBuffer.wrap(bytes)));
+            }
+        }
+        dirty = false;
+        return new LinkedHashMap<String, Entry>(entries);
+    }
+
+    /**
+     * Writes entries to the cache file.
+     *
+     * @param snapshot The entries to write.
+     * @return <code>true</code> if the file has been written.
+     */
+    private boolean write(Map<String, Entry> snapshot) {
+        Path target = file.getAbsoluteFile().toPath();
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(snapshot.size());
+                for (Map.Entry<String, Entry> mapEntry : snapshot.entrySet()) {
+                    Entry entry = mapEntry.getValue();
+                    DefinitionsCodec.writeString(out, mapEntry.getKey());
+                    out.writeLong(entry.checksum);
+                    DefinitionsCodec.writeString(out, entry.readerClass);
+                    ByteBuffer payload = entry.payload.duplicate();
+                    out.writeInt(payload.remaining());
+                    byte[] bytes = new byte[payload.remaining()];
+                    payload.get(bytes);
+                    out.write(bytes);
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            log.warn("Cannot write the definitions cache " + file, e);
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e1) {
+                    log.debug("Cannot delete " + temp, e1);
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Returns the entry of a source, reading the cache file the first time.
+     *
+     * @param path The path of the source.
+     * @return The entry, or <code>null</code> if the source is not cached.
+     */
+    private synchronized Entry getEntry(String path) {
+        ensureOpened();
+        return entries.get(path);
+    }
+
+    /**
+     * Reads the cache file the first time it is called. It must be called
+     * while holding the lock of this object.
+     */
+    private void ensureOpened() {
+        if (!opened) {
+            opened = true;
+            open();
+        }
+    }
+
+    /**
+     * Stores the entry of a source.
+     *
+     * @param path The path of the source.
+     * @param entry The entry.
+     */
+    private synchronized void putEntry(String path, Entry entry) {
+        entries.put(path, entry);
+        dirty = true;
+    }
+
+    /**
+     * Maps the cache file in memory and reads its index. If the file is
+     * missing or not valid, the cache starts empty.
+     */
+    private void open() {
+        if (!file.isFile()) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                log.info("Ignoring the definitions cache {}, its format is not supported", file);
+                return;
+            }
+            Map<String, Entry> readEntries = new HashMap<String, Entry>();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String path = DefinitionsCodec.readString(buffer);
+                long checksum = buffer.getLong();
+                String readerClass = DefinitionsCodec.readString(buffer);
+                int length = buffer.getInt();
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                readEntries.put(path, new Entry(checksum, readerClass, payload));
+            }
+            entries.putAll(readEntries);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Cannot read the definitions cache " + file + ", ignoring it", e);
+        }
+    }
+
+    /**
+     * A cached source.
+     */
+    private static final class Entry {
+
+        /**
+         * The checksum of the content of the source.
+         */
+        private final long checksum;
+
+        /**
+         * The name of the class of the reader that parsed the source.
+         */
+        private final String readerClass;
+
+        /**
+         * The encoded definitions.
+         */
+        private final ByteBuffer payload;
+
+        /**
+         * Constructor.
+         *
+         * @param checksum The checksum of the content of the source.
+         * @param readerClass The name of the class of the reader.
+         * @param payload The encoded definitions.
+         */
+        private Entry(long checksum, String readerClass, ByteBuffer payload) {
+            this.checksum = checksum;
+            this.readerClass = readerClass;
+            this.payload = payload;
+        }
+    }
+}
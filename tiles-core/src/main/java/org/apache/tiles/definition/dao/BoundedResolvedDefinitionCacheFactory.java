@@ -0,0 +1,154 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.request.collection.BoundedCache;
+
+/**
+ * Creates caches that evict some definitions, when more than a maximum number
+ * of definitions are cached for a locale. Lookups do not lock, so the caches
+ * can be read concurrently by all the requests. Statistics are collected for
+ * all the created caches.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class BoundedResolvedDefinitionCacheFactory implements ResolvedDefinitionCacheFactory {
+
+    /**
+     * The default maximum number of definitions cached for each locale.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /**
+     * The maximum number of definitions cached for each locale.
+     */
+    private int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * The number of lookups that found a cached definition.
+     */
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * The number of lookups that did not find a cached definition.
+     */
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * The number of evicted definitions.
+     */
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Sets the maximum number of definitions cached for each locale. It
+     * applies to the caches created afterwards. If not called, the default is
+     * {@link #DEFAULT_MAXIMUM_SIZE}.
+     *
+     * @param maximumSize The maximum number of definitions.
+     */
+    public void setMaximumSize(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResolvedDefinitionCache createCache(Locale locale) {
+        return new BoundedResolvedDefinitionCache(maximumSize);
+    }
+
+    /**
+     * Returns the number of lookups that found a cached definition.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached definition.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the number of definitions that have been evicted.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * A cache of the definitions of a locale, evicting some of them when it is
+     * full.
+     */
+    private final class BoundedResolvedDefinitionCache implements ResolvedDefinitionCache {
+
+        /**
+         * The cached definitions.
+         */
+        private final BoundedCache<String, Definition> definitions;
+
+        /**
+         * Constructor.
+         *
+         * @param maximumSize The maximum number of definitions.
+         */
+        private BoundedResolvedDefinitionCache(int maximumSize) {
+            definitions = new BoundedCache<String, Definition>(maximumSize) {
+
+                @Override
+                protected void entryEvicted(String key, Definition value) {
+                    evictionCount.increment();
+                }
+            };
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Definition get(String name) {
+            Definition retValue = definitions.get(name);
+            if (retValue != null) {
+                hitCount.increment();
+            } else {
+                missCount.increment();
+            }
+            return retValue;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Definition putIfAbsent(String name, Definition definition) {
+            return definitions.putIfAbsent(name, definition);
+        }
+    }
+}
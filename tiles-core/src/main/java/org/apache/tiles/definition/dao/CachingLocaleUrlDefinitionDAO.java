@@ -21,17 +21,38 @@
 
 package org.apache.tiles.definition.dao;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.RefreshMonitor;
 import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
 import org.apache.tiles.definition.pattern.PatternDefinitionResolverAware;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.collection.BoundedCache;
 import org.apache.tiles.request.locale.LocaleUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * <p>
@@ -42,12 +63,59 @@ import org.apache.tiles.request.locale.LocaleUtil;
  * <p>
  * It can check if the URLs change, but by default this feature is turned off.
  * </p>
+ * <p>
+ * Loaded definitions are kept in an immutable snapshot, published in a single
+ * step after each load or refresh. Reading definitions never locks, and
+ * readers never see a partially loaded set of definitions.
+ * </p>
+ * <p>
+ * Instead of checking sources at each request, a {@link RefreshMonitor} running
+ * in background, like {@link WatchingRefreshMonitor}, can notify changed sources
+ * with {@link #refreshSources(Collection)}. See
+ * {@link #setRefreshMonitor(WatchingRefreshMonitor)}.
+ * </p>
+ * <p>
+ * The definitions read from each source are kept, with the modification
+ * date of the source, so that each source is parsed once no matter how many
+ * locales use it, and a refresh parses only the sources that changed, and
+ * rebuilds only the locales that use them.
+ * </p>
+ * <p>
+ * Definitions resolved through patterns are kept in a bounded
+ * {@link ResolvedDefinitionCache} for each locale, separately from the loaded
+ * ones. See {@link #setResolvedDefinitionCacheFactory(ResolvedDefinitionCacheFactory)}.
+ * </p>
+ * <p>
+ * Names that cannot be found, not even through patterns, are remembered for
+ * each locale, up to {@link #setUnknownDefinitionCacheSize(int)} names, until
+ * definitions of that locale are reloaded.
+ * </p>
+ * <p>
+ * Sources can be parsed concurrently, see {@link #setParallelLoading(int)}
+ * and {@link #setParallelLoading(ForkJoinPool, Supplier)}; by default they
+ * are parsed one after another. Definitions are still
+ * merged in the order of the sources, so overriding works as when parsing
+ * them one after another.
+ * </p>
+ * <p>
+ * Definitions are loaded only for canonical locales, see
+ * {@link #getCanonicalLocale(Locale)}: a locale without localized sources
+ * shares the definitions of its nearest parent that has some.
+ * </p>
+ * <p>
+ * Lookups of localized sources, most of them finding nothing, are
+ * remembered until sources are reloaded or
+ * {@link #forgetLocalizedResources()} is called. When checking for refresh,
+ * lookups that found nothing are repeated from time to time, see
+ * {@link #setLocalizedResourceCheckInterval(long)}, so that localized
+ * sources added afterwards are found.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.1.0
  */
 public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
-        implements PatternDefinitionResolverAware<Locale> {
+        implements PatternDefinitionResolverAware<Locale>, LocaleCanonicalizer, Closeable {
 
     /**
      * Initialization parameter to set whether we want to refresh URLs when they
@@ -59,11 +127,74 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
         "org.apache.tiles.definition.dao.LocaleUrlDefinitionDAO.CHECK_REFRESH";
 
     /**
-     * The locale-specific set of definitions objects.
+     * Initialization parameter to set whether we want sources to be watched
+     * in background by a {@link WatchingRefreshMonitor}.
      *
-     * @since 2.1.0
+     * @since 4.0.0
+     */
+    public static final String WATCH_SOURCES_INIT_PARAMETER =
+        "org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO.WATCH_SOURCES";
+
+    /**
+     * Initialization parameter to set the number of threads that parse the
+     * sources concurrently, see {@link #setParallelLoading(int)}. If not set,
+     * sources are parsed one after another.
+     *
+     * @since 4.0.0
+     */
+    public static final String PARALLEL_LOADING_INIT_PARAMETER =
+        "org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO.PARALLEL_LOADING";
+
+    /**
+     * Initialization parameter to set whether the parsed sources are cached
+     * in a {@link BinaryDefinitionsCache}, by the container factories that
+     * support it. The cache is written synchronously when the definitions are
+     * loaded, so it is disabled unless this parameter is <code>true</code>.
+     *
+     * @since 4.0.0
+     */
+    public static final String DEFINITIONS_CACHE_INIT_PARAMETER =
+        "org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO.DEFINITIONS_CACHE";
+
+    /**
+     * The default maximum number of unknown definition names remembered for
+     * each locale.
+     *
+     * @since 4.0.0
+     */
+    public static final int DEFAULT_UNKNOWN_DEFINITION_CACHE_SIZE = 1000;
+
+    /**
+     * The default number of milliseconds between two checks for localized
+     * sources that did not exist when they were looked up.
+     *
+     * @since 4.0.0
+     */
+    public static final long DEFAULT_LOCALIZED_RESOURCE_CHECK_INTERVAL = 1000;
+
+    /**
+     * The maximum number of locales whose canonical locale is remembered.
+     */
+    private static final int MAX_CANONICAL_LOCALES = 1000;
+
+    /**
+     * The maximum number of localized source lookups remembered.
+     */
+    private static final int MAX_LOCALIZED_RESOURCES = 10000;
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(CachingLocaleUrlDefinitionDAO.class);
+
+    /**
+     * The locale-specific set of definitions objects. The referenced map is
+     * never modified: loading definitions for a new locale, or refreshing
+     * them, publishes a new map.
+     *
+     * @since 4.0.0
      */
-    protected Map<Locale, Map<String, Definition>> locale2definitionMap;
+    private final AtomicReference<Map<Locale, LocaleDefinitions>> locale2definitionMap;
 
     /**
      * Flag that, when <code>true</code>, enables automatic checking of URLs
@@ -80,6 +211,105 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
      */
     protected PatternDefinitionResolver<Locale> definitionResolver;
 
+    /**
+     * Collects the paths of the sources read while loading the definitions of
+     * a locale. Guarded by the lock of this object.
+     */
+    private Set<String> loadingSources;
+
+    /**
+     * The definitions that will be published when the current load or
+     * refresh ends, <code>null</code> if definitions are not being loaded.
+     * Guarded by the lock of this object.
+     */
+    private Map<Locale, LocaleDefinitions> pendingDefinitions;
+
+    /**
+     * Maps the path of a source to the raw definitions read from it. Guarded
+     * by the lock of this object.
+     */
+    private final Map<String, SourceDefinitions> source2definitions =
+        new HashMap<String, SourceDefinitions>();
+
+    /**
+     * The maximum number of unknown definition names remembered for each
+     * locale.
+     */
+    private volatile int unknownDefinitionCacheSize = DEFAULT_UNKNOWN_DEFINITION_CACHE_SIZE;
+
+    /**
+     * Creates the caches of definitions resolved through patterns.
+     */
+    private ResolvedDefinitionCacheFactory resolvedDefinitionCacheFactory =
+        new BoundedResolvedDefinitionCacheFactory();
+
+    /**
+     * The pool that parses the sources concurrently, or <code>null</code> to
+     * parse them one after another.
+     */
+    private ForkJoinPool loadingPool;
+
+    /**
+     * Whether {@link #loadingPool} has been created by this DAO, and must be
+     * shut down when it is closed.
+     */
+    private boolean ownsLoadingPool;
+
+    /**
+     * Creates a reader for each source parsed by {@link #loadingPool}, or
+     * <code>null</code> if {@link #reader} is thread-safe and used by all.
+     */
+    private Supplier<? extends DefinitionsReader> readerFactory;
+
+    /**
+     * Maps a locale to its canonical locale. Cleared when sources are
+     * reloaded, since localized sources may have appeared or disappeared.
+     */
+    private final BoundedCache<Locale, Locale> canonicalLocales =
+        new BoundedCache<Locale, Locale>(MAX_CANONICAL_LOCALES);
+
+    /**
+     * Maps the locale path of a source to the lookup of its localized
+     * resource, that may have found nothing. Cleared when sources are
+     * reloaded.
+     */
+    private final BoundedCache<String, LocalizedResourceLookup> localizedResources =
+        new BoundedCache<String, LocalizedResourceLookup>(MAX_LOCALIZED_RESOURCES);
+
+    /**
+     * The number of milliseconds between two checks for localized sources
+     * that did not exist when they were looked up.
+     */
+    private volatile long localizedResourceCheckInterval = DEFAULT_LOCALIZED_RESOURCE_CHECK_INTERVAL;
+
+    /**
+     * The time of the last check for localized sources that did not exist.
+     */
+    private volatile long lastLocalizedResourceCheck = System.currentTimeMillis();
+
+    /**
+     * <code>true</code> if a localized source that did not exist has been
+     * found, until the lookups are forgotten.
+     */
+    private volatile boolean localizedResourceAdded = false;
+
+    /**
+     * The monitor refreshing the sources in background, or <code>null</code>
+     * if none.
+     */
+    private WatchingRefreshMonitor refreshMonitor;
+
+    /**
+     * The number of lookups answered by the cache of unknown definitions.
+     */
+    private final LongAdder unknownDefinitionHitCount = new LongAdder();
+
+    /**
+     * The number of lookups of unknown definitions that have been resolved
+     * through patterns.
+     */
+    private final LongAdder unknownDefinitionMissCount = new LongAdder();
+
     /**
      * Constructor.
      *
@@ -87,7 +317,8 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
      */
     public CachingLocaleUrlDefinitionDAO(ApplicationContext applicationContext) {
         super(applicationContext);
-        locale2definitionMap = new HashMap<Locale, Map<String, Definition>>();
+        locale2definitionMap = new AtomicReference<Map<Locale, LocaleDefinitions>>(
+                Collections.<Locale, LocaleDefinitions>emptyMap());
     }
 
     /** {@inheritDoc} */
@@ -100,38 +331,60 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
     /** {@inheritDoc} */
     @Override
     public Definition getDefinition(String name, Locale customizationKey) {
-        Definition retValue = null;
-        if (customizationKey == null) {
-            customizationKey = Locale.ROOT;
-        }
-        Map<String, Definition> definitions = getDefinitions(customizationKey);
-        if (definitions != null) {
-            retValue = definitions.get(name);
+        LocaleDefinitions definitions = getLocaleDefinitions(customizationKey);
+        Definition retValue = definitions.getDefinition(name);
 
-            if (retValue == null) {
-                retValue = getDefinitionFromResolver(name, customizationKey);
+        if (retValue == null) {
+            if (definitions.isUnknown(name)) {
+                unknownDefinitionHitCount.increment();
+                return null;
+            }
 
-                if (retValue != null) {
-                    synchronized (definitions) {
-                        definitions.put(name, retValue);
-                    }
-                }
+            retValue = getDefinitionFromResolver(name, definitions.getLocale());
+
+            if (retValue != null) {
+                retValue = definitions.putResolvedDefinition(name, retValue);
+            } else if (name != null) {
+                unknownDefinitionMissCount.increment();
+                definitions.putUnknown(name);
             }
         }
 
         return retValue;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The returned map is read-only, and does not contain definitions
+     * resolved through patterns.
+     * </p>
+     */
     @Override
     public Map<String, Definition> getDefinitions(Locale customizationKey) {
-        if (customizationKey == null) {
-            customizationKey = Locale.ROOT;
+        return getLocaleDefinitions(customizationKey).getDefinitions();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The canonical locale is the nearest one having localized sources, see
+     * {@link #hasLocalizedSources(Locale)}, or {@link Locale#ROOT}. The result
+     * is remembered for up to 1000 locales, until sources are reloaded.
+     * </p>
+     */
+    @Override
+    public Locale getCanonicalLocale(Locale locale) {
+        if (locale == null || Locale.ROOT.equals(locale)) {
+            return Locale.ROOT;
         }
-        Map<String, Definition> retValue = locale2definitionMap
-                .get(customizationKey);
-        if (retValue == null || (checkRefresh && refreshRequired())) {
-            retValue = checkAndloadDefinitions(customizationKey);
+        Locale retValue = canonicalLocales.get(locale);
+        if (retValue == null) {
+            retValue = locale;
+            while (!Locale.ROOT.equals(retValue) && !hasLocalizedSources(retValue)) {
+                retValue = LocaleUtil.getParentLocale(retValue);
+            }
+            canonicalLocales.putIfAbsent(locale, retValue);
         }
         return retValue;
     }
@@ -148,6 +401,395 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
         this.checkRefresh = checkRefresh;
     }
 
+    /**
+     * Sets the monitor that refreshes the sources in background, and starts
+     * it. The monitor is closed when this DAO is closed. Since sources are
+     * monitored in background, the DAO should not check for refresh by
+     * itself, see {@link #setCheckRefresh(boolean)}.
+     *
+     * @param refreshMonitor The monitor, created for this DAO.
+     * @since 4.0.0
+     */
+    public void setRefreshMonitor(WatchingRefreshMonitor refreshMonitor) {
+        this.refreshMonitor = refreshMonitor;
+        refreshMonitor.start();
+    }
+
+    /**
+     * Releases the resources used by this DAO, i.e. stops the refresh
+     * monitor and the pool created by {@link #setParallelLoading(int)}, if
+     * any. Loaded definitions can still be read afterwards.
+     *
+     * @throws IOException If the resources cannot be released.
+     * @since 4.0.0
+     */
+    @Override
+    public void close() throws IOException {
+        if (refreshMonitor != null) {
+            refreshMonitor.close();
+        }
+        shutdownLoadingPool();
+    }
+
+    /**
+     * Sets the factory of the caches of definitions resolved through
+     * patterns. It applies to the definitions loaded afterwards. If not
+     * called, a {@link BoundedResolvedDefinitionCacheFactory} with default
+     * settings is used.
+     *
+     * @param resolvedDefinitionCacheFactory The factory of caches.
+     * @since 4.0.0
+     */
+    public void setResolvedDefinitionCacheFactory(
+            ResolvedDefinitionCacheFactory resolvedDefinitionCacheFactory) {
+        this.resolvedDefinitionCacheFactory = resolvedDefinitionCacheFactory;
+    }
+
+    /**
+     * Enables parsing the sources of a locale concurrently, on a pool created
+     * and owned by this DAO, with the reader set with
+     * {@link #setReader(DefinitionsReader)}, that must be thread-safe. The
+     * threads of the pool use the context class loader of the calling thread,
+     * so that they can load the classes of the web application, and the pool
+     * is shut down when this DAO is closed.
+     *
+     * @param parallelism The number of threads parsing the sources, or 0 to
+     * parse them one after another, that is the default.
+     * @since 4.0.0
+     */
+    public synchronized void setParallelLoading(int parallelism) {
+        ForkJoinPool pool = null;
+        if (parallelism > 0) {
+            final ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                        .newThread(forkJoinPool);
+                thread.setContextClassLoader(classLoader);
+                thread.setName("tiles-definitions-loader-" + thread.getPoolIndex());
+                return thread;
+            }, null, false);
+        }
+        setLoadingPool(pool, null, pool != null);
+    }
+
+    /**
+     * Enables parsing the sources of a locale concurrently, with the reader
+     * set with {@link #setReader(DefinitionsReader)}, that must be
+     * thread-safe, like
+     * {@link org.apache.tiles.definition.digester.DigesterDefinitionsReader}.
+     * The pool is managed by the caller: its threads must be able to load
+     * the sources and the classes they refer to, and it is not shut down by
+     * this DAO.
+     *
+     * @param loadingPool The pool that parses the sources, or
+     * <code>null</code> to parse them one after another, that is the default.
+     * @since 4.0.0
+     */
+    public void setParallelLoading(ForkJoinPool loadingPool) {
+        setParallelLoading(loadingPool, null);
+    }
+
+    /**
+     * Enables parsing the sources of a locale concurrently, for readers that
+     * are not thread-safe: a new reader is created for each parsed source.
+     * The reader set with {@link #setReader(DefinitionsReader)} is still used
+     * when a single source needs to be parsed. The pool is managed by the
+     * caller, as in {@link #setParallelLoading(ForkJoinPool)}.
+     *
+     * @param loadingPool The pool that parses the sources, or
+     * <code>null</code> to parse them one after another, that is the default.
+     * @param readerFactory Creates a new reader for each parsed source, or
+     * <code>null</code> to use the reader of this DAO.
+     * @since 4.0.0
+     */
+    public synchronized void setParallelLoading(ForkJoinPool loadingPool,
+            Supplier<? extends DefinitionsReader> readerFactory) {
+        setLoadingPool(loadingPool, readerFactory, false);
+    }
+
+    /**
+     * Replaces the pool that parses the sources, shutting down the previous
+     * one if it was owned by this DAO. It must be called while holding the
+     * lock of this object.
+     *
+     * @param pool The new pool, or <code>null</code>.
+     * @param factory Creates a new reader for each parsed source, or
+     * <code>null</code> to use the reader of this DAO.
+     * @param owned Whether the new pool must be shut down by this DAO.
+     */
+    private void setLoadingPool(ForkJoinPool pool, Supplier<? extends DefinitionsReader> factory,
+            boolean owned) {
+        shutdownLoadingPool();
+        loadingPool = pool;
+        readerFactory = factory;
+        ownsLoadingPool = owned;
+    }
+
+    /**
+     * Shuts down the pool that parses the sources, if it is owned by this DAO,
+     * so that sources are parsed one after another from now on.
+     */
+    private synchronized void shutdownLoadingPool() {
+        if (ownsLoadingPool) {
+            loadingPool.shutdown();
+            loadingPool = null;
+            readerFactory = null;
+            ownsLoadingPool = false;
+        }
+    }
+
+    /**
+     * Sets the maximum number of unknown definition names remembered for each
+     * locale. When the limit is reached, some remembered names are forgotten
+     * to make room for new ones. It applies to the definitions loaded
+     * afterwards. If not called, the default is
+     * {@link #DEFAULT_UNKNOWN_DEFINITION_CACHE_SIZE}.
+     *
+     * @param unknownDefinitionCacheSize The maximum number of names, 0 to
+     * disable the cache.
+     * @since 4.0.0
+     */
+    public void setUnknownDefinitionCacheSize(int unknownDefinitionCacheSize) {
+        this.unknownDefinitionCacheSize = unknownDefinitionCacheSize;
+    }
+
+    /**
+     * Sets the number of milliseconds between two checks for localized
+     * sources that did not exist when they were looked up. They are checked
+     * only when checking for refresh, see {@link #setCheckRefresh(boolean)}.
+     * If not called, the default is
+     * {@link #DEFAULT_LOCALIZED_RESOURCE_CHECK_INTERVAL}.
+     *
+     * @param localizedResourceCheckInterval The number of milliseconds, 0 to
+     * check them every time.
+     * @since 4.0.0
+     */
+    public void setLocalizedResourceCheckInterval(long localizedResourceCheckInterval) {
+        this.localizedResourceCheckInterval = localizedResourceCheckInterval;
+    }
+
+    /**
+     * Returns the number of lookups of definitions that have been answered by
+     * the cache of unknown definitions.
+     *
+     * @return The number of lookups.
+     * @since 4.0.0
+     */
+    public long getUnknownDefinitionHitCount() {
+        return unknownDefinitionHitCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups of unknown definitions that went through
+     * the patterns, before being remembered in the cache of unknown
+     * definitions.
+     *
+     * @return The number of lookups.
+     * @since 4.0.0
+     */
+    public long getUnknownDefinitionMissCount() {
+        return unknownDefinitionMissCount.sum();
+    }
+
+    /**
+     * Reloads the definitions of the locales that have been loaded from at
+     * least one of the given sources, and publishes them in a single step.
+     * Definitions of the other locales are kept. Only the changed sources are
+     * parsed again, see
+     * {@link #reloadDefinitions(Locale, Map, Set)}. If the definitions of a
+     * locale cannot be reloaded, the previous ones are kept.
+     *
+     * @param changedPaths The locale paths of the changed sources, as returned
+     * by {@link ApplicationResource#getLocalePath()}.
+     * @since 4.0.0
+     */
+    public void refreshSources(Collection<String> changedPaths) {
+        synchronized (this) {
+            reloadChangedSources(changedPaths);
+        }
+        // Written without holding the lock, readers are not blocked by I/O.
+        storeDefinitionsCache();
+    }
+
+    /**
+     * Reloads the definitions of the locales that use the changed sources,
+     * and publishes them. It must be called while holding the lock of this
+     * object.
+     *
+     * @param changedPaths The locale paths of the changed sources.
+     */
+    private void reloadChangedSources(Collection<String> changedPaths) {
+        Map<Locale, LocaleDefinitions> current = locale2definitionMap.get();
+        pendingDefinitions = new HashMap<Locale, LocaleDefinitions>(current);
+        localizedResources.clear();
+        try {
+            Set<String> changedNames = reparseSources(changedPaths);
+            // Parent locales first, so that their children see their new definitions.
+            List<Locale> locales = new ArrayList<Locale>(current.keySet());
+            locales.sort(Comparator.comparingInt(CachingLocaleUrlDefinitionDAO::getLocaleDepth));
+            for (Locale locale : locales) {
+                LocaleDefinitions definitions = current.get(locale);
+                if (!Collections.disjoint(definitions.getSources(), changedPaths)) {
+                    log.debug("Reloading definitions for locale '{}'", locale);
+                    try {
+                        definitions = loadLocaleDefinitions(locale,
+                                definitions.getDefinitions(), changedNames);
+                        pendingDefinitions.put(locale, definitions);
+                    } catch (RuntimeException e) {
+                        log.error("Cannot reload definitions for locale '" + locale
+                                + "', keeping the previous ones", e);
+                    }
+                }
+            }
+            Set<String> usedPaths = new HashSet<String>();
+            for (LocaleDefinitions definitions : pendingDefinitions.values()) {
+                usedPaths.addAll(definitions.getSources());
+            }
+            lastModifiedDates.keySet().retainAll(usedPaths);
+            source2definitions.keySet().retainAll(usedPaths);
+            if (definitionsCache != null) {
+                definitionsCache.retainEntries(usedPaths);
+            }
+            canonicalLocales.clear();
+            locale2definitionMap.set(pendingDefinitions);
+        } finally {
+            pendingDefinitions = null;
+        }
+    }
+
+    /**
+     * Returns a read-only snapshot of the locale-specific set of definitions
+     * objects that are currently loaded. It replaces the former
+     * <code>locale2definitionMap</code> protected field: subclasses that
+     * populated that field, or that modify the returned map, must instead
+     * override {@link #loadDefinitions(Locale)} or
+     * {@link #loadParentDefinitions(Locale)}, since modifying the returned map
+     * throws an {@link UnsupportedOperationException}.
+     *
+     * @return A read-only snapshot: it does not change when definitions are
+     * loaded or refreshed afterwards.
+     * @since 4.0.0
+     * @deprecated Use {@link #getDefinitions(Locale)} instead.
+     */
+    @Deprecated
+    protected Map<Locale, Map<String, Definition>> getLocale2definitionMap() {
+        Map<Locale, LocaleDefinitions> current = locale2definitionMap.get();
+        Map<Locale, Map<String, Definition>> retValue =
+            new HashMap<Locale, Map<String, Definition>>(current.size());
+        for (Map.Entry<Locale, LocaleDefinitions> entry : current.entrySet()) {
+            retValue.put(entry.getKey(), entry.getValue().getDefinitions());
+        }
+        return Collections.unmodifiableMap(retValue);
+    }
+
+    /**
+     * Forgets the localized sources that have been looked up, and the
+     * canonical locales computed from them. To be called when localized
+     * sources may have been added or removed, e.g. by a {@link RefreshMonitor}
+     * that noticed a change in the directory of a source. Loaded definitions
+     * are kept.
+     *
+     * @since 4.0.0
+     */
+    public void forgetLocalizedResources() {
+        localizedResourceAdded = false;
+        localizedResources.clear();
+        canonicalLocales.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A refresh is also required when a localized source that did not exist
+     * when it was looked up has been added.
+     * </p>
+     */
+    @Override
+    public boolean refreshRequired() {
+        return super.refreshRequired() || isLocalizedResourceAdded();
+    }
+
+    /**
+     * Checks if a localized source that did not exist when it was looked up
+     * has been added. Lookups are repeated at most once every
+     * {@link #setLocalizedResourceCheckInterval(long)} milliseconds.
+     *
+     * @return <code>true</code> if a localized source has been added.
+     */
+    private boolean isLocalizedResourceAdded() {
+        long now = System.currentTimeMillis();
+        if (localizedResourceAdded || now - lastLocalizedResourceCheck < localizedResourceCheckInterval) {
+            return localizedResourceAdded;
+        }
+        lastLocalizedResourceCheck = now;
+        for (LocalizedResourceLookup lookup : localizedResources.values()) {
+            if (lookup.localizedResource == null
+                    && applicationContext.getResource(lookup.resource, lookup.locale) != null) {
+                log.debug("Localized source '{}' has been added", lookup.resource.getLocalePath(lookup.locale));
+                localizedResourceAdded = true;
+                break;
+            }
+        }
+        return localizedResourceAdded;
+    }
+
+    /**
+     * Returns the version of a source localized exactly for a locale,
+     * remembering the result of the lookup, even when it finds nothing.
+     *
+     * @param resource The source.
+     * @param locale The locale.
+     * @return The localized source, or <code>null</code> if it does not exist.
+     * @since 4.0.0
+     */
+    protected ApplicationResource getLocalizedResource(ApplicationResource resource, Locale locale) {
+        String localePath = resource.getLocalePath(locale);
+        LocalizedResourceLookup retValue = localizedResources.get(localePath);
+        if (retValue == null) {
+            retValue = localizedResources.putIfAbsent(localePath, new LocalizedResourceLookup(
+                    resource, locale, applicationContext.getResource(resource, locale)));
+        }
+        return retValue.localizedResource;
+    }
+
+    /**
+     * Checks if at least one source has a version localized exactly for the
+     * given locale. Sources are only looked up, not parsed.
+     *
+     * @param locale The locale, different from {@link Locale#ROOT}.
+     * @return <code>true</code> if the locale has localized sources.
+     * @since 4.0.0
+     */
+    protected boolean hasLocalizedSources(Locale locale) {
+        for (ApplicationResource resource : sources) {
+            if (getLocalizedResource(resource, locale) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the definitions of a locale, to be used as the parent
+     * definitions of another locale being loaded, loading them if needed.
+     * The returned definitions are the ones that will be published at the
+     * end of the current load or refresh. It must be called while holding
+     * the lock of this object.
+     *
+     * @param parentLocale The parent locale.
+     * @return The read-only definitions of the parent locale, or
+     * <code>null</code> if definitions are not being loaded by
+     * {@link #getDefinition(String, Locale)}, {@link #getDefinitions(Locale)}
+     * or {@link #refreshSources(Collection)}.
+     * @since 4.0.0
+     */
+    protected Map<String, Definition> getParentDefinitions(Locale parentLocale) {
+        if (pendingDefinitions == null) {
+            return null;
+        }
+        return getPendingLocaleDefinitions(getCanonicalLocale(parentLocale)).getDefinitions();
+    }
+
     /**
      * Returns a definition from the definition resolver.
      *
@@ -169,51 +811,56 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
      * @return The loaded definitions.
      * @since 2.1.0
      */
-    protected synchronized Map<String, Definition> checkAndloadDefinitions(Locale customizationKey) {
-        Map<String, Definition> existingDefinitions = locale2definitionMap.get(customizationKey);
-        boolean definitionsAlreadyLoaded = existingDefinitions != null;
-        if (definitionsAlreadyLoaded) {
-            return existingDefinitions;
-        }
-        if (checkRefresh && refreshRequired()) {
-            locale2definitionMap.clear();
-            definitionResolver.clearPatternPaths(customizationKey);
-        }
-        loadDefinitions(customizationKey);
-        return locale2definitionMap.get(customizationKey);
+    protected Map<String, Definition> checkAndloadDefinitions(Locale customizationKey) {
+        return checkAndLoadLocaleDefinitions(getCanonicalLocale(customizationKey)).getDefinitions();
     }
 
     /**
      * Tries to load definitions if necessary.
      *
      * @param customizationKey The locale to use when loading sources.
-     * @return The loaded definitions.
+     * @return The loaded definitions, with definition patterns removed. The
+     * returned map will be published as it is, and must not be modified
+     * afterwards.
      * @since 2.1.0
      */
     protected Map<String, Definition> loadDefinitions(Locale customizationKey) {
-        Map<String, Definition> localeDefsMap = locale2definitionMap
-                .get(customizationKey);
-        if (localeDefsMap != null) {
-            return localeDefsMap;
-        }
-
         return loadDefinitionsFromResources(customizationKey);
     }
 
+    /**
+     * Reloads definitions after some of the sources of a locale changed. When
+     * this method is called, the changed sources have already been parsed
+     * again, so {@link #loadRawDefinitionsFromResources(Locale)} does not
+     * access the unchanged ones. This implementation simply calls
+     * {@link #loadDefinitions(Locale)}.
+     *
+     * @param customizationKey The locale to use when loading sources.
+     * @param previousDefinitions The definitions that were loaded before the
+     * change. They must not be modified.
+     * @param changedNames The names of the definitions that were read from the
+     * changed sources, before or after the change.
+     * @return The loaded definitions, with definition patterns removed. The
+     * returned map will be published as it is, and must not be modified
+     * afterwards.
+     * @since 4.0.0
+     */
+    protected Map<String, Definition> reloadDefinitions(Locale customizationKey,
+            Map<String, Definition> previousDefinitions, Set<String> changedNames) {
+        return loadDefinitions(customizationKey);
+    }
+
     /**
      * Loads definitions from the sources.
      *
      * @param customizationKey The locale to use when loading Resources.
-     * @return The loaded definitions.
+     * @return The loaded definitions, with definition patterns removed.
      * @since 2.1.0
      */
     protected Map<String, Definition> loadDefinitionsFromResources(Locale customizationKey) {
         Map<String, Definition> localeDefsMap = loadRawDefinitionsFromResources(customizationKey);
-        Map<String, Definition> defsMap = definitionResolver
-                .storeDefinitionPatterns(copyDefinitionMap(localeDefsMap),
-                        customizationKey);
-        locale2definitionMap.put(customizationKey, defsMap);
-        return localeDefsMap;
+        return definitionResolver.storeDefinitionPatterns(
+                copyDefinitionMap(localeDefsMap), customizationKey);
     }
 
     /**
@@ -235,14 +882,21 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
                 localeDefsMap.putAll(parentDefs);
             }
         }
-        // For each source, the resource must be loaded.
+        List<ApplicationResource> localeResources = new ArrayList<ApplicationResource>();
         for (ApplicationResource resource : sources) {
-            ApplicationResource newResource = applicationContext.getResource(resource, customizationKey);
+            ApplicationResource newResource = getLocalizedResource(resource, customizationKey);
             if (newResource != null) {
-                Map<String, Definition> defsMap = loadDefinitionsFromResource(newResource);
-                if (defsMap != null) {
-                    localeDefsMap.putAll(defsMap);
-                }
+                localeResources.add(newResource);
+            }
+        }
+        if (loadingPool != null) {
+            parseSources(localeResources);
+        }
+        // For each source, the resource must be loaded.
+        for (ApplicationResource resource : localeResources) {
+            Map<String, Definition> defsMap = loadDefinitionsFromResource(resource);
+            if (defsMap != null) {
+                localeDefsMap.putAll(defsMap);
             }
         }
         return localeDefsMap;
@@ -259,6 +913,32 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
         return loadDefinitions(parentLocale);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The read definitions are kept, with the modification date of the
+     * source, and returned again until the source is refreshed, no matter how
+     * many locales use it. The returned map must not be modified.
+     * </p>
+     */
+    @Override
+    protected Map<String, Definition> loadDefinitionsFromResource(ApplicationResource resource) {
+        String path = resource.getLocalePath();
+        if (loadingSources != null) {
+            loadingSources.add(path);
+        }
+        SourceDefinitions sourceDefinitions = source2definitions.get(path);
+        Map<String, Definition> retValue;
+        if (sourceDefinitions != null) {
+            // Kept across a refresh: the source is still monitored.
+            lastModifiedDates.putIfAbsent(path, sourceDefinitions.lastModified);
+            retValue = sourceDefinitions.definitions;
+        } else {
+            retValue = storeSourceDefinitions(path, super.loadDefinitionsFromResource(resource));
+        }
+        return retValue.isEmpty() ? null : retValue;
+    }
+
     /**
      * Copies the definition map to be passed to a higher level of customization
      * key.
@@ -272,4 +952,325 @@ public class CachingLocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO
             Map<String, Definition> localeDefsMap) {
         return localeDefsMap;
     }
+
+    /**
+     * Returns the definitions of the canonical locale of a locale, loading
+     * them if they are not available or if the sources changed.
+     *
+     * @param locale The locale.
+     * @return The definitions of its canonical locale.
+     */
+    private LocaleDefinitions getLocaleDefinitions(Locale locale) {
+        Locale customizationKey = getCanonicalLocale(locale);
+        LocaleDefinitions retValue = locale2definitionMap.get().get(customizationKey);
+        if (retValue == null || (checkRefresh && refreshRequired())) {
+            retValue = checkAndLoadLocaleDefinitions(customizationKey);
+            // A refresh may have added or removed localized sources.
+            Locale refreshedKey = getCanonicalLocale(locale);
+            if (!refreshedKey.equals(customizationKey)) {
+                retValue = checkAndLoadLocaleDefinitions(refreshedKey);
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Loads the definitions of a locale, unless another thread did it in the
+     * meantime, and publishes them. If sources have changed, definitions of
+     * all locales are discarded by the same publication. Then the cache of
+     * parsed sources is written, unless definitions are being loaded by the
+     * calling thread.
+     *
+     * @param customizationKey The locale.
+     * @return The definitions of the locale.
+     */
+    private LocaleDefinitions checkAndLoadLocaleDefinitions(Locale customizationKey) {
+        LocaleDefinitions retValue = loadAndPublishLocaleDefinitions(customizationKey);
+        if (!Thread.holdsLock(this)) {
+            // Written without holding the lock, readers are not blocked by I/O.
+            storeDefinitionsCache();
+        }
+        return retValue;
+    }
+
+    /**
+     * Loads the definitions of a locale, unless another thread did it in the
+     * meantime, and publishes them, as
+     * {@link #checkAndLoadLocaleDefinitions(Locale)} does, without writing
+     * the cache of parsed sources.
+     *
+     * @param customizationKey The locale.
+     * @return The definitions of the locale.
+     */
+    private synchronized LocaleDefinitions loadAndPublishLocaleDefinitions(Locale customizationKey) {
+        if (pendingDefinitions != null) {
+            // Called while loading other definitions, published with them.
+            return getPendingLocaleDefinitions(customizationKey);
+        }
+        Map<Locale, LocaleDefinitions> current = locale2definitionMap.get();
+        Map<String, Long> previousModifiedDates = null;
+        if (checkRefresh && refreshRequired()) {
+            current = Collections.emptyMap();
+            previousModifiedDates = new HashMap<String, Long>(lastModifiedDates);
+            lastModifiedDates.clear();
+            forgetChangedSources();
+            forgetLocalizedResources();
+        } else {
+            LocaleDefinitions existingDefinitions = current.get(customizationKey);
+            if (existingDefinitions != null) {
+                return existingDefinitions;
+            }
+        }
+
+        LocaleDefinitions retValue;
+        pendingDefinitions = new HashMap<Locale, LocaleDefinitions>(current);
+        try {
+            retValue = loadLocaleDefinitions(customizationKey, null, null);
+            pendingDefinitions.put(customizationKey, retValue);
+            locale2definitionMap.set(pendingDefinitions);
+        } catch (RuntimeException e) {
+            if (previousModifiedDates != null) {
+                // Keep the refresh pending, current definitions are still valid.
+                lastModifiedDates.clear();
+                lastModifiedDates.putAll(previousModifiedDates);
+            }
+            throw e;
+        } finally {
+            pendingDefinitions = null;
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the definitions of a locale that will be published at the end
+     * of the current load or refresh, loading them if needed. It must be
+     * called while holding the lock of this object.
+     *
+     * @param customizationKey The canonical locale.
+     * @return The definitions of the locale.
+     */
+    private LocaleDefinitions getPendingLocaleDefinitions(Locale customizationKey) {
+        LocaleDefinitions retValue = pendingDefinitions.get(customizationKey);
+        if (retValue == null) {
+            retValue = loadLocaleDefinitions(customizationKey, null, null);
+            pendingDefinitions.put(customizationKey, retValue);
+        }
+        return retValue;
+    }
+
+    /**
+     * Parses the sources that have not been parsed yet on
+     * {@link #loadingPool}, with their own reader if needed, and keeps their
+     * definitions. It must be called while holding the lock of this object.
+     *
+     * @param resources The sources to parse.
+     */
+    private void parseSources(List<ApplicationResource> resources) {
+        Map<String, ApplicationResource> toParse = new LinkedHashMap<String, ApplicationResource>();
+        for (ApplicationResource resource : resources) {
+            String path = resource.getLocalePath();
+            if (!source2definitions.containsKey(path)) {
+                toParse.put(path, resource);
+            }
+        }
+        if (toParse.size() < 2) {
+            return;
+        }
+        Map<String, ForkJoinTask<Map<String, Definition>>> tasks =
+            new LinkedHashMap<String, ForkJoinTask<Map<String, Definition>>>();
+        for (Map.Entry<String, ApplicationResource> entry : toParse.entrySet()) {
+            ApplicationResource resource = entry.getValue();
+            tasks.put(entry.getKey(), loadingPool.submit(
+                    () -> loadDefinitionsFromResource(resource,
+                            readerFactory != null ? readerFactory.get() : reader)));
+        }
+        for (Map.Entry<String, ForkJoinTask<Map<String, Definition>>> entry : tasks.entrySet()) {
+            storeSourceDefinitions(entry.getKey(), entry.getValue().join());
+        }
+    }
+
+    /**
+     * Keeps the definitions read from a source. It must be called while
+     * holding the lock of this object.
+     *
+     * @param path The locale path of the source.
+     * @param definitions The definitions read from the source, or
+     * <code>null</code> if the source does not exist.
+     * @return The kept definitions, read-only, empty if the source does not
+     * exist.
+     */
+    private Map<String, Definition> storeSourceDefinitions(String path, Map<String, Definition> definitions) {
+        Map<String, Definition> retValue = definitions != null ? Collections.unmodifiableMap(definitions)
+                : Collections.<String, Definition>emptyMap();
+        // The modification date has been read just before parsing.
+        Long lastModified = lastModifiedDates.get(path);
+        source2definitions.put(path, new SourceDefinitions(retValue,
+                lastModified != null ? lastModified : 0L));
+        return retValue;
+    }
+
+    /**
+     * Forgets the definitions read from the sources that changed since they
+     * have been parsed, or that do not exist anymore. The other ones are kept,
+     * so that a full reload parses only the changed sources. It must be
+     * called while holding the lock of this object.
+     */
+    private void forgetChangedSources() {
+        Iterator<Map.Entry<String, SourceDefinitions>> entries = source2definitions.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, SourceDefinitions> entry = entries.next();
+            ApplicationResource resource = applicationContext.getResource(entry.getKey());
+            try {
+                if (resource == null || resource.getLastModified() != entry.getValue().lastModified) {
+                    entries.remove();
+                }
+            } catch (IOException e) {
+                log.debug("Cannot check source '" + entry.getKey() + "', it will be parsed again", e);
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Parses again the changed sources. If a source cannot be parsed, the
+     * definitions previously read from it are kept.
+     *
+     * @param changedPaths The locale paths of the changed sources.
+     * @return The names of the definitions read from the changed sources,
+     * before or after the change.
+     */
+    private Set<String> reparseSources(Collection<String> changedPaths) {
+        Set<String> retValue = new HashSet<String>();
+        for (String path : changedPaths) {
+            SourceDefinitions previous = source2definitions.remove(path);
+            if (previous != null) {
+                retValue.addAll(previous.definitions.keySet());
+            }
+            ApplicationResource resource = applicationContext.getResource(path);
+            if (resource == null) {
+                continue;
+            }
+            try {
+                Map<String, Definition> defsMap = loadDefinitionsFromResource(resource);
+                if (defsMap != null) {
+                    retValue.addAll(defsMap.keySet());
+                }
+            } catch (RuntimeException e) {
+                log.error("Cannot parse source '" + path + "', keeping the previous definitions", e);
+                if (previous != null) {
+                    source2definitions.put(path, previous);
+                }
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Loads the definitions of a locale, keeping track of the sources they
+     * come from. It must be called while holding the lock of this object.
+     *
+     * @param customizationKey The locale.
+     * @param previousDefinitions The definitions loaded before some sources
+     * changed, or <code>null</code> for a full load.
+     * @param changedNames The names of the definitions read from the changed
+     * sources, or <code>null</code> for a full load.
+     * @return The definitions of the locale.
+     */
+    private LocaleDefinitions loadLocaleDefinitions(Locale customizationKey,
+            Map<String, Definition> previousDefinitions, Set<String> changedNames) {
+        // Loads can be nested, when parent definitions are loaded first.
+        Set<String> outerLoadingSources = loadingSources;
+        loadingSources = new HashSet<String>();
+        try {
+            Map<String, Definition> definitions;
+            if (previousDefinitions != null) {
+                definitions = reloadDefinitions(customizationKey, previousDefinitions, changedNames);
+            } else {
+                definitions = loadDefinitions(customizationKey);
+            }
+            return new LocaleDefinitions(customizationKey, definitions, loadingSources,
+                    resolvedDefinitionCacheFactory.createCache(customizationKey),
+                    unknownDefinitionCacheSize);
+        } finally {
+            loadingSources = outerLoadingSources;
+        }
+    }
+
+    /**
+     * Returns the depth of a locale in the locale hierarchy.
+     *
+     * @param locale The locale.
+     * @return 0 for {@link Locale#ROOT}, 1 for a language, and so on.
+     */
+    private static int getLocaleDepth(Locale locale) {
+        int retValue = 0;
+        Locale parentLocale = LocaleUtil.getParentLocale(locale);
+        while (parentLocale != null) {
+            retValue++;
+            parentLocale = LocaleUtil.getParentLocale(parentLocale);
+        }
+        return retValue;
+    }
+
+    /**
+     * The raw definitions read from a source.
+     */
+    private static final class SourceDefinitions {
+
+        /**
+         * The definitions, read-only, empty if the source does not exist.
+         */
+        private final Map<String, Definition> definitions;
+
+        /**
+         * The modification date of the source when it has been parsed.
+         */
+        private final long lastModified;
+
+        /**
+         * Constructor.
+         *
+         * @param definitions The definitions.
+         * @param lastModified The modification date of the source.
+         */
+        private SourceDefinitions(Map<String, Definition> definitions, long lastModified) {
+            this.definitions = definitions;
+            this.lastModified = lastModified;
+        }
+    }
+
+    /**
+     * The lookup of the version of a source localized for a locale.
+     */
+    private static final class LocalizedResourceLookup {
+
+        /**
+         * The source.
+         */
+        private final ApplicationResource resource;
+
+        /**
+         * The locale.
+         */
+        private final Locale locale;
+
+        /**
+         * The localized source, or <code>null</code> if it did not exist.
+         */
+        private final ApplicationResource localizedResource;
+
+        /**
+         * Constructor.
+         *
+         * @param resource The source.
+         * @param locale The locale.
+         * @param localizedResource The localized source, or <code>null</code>.
+         */
+        private LocalizedResourceLookup(ApplicationResource resource, Locale locale,
+                ApplicationResource localizedResource) {
+            this.resource = resource;
+            this.locale = locale;
+            this.localizedResource = localizedResource;
+        }
+    }
 }
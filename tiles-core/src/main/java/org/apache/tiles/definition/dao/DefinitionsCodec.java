@@ -0,0 +1,281 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.Expression;
+import org.apache.tiles.ListAttribute;
+
+/**
+ * Encodes definitions in the binary format shared by
+ * {@link BinaryDefinitionsCache} and {@link PrecompiledDefinitions}. Only
+ * definitions made of {@link Attribute}s, {@link ListAttribute}s and string
+ * values can be encoded.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+final class DefinitionsCodec {
+
+    /**
+     * Marks a <code>null</code> attribute.
+     */
+    private static final byte NULL_ATTRIBUTE = 0;
+
+    /**
+     * Marks an {@link Attribute}.
+     */
+    private static final byte SIMPLE_ATTRIBUTE = 1;
+
+    /**
+     * Marks a {@link ListAttribute}.
+     */
+    private static final byte LIST_ATTRIBUTE = 2;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private DefinitionsCodec() {
+        // Utility class. Do nothing
+    }
+
+    /**
+     * Writes definitions.
+     *
+     * @param out The output.
+     * @param definitions The definitions to write.
+     * @return <code>false</code> if the definitions cannot be encoded.
+     * @throws IOException If something goes wrong.
+     */
+    static boolean writeDefinitions(DataOutputStream out, Map<String, Definition> definitions)
+            throws IOException {
+        out.writeInt(definitions.size());
+        for (Map.Entry<String, Definition> mapEntry : definitions.entrySet()) {
+            Definition definition = mapEntry.getValue();
+            if (definition == null || definition.getClass() != Definition.class) {
+                return false;
+            }
+            writeString(out, mapEntry.getKey());
+            writeString(out, definition.getName());
+            writeString(out, definition.getExtends());
+            writeString(out, definition.getPreparer());
+            if (!writeAttribute(out, definition.getTemplateAttribute())) {
+                return false;
+            }
+            Set<String> names = definition.getLocalAttributeNames();
+            out.writeInt(names != null ? names.size() : 0);
+            if (names != null) {
+                for (String name : names) {
+                    writeString(out, name);
+                    if (!writeAttribute(out, definition.getLocalAttribute(name))) {
+                        return false;
+                    }
+                }
+            }
+            names = definition.getCascadedAttributeNames();
+            out.writeInt(names != null ? names.size() : 0);
+            if (names != null) {
+                for (String name : names) {
+                    writeString(out, name);
+                    if (!writeAttribute(out, definition.getCascadedAttribute(name))) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes an attribute.
+     *
+     * @param out The output.
+     * @param attribute The attribute to write.
+     * @return <code>false</code> if the attribute cannot be encoded.
+     * @throws IOException If something goes wrong.
+     */
+    private static boolean writeAttribute(DataOutputStream out, Attribute attribute) throws IOException {
+        if (attribute == null) {
+            out.writeByte(NULL_ATTRIBUTE);
+            return true;
+        }
+        boolean list = attribute.getClass() == ListAttribute.class;
+        if (!list && attribute.getClass() != Attribute.class) {
+            return false;
+        }
+        out.writeByte(list ? LIST_ATTRIBUTE : SIMPLE_ATTRIBUTE);
+        Set<String> roles = attribute.getRoles();
+        out.writeInt(roles != null ? roles.size() : -1);
+        if (roles != null) {
+            for (String role : roles) {
+                writeString(out, role);
+            }
+        }
+        writeString(out, attribute.getRenderer());
+        Expression expression = attribute.getExpressionObject();
+        out.writeBoolean(expression != null);
+        if (expression != null) {
+            writeString(out, expression.getExpression());
+            writeString(out, expression.getLanguage());
+        }
+        if (list) {
+            ListAttribute listAttribute = (ListAttribute) attribute;
+            out.writeBoolean(listAttribute.isInherit());
+            List<Attribute> items = listAttribute.getValue();
+            out.writeInt(items != null ? items.size() : -1);
+            if (items != null) {
+                for (Attribute item : items) {
+                    if (!writeAttribute(out, item)) {
+                        return false;
+                    }
+                }
+            }
+        } else {
+            Object value = attribute.getValue();
+            if (value != null && !(value instanceof String)) {
+                return false;
+            }
+            writeString(out, (String) value);
+        }
+        return true;
+    }
+
+    /**
+     * Reads definitions.
+     *
+     * @param buffer The buffer to read.
+     * @return The definitions.
+     */
+    static Map<String, Definition> readDefinitions(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        Map<String, Definition> retValue = new LinkedHashMap<String, Definition>();
+        for (int i = 0; i < count; i++) {
+            String key = readString(buffer);
+            Definition definition = new Definition();
+            definition.setName(readString(buffer));
+            definition.setExtends(readString(buffer));
+            definition.setPreparer(readString(buffer));
+            definition.setTemplateAttribute(readAttribute(buffer));
+            for (int cascade = 0; cascade < 2; cascade++) {
+                int attributeCount = buffer.getInt();
+                for (int j = 0; j < attributeCount; j++) {
+                    String name = readString(buffer);
+                    definition.putAttribute(name, readAttribute(buffer), cascade == 1);
+                }
+            }
+            retValue.put(key, definition);
+        }
+        return retValue;
+    }
+
+    /**
+     * Reads an attribute.
+     *
+     * @param buffer The buffer to read.
+     * @return The attribute.
+     */
+    private static Attribute readAttribute(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        if (kind == NULL_ATTRIBUTE) {
+            return null;
+        }
+        if (kind != SIMPLE_ATTRIBUTE && kind != LIST_ATTRIBUTE) {
+            throw new IllegalArgumentException("Unknown attribute kind " + kind);
+        }
+        Attribute attribute = kind == LIST_ATTRIBUTE ? new ListAttribute() : new Attribute();
+        int roleCount = buffer.getInt();
+        if (roleCount == 0) {
+            attribute.setRoles(new HashSet<String>());
+        } else if (roleCount > 0) {
+            // Going through setRole shares the role sets between attributes.
+            StringBuilder roles = new StringBuilder(readString(buffer));
+            for (int i = 1; i < roleCount; i++) {
+                roles.append(',').append(readString(buffer));
+            }
+            attribute.setRole(roles.toString());
+        }
+        attribute.setRenderer(readString(buffer));
+        if (buffer.get() != 0) {
+            String expression = readString(buffer);
+            attribute.setExpressionObject(Expression.createExpression(expression, readString(buffer)));
+        }
+        if (kind == LIST_ATTRIBUTE) {
+            ListAttribute listAttribute = (ListAttribute) attribute;
+            listAttribute.setInherit(buffer.get() != 0);
+            int itemCount = buffer.getInt();
+            if (itemCount >= 0) {
+                for (int i = 0; i < itemCount; i++) {
+                    listAttribute.add(readAttribute(buffer));
+                }
+            } else {
+                listAttribute.setValue(null);
+            }
+        } else {
+            attribute.setValue(readString(buffer));
+        }
+        return attribute;
+    }
+
+    /**
+     * Writes a string that can be <code>null</code>.
+     *
+     * @param out The output.
+     * @param string The string to write.
+     * @throws IOException If something goes wrong.
+     */
+    static void writeString(DataOutputStream out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string that can be <code>null</code>.
+     *
+     * @param buffer The buffer to read.
+     * @return The string.
+     */
+    static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.dao;
+
+import java.util.Locale;
+
+/**
+ * Maps the locales of the requests to the locales that actually have their
+ * own definitions. Objects that keep data for each locale can use the
+ * canonical locale as a key, so that the number of entries does not depend
+ * on the locales sent by clients.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public interface LocaleCanonicalizer {
+
+    /**
+     * Returns the canonical locale of a locale, that is the nearest one, among
+     * the locale itself and its parents, that has definitions of its own.
+     * Calling it again on the canonical locale returns the same locale.
+     *
+     * @param locale The locale, <code>null</code> meaning {@link Locale#ROOT}.
+     * @return The canonical locale, never <code>null</code>.
+     */
+    Locale getCanonicalLocale(Locale locale);
+}
@@ -0,0 +1,160 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.request.collection.BoundedCache;
+
+/**
+ * The definitions of a single locale, as loaded by
+ * {@link CachingLocaleUrlDefinitionDAO}: the ones read from sources, and the
+ * names resolved, or known not to be resolvable, through patterns.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+final class LocaleDefinitions {
+
+    /**
+     * The canonical locale of the definitions.
+     */
+    private final Locale locale;
+
+    /**
+     * The definitions loaded from sources, read-only.
+     */
+    private final Map<String, Definition> definitions;
+
+    /**
+     * The paths of the sources the definitions have been loaded from.
+     */
+    private final Set<String> sources;
+
+    /**
+     * The definitions resolved through patterns.
+     */
+    private final ResolvedDefinitionCache resolvedDefinitions;
+
+    /**
+     * The names that cannot be resolved, used as a set.
+     */
+    private final BoundedCache<String, Boolean> unknownNames;
+
+    /**
+     * Constructor.
+     *
+     * @param locale The canonical locale of the definitions.
+     * @param definitions The definitions loaded from sources.
+     * @param sources The paths of the sources.
+     * @param resolvedDefinitions The cache of definitions resolved through
+     * patterns.
+     * @param maxUnknownNames The maximum number of remembered unknown
+     * names.
+     */
+    LocaleDefinitions(Locale locale, Map<String, Definition> definitions, Set<String> sources,
+            ResolvedDefinitionCache resolvedDefinitions, int maxUnknownNames) {
+        this.locale = locale;
+        this.definitions = Collections.unmodifiableMap(definitions);
+        this.sources = sources;
+        this.resolvedDefinitions = resolvedDefinitions;
+        this.unknownNames = new BoundedCache<String, Boolean>(maxUnknownNames);
+    }
+
+    /**
+     * Returns the canonical locale of the definitions.
+     *
+     * @return The locale.
+     */
+    Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Returns the definitions loaded from sources.
+     *
+     * @return The read-only definitions.
+     */
+    Map<String, Definition> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * Returns the paths of the sources the definitions have been loaded
+     * from.
+     *
+     * @return The paths.
+     */
+    Set<String> getSources() {
+        return sources;
+    }
+
+    /**
+     * Returns a loaded or already resolved definition.
+     *
+     * @param name The name of the definition.
+     * @return The definition, or <code>null</code> if not found.
+     */
+    Definition getDefinition(String name) {
+        Definition retValue = definitions.get(name);
+        if (retValue == null && name != null) {
+            retValue = resolvedDefinitions.get(name);
+        }
+        return retValue;
+    }
+
+    /**
+     * Stores a definition resolved through patterns.
+     *
+     * @param name The name of the definition.
+     * @param definition The resolved definition.
+     * @return The stored definition, that is the one resolved by another
+     * thread in the meantime, if any.
+     */
+    Definition putResolvedDefinition(String name, Definition definition) {
+        return resolvedDefinitions.putIfAbsent(name, definition);
+    }
+
+    /**
+     * Checks if a name is known not to match any definition.
+     *
+     * @param name The name of the definition.
+     * @return <code>true</code> if the name has been remembered as unknown.
+     */
+    boolean isUnknown(String name) {
+        return name != null && unknownNames.get(name) != null;
+    }
+
+    /**
+     * Remembers a name that does not match any definition. If there are
+     * already too many names, some of them are forgotten.
+     *
+     * @param name The name of the definition.
+     */
+    void putUnknown(String name) {
+        unknownNames.putIfAbsent(name, Boolean.TRUE);
+    }
+}
@@ -81,6 +81,7 @@ public class LocaleUrlDefinitionDAO extends BaseLocaleUrlDefinitionDAO {
                 }
             }
         }
+        storeDefinitionsCache();
         return localeDefsMap;
     }
 
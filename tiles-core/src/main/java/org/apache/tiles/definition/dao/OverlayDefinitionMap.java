@@ -0,0 +1,205 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.dao;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.tiles.Definition;
+
+/**
+ * A read-only map of definitions that contains only the definitions that
+ * differ from the ones of a parent map, and falls back to the parent map for
+ * the other ones. It is used to share definitions between a locale and its
+ * parent locale. The parent map must not be modified afterwards.
+ * <p>
+ * Iteration returns the entries of the parent map first, replaced by the
+ * overriding ones if any, then the entries whose names are not in the parent
+ * map, in the same order as a map filled by calling <code>putAll</code> with
+ * the parent map, then with the overriding definitions.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+final class OverlayDefinitionMap extends AbstractMap<String, Definition> {
+
+    /**
+     * The parent definitions.
+     */
+    private final Map<String, Definition> parent;
+
+    /**
+     * The definitions that override or add to the parent ones.
+     */
+    private final Map<String, Definition> overrides;
+
+    /**
+     * The number of definitions.
+     */
+    private final int size;
+
+    /**
+     * The entry set view, created when first needed.
+     */
+    private Set<Map.Entry<String, Definition>> entrySet;
+
+    /**
+     * Constructor.
+     *
+     * @param parent The parent definitions.
+     * @param overrides The definitions that override or add to the parent
+     * ones. The map is kept, and must not be modified afterwards.
+     */
+    OverlayDefinitionMap(Map<String, Definition> parent, Map<String, Definition> overrides) {
+        this.parent = parent;
+        this.overrides = overrides;
+        int addedCount = 0;
+        for (String name : overrides.keySet()) {
+            if (!parent.containsKey(name)) {
+                addedCount++;
+            }
+        }
+        size = parent.size() + addedCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Definition get(Object key) {
+        Definition retValue = overrides.get(key);
+        if (retValue == null) {
+            retValue = parent.get(key);
+        }
+        return retValue;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean containsKey(Object key) {
+        return overrides.containsKey(key) || parent.containsKey(key);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Set<Map.Entry<String, Definition>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * The entry set view of the map.
+     */
+    private final class EntrySet extends AbstractSet<Map.Entry<String, Definition>> {
+
+        /** {@inheritDoc} */
+        @Override
+        public Iterator<Map.Entry<String, Definition>> iterator() {
+            return new EntryIterator();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Iterates over the parent entries, then over the added ones.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<String, Definition>> {
+
+        /**
+         * Iterates over the parent entries.
+         */
+        private final Iterator<Map.Entry<String, Definition>> parentIterator =
+            parent.entrySet().iterator();
+
+        /**
+         * Iterates over the overriding entries, once the parent ones are
+         * finished.
+         */
+        private Iterator<Map.Entry<String, Definition>> overridesIterator;
+
+        /**
+         * The next entry, <code>null</code> if not computed yet.
+         */
+        private Map.Entry<String, Definition> next;
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = computeNext();
+            }
+            return next != null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Map.Entry<String, Definition> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<String, Definition> retValue = next;
+            next = null;
+            return retValue;
+        }
+
+        /**
+         * Computes the next entry.
+         *
+         * @return The next entry, or <code>null</code> if there are no more.
+         */
+        private Map.Entry<String, Definition> computeNext() {
+            if (parentIterator.hasNext()) {
+                Map.Entry<String, Definition> entry = parentIterator.next();
+                Definition override = overrides.get(entry.getKey());
+                if (override != null) {
+                    return new SimpleImmutableEntry<String, Definition>(entry.getKey(), override);
+                }
+                return entry;
+            }
+            if (overridesIterator == null) {
+                overridesIterator = overrides.entrySet().iterator();
+            }
+            while (overridesIterator.hasNext()) {
+                Map.Entry<String, Definition> entry = overridesIterator.next();
+                if (!parent.containsKey(entry.getKey())) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+
+/**
+ * <p>
+ * The definitions of an application, grouped by the locale of the sources
+ * they were read from, in a binary form that can be read without parsing XML.
+ * </p>
+ * <p>
+ * For each locale, only the definitions read from the sources of that locale
+ * are kept: definitions of parent locales, inheritance and patterns are
+ * resolved at runtime by {@link PrecompiledLocaleDefinitionDAO}, as it is done
+ * when reading the sources.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class PrecompiledDefinitions {
+
+    /**
+     * The first bytes of a precompiled definitions file.
+     */
+    private static final int MAGIC = 0x54494c50;
+
+    /**
+     * The version of the format of the file.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Maps a locale to the definitions read from its sources.
+     */
+    private final Map<Locale, Map<String, Definition>> locale2definitions =
+        new LinkedHashMap<Locale, Map<String, Definition>>();
+
+    /**
+     * Adds the definitions read from a source. Definitions of a locale
+     * override the ones with the same name that were previously added for the
+     * same locale.
+     *
+     * @param locale The locale of the source.
+     * @param definitions The definitions read from the source.
+     */
+    public void addDefinitions(Locale locale, Map<String, Definition> definitions) {
+        Map<String, Definition> localeDefinitions = locale2definitions.get(locale);
+        if (localeDefinitions == null) {
+            localeDefinitions = new LinkedHashMap<String, Definition>();
+            locale2definitions.put(locale, localeDefinitions);
+        }
+        localeDefinitions.putAll(definitions);
+    }
+
+    /**
+     * Returns the locales whose sources have been read.
+     *
+     * @return The locales.
+     */
+    public Set<Locale> getLocales() {
+        return Collections.unmodifiableSet(locale2definitions.keySet());
+    }
+
+    /**
+     * Returns the definitions read from the sources of a locale, without the
+     * ones of its parent locales.
+     *
+     * @param locale The locale.
+     * @return The definitions, or <code>null</code> if no source has been read
+     * for the locale. They must not be modified.
+     */
+    public Map<String, Definition> getDefinitions(Locale locale) {
+        Map<String, Definition> retValue = locale2definitions.get(locale);
+        return retValue != null ? Collections.unmodifiableMap(retValue) : null;
+    }
+
+    /**
+     * Writes the definitions.
+     *
+     * @param stream The stream to write to. It is not closed.
+     * @throws IOException If something goes wrong while writing.
+     * @throws DefinitionsFactoryException If a definition uses attribute
+     * values or classes that cannot be precompiled.
+     */
+    public void write(OutputStream stream) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(locale2definitions.size());
+        for (Map.Entry<Locale, Map<String, Definition>> entry : locale2definitions.entrySet()) {
+            Locale locale = entry.getKey();
+            DefinitionsCodec.writeString(out, locale.getLanguage());
+            DefinitionsCodec.writeString(out, locale.getCountry());
+            DefinitionsCodec.writeString(out, locale.getVariant());
+            if (!DefinitionsCodec.writeDefinitions(out, entry.getValue())) {
+                throw new DefinitionsFactoryException("The definitions of locale '" + locale
+                        + "' use values that cannot be precompiled");
+            }
+        }
+        out.flush();
+        buffer.writeTo(stream);
+    }
+
+    /**
+     * Reads definitions written by {@link #write(OutputStream)}.
+     *
+     * @param stream The stream to read. It is not closed.
+     * @return The read definitions.
+     * @throws IOException If the stream cannot be read or is not valid.
+     */
+    public static PrecompiledDefinitions read(InputStream stream) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(stream.readAllBytes());
+        PrecompiledDefinitions retValue = new PrecompiledDefinitions();
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a supported precompiled definitions file");
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                String language = DefinitionsCodec.readString(buffer);
+                String country = DefinitionsCodec.readString(buffer);
+                Locale locale = new Locale(language, country, DefinitionsCodec.readString(buffer));
+                retValue.addDefinitions(locale, DefinitionsCodec.readDefinitions(buffer));
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupted precompiled definitions file", e);
+        }
+        return retValue;
+    }
+}
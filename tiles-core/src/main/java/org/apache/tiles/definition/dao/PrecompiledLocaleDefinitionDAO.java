@@ -0,0 +1,166 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.locale.LocaleUtil;
+
+/**
+ * <p>
+ * A definitions DAO that reads definitions from {@link PrecompiledDefinitions},
+ * usually produced at build time, instead of parsing the sources.
+ * </p>
+ * <p>
+ * Definitions of parent locales, inheritance and patterns are resolved as
+ * {@link ResolvingLocaleUrlDefinitionDAO} does. The sources set with
+ * {@link #setSources(java.util.List)} and the reader are not used. If the
+ * precompiled definitions are read from a resource, the refresh check
+ * enabled by {@link #setCheckRefresh(boolean)} reads it again when it
+ * changes.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class PrecompiledLocaleDefinitionDAO extends ResolvingLocaleUrlDefinitionDAO {
+
+    /**
+     * The resource containing the precompiled definitions, or
+     * <code>null</code> if they have been set directly.
+     */
+    private ApplicationResource precompiledResource;
+
+    /**
+     * The precompiled definitions, <code>null</code> if not read yet.
+     */
+    private PrecompiledDefinitions precompiledDefinitions;
+
+    /**
+     * Constructor.
+     *
+     * @param applicationContext The application context.
+     */
+    public PrecompiledLocaleDefinitionDAO(ApplicationContext applicationContext) {
+        super(applicationContext);
+    }
+
+    /**
+     * Sets the resource containing the precompiled definitions, written by
+     * {@link PrecompiledDefinitions#write(java.io.OutputStream)}. It is read
+     * when definitions are loaded for the first time.
+     *
+     * @param precompiledResource The resource.
+     */
+    public synchronized void setPrecompiledResource(ApplicationResource precompiledResource) {
+        this.precompiledResource = precompiledResource;
+        this.precompiledDefinitions = null;
+    }
+
+    /**
+     * Sets the precompiled definitions directly.
+     *
+     * @param precompiledDefinitions The precompiled definitions.
+     */
+    public synchronized void setPrecompiledDefinitions(PrecompiledDefinitions precompiledDefinitions) {
+        this.precompiledResource = null;
+        this.precompiledDefinitions = precompiledDefinitions;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Definitions are taken from the precompiled definitions of the locale
+     * and of its parents.
+     * </p>
+     */
+    @Override
+    protected Map<String, Definition> loadRawDefinitionsFromResources(Locale customizationKey) {
+        Map<String, Definition> localeDefsMap = new LinkedHashMap<String, Definition>();
+        Locale parentLocale = LocaleUtil.getParentLocale(customizationKey);
+        if (parentLocale != null) {
+            localeDefsMap.putAll(loadRawDefinitionsFromResources(parentLocale));
+        }
+        Map<String, Definition> defsMap = getPrecompiledDefinitions().getDefinitions(customizationKey);
+        if (defsMap != null) {
+            localeDefsMap.putAll(defsMap);
+        }
+        return localeDefsMap;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * A locale has localized sources if the precompiled definitions contain
+     * definitions for it.
+     * </p>
+     */
+    @Override
+    protected synchronized boolean hasLocalizedSources(Locale locale) {
+        return getPrecompiledDefinitions().getDefinitions(locale) != null;
+    }
+
+    /**
+     * Returns the precompiled definitions, reading them if they have not been
+     * read yet, or if the refresh check found that their resource changed.
+     * It must be called while holding the lock of this object.
+     *
+     * @return The precompiled definitions.
+     */
+    private PrecompiledDefinitions getPrecompiledDefinitions() {
+        if (precompiledResource != null
+                && (precompiledDefinitions == null
+                        || !lastModifiedDates.containsKey(precompiledResource.getLocalePath()))) {
+            InputStream stream = null;
+            try {
+                lastModifiedDates.put(precompiledResource.getLocalePath(),
+                        precompiledResource.getLastModified());
+                stream = precompiledResource.getInputStream();
+                precompiledDefinitions = PrecompiledDefinitions.read(stream);
+            } catch (IOException e) {
+                throw new DefinitionsFactoryException("I/O error reading precompiled definitions "
+                        + precompiledResource, e);
+            } finally {
+                try {
+                    if (stream != null) {
+                        stream.close();
+                    }
+                } catch (IOException e) {
+                    throw new DefinitionsFactoryException(
+                            "I/O error closing " + precompiledResource, e);
+                }
+            }
+        }
+        if (precompiledDefinitions == null) {
+            throw new DefinitionsFactoryException("No precompiled definitions have been set");
+        }
+        return precompiledDefinitions;
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import org.apache.tiles.Definition;
+
+/**
+ * Caches the definitions of a single locale that have been resolved through
+ * patterns. Implementations must be thread-safe, and may evict definitions at
+ * any time.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public interface ResolvedDefinitionCache {
+
+    /**
+     * Returns a cached definition.
+     *
+     * @param name The name of the definition.
+     * @return The definition, or <code>null</code> if not cached.
+     * @since 4.0.0
+     */
+    Definition get(String name);
+
+    /**
+     * Caches a definition, unless another one with the same name is cached.
+     *
+     * @param name The name of the definition.
+     * @param definition The definition to cache.
+     * @return The cached definition with that name, that is
+     * <code>definition</code> itself if no other one was cached.
+     * @since 4.0.0
+     */
+    Definition putIfAbsent(String name, Definition definition);
+}
@@ -0,0 +1,44 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.util.Locale;
+
+/**
+ * Creates the caches of definitions resolved through patterns. A new cache is
+ * created each time the definitions of a locale are loaded, so the previous
+ * one is discarded with the previous definitions.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public interface ResolvedDefinitionCacheFactory {
+
+    /**
+     * Creates the cache of a locale.
+     *
+     * @param locale The locale.
+     * @return The new cache.
+     * @since 4.0.0
+     */
+    ResolvedDefinitionCache createCache(Locale locale);
+}
@@ -21,8 +21,11 @@
 
 package org.apache.tiles.definition.dao;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
@@ -30,6 +33,7 @@ import java.util.Set;
 import org.apache.tiles.Definition;
 import org.apache.tiles.definition.NoSuchDefinitionException;
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.locale.LocaleUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -41,6 +45,17 @@ import org.slf4j.LoggerFactory;
  * <p>
  * It can check if the URLs change, but by default this feature is turned off.
  * </p>
+ * <p>
+ * When some sources are refreshed, only the definitions read from them and
+ * the ones extending them are resolved again. The other ones are kept as they
+ * are.
+ * </p>
+ * <p>
+ * The definitions of a locale other than the root one keep only the
+ * definitions that differ from the ones of the parent locale, i.e. the ones
+ * overridden by its localized sources and their descendants, and share the
+ * other ones with the parent locale.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.1.0
@@ -63,14 +78,114 @@ public class ResolvingLocaleUrlDefinitionDAO extends
         return loadRawDefinitionsFromResources(parentLocale);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the definitions of the parent locale are available, see
+     * {@link #getParentDefinitions(Locale)}, only the definitions that differ
+     * from them are copied and resolved, see
+     * {@link #loadOverridingDefinitions(Locale, Map)}.
+     * </p>
+     */
     @Override
     protected Map<String, Definition> loadDefinitions(Locale customizationKey) {
-        Map<String, Definition> localeDefsMap = super.loadDefinitions(customizationKey);
-        Map<String, Definition> defsMap = definitionResolver
-                .storeDefinitionPatterns(copyDefinitionMap(localeDefsMap),
-                        customizationKey);
+        Locale parentLocale = LocaleUtil.getParentLocale(customizationKey);
+        if (parentLocale != null) {
+            Map<String, Definition> parentDefinitions = getParentDefinitions(parentLocale);
+            if (parentDefinitions != null) {
+                return loadOverridingDefinitions(customizationKey, parentDefinitions);
+            }
+        }
+        Map<String, Definition> defsMap = super.loadDefinitions(customizationKey);
         resolveInheritances(defsMap, customizationKey);
-        locale2definitionMap.put(customizationKey, defsMap);
+        return defsMap;
+    }
+
+    /**
+     * Loads the definitions of a locale as an overlay of the definitions of
+     * its parent locale. A definition is copied and resolved again only if it
+     * is not the same raw definition as in the parent locale, or if one of its
+     * ancestors is in that case. The other ones are taken from the parent
+     * definitions.
+     *
+     * @param customizationKey The locale to load.
+     * @param parentDefinitions The resolved definitions of the parent locale.
+     * They must not be modified afterwards.
+     * @return The loaded definitions, with definition patterns removed.
+     * @since 4.0.0
+     */
+    protected Map<String, Definition> loadOverridingDefinitions(Locale customizationKey,
+            Map<String, Definition> parentDefinitions) {
+        Map<String, Definition> localeDefsMap = loadRawDefinitionsFromResources(customizationKey);
+        Map<String, Definition> parentDefsMap = loadRawDefinitionsFromResources(
+                LocaleUtil.getParentLocale(customizationKey));
+        Set<String> overriddenNames = new HashSet<String>();
+        for (Map.Entry<String, Definition> entry : localeDefsMap.entrySet()) {
+            // Raw definitions are kept per source, so unchanged ones are the same objects.
+            if (entry.getValue() != parentDefsMap.get(entry.getKey())) {
+                overriddenNames.add(entry.getKey());
+            }
+        }
+        Set<String> affectedNames = getAffectedDefinitionNames(localeDefsMap, overriddenNames);
+        // Pattern matchers only read the raw definitions, they can be shared.
+        Map<String, Definition> defsMap = definitionResolver.storeDefinitionPatterns(
+                localeDefsMap, customizationKey);
+        Map<String, Definition> overrides = new LinkedHashMap<String, Definition>();
+        for (Map.Entry<String, Definition> entry : defsMap.entrySet()) {
+            if (affectedNames.contains(entry.getKey())) {
+                overrides.put(entry.getKey(), new Definition(entry.getValue()));
+            }
+        }
+        Map<String, Definition> retValue = new OverlayDefinitionMap(parentDefinitions, overrides);
+        Set<String> alreadyResolvedDefinitions = new HashSet<String>(parentDefinitions.keySet());
+        alreadyResolvedDefinitions.removeAll(overrides.keySet());
+        for (Definition definition : overrides.values()) {
+            resolveInheritance(definition, retValue, customizationKey,
+                    alreadyResolvedDefinitions);
+        }
+        return retValue;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Only the changed definitions and their descendants are copied and
+     * resolved again. The other definitions are taken from the previous ones.
+     * If the definitions of the parent locale are available, the definitions
+     * are loaded again as an overlay of them instead, see
+     * {@link #loadOverridingDefinitions(Locale, Map)}.
+     * </p>
+     */
+    @Override
+    protected Map<String, Definition> reloadDefinitions(Locale customizationKey,
+            Map<String, Definition> previousDefinitions, Set<String> changedNames) {
+        Locale parentLocale = LocaleUtil.getParentLocale(customizationKey);
+        if (parentLocale != null) {
+            Map<String, Definition> parentDefinitions = getParentDefinitions(parentLocale);
+            if (parentDefinitions != null) {
+                return loadOverridingDefinitions(customizationKey, parentDefinitions);
+            }
+        }
+        Map<String, Definition> localeDefsMap = loadRawDefinitionsFromResources(customizationKey);
+        Set<String> affectedNames = getAffectedDefinitionNames(localeDefsMap, changedNames);
+        Map<String, Definition> defsMap = new LinkedHashMap<String, Definition>(localeDefsMap.size());
+        Set<String> alreadyResolvedDefinitions = new HashSet<String>();
+        for (Map.Entry<String, Definition> entry : localeDefsMap.entrySet()) {
+            String name = entry.getKey();
+            Definition definition = previousDefinitions.get(name);
+            if (definition != null && !affectedNames.contains(name)) {
+                alreadyResolvedDefinitions.add(name);
+            } else {
+                // Not previously loaded, affected, or a pattern.
+                definition = new Definition(entry.getValue());
+            }
+            defsMap.put(name, definition);
+        }
+        defsMap = definitionResolver.storeDefinitionPatterns(defsMap, customizationKey);
+        for (Definition definition : defsMap.values()) {
+            resolveInheritance(definition, defsMap, customizationKey,
+                    alreadyResolvedDefinitions);
+        }
         return defsMap;
     }
 
@@ -153,6 +268,41 @@ public class ResolvingLocaleUrlDefinitionDAO extends
         definition.inherit(parent);
     }
 
+    /**
+     * Returns the names of the changed definitions and of the definitions that
+     * extend them, directly or indirectly.
+     *
+     * @param definitions The raw definitions.
+     * @param changedNames The names of the changed definitions.
+     * @return The names of the affected definitions.
+     */
+    private Set<String> getAffectedDefinitionNames(Map<String, Definition> definitions,
+            Set<String> changedNames) {
+        Map<String, List<String>> parent2children = new HashMap<String, List<String>>();
+        for (Definition definition : definitions.values()) {
+            if (definition.isExtending()) {
+                List<String> children = parent2children.get(definition.getExtends());
+                if (children == null) {
+                    children = new ArrayList<String>();
+                    parent2children.put(definition.getExtends(), children);
+                }
+                children.add(definition.getName());
+            }
+        }
+        Set<String> retValue = new HashSet<String>();
+        List<String> toVisit = new ArrayList<String>(changedNames);
+        while (!toVisit.isEmpty()) {
+            String name = toVisit.remove(toVisit.size() - 1);
+            if (retValue.add(name)) {
+                List<String> children = parent2children.get(name);
+                if (children != null) {
+                    toVisit.addAll(children);
+                }
+            }
+        }
+        return retValue;
+    }
+
     /**
      * Copies the definition map to be passed to a higher level of customization
      * key.
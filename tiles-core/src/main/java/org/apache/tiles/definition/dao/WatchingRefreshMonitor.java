@@ -0,0 +1,353 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.tiles.definition.RefreshMonitor;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.locale.URLApplicationResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * <p>
+ * Monitors the sources of a {@link CachingLocaleUrlDefinitionDAO} in a
+ * background thread, and asks the DAO to reload the locales whose sources
+ * changed.
+ * </p>
+ * <p>
+ * Sources that are files are watched using a {@link WatchService}. The other
+ * ones, like resources inside jars, are polled for their last modification
+ * date. Since reloading happens in background, the DAO should not check for
+ * refresh by itself, i.e.
+ * {@link CachingLocaleUrlDefinitionDAO#setCheckRefresh(boolean)} should not be
+ * called.
+ * </p>
+ * <p>
+ * When a watched directory changes, localized sources may have been added or
+ * removed, so the DAO is asked to forget the localized sources it looked up,
+ * see {@link CachingLocaleUrlDefinitionDAO#forgetLocalizedResources()}.
+ * </p>
+ * <p>
+ * To install it, pass it to
+ * {@link CachingLocaleUrlDefinitionDAO#setRefreshMonitor(WatchingRefreshMonitor)},
+ * or set the
+ * {@link CachingLocaleUrlDefinitionDAO#WATCH_SOURCES_INIT_PARAMETER}
+ * initialization parameter to <code>true</code> when the DAO is created by
+ * {@link org.apache.tiles.factory.BasicTilesContainerFactory}. It is stopped
+ * when the container is destroyed.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class WatchingRefreshMonitor implements RefreshMonitor, Runnable, Closeable {
+
+    /**
+     * The default interval, in milliseconds, between two checks of the
+     * sources.
+     */
+    public static final long DEFAULT_POLLING_INTERVAL = 2000L;
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(WatchingRefreshMonitor.class);
+
+    /**
+     * The DAO whose sources are monitored.
+     */
+    private final CachingLocaleUrlDefinitionDAO definitionDao;
+
+    /**
+     * The interval, in milliseconds, between two checks of the sources.
+     */
+    private long pollingInterval = DEFAULT_POLLING_INTERVAL;
+
+    /**
+     * The watch service, or <code>null</code> if not available.
+     */
+    private WatchService watchService;
+
+    /**
+     * The monitoring thread, <code>null</code> if not running.
+     */
+    private volatile Thread thread;
+
+    /**
+     * <code>true</code> while changed sources are being reloaded.
+     */
+    private volatile boolean refreshing = false;
+
+    /**
+     * Maps a source path to its resource. Used only by the monitoring thread.
+     */
+    private final Map<String, ApplicationResource> resources = new HashMap<String, ApplicationResource>();
+
+    /**
+     * Maps a source path to its file, for the sources that are watched. Used
+     * only by the monitoring thread.
+     */
+    private final Map<String, Path> watchedFiles = new HashMap<String, Path>();
+
+    /**
+     * The directories registered to the watch service. Used only by the
+     * monitoring thread.
+     */
+    private final Set<Path> watchedDirectories = new HashSet<Path>();
+
+    /**
+     * Constructor.
+     *
+     * @param definitionDao The DAO whose sources will be monitored.
+     */
+    public WatchingRefreshMonitor(CachingLocaleUrlDefinitionDAO definitionDao) {
+        this.definitionDao = definitionDao;
+    }
+
+    /**
+     * Sets the interval between two checks of the sources. If not called, the
+     * default is {@link #DEFAULT_POLLING_INTERVAL}.
+     *
+     * @param pollingInterval The interval, in milliseconds.
+     */
+    public void setPollingInterval(long pollingInterval) {
+        this.pollingInterval = pollingInterval;
+    }
+
+    /**
+     * Starts the monitoring thread, if not already started.
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            return;
+        }
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            log.warn("Cannot create a watch service, sources will be polled", e);
+            watchService = null;
+        }
+        thread = new Thread(this, "tiles-definitions-refresh");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the monitoring thread.
+     *
+     * @throws IOException If the watch service cannot be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        Thread monitoringThread = thread;
+        thread = null;
+        if (monitoringThread != null) {
+            monitoringThread.interrupt();
+        }
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * It returns <code>true</code> only while changed sources are being
+     * reloaded, and never accesses the sources.
+     * </p>
+     */
+    @Override
+    public boolean refreshRequired() {
+        return refreshing;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        while (thread == Thread.currentThread()) {
+            try {
+                checkSources();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.error("Exception while monitoring definition sources", e);
+            }
+        }
+    }
+
+    /**
+     * Waits for the sources to change, and reloads the changed ones.
+     *
+     * @throws InterruptedException If the thread has been interrupted.
+     */
+    protected void checkSources() throws InterruptedException {
+        Set<String> paths = new HashSet<String>(definitionDao.getLastModifiedDates().keySet());
+        // Sources registered now may have changed before being watched.
+        Set<String> newPaths = registerSources(paths);
+        Set<Path> changedDirectories = awaitChangedDirectories();
+        if (!changedDirectories.isEmpty()) {
+            definitionDao.forgetLocalizedResources();
+        }
+        Set<String> changedPaths = new HashSet<String>();
+        for (String path : paths) {
+            Path file = watchedFiles.get(path);
+            if ((file == null || newPaths.contains(path)
+                    || changedDirectories.contains(file.getParent()))
+                    && isChanged(path)) {
+                changedPaths.add(path);
+            }
+        }
+        if (!changedPaths.isEmpty()) {
+            log.debug("Definition sources changed: {}", changedPaths);
+            refreshing = true;
+            try {
+                definitionDao.refreshSources(changedPaths);
+            } finally {
+                refreshing = false;
+            }
+        }
+    }
+
+    /**
+     * Registers the directories of the sources that are files, and forgets the
+     * sources that are not used anymore.
+     *
+     * @param paths The paths of the currently used sources.
+     * @return The paths of the sources that were not registered yet.
+     */
+    private Set<String> registerSources(Set<String> paths) {
+        Set<String> retValue = new HashSet<String>();
+        resources.keySet().retainAll(paths);
+        watchedFiles.keySet().retainAll(paths);
+        for (String path : paths) {
+            if (resources.containsKey(path)) {
+                continue;
+            }
+            retValue.add(path);
+            ApplicationResource resource = definitionDao.getApplicationContext().getResource(path);
+            resources.put(path, resource);
+            if (watchService != null && resource instanceof URLApplicationResource) {
+                File file = ((URLApplicationResource) resource).getFile();
+                if (file != null) {
+                    Path filePath = file.getAbsoluteFile().toPath();
+                    if (watchDirectory(filePath.getParent())) {
+                        watchedFiles.put(path, filePath);
+                    }
+                }
+            }
+        }
+        return retValue;
+    }
+
+    /**
+     * Registers a directory to the watch service.
+     *
+     * @param directory The directory to watch.
+     * @return <code>true</code> if the directory is watched.
+     */
+    private boolean watchDirectory(Path directory) {
+        if (directory == null) {
+            return false;
+        }
+        if (!watchedDirectories.contains(directory)) {
+            try {
+                directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchedDirectories.add(directory);
+            } catch (IOException e) {
+                log.debug("Cannot watch directory " + directory + ", it will be polled", e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Waits for the polling interval, collecting the watched directories that
+     * changed in the meantime.
+     *
+     * @return The changed directories.
+     * @throws InterruptedException If the thread has been interrupted.
+     */
+    private Set<Path> awaitChangedDirectories() throws InterruptedException {
+        Set<Path> retValue = new HashSet<Path>();
+        if (watchService == null) {
+            Thread.sleep(pollingInterval);
+            return retValue;
+        }
+        WatchKey key = watchService.poll(pollingInterval, TimeUnit.MILLISECONDS);
+        while (key != null) {
+            Path directory = (Path) key.watchable();
+            key.pollEvents();
+            retValue.add(directory);
+            if (!key.reset()) {
+                // The directory is not accessible anymore, register it again later.
+                watchedDirectories.remove(directory);
+                resources.keySet().removeAll(watchedFiles.keySet());
+                watchedFiles.clear();
+            }
+            key = watchService.poll();
+        }
+        return retValue;
+    }
+
+    /**
+     * Checks if a source changed since it has been loaded.
+     *
+     * @param path The path of the source.
+     * @return <code>true</code> if the source changed.
+     */
+    private boolean isChanged(String path) {
+        Long lastModified = definitionDao.getLastModifiedDates().get(path);
+        if (lastModified == null) {
+            return false;
+        }
+        ApplicationResource resource = resources.get(path);
+        if (resource == null) {
+            return false;
+        }
+        try {
+            return resource.getLastModified() != lastModified;
+        } catch (IOException e) {
+            log.warn("Exception while monitoring update times.", e);
+            return true;
+        }
+    }
+}
@@ -26,6 +26,9 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.digester3.Digester;
 import org.apache.commons.digester3.Rule;
@@ -58,10 +61,10 @@ import org.xml.sax.SAXParseException;
  * <code>org.apache.tiles.definition.digester.DigesterDefinitionsReader.PARSER_VALIDATE</code>
  * and a value of <code>&quot;true&quot;</code>. <p/>
  * <p>
- * The Definition objects are stored internally in a Map. The Map is stored as
- * an instance variable rather than a local variable in the <code>read</code>
- * method. This means that instances of this class are <strong>not</strong>
- * thread-safe and access by multiple threads must be synchronized.
+ * Instances of this class are thread-safe. Since configuring a Digester is
+ * expensive, configured Digesters are kept in a pool and reused by the next
+ * reads, and the state of a read lives in a {@link ParseContext} created for
+ * each invocation.
  * </p>
  *
  * @version $Rev$ $Date$
@@ -148,7 +151,7 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
         /** {@inheritDoc} */
         @Override
         public void begin(String namespace, String name, Attributes attributes) {
-            Definition definition = (Definition) digester.peek();
+            Definition definition = (Definition) getDigester().peek();
             definition.setName(attributes.getValue("name"));
             definition.setPreparer(attributes.getValue("preparer"));
             String extendsAttribute = attributes.getValue("extends");
@@ -180,7 +183,7 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
         /** {@inheritDoc} */
         @Override
         public void begin(String namespace, String name, Attributes attributes) {
-            Attribute attribute = (Attribute) digester.peek();
+            Attribute attribute = (Attribute) getDigester().peek();
             attribute.setValue(attributes.getValue("value"));
             String expression = attributes.getValue("expression");
             attribute.setExpressionObject(Expression
@@ -201,8 +204,8 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
         /** {@inheritDoc} */
         @Override
         public void begin(String namespace, String name, Attributes attributes) {
-            Attribute attribute = (Attribute) digester.peek(0);
-            Definition definition = (Definition) digester.peek(1);
+            Attribute attribute = (Attribute) getDigester().peek(0);
+            Definition definition = (Definition) getDigester().peek(1);
             definition.putAttribute(attributes.getValue("name"), attribute,
                     "true".equals(attributes.getValue("cascade")));
         }
@@ -219,11 +222,12 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
         /** {@inheritDoc} */
         @Override
         public void begin(String namespace, String name, Attributes attributes) {
-            Definition definition = (Definition) digester.peek(0);
+            Definition definition = (Definition) getDigester().peek(0);
             if (definition.getName() == null) {
-                definition.setName(getNextUniqueDefinitionName(definitions));
+                ParseContext context = (ParseContext) getDigester().getRoot();
+                definition.setName(getNextUniqueDefinitionName(context.getDefinitions()));
             }
-            Attribute attribute = (Attribute) digester.peek(1);
+            Attribute attribute = (Attribute) getDigester().peek(1);
             attribute.setValue(definition.getName());
             attribute.setRenderer("definition");
         }
@@ -231,10 +235,35 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
 
     /**
      * <code>Digester</code> object used to read Definition data
-     * from the source.
+     * from the source. It is only the first Digester of the pool, other ones
+     * are created with {@link #createDigester()} when reads happen
+     * concurrently.
+     *
+     * @deprecated Changes made to this Digester do not apply to the other
+     * pooled ones. Override {@link #createDigester()} or
+     * {@link #initSyntax(Digester)} to configure all of them.
      */
+    @Deprecated
     protected Digester digester;
 
+    /**
+     * The configured Digesters that are not used by a read. It is replaced
+     * when the validation changes, so that Digesters configured differently
+     * are never mixed.
+     */
+    private volatile Queue<Digester> idleDigesters;
+
+    /**
+     * The state of the read in progress on each thread, used by the
+     * deprecated {@link #addDefinition(Definition)}.
+     */
+    private final ThreadLocal<ParseContext> currentContext = new ThreadLocal<ParseContext>();
+
+    /**
+     * Whether XML files are validated.
+     */
+    private volatile boolean validating = false;
+
     /**
      * The set of public identifiers, and corresponding resource names for
      * the versions of the configuration file DTDs we know about.  There
@@ -242,25 +271,61 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
      */
     protected String[] registrations;
 
-    /**
-     * Stores Definition objects.
-     */
-    private Map<String, Definition> definitions;
-
     /**
      * Index to be used to create unique definition names for anonymous
      * (nested) definitions.
      */
-    private int anonymousDefinitionIndex = 1;
+    private final AtomicInteger anonymousDefinitionIndex = new AtomicInteger(1);
 
     /**
      * Creates a new instance of DigesterDefinitionsReader.
      */
     public DigesterDefinitionsReader() {
-        digester = new Digester();
-        digester.setNamespaceAware(true);
-        digester.setUseContextClassLoader(true);
-        digester.setErrorHandler(new ThrowingErrorHandler());
+        resetDigesters();
+    }
+
+    /**
+     * Sets the validation of XML files. Since a Digester cannot change it
+     * after its first read, the pooled Digesters are discarded. It is meant to
+     * be called while setting up the reader: reads in progress keep the
+     * previous setting.
+     *
+     * @param validating <code>true</code> means that XML validation is turned
+     * on. <code>false</code> otherwise.
+     * @since 3.3.0
+     */
+    public synchronized void setValidating(boolean validating) {
+        this.validating = validating;
+        resetDigesters();
+    }
+
+    /**
+     * Replaces the pool of Digesters with a new one, containing a Digester
+     * created with the current settings.
+     */
+    @SuppressWarnings("deprecation")
+    private void resetDigesters() {
+        Queue<Digester> newDigesters = new ConcurrentLinkedQueue<Digester>();
+        digester = createDigester();
+        newDigesters.add(digester);
+        idleDigesters = newDigesters;
+    }
+
+    /**
+     * Creates and configures a Digester: local DTDs are registered and the
+     * syntax is initialized with {@link #initSyntax(Digester)}. It is called
+     * for every pooled Digester, so subclasses override it, or
+     * {@link #initSyntax(Digester)}, to customize all of them.
+     *
+     * @return The new Digester.
+     * @since 4.0.0
+     */
+    protected Digester createDigester() {
+        Digester retValue = new Digester();
+        retValue.setNamespaceAware(true);
+        retValue.setUseContextClassLoader(true);
+        retValue.setValidating(validating);
+        retValue.setErrorHandler(new ThrowingErrorHandler());
 
         // Register our local copy of the DTDs that we can find
         String[] registrations = getRegistrations();
@@ -268,22 +333,12 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
             URL url = this.getClass().getResource(
                 registrations[i + 1]);
             if (url != null) {
-                digester.register(registrations[i], url.toString());
+                retValue.register(registrations[i], url.toString());
             }
         }
 
-        initSyntax(digester);
-    }
-
-    /**
-     * Sets the validation of XML files.
-     *
-     * @param validating <code>true</code> means that XML validation is turned
-     * on. <code>false</code> otherwise.
-     * @since 3.3.0
-     */
-    public void setValidating(boolean validating) {
-        digester.setValidating(validating);
+        initSyntax(retValue);
+        return retValue;
     }
 
     /**
@@ -300,11 +355,6 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
      */
     @Override
     public Map<String, Definition> read(Object source) {
-        // This is an instance variable instead of a local variable because
-        // we want to be able to call the addDefinition method to populate it.
-        // But we reset the Map here, which, of course, has threading implications.
-        definitions = new LinkedHashMap<String, Definition>();
-
         if (source == null) {
             // Perhaps we should throw an exception here.
             return null;
@@ -318,12 +368,21 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
                 "Invalid source type.  Requires java.io.InputStream.", e);
         }
 
+        ParseContext context = new ParseContext();
+        // Digesters go back to the pool they come from, discarded if the
+        // validation changed in the meantime.
+        Queue<Digester> digesters = idleDigesters;
+        Digester parser = digesters.poll();
+        if (parser == null) {
+            parser = createDigester();
+        }
+        ParseContext outerContext = currentContext.get();
+        currentContext.set(context);
         try {
             // set first object in stack
-            //digester.clear();
-            digester.push(this);
+            parser.push(context);
             // parse
-            digester.parse(input);
+            parser.parse(input);
 
         } catch (SAXException e) {
             throw new DefinitionsFactoryException(
@@ -332,10 +391,34 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
             throw new DefinitionsFactoryException(
                 "I/O Error reading definitions.", e);
         } finally {
-            digester.clear();
+            if (outerContext != null) {
+                currentContext.set(outerContext);
+            } else {
+                currentContext.remove();
+            }
+            parser.clear();
+            digesters.offer(parser);
         }
 
-        return definitions;
+        return context.definitions;
+    }
+
+    /**
+     * Adds a new <code>Definition</code> to the definitions being read by the
+     * calling thread, or replaces an existing one.
+     *
+     * @param definition The Definition object to be added.
+     * @deprecated Rules add definitions to the {@link ParseContext} of the
+     * read, that is the root of the Digester stack: use
+     * {@link ParseContext#addDefinition(Definition)} instead.
+     */
+    @Deprecated
+    public void addDefinition(Definition definition) {
+        ParseContext context = currentContext.get();
+        if (context == null) {
+            throw new IllegalStateException("No definitions are being read by the current thread");
+        }
+        context.addDefinition(definition);
     }
 
     /**
@@ -398,19 +481,42 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
     }
 
     /**
-     * Adds a new <code>Definition</code> to the internal Map or replaces
-     * an existing one.
+     * The state of a single read. It is the root object of the Digester
+     * stack, so rules add the read definitions to it.
      *
-     * @param definition The Definition object to be added.
+     * @since 4.0.0
      */
-    public void addDefinition(Definition definition) {
-        String name = definition.getName();
-        if (name == null) {
-            throw new DigesterDefinitionsReaderException(
-                    "A root definition has been defined with no name");
+    public static class ParseContext {
+
+        /**
+         * Stores Definition objects.
+         */
+        private final Map<String, Definition> definitions = new LinkedHashMap<String, Definition>();
+
+        /**
+         * Adds a new <code>Definition</code> to the read ones or replaces
+         * an existing one.
+         *
+         * @param definition The Definition object to be added.
+         */
+        public void addDefinition(Definition definition) {
+            String name = definition.getName();
+            if (name == null) {
+                throw new DigesterDefinitionsReaderException(
+                        "A root definition has been defined with no name");
+            }
+
+            definitions.put(name, definition);
         }
 
-        definitions.put(name, definition);
+        /**
+         * Returns the definitions read so far.
+         *
+         * @return The definitions.
+         */
+        public Map<String, Definition> getDefinitions() {
+            return definitions;
+        }
     }
 
     /**
@@ -465,8 +571,7 @@ public class DigesterDefinitionsReader implements DefinitionsReader {
         String candidate;
 
         do {
-            candidate = "$anonymousDefinition" + anonymousDefinitionIndex;
-            anonymousDefinitionIndex++;
+            candidate = "$anonymousDefinition" + anonymousDefinitionIndex.getAndIncrement();
         } while (definitions.containsKey(candidate));
 
         return candidate;
@@ -22,6 +22,7 @@
 package org.apache.tiles.definition.pattern;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +34,15 @@ import org.apache.tiles.Definition;
  * separated by customization key. <br>
  * Implementations should provide a way to translate a definition to a
  * {@link DefinitionPatternMatcher}.
+ * <p>
+ * Stored patterns are kept in a copy-on-write snapshot, so resolving a
+ * definition never locks, while storing or clearing patterns atomically
+ * replaces the list of matchers of a customization key.
+ * </p>
+ * <p>
+ * Matchers are kept in a {@link DefinitionPatternMatcherIndex}, so that
+ * resolving a definition tries only the matchers that can match its name.
+ * </p>
  *
  * @param <T> The type of the customization key.
  * @version $Rev$ $Date$
@@ -42,34 +52,37 @@ public abstract class AbstractPatternDefinitionResolver<T> implements
         PatternDefinitionResolver<T> {
 
     /**
-     * Stores patterns depending on the locale they refer to.
+     * Stores patterns depending on the locale they refer to. The map is never
+     * modified once published.
      */
-    private Map<T, List<DefinitionPatternMatcher>> localePatternPaths =
-        new HashMap<T, List<DefinitionPatternMatcher>>();
+    private volatile Map<T, DefinitionPatternMatcherIndex> localePatternPaths =
+        Collections.emptyMap();
 
     /** {@inheritDoc} */
     @Override
     public Definition resolveDefinition(String name, T customizationKey) {
         Definition retValue = null;
-        if (localePatternPaths.containsKey(customizationKey)) {
-            retValue = searchAndResolveDefinition(localePatternPaths
-                    .get(customizationKey), name);
+        DefinitionPatternMatcherIndex paths = localePatternPaths.get(customizationKey);
+        if (paths != null) {
+            retValue = paths.createDefinition(name);
         }
         return retValue;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The patterns found in <code>localeDefsMap</code> replace the ones
+     * previously stored for the same customization key.
+     * </p>
+     */
     @Override
     public Map<String, Definition> storeDefinitionPatterns(Map<String, Definition> localeDefsMap,
                                                            T customizationKey) {
-        List<DefinitionPatternMatcher> lpaths = localePatternPaths
-                .get(customizationKey);
-        if (lpaths == null) {
-            lpaths = new ArrayList<DefinitionPatternMatcher>();
-            localePatternPaths.put(customizationKey, lpaths);
-        }
-
-        return addDefinitionsAsPatternMatchers(lpaths, localeDefsMap);
+        List<DefinitionPatternMatcher> lpaths = new ArrayList<DefinitionPatternMatcher>();
+        Map<String, Definition> retValue = addDefinitionsAsPatternMatchers(lpaths, localeDefsMap);
+        publishPatternPaths(customizationKey, new DefinitionPatternMatcherIndex(lpaths));
+        return retValue;
     }
 
     /**
@@ -77,8 +90,8 @@ public abstract class AbstractPatternDefinitionResolver<T> implements
      * pattern matchers. Only a subset of definitions will be transformed into
      * definition pattern matchers.
      *
-     * @param matchers The list containing the currently stored definition pattern
-     * matchers.
+     * @param matchers The list that collects the definition pattern matchers
+     * to store.
      * @param defsMap The definition map to parse.
      * @return The map of the definitions not recognized as containing
      * definition patterns.
@@ -88,27 +101,6 @@ public abstract class AbstractPatternDefinitionResolver<T> implements
             List<DefinitionPatternMatcher> matchers,
             Map<String, Definition> defsMap);
 
-    /**
-     * Try to resolve a definition by iterating all pattern matchers.
-     *
-     * @param paths The list containing the currently stored paths.
-     * @param name The name of the definition to resolve.
-     * @return A definition, if found, or <code>null</code> if not.
-     */
-    private Definition searchAndResolveDefinition(
-            List<DefinitionPatternMatcher> paths, String name) {
-        Definition d = null;
-
-        for (DefinitionPatternMatcher wm : paths) {
-            d = wm.createDefinition(name);
-            if (d != null) {
-                break;
-            }
-        }
-
-        return d;
-    }
-
 
     /**
      * Used to clear all entries in the localePatternPaths for a specific locale. Necessary when reloading definition
@@ -118,7 +110,25 @@ public abstract class AbstractPatternDefinitionResolver<T> implements
      */
     @Override
     public void clearPatternPaths(T customizationKey) {
-        if (localePatternPaths.get(customizationKey) != null)
-            localePatternPaths.get(customizationKey).clear();
+        publishPatternPaths(customizationKey, null);
+    }
+
+    /**
+     * Publishes a new snapshot of the stored patterns, where the matchers of a
+     * customization key are replaced.
+     *
+     * @param customizationKey The customization key.
+     * @param paths The new matchers, or <code>null</code> to remove them.
+     */
+    private synchronized void publishPatternPaths(T customizationKey,
+            DefinitionPatternMatcherIndex paths) {
+        Map<T, DefinitionPatternMatcherIndex> newPatternPaths =
+            new HashMap<T, DefinitionPatternMatcherIndex>(localePatternPaths);
+        if (paths != null) {
+            newPatternPaths.put(customizationKey, paths);
+        } else {
+            newPatternPaths.remove(customizationKey);
+        }
+        localePatternPaths = newPatternPaths;
     }
 }
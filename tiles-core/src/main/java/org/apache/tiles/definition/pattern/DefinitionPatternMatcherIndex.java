@@ -0,0 +1,228 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.pattern;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tiles.Definition;
+
+/**
+ * <p>
+ * An index of {@link DefinitionPatternMatcher}, that tries only the matchers
+ * that can match a definition name, in their original order.
+ * </p>
+ * <p>
+ * Matchers implementing {@link IndexableDefinitionPatternMatcher} are stored in
+ * a trie, by their literal prefix, so only the ones whose prefix starts the
+ * definition name are tried. Adjacent matchers with the same prefix are merged
+ * when possible. The other matchers are tried for every name.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class DefinitionPatternMatcherIndex {
+
+    /**
+     * The root of the trie, containing the matchers without a literal prefix.
+     */
+    private final Node root = new Node();
+
+    /**
+     * Constructor.
+     *
+     * @param matchers The matchers to index, in the order they have to be
+     * tried.
+     * @since 4.0.0
+     */
+    public DefinitionPatternMatcherIndex(List<DefinitionPatternMatcher> matchers) {
+        List<DefinitionPatternMatcher> mergedMatchers = mergeMatchers(matchers);
+        int order = 0;
+        for (DefinitionPatternMatcher matcher : mergedMatchers) {
+            String prefix = "";
+            if (matcher instanceof IndexableDefinitionPatternMatcher) {
+                prefix = ((IndexableDefinitionPatternMatcher) matcher).getLiteralPrefix();
+            }
+            Node node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.getOrCreateChild(prefix.charAt(i));
+            }
+            node.entries.add(new Entry(order++, matcher));
+        }
+    }
+
+    /**
+     * Creates a definition, using the first matcher that matches the
+     * definition name.
+     *
+     * @param definitionName The definition name to match.
+     * @return The created definition, if matched, or <code>null</code> if not
+     * matched.
+     * @since 4.0.0
+     */
+    public Definition createDefinition(String definitionName) {
+        List<List<Entry>> candidates = new ArrayList<List<Entry>>();
+        Node node = root;
+        int i = 0;
+        while (node != null) {
+            if (!node.entries.isEmpty()) {
+                candidates.add(node.entries);
+            }
+            node = i < definitionName.length() ? node.getChild(definitionName.charAt(i++)) : null;
+        }
+
+        if (candidates.size() == 1) {
+            for (Entry entry : candidates.get(0)) {
+                Definition d = entry.matcher.createDefinition(definitionName);
+                if (d != null) {
+                    return d;
+                }
+            }
+            return null;
+        }
+
+        // Merges the candidates of each node, in the original order.
+        int[] cursors = new int[candidates.size()];
+        while (true) {
+            Entry next = null;
+            int nextList = -1;
+            for (int j = 0; j < cursors.length; j++) {
+                List<Entry> entries = candidates.get(j);
+                if (cursors[j] < entries.size()
+                        && (next == null || entries.get(cursors[j]).order < next.order)) {
+                    next = entries.get(cursors[j]);
+                    nextList = j;
+                }
+            }
+            if (next == null) {
+                return null;
+            }
+            cursors[nextList]++;
+            Definition d = next.matcher.createDefinition(definitionName);
+            if (d != null) {
+                return d;
+            }
+        }
+    }
+
+    /**
+     * Merges adjacent indexable matchers with the same literal prefix.
+     *
+     * @param matchers The matchers to merge.
+     * @return The merged matchers.
+     */
+    private static List<DefinitionPatternMatcher> mergeMatchers(List<DefinitionPatternMatcher> matchers) {
+        List<DefinitionPatternMatcher> retValue = new ArrayList<DefinitionPatternMatcher>(matchers.size());
+        IndexableDefinitionPatternMatcher previous = null;
+        for (DefinitionPatternMatcher matcher : matchers) {
+            if (previous != null && matcher instanceof IndexableDefinitionPatternMatcher) {
+                IndexableDefinitionPatternMatcher current = (IndexableDefinitionPatternMatcher) matcher;
+                if (previous.getLiteralPrefix().equals(current.getLiteralPrefix())) {
+                    IndexableDefinitionPatternMatcher merged = previous.merge(current);
+                    if (merged != null) {
+                        retValue.set(retValue.size() - 1, merged);
+                        previous = merged;
+                        continue;
+                    }
+                }
+            }
+            retValue.add(matcher);
+            previous = matcher instanceof IndexableDefinitionPatternMatcher
+                    ? (IndexableDefinitionPatternMatcher) matcher : null;
+        }
+        return retValue;
+    }
+
+    /**
+     * A matcher with its position in the original order.
+     */
+    private static final class Entry {
+
+        /**
+         * The position of the matcher.
+         */
+        private final int order;
+
+        /**
+         * The matcher.
+         */
+        private final DefinitionPatternMatcher matcher;
+
+        /**
+         * Constructor.
+         *
+         * @param order The position of the matcher.
+         * @param matcher The matcher.
+         */
+        private Entry(int order, DefinitionPatternMatcher matcher) {
+            this.order = order;
+            this.matcher = matcher;
+        }
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private static final class Node {
+
+        /**
+         * The matchers whose literal prefix ends at this node, in order.
+         */
+        private final List<Entry> entries = new ArrayList<Entry>();
+
+        /**
+         * The child nodes, <code>null</code> if there are none.
+         */
+        private Map<Character, Node> children;
+
+        /**
+         * Returns a child node.
+         *
+         * @param c The character of the child.
+         * @return The child node, or <code>null</code> if not found.
+         */
+        private Node getChild(char c) {
+            return children != null ? children.get(c) : null;
+        }
+
+        /**
+         * Returns a child node, creating it if necessary.
+         *
+         * @param c The character of the child.
+         * @return The child node.
+         */
+        private Node getOrCreateChild(char c) {
+            if (children == null) {
+                children = new HashMap<Character, Node>();
+            }
+            Node retValue = children.get(c);
+            if (retValue == null) {
+                retValue = new Node();
+                children.put(c, retValue);
+            }
+            return retValue;
+        }
+    }
+}
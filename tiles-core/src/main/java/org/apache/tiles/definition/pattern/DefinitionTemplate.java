@@ -0,0 +1,501 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.pattern;
+
+import java.text.AttributedCharacterIterator;
+import java.text.CharacterIterator;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.Expression;
+import org.apache.tiles.ListAttribute;
+
+/**
+ * <p>
+ * A definition with placeholders, whose strings have been compiled into
+ * substitution plans. Creating a definition from it gives the same result as
+ * {@link PatternUtil#replacePlaceholders(Definition, String, Object...)}, but
+ * only joins literal parts and variables.
+ * </p>
+ * <p>
+ * Strings are parsed with the same rules as
+ * {@link PatternUtil#replacePlaceholders(Definition, String, Object...)}, once,
+ * when the template is created. The few strings that cannot be compiled, like
+ * the ones containing typed format elements, are replaced with
+ * {@link PatternUtil#replacePlaceholders(Definition, String, Object...)} each
+ * time. The same happens when a variable is not a string.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public final class DefinitionTemplate {
+
+    /**
+     * The template of the name of the extended definition.
+     */
+    private final StringTemplate extendsTemplate;
+
+    /**
+     * The template of the preparer.
+     */
+    private final StringTemplate preparerTemplate;
+
+    /**
+     * The template of the template attribute, <code>null</code> if there is
+     * no template attribute.
+     */
+    private final AttributeTemplate templateAttributeTemplate;
+
+    /**
+     * The templates of the names of the local attributes.
+     */
+    private final List<StringTemplate> localNameTemplates = new ArrayList<StringTemplate>();
+
+    /**
+     * The templates of the local attributes.
+     */
+    private final List<AttributeTemplate> localAttributeTemplates = new ArrayList<AttributeTemplate>();
+
+    /**
+     * The templates of the names of the cascaded attributes.
+     */
+    private final List<StringTemplate> cascadedNameTemplates = new ArrayList<StringTemplate>();
+
+    /**
+     * The templates of the cascaded attributes.
+     */
+    private final List<AttributeTemplate> cascadedAttributeTemplates = new ArrayList<AttributeTemplate>();
+
+    /**
+     * Constructor.
+     *
+     * @param definition The definition containing placeholders. It must not
+     * be modified afterwards.
+     * @since 4.0.0
+     */
+    public DefinitionTemplate(Definition definition) {
+        extendsTemplate = StringTemplate.compile(definition.getExtends());
+        preparerTemplate = StringTemplate.compile(definition.getPreparer());
+        Attribute templateAttribute = definition.getTemplateAttribute();
+        templateAttributeTemplate = templateAttribute != null ? AttributeTemplate.compile(templateAttribute) : null;
+
+        Set<String> attributeNames = definition.getLocalAttributeNames();
+        if (attributeNames != null) {
+            for (String attributeName : attributeNames) {
+                localNameTemplates.add(StringTemplate.compile(attributeName));
+                localAttributeTemplates.add(AttributeTemplate.compile(definition.getLocalAttribute(attributeName)));
+            }
+        }
+
+        attributeNames = definition.getCascadedAttributeNames();
+        if (attributeNames != null) {
+            for (String attributeName : attributeNames) {
+                cascadedNameTemplates.add(StringTemplate.compile(attributeName));
+                cascadedAttributeTemplates.add(AttributeTemplate.compile(
+                        definition.getCascadedAttribute(attributeName)));
+            }
+        }
+    }
+
+    /**
+     * Creates a definition, replacing real values into placeholders.
+     *
+     * @param name The name of the definition to be created.
+     * @param varsOrig The variables to be substituted.
+     * @return The definition that can be rendered.
+     * @since 4.0.0
+     */
+    public Definition createDefinition(String name, Object... varsOrig) {
+        Object[] vars = PatternUtil.replaceNullsWithBlank(varsOrig);
+
+        Definition nudef = new Definition();
+
+        nudef.setExtends(extendsTemplate.apply(vars));
+        nudef.setName(name);
+        nudef.setPreparer(preparerTemplate.apply(vars));
+        if (templateAttributeTemplate != null) {
+            nudef.setTemplateAttribute(templateAttributeTemplate.apply(vars));
+        }
+
+        for (int i = 0; i < localNameTemplates.size(); i++) {
+            nudef.putAttribute(localNameTemplates.get(i).apply(vars),
+                    localAttributeTemplates.get(i).apply(vars));
+        }
+
+        for (int i = 0; i < cascadedNameTemplates.size(); i++) {
+            nudef.putAttribute(cascadedNameTemplates.get(i).apply(vars),
+                    cascadedAttributeTemplates.get(i).apply(vars), true);
+        }
+
+        return nudef;
+    }
+
+    /**
+     * The substitution plan of an attribute.
+     */
+    private abstract static class AttributeTemplate {
+
+        /**
+         * Compiles an attribute.
+         *
+         * @param attribute The attribute containing placeholders.
+         * @return The template of the attribute.
+         */
+        static AttributeTemplate compile(Attribute attribute) {
+            if (attribute instanceof ListAttribute) {
+                return new ListAttributeTemplate((ListAttribute) attribute);
+            }
+            return new SimpleAttributeTemplate(attribute);
+        }
+
+        /**
+         * Creates a new attribute, replacing variables.
+         *
+         * @param vars The variables, without <code>null</code> values.
+         * @return The new attribute.
+         */
+        abstract Attribute apply(Object[] vars);
+    }
+
+    /**
+     * The substitution plan of a simple (not list) attribute.
+     */
+    private static final class SimpleAttributeTemplate extends AttributeTemplate {
+
+        /**
+         * The template of the role.
+         */
+        private final StringTemplate roleTemplate;
+
+        /**
+         * The renderer.
+         */
+        private final String renderer;
+
+        /**
+         * The template of the expression, <code>null</code> if there is no
+         * expression.
+         */
+        private final StringTemplate expressionTemplate;
+
+        /**
+         * The language of the expression.
+         */
+        private final String language;
+
+        /**
+         * The value, used when it is not a string.
+         */
+        private final Object value;
+
+        /**
+         * The template of the value, <code>null</code> if the value is not a
+         * string.
+         */
+        private final StringTemplate valueTemplate;
+
+        /**
+         * Constructor.
+         *
+         * @param attribute The attribute containing placeholders.
+         */
+        SimpleAttributeTemplate(Attribute attribute) {
+            roleTemplate = StringTemplate.compile(attribute.getRole());
+            renderer = attribute.getRenderer();
+            Expression expressionObject = attribute.getExpressionObject();
+            if (expressionObject != null) {
+                expressionTemplate = StringTemplate.compile(expressionObject.getExpression());
+                language = expressionObject.getLanguage();
+            } else {
+                expressionTemplate = null;
+                language = null;
+            }
+            value = attribute.getValue();
+            valueTemplate = value instanceof String ? StringTemplate.compile((String) value) : null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        Attribute apply(Object[] vars) {
+            Attribute nuattr = new Attribute();
+
+            nuattr.setRole(roleTemplate.apply(vars));
+            nuattr.setRenderer(renderer);
+            if (expressionTemplate != null) {
+                nuattr.setExpressionObject(Expression.createExpression(
+                        expressionTemplate.apply(vars), language));
+            }
+            nuattr.setValue(valueTemplate != null ? valueTemplate.apply(vars) : value);
+            return nuattr;
+        }
+    }
+
+    /**
+     * The substitution plan of a list attribute.
+     */
+    private static final class ListAttributeTemplate extends AttributeTemplate {
+
+        /**
+         * Whether the list inherits from the parent list.
+         */
+        private final boolean inherit;
+
+        /**
+         * The templates of the items.
+         */
+        private final List<AttributeTemplate> itemTemplates = new ArrayList<AttributeTemplate>();
+
+        /**
+         * Constructor.
+         *
+         * @param listAttribute The attribute containing placeholders.
+         */
+        ListAttributeTemplate(ListAttribute listAttribute) {
+            inherit = listAttribute.isInherit();
+            List<Attribute> items = listAttribute.getValue();
+            if (items != null) {
+                for (Attribute item : items) {
+                    itemTemplates.add(AttributeTemplate.compile(item));
+                }
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        Attribute apply(Object[] vars) {
+            ListAttribute nuListAttr = new ListAttribute();
+            nuListAttr.setInherit(inherit);
+            List<Attribute> nuItems = nuListAttr.getValue();
+            for (AttributeTemplate itemTemplate : itemTemplates) {
+                nuItems.add(itemTemplate.apply(vars));
+            }
+            return nuListAttr;
+        }
+    }
+
+    /**
+     * The substitution plan of a string, made of literal parts and variable
+     * slots.
+     */
+    static final class StringTemplate {
+
+        /**
+         * The template of a <code>null</code> string.
+         */
+        private static final StringTemplate NULL = new StringTemplate(null, Collections.emptyList(), false);
+
+        /**
+         * The compiled string.
+         */
+        private final String source;
+
+        /**
+         * The parts, that are either literal strings or variable indexes as
+         * integers. It is <code>null</code> if the string could not be
+         * compiled.
+         */
+        private final Object[] parts;
+
+        /**
+         * <code>true</code> if literal parts contain restored invalid format
+         * elements.
+         */
+        private final boolean restoresInvalidElements;
+
+        /**
+         * Constructor.
+         *
+         * @param source The compiled string.
+         * @param parts The parts, or <code>null</code> if the string could not
+         * be compiled.
+         * @param restoresInvalidElements <code>true</code> if literal parts
+         * contain restored invalid format elements.
+         */
+        private StringTemplate(String source, List<Object> parts, boolean restoresInvalidElements) {
+            this.source = source;
+            this.parts = parts != null ? parts.toArray() : null;
+            this.restoresInvalidElements = restoresInvalidElements;
+        }
+
+        /**
+         * Compiles a string, following the rules of
+         * {@link PatternUtil#replace(String, Object...)}.
+         *
+         * @param st The string to compile.
+         * @return The template of the string.
+         */
+        static StringTemplate compile(String st) {
+            if (st == null) {
+                return NULL;
+            }
+            if (st.indexOf('{') < 0) {
+                return new StringTemplate(st, Collections.<Object>singletonList(st), false);
+            }
+            if (st.contains(PatternUtil.INVALID_FORMAT_MARKER)) {
+                return new StringTemplate(st, null, false);
+            }
+
+            // Invalid elements are hidden from MessageFormat, like in PatternUtil.replace.
+            String pattern = st;
+            List<String> originals = new ArrayList<String>();
+            for (Matcher m = PatternUtil.INVALID_FORMAT_ELEMENT.matcher(pattern); m.find();
+                    m = PatternUtil.INVALID_FORMAT_ELEMENT.matcher(pattern)) {
+                String original = m.group();
+                if (original.indexOf('$') >= 0 || original.indexOf('\\') >= 0) {
+                    // Not a literal replacement when restored.
+                    return new StringTemplate(st, null, false);
+                }
+                originals.add(original);
+                pattern = m.replaceFirst(PatternUtil.INVALID_FORMAT_MARKER);
+            }
+
+            MessageFormat format;
+            try {
+                format = new MessageFormat(pattern.replaceAll("'", "'''"), PatternUtil.ROOT_LOCALE);
+            } catch (IllegalArgumentException e) {
+                // Fails again, and in the same way, when applied.
+                return new StringTemplate(st, null, false);
+            }
+            Format[] formats = format.getFormatsByArgumentIndex();
+            for (Format elementFormat : formats) {
+                if (elementFormat != null) {
+                    return new StringTemplate(st, null, false);
+                }
+            }
+
+            // Formats one-character arguments, to find where they go.
+            Object[] arguments = new Object[formats.length];
+            Arrays.fill(arguments, "x");
+            AttributedCharacterIterator iterator = format.formatToCharacterIterator(arguments);
+            List<Object> parts = new ArrayList<Object>();
+            StringBuilder literal = new StringBuilder();
+            char c = iterator.first();
+            while (c != CharacterIterator.DONE) {
+                int runLimit = iterator.getRunLimit();
+                Integer argument = (Integer) iterator.getAttribute(MessageFormat.Field.ARGUMENT);
+                if (argument == null) {
+                    for (; iterator.getIndex() < runLimit; c = iterator.next()) {
+                        literal.append(c);
+                    }
+                } else {
+                    if (literal.length() > 0) {
+                        parts.add(literal.toString());
+                        literal.setLength(0);
+                    }
+                    for (int i = iterator.getRunStart(); i < runLimit; i++) {
+                        parts.add(argument);
+                    }
+                    c = iterator.setIndex(runLimit);
+                }
+            }
+            if (literal.length() > 0) {
+                parts.add(literal.toString());
+            }
+
+            if (!restoreInvalidElements(parts, originals)) {
+                return new StringTemplate(st, null, false);
+            }
+            return new StringTemplate(st, parts, !originals.isEmpty());
+        }
+
+        /**
+         * Restores the invalid format elements into the literal parts, in
+         * order.
+         *
+         * @param parts The parts.
+         * @param originals The invalid format elements.
+         * @return <code>true</code> if all the elements have been restored.
+         */
+        private static boolean restoreInvalidElements(List<Object> parts, List<String> originals) {
+            int partIndex = 0;
+            for (String original : originals) {
+                boolean restored = false;
+                for (; !restored && partIndex < parts.size(); partIndex++) {
+                    Object part = parts.get(partIndex);
+                    if (part instanceof String) {
+                        String literal = (String) part;
+                        int index = literal.indexOf(PatternUtil.INVALID_FORMAT_MARKER);
+                        if (index >= 0) {
+                            parts.set(partIndex, literal.substring(0, index) + original
+                                    + literal.substring(index + PatternUtil.INVALID_FORMAT_MARKER.length()));
+                            restored = true;
+                            // The same part may contain the next marker.
+                            partIndex--;
+                        }
+                    }
+                }
+                if (!restored) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Replaces the variables.
+         *
+         * @param vars The variables, without <code>null</code> values.
+         * @return The replaced string.
+         */
+        String apply(Object[] vars) {
+            if (parts == null) {
+                return PatternUtil.replace(source, vars);
+            }
+            if (parts.length == 1 && parts[0] instanceof String) {
+                return (String) parts[0];
+            }
+            if (parts.length == 0) {
+                return source != null ? "" : null;
+            }
+            StringBuilder builder = new StringBuilder();
+            for (Object part : parts) {
+                if (part instanceof String) {
+                    builder.append((String) part);
+                } else {
+                    int index = (Integer) part;
+                    if (index >= vars.length) {
+                        builder.append('{').append(index).append('}');
+                    } else if (vars[index] instanceof String) {
+                        String value = (String) vars[index];
+                        if (restoresInvalidElements && value.contains(PatternUtil.INVALID_FORMAT_MARKER)) {
+                            return PatternUtil.replace(source, vars);
+                        }
+                        builder.append(value);
+                    } else {
+                        // Formatted by MessageFormat.
+                        return PatternUtil.replace(source, vars);
+                    }
+                }
+            }
+            return builder.toString();
+        }
+    }
+}
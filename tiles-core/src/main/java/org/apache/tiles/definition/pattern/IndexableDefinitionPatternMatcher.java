@@ -0,0 +1,54 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.pattern;
+
+/**
+ * A {@link DefinitionPatternMatcher} that can be put in a
+ * {@link DefinitionPatternMatcherIndex}, since the names it matches all start
+ * with a known literal prefix.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public interface IndexableDefinitionPatternMatcher extends DefinitionPatternMatcher {
+
+    /**
+     * Returns the literal prefix of all the definition names this matcher
+     * can match.
+     *
+     * @return The literal prefix, an empty string if there is none.
+     * @since 4.0.0
+     */
+    String getLiteralPrefix();
+
+    /**
+     * Merges this matcher with the one that follows it, with the same literal
+     * prefix. The merged matcher must return the same definitions as trying
+     * this matcher first, and then the next one.
+     *
+     * @param next The matcher that follows this one.
+     * @return The merged matcher, or <code>null</code> if the matchers cannot
+     * be merged.
+     * @since 4.0.0
+     */
+    IndexableDefinitionPatternMatcher merge(IndexableDefinitionPatternMatcher next);
+}
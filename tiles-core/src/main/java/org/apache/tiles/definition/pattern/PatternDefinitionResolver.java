@@ -35,7 +35,8 @@ import org.apache.tiles.Definition;
 public interface PatternDefinitionResolver<T> {
 
     /**
-     * Stores definition patterns.
+     * Stores definition patterns, replacing the ones previously stored for the
+     * same customization key.
      *
      * @param localeDefsMap The map of definitions that may contain also
      * patterns.
@@ -36,6 +36,12 @@ import java.util.regex.Pattern;
 
 /**
  * Utilities for pattern matching and substitution.
+ * <p>
+ * Matchers that create many definitions from the same one should use a
+ * {@link DefinitionTemplate}, that produces the same result as
+ * {@link #replacePlaceholders(Definition, String, Object...)} without parsing
+ * placeholders again.
+ * </p>
  *
  * @since 2.2.0
  */
@@ -45,11 +51,16 @@ public final class PatternUtil {
      * The root locale. Notice that this is a replacement for Locale.ROOT for
      * Java 1.6.
      */
-    private static final Locale ROOT_LOCALE = new Locale("", "");
+    static final Locale ROOT_LOCALE = new Locale("", "");
 
     /** Pattern to find {.*} occurrences that do not match {[0-9]+} so to prevent MessageFormat from crashing.
      */
-    private static final Pattern INVALID_FORMAT_ELEMENT = Pattern.compile("\\{[^}0-9]+}");
+    static final Pattern INVALID_FORMAT_ELEMENT = Pattern.compile("\\{[^}0-9]+}");
+
+    /**
+     * The marker that temporarily replaces invalid format elements.
+     */
+    static final String INVALID_FORMAT_MARKER = "INVALID_FORMAT_ELEMENT";
 
     /**
      * Private constructor to avoid instantiation.
@@ -204,19 +215,21 @@ public final class PatternUtil {
 
     /**
      * Replaces a string with placeholders using values of a variable map.
+     * {@link DefinitionTemplate} falls back to it for the strings it cannot
+     * compile.
      *
      * @param st The string to replace.
      * @param vars The variables.
      * @return The replaced string.
      */
-    private static String replace(String st, Object... vars) {
+    static String replace(String st, Object... vars) {
         if (st != null && st.indexOf('{') >= 0) {
 
             // replace them with markers
             List<String> originals = new ArrayList<>();
             for(Matcher m = INVALID_FORMAT_ELEMENT.matcher(st); m.find() ; m = INVALID_FORMAT_ELEMENT.matcher(st)) {
                 originals.add(m.group());
-                st = m.replaceFirst("INVALID_FORMAT_ELEMENT");
+                st = m.replaceFirst(INVALID_FORMAT_MARKER);
             }
 
             // do the MessageFormat replacement (escaping quote characters)
@@ -225,13 +238,20 @@ public final class PatternUtil {
 
             // return the markers to their original invalid occurrences
             for (String original : originals) {
-                st = st.replaceFirst("INVALID_FORMAT_ELEMENT", original);
+                st = st.replaceFirst(INVALID_FORMAT_MARKER, original);
             }
         }
         return st;
     }
 
-    private static Object[] replaceNullsWithBlank(Object[] varsOrig) {
+    /**
+     * Creates a copy of the variables, where <code>null</code> values are
+     * replaced with empty strings.
+     *
+     * @param varsOrig The variables.
+     * @return The copy of the variables.
+     */
+    static Object[] replaceNullsWithBlank(Object[] varsOrig) {
         Object[] vars = new Object[varsOrig.length];
         for(int i = 0; i < varsOrig.length; ++i) {
             vars[i] = null != varsOrig[i] ? varsOrig[i] : "";
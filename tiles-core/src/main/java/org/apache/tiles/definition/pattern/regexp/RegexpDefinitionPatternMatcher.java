@@ -21,12 +21,13 @@
 
 package org.apache.tiles.definition.pattern.regexp;
 
+import java.util.Collections;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.apache.tiles.Definition;
-import org.apache.tiles.definition.pattern.DefinitionPatternMatcher;
-import org.apache.tiles.definition.pattern.PatternUtil;
+import org.apache.tiles.definition.pattern.DefinitionTemplate;
+import org.apache.tiles.definition.pattern.IndexableDefinitionPatternMatcher;
 
 /**
  * Matches regular expression patterns in definitions.
@@ -34,7 +35,17 @@ import org.apache.tiles.definition.pattern.PatternUtil;
  * @version $Rev$ $Date$
  * @since 2.2.0
  */
-public class RegexpDefinitionPatternMatcher implements DefinitionPatternMatcher {
+public class RegexpDefinitionPatternMatcher implements IndexableDefinitionPatternMatcher {
+
+    /**
+     * The characters that have a special meaning in regular expressions.
+     */
+    private static final String METACHARACTERS = ".[](){}*+?^$|";
+
+    /**
+     * The quantifiers that make the preceding character optional.
+     */
+    private static final String OPTIONAL_QUANTIFIERS = "*?{";
 
     /**
      * The pattern to match.
@@ -42,9 +53,14 @@ public class RegexpDefinitionPatternMatcher implements DefinitionPatternMatcher
     private Pattern pattern;
 
     /**
-     * The definition to use as a basis.
+     * The compiled definition to use as a basis.
      */
-    private Definition definition;
+    private DefinitionTemplate definitionTemplate;
+
+    /**
+     * The characters that all the matched names start with.
+     */
+    private String literalPrefix;
 
     /**
      * Constructor.
@@ -55,7 +71,8 @@ public class RegexpDefinitionPatternMatcher implements DefinitionPatternMatcher
      */
     public RegexpDefinitionPatternMatcher(String pattern, Definition definition) {
         this.pattern = Pattern.compile(pattern);
-        this.definition = definition;
+        this.definitionTemplate = new DefinitionTemplate(definition);
+        this.literalPrefix = computeLiteralPrefix(pattern);
     }
 
     /** {@inheritDoc} */
@@ -69,9 +86,123 @@ public class RegexpDefinitionPatternMatcher implements DefinitionPatternMatcher
             for (int i = 0; i < groupCount; i++) {
                 vars[i] = matcher.group(i);
             }
-            retValue = PatternUtil.replacePlaceholders(definition,
-                    definitionName, vars);
+            retValue = definitionTemplate.createDefinition(definitionName, vars);
         }
         return retValue;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Regular expressions are merged into a single alternation, unless they
+     * use back references or named groups.
+     * </p>
+     */
+    @Override
+    public IndexableDefinitionPatternMatcher merge(IndexableDefinitionPatternMatcher next) {
+        if (!(next instanceof RegexpDefinitionPatternMatcher) || !isMergeable()
+                || !((RegexpDefinitionPatternMatcher) next).isMergeable()) {
+            return null;
+        }
+        return new RegexpDefinitionPatternMatcherGroup(literalPrefix,
+                Collections.singletonList(this)).merge(next);
+    }
+
+    /**
+     * Returns the pattern to match.
+     *
+     * @return The pattern.
+     */
+    Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the compiled definition to use as a basis.
+     *
+     * @return The definition template.
+     */
+    DefinitionTemplate getDefinitionTemplate() {
+        return definitionTemplate;
+    }
+
+    /**
+     * Checks if the pattern can be part of an alternation, without changing
+     * its meaning. Back references and named groups depend on group numbers
+     * and names, while quotes and comments may extend beyond the end of the
+     * expression, so they prevent merging.
+     *
+     * @return <code>true</code> if the pattern can be merged.
+     */
+    boolean isMergeable() {
+        String expression = pattern.pattern();
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '\\' && i + 1 < expression.length()) {
+                char next = expression.charAt(++i);
+                if ((next >= '1' && next <= '9') || next == 'k' || next == 'Q') {
+                    return false;
+                }
+            } else if (c == '#') {
+                return false;
+            } else if (c == '(' && expression.startsWith("(?<", i) && i + 3 < expression.length()
+                    && Character.isLetter(expression.charAt(i + 3))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the literal characters that every string matched by a regular
+     * expression starts with.
+     *
+     * @param expression The regular expression.
+     * @return The literal prefix, possibly empty.
+     */
+    private static String computeLiteralPrefix(String expression) {
+        StringBuilder retValue = new StringBuilder();
+        if (expression.indexOf('|') >= 0) {
+            // An alternation can start anywhere.
+            return "";
+        }
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            char literal;
+            int next;
+            if (c == '\\') {
+                if (i + 1 >= expression.length()
+                        || Character.isLetterOrDigit(expression.charAt(i + 1))) {
+                    break;
+                }
+                literal = expression.charAt(i + 1);
+                next = i + 2;
+            } else if (METACHARACTERS.indexOf(c) >= 0) {
+                break;
+            } else {
+                literal = c;
+                next = i + 1;
+            }
+            if (next < expression.length()) {
+                char following = expression.charAt(next);
+                if (OPTIONAL_QUANTIFIERS.indexOf(following) >= 0) {
+                    break;
+                }
+                if (following == '+') {
+                    retValue.append(literal);
+                    break;
+                }
+            }
+            retValue.append(literal);
+            i = next;
+        }
+        return retValue.toString();
+    }
 }
@@ -0,0 +1,167 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.pattern.regexp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.pattern.IndexableDefinitionPatternMatcher;
+
+/**
+ * Matches a sequence of {@link RegexpDefinitionPatternMatcher} with a single
+ * alternation, where each regular expression is wrapped in a capturing group.
+ * Alternatives are tried in order, so the first matching expression wins, as
+ * if the matchers were tried one after the other.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+class RegexpDefinitionPatternMatcherGroup implements IndexableDefinitionPatternMatcher {
+
+    /**
+     * The literal prefix shared by all the matchers.
+     */
+    private final String literalPrefix;
+
+    /**
+     * The grouped matchers, in order.
+     */
+    private final List<RegexpDefinitionPatternMatcher> matchers;
+
+    /**
+     * The alternation of all the expressions. Compiled when first used, since
+     * a group is merged again and again while indexing.
+     */
+    private volatile CompiledAlternation alternation;
+
+    /**
+     * Constructor.
+     *
+     * @param literalPrefix The literal prefix shared by all the matchers.
+     * @param matchers The matchers to group, in order.
+     */
+    RegexpDefinitionPatternMatcherGroup(String literalPrefix,
+            List<RegexpDefinitionPatternMatcher> matchers) {
+        this.literalPrefix = literalPrefix;
+        this.matchers = matchers;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Definition createDefinition(String definitionName) {
+        CompiledAlternation compiled = getAlternation();
+        int[] groupStarts = compiled.groupStarts;
+        Matcher matcher = compiled.pattern.matcher(definitionName);
+        if (!matcher.matches()) {
+            return null;
+        }
+        int index = 0;
+        while (matcher.start(groupStarts[index]) < 0) {
+            index++;
+        }
+        int groupStart = groupStarts[index];
+        int groupEnd = index + 1 < groupStarts.length ? groupStarts[index + 1]
+                : matcher.groupCount() + 1;
+        Object[] vars = new Object[groupEnd - groupStart];
+        for (int i = 0; i < vars.length; i++) {
+            vars[i] = matcher.group(groupStart + i);
+        }
+        return matchers.get(index).getDefinitionTemplate().createDefinition(definitionName, vars);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IndexableDefinitionPatternMatcher merge(IndexableDefinitionPatternMatcher next) {
+        if (!(next instanceof RegexpDefinitionPatternMatcher)
+                || !((RegexpDefinitionPatternMatcher) next).isMergeable()) {
+            return null;
+        }
+        List<RegexpDefinitionPatternMatcher> newMatchers =
+            new ArrayList<RegexpDefinitionPatternMatcher>(matchers.size() + 1);
+        newMatchers.addAll(matchers);
+        newMatchers.add((RegexpDefinitionPatternMatcher) next);
+        return new RegexpDefinitionPatternMatcherGroup(literalPrefix, newMatchers);
+    }
+
+    /**
+     * Returns the alternation of all the expressions, compiling it if
+     * necessary.
+     *
+     * @return The compiled alternation.
+     */
+    private CompiledAlternation getAlternation() {
+        CompiledAlternation retValue = alternation;
+        if (retValue == null) {
+            StringBuilder expression = new StringBuilder();
+            int[] groupStarts = new int[matchers.size()];
+            int groupStart = 1;
+            for (int i = 0; i < groupStarts.length; i++) {
+                Pattern pattern = matchers.get(i).getPattern();
+                if (i > 0) {
+                    expression.append('|');
+                }
+                expression.append('(').append(pattern.pattern()).append(')');
+                groupStarts[i] = groupStart;
+                groupStart += pattern.matcher("").groupCount() + 1;
+            }
+            retValue = new CompiledAlternation(Pattern.compile(expression.toString()), groupStarts);
+            alternation = retValue;
+        }
+        return retValue;
+    }
+
+    /**
+     * The compiled alternation of the expressions.
+     */
+    private static final class CompiledAlternation {
+
+        /**
+         * The alternation.
+         */
+        private final Pattern pattern;
+
+        /**
+         * The index of the group that wraps each expression.
+         */
+        private final int[] groupStarts;
+
+        /**
+         * Constructor.
+         *
+         * @param pattern The alternation.
+         * @param groupStarts The index of the group that wraps each expression.
+         */
+        private CompiledAlternation(Pattern pattern, int[] groupStarts) {
+            this.pattern = pattern;
+            this.groupStarts = groupStarts;
+        }
+    }
+}
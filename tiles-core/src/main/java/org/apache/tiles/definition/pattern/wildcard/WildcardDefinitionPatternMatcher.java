@@ -24,8 +24,8 @@ package org.apache.tiles.definition.pattern.wildcard;
 import java.util.List;
 
 import org.apache.tiles.Definition;
-import org.apache.tiles.definition.pattern.DefinitionPatternMatcher;
-import org.apache.tiles.definition.pattern.PatternUtil;
+import org.apache.tiles.definition.pattern.DefinitionTemplate;
+import org.apache.tiles.definition.pattern.IndexableDefinitionPatternMatcher;
 import org.apache.tiles.util.WildcardHelper;
 
 /**
@@ -35,7 +35,7 @@ import org.apache.tiles.util.WildcardHelper;
  * @since 2.2.0
  */
 public class WildcardDefinitionPatternMatcher implements
-        DefinitionPatternMatcher {
+        IndexableDefinitionPatternMatcher {
 
     /**
      * Allows to parse wildcard expressions and to recognize substitution
@@ -44,15 +44,20 @@ public class WildcardDefinitionPatternMatcher implements
     private WildcardHelper wildcardHelper;
 
     /**
-     * The definition to use as a basis.
+     * The compiled definition to use as a basis.
      */
-    private Definition definition;
+    private DefinitionTemplate definitionTemplate;
 
     /**
      * The pattern to use.
      */
     private int[] pattern;
 
+    /**
+     * The characters that all the matched names start with.
+     */
+    private String literalPrefix;
+
     /**
      * Constructor.
      *
@@ -65,8 +70,14 @@ public class WildcardDefinitionPatternMatcher implements
     public WildcardDefinitionPatternMatcher(String pattern,
             Definition definition, WildcardHelper wildcardHelper) {
         this.wildcardHelper = wildcardHelper;
-        this.definition = definition;
+        this.definitionTemplate = new DefinitionTemplate(definition);
         this.pattern = wildcardHelper.compilePattern(pattern);
+        StringBuilder prefix = new StringBuilder();
+        // The first element marks the beginning, characters are not negative.
+        for (int i = 1; i < this.pattern.length && this.pattern[i] >= 0; i++) {
+            prefix.append((char) this.pattern[i]);
+        }
+        literalPrefix = prefix.toString();
     }
 
     /** {@inheritDoc} */
@@ -76,10 +87,27 @@ public class WildcardDefinitionPatternMatcher implements
         Definition d = null;
 
         if (vars != null) {
-            d = PatternUtil.replacePlaceholders(definition, definitionName,
+            d = definitionTemplate.createDefinition(definitionName,
                     vars.toArray());
         }
 
         return d;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getLiteralPrefix() {
+        return literalPrefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Wildcard matchers are never merged.
+     * </p>
+     */
+    @Override
+    public IndexableDefinitionPatternMatcher merge(IndexableDefinitionPatternMatcher next) {
+        return null;
+    }
 }
@@ -0,0 +1,584 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.sax;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.Expression;
+import org.apache.tiles.ListAttribute;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.definition.DefinitionsReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * <p>
+ * Reads {@link Definition} objects from an XML InputStream using a SAX parser.
+ * It builds the same definitions as
+ * {@link org.apache.tiles.definition.digester.DigesterDefinitionsReader},
+ * including anonymous nested definitions, but without matching rules nor
+ * creating objects by reflection.
+ * </p>
+ * <p>
+ * Unlike the Digester-based reader, instances of this class are thread-safe.
+ * Names given to anonymous definitions are unique for each instance.
+ * </p>
+ * <p>
+ * Subclasses can read other syntaxes by overriding
+ * {@link #startElement(String, ParsedElement, Attributes, DefinitionsHandler)}.
+ * </p>
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class SAXDefinitionsReader implements DefinitionsReader {
+
+    /**
+     * The root element of Tiles definitions files.
+     */
+    protected static final String TILES_DEFINITIONS_ELEMENT = "tiles-definitions";
+
+    /**
+     * The &lt;definition&gt; element.
+     */
+    protected static final String DEFINITION_ELEMENT = "definition";
+
+    /**
+     * The &lt;put-attribute&gt; element.
+     */
+    protected static final String PUT_ATTRIBUTE_ELEMENT = "put-attribute";
+
+    /**
+     * The &lt;put-list-attribute&gt; element.
+     */
+    protected static final String PUT_LIST_ATTRIBUTE_ELEMENT = "put-list-attribute";
+
+    /**
+     * The &lt;add-attribute&gt; element.
+     */
+    protected static final String ADD_ATTRIBUTE_ELEMENT = "add-attribute";
+
+    /**
+     * The &lt;add-list-attribute&gt; element.
+     */
+    protected static final String ADD_LIST_ATTRIBUTE_ELEMENT = "add-list-attribute";
+
+    /**
+     * Set to idle parsers, so that they do not retain the read definitions.
+     */
+    private static final DefaultHandler EMPTY_HANDLER = new DefaultHandler();
+
+    /**
+     * The set of public identifiers, and corresponding resource names for
+     * the versions of the configuration file DTDs we know about.  There
+     * <strong>MUST</strong> be an even number of Strings in this list!
+     */
+    protected String[] registrations;
+
+    /**
+     * Maps the public identifiers of the known DTDs to their local copy.
+     */
+    private final Map<String, String> localEntities = new HashMap<String, String>();
+
+    /**
+     * Creates the SAX parsers.
+     */
+    private final SAXParserFactory parserFactory;
+
+    /**
+     * A parser that is not in use, kept to avoid creating a parser for each
+     * read.
+     */
+    private final AtomicReference<XMLReader> idleXmlReader = new AtomicReference<XMLReader>();
+
+    /**
+     * Index to be used to create unique definition names for anonymous
+     * (nested) definitions.
+     */
+    private final AtomicInteger anonymousDefinitionIndex = new AtomicInteger(1);
+
+    /**
+     * Creates a new instance of SAXDefinitionsReader.
+     */
+    public SAXDefinitionsReader() {
+        parserFactory = SAXParserFactory.newInstance();
+        parserFactory.setNamespaceAware(true);
+
+        // Register our local copy of the DTDs that we can find
+        String[] registrations = getRegistrations();
+        for (int i = 0; i < registrations.length; i += 2) {
+            URL url = this.getClass().getResource(registrations[i + 1]);
+            if (url != null) {
+                localEntities.put(registrations[i], url.toString());
+            }
+        }
+    }
+
+    /**
+     * Sets the validation of XML files. It must be called before reading
+     * definitions.
+     *
+     * @param validating <code>true</code> means that XML validation is turned
+     * on. <code>false</code> otherwise.
+     */
+    public void setValidating(boolean validating) {
+        parserFactory.setValidating(validating);
+        idleXmlReader.set(null);
+    }
+
+    /**
+     * Reads <code>{@link Definition}</code> objects from a source.
+     *
+     * @param source The <code>InputStream</code> source from which definitions
+     *               will be read.
+     * @return a Map of <code>Definition</code> objects read from
+     *         the source.
+     * @throws DefinitionsFactoryException If the source is invalid or
+     *          an error occurs when reading definitions.
+     */
+    @Override
+    public Map<String, Definition> read(Object source) {
+        if (source == null) {
+            return null;
+        }
+
+        InputStream input;
+        try {
+            input = (InputStream) source;
+        } catch (ClassCastException e) {
+            throw new DefinitionsFactoryException(
+                "Invalid source type.  Requires java.io.InputStream.", e);
+        }
+
+        DefinitionsHandler handler = new DefinitionsHandler();
+        XMLReader xmlReader = idleXmlReader.getAndSet(null);
+        try {
+            if (xmlReader == null) {
+                xmlReader = parserFactory.newSAXParser().getXMLReader();
+            }
+            xmlReader.setContentHandler(handler);
+            xmlReader.setEntityResolver(handler);
+            xmlReader.setErrorHandler(handler);
+            xmlReader.parse(new InputSource(input));
+        } catch (ParserConfigurationException e) {
+            throw new DefinitionsFactoryException(
+                "Cannot create the XML parser.", e);
+        } catch (SAXException e) {
+            throw new DefinitionsFactoryException(
+                "XML error reading definitions.", e);
+        } catch (IOException e) {
+            throw new DefinitionsFactoryException(
+                "I/O Error reading definitions.", e);
+        } finally {
+            if (xmlReader != null) {
+                xmlReader.setContentHandler(EMPTY_HANDLER);
+                xmlReader.setEntityResolver(null);
+                xmlReader.setErrorHandler(null);
+                idleXmlReader.set(xmlReader);
+            }
+        }
+
+        return handler.definitions;
+    }
+
+    /**
+     * Returns the registrations for local DTDs.
+     *
+     * @return An array containing the locations for registrations of local
+     * DTDs.
+     */
+    protected String[] getRegistrations() {
+        if (registrations == null) {
+            registrations = new String[] {
+                "-//Apache Software Foundation//DTD Tiles Configuration 3.0//EN",
+                "/org/apache/tiles/resources/tiles-config_3_0.dtd"};
+        }
+        return registrations;
+    }
+
+    /**
+     * Called when an element starts. It creates the object that the element
+     * describes, and links it to the objects of the enclosing elements, like
+     * adding an attribute to a definition.
+     *
+     * @param name The local name of the element.
+     * @param parent The enclosing element, or <code>null</code> for the root
+     * element.
+     * @param attributes The XML attributes of the element.
+     * @param handler The handler that collects the definitions.
+     * @return The created object, or <code>null</code> if the element, and
+     * the ones it contains, must be ignored.
+     * @throws SAXException If the element cannot be read.
+     */
+    protected Object startElement(String name, ParsedElement parent, Attributes attributes,
+            DefinitionsHandler handler) throws SAXException {
+        if (parent == null) {
+            return null;
+        }
+        Object parentObject = parent.getObject();
+        switch (name) {
+        case DEFINITION_ELEMENT:
+            if (parent.isRoot() && TILES_DEFINITIONS_ELEMENT.equals(parent.getName())) {
+                return createDefinition(attributes);
+            }
+            if (PUT_ATTRIBUTE_ELEMENT.equals(parent.getName()) || ADD_ATTRIBUTE_ELEMENT.equals(parent.getName())) {
+                if (parentObject instanceof Attribute) {
+                    Definition definition = createDefinition(attributes);
+                    handler.nestDefinition(definition, (Attribute) parentObject);
+                    return definition;
+                }
+            }
+            break;
+        case PUT_ATTRIBUTE_ELEMENT:
+            if (parentObject instanceof Definition && DEFINITION_ELEMENT.equals(parent.getName())) {
+                Attribute attribute = createAttribute(attributes);
+                putAttribute((Definition) parentObject, attribute, attributes);
+                return attribute;
+            }
+            break;
+        case PUT_LIST_ATTRIBUTE_ELEMENT:
+            if (parentObject instanceof Definition && DEFINITION_ELEMENT.equals(parent.getName())) {
+                ListAttribute attribute = createListAttribute(attributes);
+                putAttribute((Definition) parentObject, attribute, attributes);
+                return attribute;
+            }
+            break;
+        case ADD_ATTRIBUTE_ELEMENT:
+            if (parentObject instanceof ListAttribute) {
+                return createAttribute(attributes);
+            }
+            break;
+        case ADD_LIST_ATTRIBUTE_ELEMENT:
+            if (parentObject instanceof ListAttribute) {
+                return createListAttribute(attributes);
+            }
+            break;
+        default:
+            break;
+        }
+        return null;
+    }
+
+    /**
+     * Called when an element, whose object is not <code>null</code>, ends.
+     * Definitions are stored, and attributes inside a list are added to it.
+     *
+     * @param name The local name of the element.
+     * @param object The object created when the element started.
+     * @param parent The enclosing element, or <code>null</code> for the root
+     * element.
+     * @param handler The handler that collects the definitions.
+     * @throws SAXException If the element cannot be read.
+     */
+    protected void endElement(String name, Object object, ParsedElement parent,
+            DefinitionsHandler handler) throws SAXException {
+        if (object instanceof Definition) {
+            handler.addDefinition((Definition) object);
+        } else if (object instanceof Attribute && parent != null
+                && parent.getObject() instanceof ListAttribute) {
+            ((ListAttribute) parent.getObject()).add((Attribute) object);
+        }
+    }
+
+    /**
+     * Creates a definition from the XML attributes of a &lt;definition&gt;
+     * element.
+     *
+     * @param attributes The XML attributes.
+     * @return The definition.
+     */
+    protected Definition createDefinition(Attributes attributes) {
+        Definition definition = new Definition();
+        definition.setName(attributes.getValue("name"));
+        definition.setPreparer(attributes.getValue("preparer"));
+        String extendsAttribute = attributes.getValue("extends");
+        definition.setExtends(extendsAttribute);
+
+        String template = attributes.getValue("template");
+        Attribute attribute = Attribute.createTemplateAttribute(template);
+        attribute.setExpressionObject(Expression
+                .createExpressionFromDescribedExpression(attributes
+                        .getValue("templateExpression")));
+        attribute.setRole(attributes.getValue("role"));
+        String templateType = attributes.getValue("templateType");
+        if (templateType != null) {
+            attribute.setRenderer(templateType);
+        } else if (extendsAttribute != null) {
+            attribute.setRenderer(null);
+        }
+        definition.setTemplateAttribute(attribute);
+        return definition;
+    }
+
+    /**
+     * Creates an attribute from the XML attributes of a
+     * &lt;put-attribute&gt; or &lt;add-attribute&gt; element.
+     *
+     * @param attributes The XML attributes.
+     * @return The attribute.
+     */
+    protected Attribute createAttribute(Attributes attributes) {
+        Attribute attribute = new Attribute();
+        attribute.setValue(attributes.getValue("value"));
+        attribute.setExpressionObject(Expression
+                .createExpressionFromDescribedExpression(attributes.getValue("expression")));
+        attribute.setRole(attributes.getValue("role"));
+        attribute.setRenderer(attributes.getValue("type"));
+        return attribute;
+    }
+
+    /**
+     * Creates a list attribute from the XML attributes of a
+     * &lt;put-list-attribute&gt; or &lt;add-list-attribute&gt; element.
+     *
+     * @param attributes The XML attributes.
+     * @return The list attribute.
+     */
+    protected ListAttribute createListAttribute(Attributes attributes) {
+        ListAttribute attribute = new ListAttribute();
+        String role = attributes.getValue("role");
+        if (role != null) {
+            attribute.setRole(role);
+        }
+        String inherit = attributes.getValue("inherit");
+        if (inherit != null) {
+            attribute.setInherit(toBoolean(inherit));
+        }
+        return attribute;
+    }
+
+    /**
+     * Puts an attribute in a definition, using the "name" and "cascade" XML
+     * attributes.
+     *
+     * @param definition The definition.
+     * @param attribute The attribute to put.
+     * @param attributes The XML attributes of the element of the attribute.
+     */
+    protected void putAttribute(Definition definition, Attribute attribute, Attributes attributes) {
+        definition.putAttribute(attributes.getValue("name"), attribute,
+                "true".equals(attributes.getValue("cascade")));
+    }
+
+    /**
+     * Converts an XML attribute to a boolean, accepting the same values as
+     * the bean properties set by Digester.
+     *
+     * @param value The value of the XML attribute.
+     * @return The boolean value.
+     */
+    private static boolean toBoolean(String value) {
+        return "true".equalsIgnoreCase(value) || "yes".equalsIgnoreCase(value)
+                || "y".equalsIgnoreCase(value) || "on".equalsIgnoreCase(value)
+                || "1".equals(value);
+    }
+
+    /**
+     * An element being parsed.
+     *
+     * @since 4.0.0
+     */
+    protected static final class ParsedElement {
+
+        /**
+         * The local name of the element.
+         */
+        private final String name;
+
+        /**
+         * The object created for the element.
+         */
+        private final Object object;
+
+        /**
+         * The enclosing element.
+         */
+        private final ParsedElement parent;
+
+        /**
+         * Constructor.
+         *
+         * @param name The local name of the element.
+         * @param object The object created for the element.
+         * @param parent The enclosing element.
+         */
+        private ParsedElement(String name, Object object, ParsedElement parent) {
+            this.name = name;
+            this.object = object;
+            this.parent = parent;
+        }
+
+        /**
+         * Returns the local name of the element.
+         *
+         * @return The name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the object created for the element.
+         *
+         * @return The object, or <code>null</code> if the element is ignored.
+         */
+        public Object getObject() {
+            return object;
+        }
+
+        /**
+         * Returns the enclosing element.
+         *
+         * @return The enclosing element, or <code>null</code> for the root
+         * element.
+         */
+        public ParsedElement getParent() {
+            return parent;
+        }
+
+        /**
+         * Checks if this is the root element of the document.
+         *
+         * @return <code>true</code> if this is the root element.
+         */
+        public boolean isRoot() {
+            return parent == null;
+        }
+    }
+
+    /**
+     * Collects the definitions read from a single source.
+     *
+     * @since 4.0.0
+     */
+    protected final class DefinitionsHandler extends DefaultHandler {
+
+        /**
+         * The read definitions.
+         */
+        private final Map<String, Definition> definitions = new LinkedHashMap<String, Definition>();
+
+        /**
+         * The element being parsed.
+         */
+        private ParsedElement current;
+
+        /**
+         * Constructor.
+         */
+        private DefinitionsHandler() {
+        }
+
+        /**
+         * Adds a new <code>Definition</code> or replaces an existing one.
+         *
+         * @param definition The Definition object to be added.
+         * @throws SAXException If the definition has no name.
+         */
+        public void addDefinition(Definition definition) throws SAXException {
+            String name = definition.getName();
+            if (name == null) {
+                throw new SAXException("A root definition has been defined with no name");
+            }
+            definitions.put(name, definition);
+        }
+
+        /**
+         * Uses a nested definition as the value of an attribute. If the
+         * definition has no name, a unique one is created.
+         *
+         * @param definition The nested definition.
+         * @param attribute The attribute that contains the definition.
+         */
+        public void nestDefinition(Definition definition, Attribute attribute) {
+            if (definition.getName() == null) {
+                String candidate;
+                do {
+                    candidate = "$anonymousDefinition" + anonymousDefinitionIndex.getAndIncrement();
+                } while (definitions.containsKey(candidate));
+                definition.setName(candidate);
+            }
+            attribute.setValue(definition.getName());
+            attribute.setRenderer("definition");
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes)
+                throws SAXException {
+            String name = localName == null || localName.isEmpty() ? qName : localName;
+            Object object = SAXDefinitionsReader.this.startElement(name, current, attributes, this);
+            current = new ParsedElement(name, object, current);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            ParsedElement element = current;
+            current = element.getParent();
+            if (element.getObject() != null) {
+                SAXDefinitionsReader.this.endElement(element.getName(), element.getObject(), current, this);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public InputSource resolveEntity(String publicId, String systemId) {
+            String localEntity = publicId != null ? localEntities.get(publicId) : null;
+            return localEntity != null ? new InputSource(localEntity) : null;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void warning(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void error(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void fatalError(SAXParseException exception) throws SAXException {
+            throw exception;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.evaluator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tiles.request.collection.BoundedCache;
+
+/**
+ * A bounded cache of parsed expressions, keyed by the expression string, that
+ * can be shared between threads. When the cache is full, an arbitrary
+ * expression is evicted to make room for a new one. Statistics are collected
+ * to check that the cache is big enough.
+ *
+ * @param <T> The type of the parsed expressions.
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class ExpressionCache<T> extends BoundedCache<String, T> {
+
+    /**
+     * The default maximum number of cached expressions.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1000;
+
+    /**
+     * The number of lookups that found a cached expression.
+     */
+    private final LongAdder hitCount = new LongAdder();
+
+    /**
+     * The number of lookups that did not find a cached expression.
+     */
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Constructor, using {@link #DEFAULT_MAXIMUM_SIZE}.
+     */
+    public ExpressionCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize The maximum number of cached expressions.
+     */
+    public ExpressionCache(int maximumSize) {
+        super(maximumSize);
+    }
+
+    /**
+     * Returns a cached expression.
+     *
+     * @param expression The expression string.
+     * @return The parsed expression, or <code>null</code> if not cached.
+     */
+    @Override
+    public T get(String expression) {
+        T retValue = super.get(expression);
+        if (retValue != null) {
+            hitCount.increment();
+        } else {
+            missCount.increment();
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached expression.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups that did not find a cached expression.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Returns the ratio between the hits and all the lookups.
+     *
+     * @return The hit ratio, between 0 and 1, or 0 if there have been no
+     * lookups.
+     */
+    public double getHitRatio() {
+        long hits = hitCount.sum();
+        long lookups = hits + missCount.sum();
+        if (lookups == 0) {
+            return 0.0;
+        }
+        return (double) hits / lookups;
+    }
+}
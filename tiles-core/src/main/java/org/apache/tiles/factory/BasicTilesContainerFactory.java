@@ -23,14 +23,19 @@ package org.apache.tiles.factory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.definition.DefinitionsFactory;
 import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.LocaleDefinitionsFactory;
 import org.apache.tiles.definition.UnresolvingLocaleDefinitionsFactory;
 import org.apache.tiles.definition.dao.BaseLocaleUrlDefinitionDAO;
+import org.apache.tiles.definition.dao.BinaryDefinitionsCache;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.dao.DefinitionDAO;
 import org.apache.tiles.definition.dao.ResolvingLocaleUrlDefinitionDAO;
+import org.apache.tiles.definition.dao.WatchingRefreshMonitor;
 import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
 import org.apache.tiles.definition.pattern.BasicPatternDefinitionResolver;
 import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
@@ -123,6 +128,9 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
     /**
      * Creates the definitions factory. By default it creates a
      * {@link UnresolvingLocaleDefinitionsFactory} with default dependencies.
+     * If {@link #instantiateDefinitionsFactory(ApplicationContext, LocaleResolver)}
+     * returns a {@link LocaleDefinitionsFactory}, its flattening mode is set
+     * to {@link #getDefinitionsFlatteningMode(ApplicationContext)}.
      *
      * @param applicationContext The Tiles application context.
      * @param resolver The locale resolver.
@@ -136,9 +144,33 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
         factory.setLocaleResolver(resolver);
         factory.setDefinitionDAO(createLocaleDefinitionDao(applicationContext,
                 resolver));
+        if (factory instanceof LocaleDefinitionsFactory) {
+            ((LocaleDefinitionsFactory) factory).setFlatteningMode(
+                    getDefinitionsFlatteningMode(applicationContext));
+        }
         return factory;
     }
 
+    /**
+     * Returns the way a {@link LocaleDefinitionsFactory} returns definitions.
+     * By default it is the value of the
+     * {@link LocaleDefinitionsFactory#FLATTENING_MODE_INIT_PARAMETER}
+     * initialization parameter, or
+     * {@link LocaleDefinitionsFactory.FlatteningMode#NONE} if not set.
+     * Flattening definitions requires a {@link CachingLocaleUrlDefinitionDAO}.
+     * @param applicationContext The Tiles application context.
+     * @return The flattening mode.
+     * @since 4.0.0
+     */
+    protected LocaleDefinitionsFactory.FlatteningMode getDefinitionsFlatteningMode(
+            ApplicationContext applicationContext) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        String flatteningMode = initParams != null
+                ? initParams.get(LocaleDefinitionsFactory.FLATTENING_MODE_INIT_PARAMETER) : null;
+        return flatteningMode != null ? LocaleDefinitionsFactory.FlatteningMode.valueOf(
+                flatteningMode.trim().toUpperCase(Locale.ROOT)) : LocaleDefinitionsFactory.FlatteningMode.NONE;
+    }
+
     /**
      * Instantiate a new definitions factory based on Locale.
      * @param applicationContext The Tiles application context.
@@ -180,13 +212,72 @@ public class BasicTilesContainerFactory extends AbstractTilesContainerFactory {
                 applicationContext, resolver);
         definitionDao.setReader(createDefinitionsReader(applicationContext));
         definitionDao.setSources(getSources(applicationContext));
+        definitionDao.setDefinitionsCache(createDefinitionsCache(applicationContext));
         if (definitionDao instanceof PatternDefinitionResolverAware) {
             ((PatternDefinitionResolverAware<Locale>) definitionDao)
                     .setPatternDefinitionResolver(createPatternDefinitionResolver(Locale.class));
         }
+        if (definitionDao instanceof CachingLocaleUrlDefinitionDAO) {
+            CachingLocaleUrlDefinitionDAO cachingDao = (CachingLocaleUrlDefinitionDAO) definitionDao;
+            WatchingRefreshMonitor refreshMonitor = createRefreshMonitor(applicationContext, cachingDao);
+            if (refreshMonitor != null) {
+                cachingDao.setRefreshMonitor(refreshMonitor);
+            }
+            cachingDao.setParallelLoading(getDefinitionsLoadingParallelism(applicationContext));
+        }
         return definitionDao;
     }
 
+    /**
+     * Creates the monitor that refreshes the definition sources in
+     * background. By default it creates a {@link WatchingRefreshMonitor} only
+     * if the
+     * {@link CachingLocaleUrlDefinitionDAO#WATCH_SOURCES_INIT_PARAMETER}
+     * initialization parameter is <code>true</code>. The monitor is stopped
+     * when the container is destroyed.
+     * @param applicationContext The Tiles application context.
+     * @param definitionDao The definition DAO to refresh.
+     * @return The monitor, or <code>null</code>.
+     * @since 4.0.0
+     */
+    protected WatchingRefreshMonitor createRefreshMonitor(ApplicationContext applicationContext,
+            CachingLocaleUrlDefinitionDAO definitionDao) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        if (initParams != null && Boolean.parseBoolean(
+                initParams.get(CachingLocaleUrlDefinitionDAO.WATCH_SOURCES_INIT_PARAMETER))) {
+            return new WatchingRefreshMonitor(definitionDao);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of threads that parse the definition sources
+     * concurrently. By default it is the value of the
+     * {@link CachingLocaleUrlDefinitionDAO#PARALLEL_LOADING_INIT_PARAMETER}
+     * initialization parameter, or 0 if not set, i.e. sources are parsed one
+     * after another. The threads are stopped when the container is destroyed.
+     * @param applicationContext The Tiles application context.
+     * @return The number of threads, 0 to parse sources one after another.
+     * @since 4.0.0
+     */
+    protected int getDefinitionsLoadingParallelism(ApplicationContext applicationContext) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        String parallelism = initParams != null
+                ? initParams.get(CachingLocaleUrlDefinitionDAO.PARALLEL_LOADING_INIT_PARAMETER) : null;
+        return parallelism != null ? Integer.parseInt(parallelism.trim()) : 0;
+    }
+
+    /**
+     * Creates the cache of parsed definition sources. By default it returns
+     * <code>null</code>, i.e. sources are always parsed.
+     * @param applicationContext The Tiles application context.
+     * @return The cache, or <code>null</code>.
+     * @since 4.0.0
+     */
+    protected BinaryDefinitionsCache createDefinitionsCache(ApplicationContext applicationContext) {
+        return null;
+    }
+
     /**
      * Creates the locale resolver. By default it creates a
      * {@link DefaultLocaleResolver}.
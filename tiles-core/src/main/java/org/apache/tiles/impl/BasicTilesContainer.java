@@ -20,9 +20,10 @@
  */
 package org.apache.tiles.impl;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Map;
 
 import org.apache.tiles.Attribute;
@@ -39,6 +40,7 @@ import org.apache.tiles.preparer.ViewPreparer;
 import org.apache.tiles.preparer.factory.NoSuchPreparerException;
 import org.apache.tiles.preparer.factory.PreparerFactory;
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.CachingRequest;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
 import org.apache.tiles.request.render.Renderer;
@@ -56,7 +58,7 @@ import org.slf4j.LoggerFactory;
  * @version $Rev$ $Date$
  */
 public class BasicTilesContainer implements TilesContainer,
-        AttributeEvaluatorFactoryAware {
+        AttributeEvaluatorFactoryAware, Closeable {
 
     /**
      * Name used to store attribute context stack.
@@ -173,6 +175,20 @@ public class BasicTilesContainer implements TilesContainer,
         this.definitionsFactory = definitionsFactory;
     }
 
+    /**
+     * Releases the resources used by this container, closing the
+     * definitions factory if it is {@link Closeable}.
+     *
+     * @throws IOException If the definitions factory cannot be closed.
+     * @since 4.0.0
+     */
+    @Override
+    public void close() throws IOException {
+        if (definitionsFactory instanceof Closeable) {
+            ((Closeable) definitionsFactory).close();
+        }
+    }
+
     /**
      * Returns the preparer factory used by this container.
      *
@@ -302,6 +318,15 @@ public class BasicTilesContainer implements TilesContainer,
 
     /**
      * Returns the context stack.
+     * <p>
+     * The stack is stored in the request scope, so it is shared by all the
+     * {@link Request} objects created for the same request. It is also cached
+     * in the {@link CachingRequest} passed here, which saves the request scope
+     * lookup only for later calls with the same object, as in the servlet and
+     * {@link #render(String, Request)} paths. JSP, FreeMarker and Velocity
+     * create a request object for each tag, so each tag still looks the stack
+     * up once in the request scope.
+     * </p>
      *
      * @param tilesContext The Tiles context object to use.
      * @return The needed stack of contexts.
@@ -309,13 +334,25 @@ public class BasicTilesContainer implements TilesContainer,
      */
     @SuppressWarnings("unchecked")
     protected Deque<AttributeContext> getContextStack(Request tilesContext) {
+        CachingRequest cachingRequest = null;
+        if (tilesContext instanceof CachingRequest) {
+            cachingRequest = (CachingRequest) tilesContext;
+            Deque<AttributeContext> contextStack = (Deque<AttributeContext>) cachingRequest
+                    .getCachedObject(ATTRIBUTE_CONTEXT_STACK);
+            if (contextStack != null) {
+                return contextStack;
+            }
+        }
         Map<String, Object> requestScope = tilesContext.getContext("request");
         Deque<AttributeContext> contextStack = (Deque<AttributeContext>) requestScope
                 .get(ATTRIBUTE_CONTEXT_STACK);
         if (contextStack == null) {
-            contextStack = new LinkedList<AttributeContext>();
+            contextStack = new ArrayDeque<AttributeContext>();
             requestScope.put(ATTRIBUTE_CONTEXT_STACK, contextStack);
         }
+        if (cachingRequest != null) {
+            cachingRequest.setCachedObject(ATTRIBUTE_CONTEXT_STACK, contextStack);
+        }
 
         return contextStack;
     }
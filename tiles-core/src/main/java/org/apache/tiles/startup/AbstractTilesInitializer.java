@@ -21,11 +21,17 @@
 
 package org.apache.tiles.startup;
 
+import java.io.Closeable;
+import java.io.IOException;
+
 import org.apache.tiles.TilesContainer;
+import org.apache.tiles.TilesContainerWrapper;
 import org.apache.tiles.access.TilesAccess;
 import org.apache.tiles.factory.AbstractTilesContainerFactory;
 import org.apache.tiles.request.ApplicationAccess;
 import org.apache.tiles.request.ApplicationContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Default Tiles initialization delegate implementation under a servlet
@@ -46,6 +52,11 @@ public abstract class AbstractTilesInitializer implements TilesInitializer {
     public static final String CONTAINER_KEY_INIT_PARAMETER =
         "org.apache.tiles.startup.AbstractTilesInitializer.CONTAINER_KEY";
 
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(AbstractTilesInitializer.class);
+
     /**
      * The initialized application context.
      */
@@ -71,6 +82,17 @@ public abstract class AbstractTilesInitializer implements TilesInitializer {
     public void destroy() {
         TilesAccess.setContainer(applicationContext, null,
                 getContainerKey(applicationContext));
+        TilesContainer toClose = container;
+        while (toClose instanceof TilesContainerWrapper) {
+            toClose = ((TilesContainerWrapper) toClose).getWrappedContainer();
+        }
+        if (toClose instanceof Closeable) {
+            try {
+                ((Closeable) toClose).close();
+            } catch (IOException e) {
+                log.warn("Cannot release the resources of the container", e);
+            }
+        }
     }
 
     /**
@@ -30,6 +30,7 @@ import java.util.Map;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.dao.DefinitionDAO;
 import org.apache.tiles.locale.LocaleResolver;
 import org.apache.tiles.request.Request;
@@ -104,4 +105,114 @@ class LocaleDefinitionsFactoryTest {
             verify(dao, localeResolver, request);
         }
     }
+
+    /**
+     * Test method for {@link LocaleDefinitionsFactory#getDefinition(String, Request)}
+     * when flattened definitions are discarded because the DAO returns new
+     * definitions.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testGetDefinitionReflattened() {
+        CachingLocaleUrlDefinitionDAO dao = createMock(CachingLocaleUrlDefinitionDAO.class);
+        LocaleResolver localeResolver = createMock(LocaleResolver.class);
+        Request request = createMock(Request.class);
+        Attribute templateAttribute = Attribute.createTemplateAttribute("/mytemplate.jsp");
+        Definition definition = new Definition("myDefinition", null, null);
+        definition.setExtends("anotherDefinition");
+        Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+        attributes.put("first", new Attribute("myValue"));
+        Definition anotherDefinition = new Definition("anotherDefinition", templateAttribute, attributes);
+        Map<String, Definition> definitions = new HashMap<String, Definition>();
+        definitions.put("myDefinition", definition);
+        definitions.put("anotherDefinition", anotherDefinition);
+        Map<String, Definition> newDefinitions = new HashMap<String, Definition>(definitions);
+        Locale locale = Locale.ITALY;
+
+        expect(localeResolver.resolveLocale(request)).andReturn(locale).times(3);
+        expect(dao.getCanonicalLocale(locale)).andReturn(locale).anyTimes();
+        expect(dao.getDefinitions(locale)).andReturn(definitions).times(2);
+        expect(dao.getDefinitions(locale)).andReturn(newDefinitions);
+        expect(dao.getDefinition("myDefinition", locale)).andReturn(definition).times(2);
+        expect(dao.getDefinition("anotherDefinition", locale)).andReturn(anotherDefinition).times(2);
+
+        LocaleDefinitionsFactory factory = new LocaleDefinitionsFactory();
+
+        replay(dao, localeResolver, request);
+        factory.setDefinitionDAO(dao);
+        factory.setLocaleResolver(localeResolver);
+        factory.setFlatteningMode(LocaleDefinitionsFactory.FlatteningMode.COPY);
+        Definition realDefinition = new Definition(definition);
+        realDefinition.inherit(anotherDefinition);
+        Definition flattened = factory.getDefinition("myDefinition", request);
+        assertEquals(realDefinition, flattened);
+        flattened.putAttribute("modified", new Attribute("modifiedValue"));
+        // Modifying a returned definition does not affect the next ones.
+        assertEquals(realDefinition, factory.getDefinition("myDefinition", request));
+        // New definitions from the DAO, flattened again.
+        assertEquals(realDefinition, factory.getDefinition("myDefinition", request));
+        verify(dao, localeResolver, request);
+    }
+
+    /**
+     * Tests that definitions cannot be flattened with a definition DAO that
+     * does not cache them.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testSetFlatteningModeNotCaching() {
+        DefinitionDAO<Locale> dao = createMock(DefinitionDAO.class);
+        replay(dao);
+        LocaleDefinitionsFactory factory = new LocaleDefinitionsFactory();
+        factory.setDefinitionDAO(dao);
+        assertThrows(IllegalStateException.class,
+                () -> factory.setFlatteningMode(LocaleDefinitionsFactory.FlatteningMode.COPY));
+        LocaleDefinitionsFactory copyingFactory = new LocaleDefinitionsFactory();
+        copyingFactory.setFlatteningMode(LocaleDefinitionsFactory.FlatteningMode.COPY);
+        assertThrows(IllegalStateException.class, () -> copyingFactory.setDefinitionDAO(dao));
+        verify(dao);
+    }
+
+    /**
+     * Test method for {@link LocaleDefinitionsFactory#getDefinition(String, Request)}
+     * when definitions are flattened and copied.
+     */
+    @SuppressWarnings("unchecked")
+    @Test
+    void testGetDefinitionCopy() {
+        CachingLocaleUrlDefinitionDAO dao = createMock(CachingLocaleUrlDefinitionDAO.class);
+        LocaleResolver localeResolver = createMock(LocaleResolver.class);
+        Request request = createMock(Request.class);
+        Attribute templateAttribute = Attribute.createTemplateAttribute("/mytemplate.jsp");
+        Definition definition = new Definition("myDefinition", null, null);
+        definition.setExtends("anotherDefinition");
+        Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+        attributes.put("first", new Attribute("myValue"));
+        Definition anotherDefinition = new Definition("anotherDefinition", templateAttribute, attributes);
+        Map<String, Definition> definitions = new HashMap<String, Definition>();
+        definitions.put("myDefinition", definition);
+        definitions.put("anotherDefinition", anotherDefinition);
+        Locale locale = Locale.ITALY;
+
+        expect(localeResolver.resolveLocale(request)).andReturn(locale).times(2);
+        expect(dao.getCanonicalLocale(locale)).andReturn(locale).anyTimes();
+        expect(dao.getDefinitions(locale)).andReturn(definitions).times(2);
+        expect(dao.getDefinition("myDefinition", locale)).andReturn(definition);
+        expect(dao.getDefinition("anotherDefinition", locale)).andReturn(anotherDefinition);
+
+        LocaleDefinitionsFactory factory = new LocaleDefinitionsFactory();
+
+        replay(dao, localeResolver, request);
+        factory.setDefinitionDAO(dao);
+        factory.setLocaleResolver(localeResolver);
+        factory.setFlatteningMode(LocaleDefinitionsFactory.FlatteningMode.COPY);
+        Definition realDefinition = new Definition(definition);
+        realDefinition.inherit(anotherDefinition);
+        Definition first = factory.getDefinition("myDefinition", request);
+        Definition second = factory.getDefinition("myDefinition", request);
+        assertEquals(realDefinition, first);
+        assertEquals(realDefinition, second);
+        assertNotSame(first, second);
+        verify(dao, localeResolver, request);
+    }
 }
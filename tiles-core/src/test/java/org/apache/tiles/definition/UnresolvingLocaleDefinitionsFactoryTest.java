@@ -27,6 +27,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.util.Locale;
 
 import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.dao.DefinitionDAO;
 import org.apache.tiles.locale.LocaleResolver;
 import org.apache.tiles.request.Request;
@@ -62,4 +63,27 @@ class UnresolvingLocaleDefinitionsFactoryTest {
         verify(dao, localeResolver, request, definition);
     }
 
+    /**
+     * Tests that {@link UnresolvingLocaleDefinitionsFactory#getDefinition(String, Request)}
+     * passes the canonical locale to a DAO that is a
+     * {@link org.apache.tiles.definition.dao.LocaleCanonicalizer}.
+     */
+    @Test
+    void testGetDefinitionCanonicalLocale() {
+        CachingLocaleUrlDefinitionDAO dao = createMock(CachingLocaleUrlDefinitionDAO.class);
+        LocaleResolver localeResolver = createMock(LocaleResolver.class);
+        UnresolvingLocaleDefinitionsFactory factory = new UnresolvingLocaleDefinitionsFactory();
+        Request request = createMock(Request.class);
+        Definition definition = createMock(Definition.class);
+
+        expect(localeResolver.resolveLocale(request)).andReturn(Locale.ITALY);
+        expect(dao.getCanonicalLocale(Locale.ITALY)).andReturn(Locale.ITALIAN);
+        expect(dao.getDefinition("myDefinition", Locale.ITALIAN)).andReturn(definition);
+
+        replay(dao, localeResolver, request, definition);
+        factory.setDefinitionDAO(dao);
+        factory.setLocaleResolver(localeResolver);
+        assertEquals(definition, factory.getDefinition("myDefinition", request));
+        verify(dao, localeResolver, request, definition);
+    }
 }
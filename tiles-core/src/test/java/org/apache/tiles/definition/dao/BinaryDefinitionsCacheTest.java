@@ -0,0 +1,231 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.dao;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link BinaryDefinitionsCache}.
+ *
+ * @version $Rev$ $Date$
+ */
+class BinaryDefinitionsCacheTest {
+
+    /**
+     * The path of the source used in tests.
+     */
+    private static final String PATH = "/org/apache/tiles/config/tiles-defs.xml";
+
+    /**
+     * The directory where the cache is written.
+     */
+    @TempDir
+    Path directory;
+
+    private File file;
+
+    private byte[] content;
+
+    /**
+     * Sets up the test.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("cache.bin").toFile();
+        try (InputStream stream = getClass().getResourceAsStream(PATH)) {
+            content = stream.readAllBytes();
+        }
+    }
+
+    /**
+     * Tests that cached definitions are equal to the parsed ones, and that
+     * they are read from the file without parsing the source.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testLoadFromFile() throws IOException {
+        Map<String, Definition> expected = new DigesterDefinitionsReader().read(new ByteArrayInputStream(content));
+        BinaryDefinitionsCache cache = new BinaryDefinitionsCache(file);
+        CountingReader reader = new CountingReader();
+        assertEquals(expected, cache.load(PATH, new ByteArrayInputStream(content), reader));
+        assertEquals(1, reader.count);
+        cache.save();
+        assertTrue(file.isFile());
+
+        BinaryDefinitionsCache newCache = new BinaryDefinitionsCache(file);
+        Map<String, Definition> definitions = newCache.load(PATH, new ByteArrayInputStream(content), reader);
+        assertEquals(expected, definitions);
+        assertEquals(expected.keySet(), definitions.keySet());
+        for (Map.Entry<String, Definition> entry : expected.entrySet()) {
+            assertEquals(entry.getValue().getExtends(), definitions.get(entry.getKey()).getExtends());
+            assertEquals(entry.getValue().getCascadedAttributeNames(),
+                    definitions.get(entry.getKey()).getCascadedAttributeNames());
+        }
+        assertEquals(1, reader.count);
+    }
+
+    /**
+     * Tests that cached definitions are not used when the source changed.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testChangedSource() throws IOException {
+        BinaryDefinitionsCache cache = new BinaryDefinitionsCache(file);
+        cache.load(PATH, new ByteArrayInputStream(content), new DigesterDefinitionsReader());
+        cache.save();
+
+        byte[] newContent = new String(content, StandardCharsets.ISO_8859_1)
+                .replace("/layout/classicLayout.jsp", "/layout/changedLayout.jsp").getBytes(StandardCharsets.ISO_8859_1);
+        BinaryDefinitionsCache newCache = new BinaryDefinitionsCache(file);
+        Map<String, Definition> definitions = newCache.load(PATH, new ByteArrayInputStream(newContent),
+                new DigesterDefinitionsReader());
+        assertEquals(new DigesterDefinitionsReader().read(new ByteArrayInputStream(newContent)), definitions);
+        assertNotEquals(new DigesterDefinitionsReader().read(new ByteArrayInputStream(content)), definitions);
+    }
+
+    /**
+     * Tests that definitions with values that cannot be stored are not
+     * cached.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testUncacheableValue() throws IOException {
+        Definition definition = new Definition();
+        definition.setName("object");
+        definition.putAttribute("value", new Attribute(Integer.valueOf(1)));
+        Map<String, Definition> definitions = Collections.singletonMap("object", definition);
+        DefinitionsReader reader = createMock(DefinitionsReader.class);
+        expect(reader.read(isA(InputStream.class))).andReturn(definitions).times(2);
+        replay(reader);
+
+        BinaryDefinitionsCache cache = new BinaryDefinitionsCache(file);
+        assertSame(definitions, cache.load(PATH, new ByteArrayInputStream(content), reader));
+        assertSame(definitions, cache.load(PATH, new ByteArrayInputStream(content), reader));
+        cache.save();
+        assertFalse(file.exists());
+        verify(reader);
+    }
+
+    /**
+     * Tests that a cache read from a file can replace it, keeping the entries
+     * read from it.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testSaveOverMappedFile() throws IOException {
+        CountingReader reader = new CountingReader();
+        BinaryDefinitionsCache cache = new BinaryDefinitionsCache(file);
+        cache.load(PATH, new ByteArrayInputStream(content), reader);
+        cache.save();
+
+        BinaryDefinitionsCache newCache = new BinaryDefinitionsCache(file);
+        Map<String, Definition> expected = newCache.load(PATH, new ByteArrayInputStream(content), reader);
+        newCache.load("/other.xml", new ByteArrayInputStream(content), reader);
+        assertEquals(2, reader.count);
+        newCache.save();
+
+        BinaryDefinitionsCache lastCache = new BinaryDefinitionsCache(file);
+        assertEquals(expected, lastCache.load(PATH, new ByteArrayInputStream(content), reader));
+        assertEquals(expected, lastCache.load("/other.xml", new ByteArrayInputStream(content), reader));
+        assertEquals(2, reader.count);
+    }
+
+    /**
+     * Tests {@link BinaryDefinitionsCache#retainEntries(java.util.Collection)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRetainEntries() throws IOException {
+        CountingReader reader = new CountingReader();
+        BinaryDefinitionsCache cache = new BinaryDefinitionsCache(file);
+        cache.load(PATH, new ByteArrayInputStream(content), reader);
+        cache.load("/removed.xml", new ByteArrayInputStream(content), reader);
+        cache.save();
+        assertEquals(2, reader.count);
+
+        BinaryDefinitionsCache newCache = new BinaryDefinitionsCache(file);
+        newCache.retainEntries(Collections.singleton(PATH));
+        newCache.save();
+
+        BinaryDefinitionsCache lastCache = new BinaryDefinitionsCache(file);
+        lastCache.load(PATH, new ByteArrayInputStream(content), reader);
+        assertEquals(2, reader.count);
+        lastCache.load("/removed.xml", new ByteArrayInputStream(content), reader);
+        assertEquals(3, reader.count);
+    }
+
+    /**
+     * Tests that an invalid cache file is ignored.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testInvalidFile() throws IOException {
+        Files.write(file.toPath(), "not a cache".getBytes(StandardCharsets.US_ASCII));
+        BinaryDefinitionsCache cache = new BinaryDefinitionsCache(file);
+        assertEquals(new DigesterDefinitionsReader().read(new ByteArrayInputStream(content)),
+                cache.load(PATH, new ByteArrayInputStream(content), new DigesterDefinitionsReader()));
+    }
+
+    /**
+     * Reader that counts the parsed sources.
+     */
+    private static class CountingReader extends DigesterDefinitionsReader {
+
+        /**
+         * The number of parsed sources.
+         */
+        private int count;
+
+        /** {@inheritDoc} */
+        @Override
+        public Map<String, Definition> read(Object source) {
+            count++;
+            return super.read(source);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Locale;
+
+import org.apache.tiles.Definition;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link BoundedResolvedDefinitionCacheFactory}.
+ *
+ * @version $Rev$ $Date$
+ */
+class BoundedResolvedDefinitionCacheFactoryTest {
+
+    /**
+     * Tests that definitions are evicted when the cache is full.
+     */
+    @Test
+    void testEviction() {
+        BoundedResolvedDefinitionCacheFactory factory = new BoundedResolvedDefinitionCacheFactory();
+        factory.setMaximumSize(1);
+        ResolvedDefinitionCache cache = factory.createCache(Locale.ROOT);
+        Definition first = new Definition();
+        Definition second = new Definition();
+
+        assertSame(first, cache.putIfAbsent("first", first));
+        assertSame(first, cache.putIfAbsent("first", new Definition()));
+        assertSame(first, cache.get("first"));
+        assertSame(second, cache.putIfAbsent("second", second));
+        assertNull(cache.get("first"));
+        assertSame(second, cache.get("second"));
+
+        assertEquals(2, factory.getHitCount());
+        assertEquals(1, factory.getMissCount());
+        assertEquals(1, factory.getEvictionCount());
+    }
+
+    /**
+     * Tests that caches of different locales are independent.
+     */
+    @Test
+    void testCreateCache() {
+        BoundedResolvedDefinitionCacheFactory factory = new BoundedResolvedDefinitionCacheFactory();
+        ResolvedDefinitionCache rootCache = factory.createCache(Locale.ROOT);
+        ResolvedDefinitionCache italianCache = factory.createCache(Locale.ITALIAN);
+        Definition definition = new Definition();
+        rootCache.putIfAbsent("definition", definition);
+        assertNull(italianCache.get("definition"));
+        assertSame(definition, rootCache.get("definition"));
+    }
+}
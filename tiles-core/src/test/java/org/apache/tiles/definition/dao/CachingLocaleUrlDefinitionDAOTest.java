@@ -23,17 +23,29 @@ package org.apache.tiles.definition.dao;
 
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.Definition;
@@ -46,6 +58,7 @@ import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
 import org.apache.tiles.definition.pattern.wildcard.WildcardDefinitionPatternMatcherFactory;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.locale.PostfixedApplicationResource;
 import org.apache.tiles.request.locale.URLApplicationResource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -87,6 +100,7 @@ class CachingLocaleUrlDefinitionDAOTest {
                     .getResource("org/apache/tiles/config/" + filename + "_" + locale.toString() + ".xml"));
             assertNotNull(urlLocale, "Could not load " + filename + "_" + locale.toString() + " file.");
             localeResources.put(locale, urlLocale);
+            expect(applicationContext.getResource(urlLocale.getLocalePath())).andReturn(urlLocale).anyTimes();
         }
         for (Locale locale : new Locale[] { Locale.CANADA_FRENCH, Locale.FRENCH, Locale.US, Locale.ENGLISH,
                 Locale.CHINA, Locale.CHINESE, Locale.ITALY, Locale.ITALIAN }) {
@@ -379,4 +393,460 @@ class CachingLocaleUrlDefinitionDAOTest {
         assertEquals(1, attributes.size());
         verify(applicationContext);
     }
+
+    /**
+     * Tests that definitions resolved through patterns are cached and that
+     * published definitions are read-only.
+     */
+    @Test
+    void testPublishedDefinitions() {
+        List<ApplicationResource> urls = new ArrayList<ApplicationResource>();
+        urls.add(urlWildcard);
+        definitionDao.setSources(urls);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+
+        Definition definition = definitionDao.getDefinition("test.defName.subLayered", null);
+        assertSame(definition, definitionDao.getDefinition("test.defName.subLayered", null));
+        Map<String, Definition> definitions = definitionDao.getDefinitions(null);
+        assertNull(definitions.get("test.defName.subLayered"));
+        assertThrows(UnsupportedOperationException.class, () -> definitions.put("test.new", new Definition()));
+    }
+
+    /**
+     * Tests that changed sources are reloaded, and that the previously
+     * published definitions stay untouched.
+     */
+    @Test
+    void testRefresh() {
+        MutableApplicationResource resource = new MutableApplicationResource("org/apache/tiles/config/temp-defs.xml");
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        expect(applicationContext.getResource(resource.getLocalePath())).andReturn(resource).anyTimes();
+        expect(applicationContext.getResource(resource, Locale.ROOT)).andReturn(resource).anyTimes();
+        expect(applicationContext.getResource(resource, Locale.ITALIAN)).andReturn(null).anyTimes();
+        replay(applicationContext);
+        CachingLocaleUrlDefinitionDAO dao = new CachingLocaleUrlDefinitionDAO(applicationContext);
+        WildcardDefinitionPatternMatcherFactory definitionPatternMatcherFactory =
+            new WildcardDefinitionPatternMatcherFactory();
+        dao.setPatternDefinitionResolver(new BasicPatternDefinitionResolver<Locale>(
+                definitionPatternMatcherFactory, definitionPatternMatcherFactory));
+        List<ApplicationResource> urls = new ArrayList<ApplicationResource>();
+        urls.add(resource);
+        dao.setSources(urls);
+        dao.setReader(new DigesterDefinitionsReader());
+        dao.setCheckRefresh(true);
+
+        Map<String, Definition> oldDefinitions = dao.getDefinitions(null);
+        assertEquals("/test.jsp", dao.getDefinition("rewrite.test", null).getTemplateAttribute().getValue());
+        assertEquals("/test.jsp", dao.getDefinition("rewrite.test", Locale.ITALIAN).getTemplateAttribute()
+                .getValue());
+        assertSame(oldDefinitions, dao.getDefinitions(null));
+
+        resource.modify("/newtest.jsp");
+
+        assertEquals("/newtest.jsp", dao.getDefinition("rewrite.test", null).getTemplateAttribute().getValue());
+        assertEquals("/newtest.jsp", dao.getDefinition("rewrite.test", Locale.ITALIAN).getTemplateAttribute()
+                .getValue());
+        assertEquals("/test.jsp", oldDefinitions.get("rewrite.test").getTemplateAttribute().getValue());
+        assertSame(dao.getDefinitions(null), dao.getDefinitions(null));
+        verify(applicationContext);
+    }
+
+    /**
+     * Tests that each source is parsed once for all locales, and that a
+     * refresh parses again only the changed sources.
+     */
+    @Test
+    void testRefreshParsesChangedSourcesOnly() {
+        MutableApplicationResource resource = new MutableApplicationResource("org/apache/tiles/config/temp-defs.xml");
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        expect(applicationContext.getResource(resource.getLocalePath())).andReturn(resource).anyTimes();
+        expect(applicationContext.getResource(resource, Locale.ROOT)).andReturn(resource).anyTimes();
+        expect(applicationContext.getResource(resource, Locale.ITALIAN)).andReturn(null).anyTimes();
+        expect(applicationContext.getResource(resource, Locale.FRENCH)).andReturn(null).anyTimes();
+        expect(applicationContext.getResource(url1.getLocalePath())).andReturn(url1).anyTimes();
+        expect(applicationContext.getResource(url1, Locale.ROOT)).andReturn(url1).anyTimes();
+        expect(applicationContext.getResource(url1, Locale.ITALIAN)).andReturn(null).anyTimes();
+        ApplicationResource frenchUrl = this.applicationContext.getResource(url1, Locale.FRENCH);
+        expect(applicationContext.getResource(url1, Locale.FRENCH)).andReturn(frenchUrl).anyTimes();
+        expect(applicationContext.getResource(frenchUrl.getLocalePath())).andReturn(frenchUrl).anyTimes();
+        replay(applicationContext);
+        CachingLocaleUrlDefinitionDAO dao = new CachingLocaleUrlDefinitionDAO(applicationContext);
+        WildcardDefinitionPatternMatcherFactory definitionPatternMatcherFactory =
+            new WildcardDefinitionPatternMatcherFactory();
+        dao.setPatternDefinitionResolver(new BasicPatternDefinitionResolver<Locale>(
+                definitionPatternMatcherFactory, definitionPatternMatcherFactory));
+        List<ApplicationResource> urls = new ArrayList<ApplicationResource>();
+        urls.add(url1);
+        urls.add(resource);
+        dao.setSources(urls);
+        final List<Object> readSources = new ArrayList<Object>();
+        dao.setReader(new DigesterDefinitionsReader() {
+            @Override
+            public Map<String, Definition> read(Object source) {
+                readSources.add(source);
+                return super.read(source);
+            }
+        });
+        dao.setCheckRefresh(true);
+
+        dao.getDefinitions(null);
+        dao.getDefinitions(Locale.FRENCH);
+        dao.getDefinitions(Locale.ITALIAN);
+        assertEquals(3, readSources.size());
+
+        resource.modify("/newtest.jsp");
+
+        assertEquals("/newtest.jsp", dao.getDefinition("rewrite.test", Locale.FRENCH).getTemplateAttribute()
+                .getValue());
+        assertEquals("France", dao.getDefinition("test.def1", Locale.FRENCH).getAttribute("country").getValue());
+        assertEquals("/newtest.jsp", dao.getDefinition("rewrite.test", null).getTemplateAttribute().getValue());
+        assertEquals(4, readSources.size());
+
+        // Unchanged sources are still monitored.
+        assertTrue(dao.lastModifiedDates.containsKey(url1.getLocalePath()));
+        assertTrue(dao.lastModifiedDates.containsKey(frenchUrl.getLocalePath()));
+        verify(applicationContext);
+    }
+
+    /**
+     * Tests {@link CachingLocaleUrlDefinitionDAO#refreshSources(java.util.Collection)}.
+     */
+    @Test
+    void testRefreshSources() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        definitionDao.setSources(sourceURLs);
+        final List<Object> readSources = new ArrayList<Object>();
+        definitionDao.setReader(new DigesterDefinitionsReader() {
+            @Override
+            public Map<String, Definition> read(Object source) {
+                readSources.add(source);
+                return super.read(source);
+            }
+        });
+
+        Map<String, Definition> defaultDefinitions = definitionDao.getDefinitions(null);
+        Map<String, Definition> usDefinitions = definitionDao.getDefinitions(Locale.US);
+        Map<String, Definition> frenchDefinitions = definitionDao.getDefinitions(Locale.FRENCH);
+        Map<String, Definition> canadaFrenchDefinitions = definitionDao.getDefinitions(Locale.CANADA_FRENCH);
+
+        // Each source has been parsed once.
+        assertEquals(4, readSources.size());
+
+        definitionDao.refreshSources(Collections.singleton("org/apache/tiles/config/defs1_fr.xml"));
+        assertEquals(5, readSources.size());
+
+        assertSame(defaultDefinitions, definitionDao.getDefinitions(null));
+        assertSame(usDefinitions, definitionDao.getDefinitions(Locale.US));
+        assertNotSame(frenchDefinitions, definitionDao.getDefinitions(Locale.FRENCH));
+        assertNotSame(canadaFrenchDefinitions, definitionDao.getDefinitions(Locale.CANADA_FRENCH));
+        assertEquals(frenchDefinitions, definitionDao.getDefinitions(Locale.FRENCH));
+        assertEquals("France", definitionDao.getDefinition("test.def1", Locale.FRENCH)
+                .getAttribute("country").getValue());
+    }
+
+    /**
+     * Tests {@link CachingLocaleUrlDefinitionDAO#setParallelLoading(ForkJoinPool, java.util.function.Supplier)}.
+     */
+    @Test
+    void testParallelLoading() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        sourceURLs.add(url2);
+        sourceURLs.add(url3);
+        definitionDao.setSources(sourceURLs);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+        final Set<Thread> readingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+        final List<DefinitionsReader> readers = Collections.synchronizedList(new ArrayList<DefinitionsReader>());
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            definitionDao.setParallelLoading(pool, () -> {
+                DefinitionsReader reader = new DigesterDefinitionsReader() {
+                    @Override
+                    public Map<String, Definition> read(Object source) {
+                        readingThreads.add(Thread.currentThread());
+                        return super.read(source);
+                    }
+                };
+                readers.add(reader);
+                return reader;
+            });
+
+            Map<String, Definition> defaultDefinitions = definitionDao.getDefinitions(null);
+            Map<String, Definition> frenchDefinitions = definitionDao.getDefinitions(Locale.FRENCH);
+            assertEquals(3, readers.size());
+            assertFalse(readingThreads.contains(Thread.currentThread()));
+
+            CachingLocaleUrlDefinitionDAO sequentialDao = new CachingLocaleUrlDefinitionDAO(applicationContext);
+            WildcardDefinitionPatternMatcherFactory definitionPatternMatcherFactory =
+                new WildcardDefinitionPatternMatcherFactory();
+            sequentialDao.setPatternDefinitionResolver(new BasicPatternDefinitionResolver<Locale>(
+                    definitionPatternMatcherFactory, definitionPatternMatcherFactory));
+            sequentialDao.setSources(sourceURLs);
+            sequentialDao.setReader(new DigesterDefinitionsReader());
+            assertEquals(new ArrayList<String>(sequentialDao.getDefinitions(null).keySet()),
+                    new ArrayList<String>(defaultDefinitions.keySet()));
+            assertEquals(sequentialDao.getDefinitions(null), defaultDefinitions);
+            assertEquals(sequentialDao.getDefinitions(Locale.FRENCH), frenchDefinitions);
+            assertEquals("France", frenchDefinitions.get("test.def1").getAttribute("country").getValue());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Tests {@link CachingLocaleUrlDefinitionDAO#setParallelLoading(int)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testOwnedParallelLoading() throws IOException {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        sourceURLs.add(url2);
+        sourceURLs.add(url3);
+        definitionDao.setSources(sourceURLs);
+        final Set<Thread> readingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+        final Set<ClassLoader> classLoaders = Collections.synchronizedSet(new HashSet<ClassLoader>());
+        definitionDao.setReader(new DigesterDefinitionsReader() {
+            @Override
+            public Map<String, Definition> read(Object source) {
+                readingThreads.add(Thread.currentThread());
+                classLoaders.add(Thread.currentThread().getContextClassLoader());
+                return super.read(source);
+            }
+        });
+        Thread currentThread = Thread.currentThread();
+        ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+        ClassLoader webappClassLoader = new URLClassLoader(new URL[0], originalClassLoader);
+        currentThread.setContextClassLoader(webappClassLoader);
+        try {
+            definitionDao.setParallelLoading(2);
+        } finally {
+            currentThread.setContextClassLoader(originalClassLoader);
+        }
+
+        assertNotNull(definitionDao.getDefinitions(null));
+        assertFalse(readingThreads.contains(currentThread));
+        assertEquals(Collections.singleton(webappClassLoader), classLoaders);
+
+        definitionDao.close();
+        readingThreads.clear();
+        Set<String> paths = new HashSet<String>();
+        for (ApplicationResource resource : sourceURLs) {
+            paths.add(resource.getLocalePath());
+        }
+        definitionDao.refreshSources(paths);
+        assertEquals(Collections.singleton(currentThread), readingThreads);
+    }
+
+    /**
+     * Tests that definitions resolved through patterns are kept in a bounded
+     * cache.
+     */
+    @Test
+    void testResolvedDefinitionCache() {
+        List<ApplicationResource> urls = new ArrayList<ApplicationResource>();
+        urls.add(urlWildcard);
+        definitionDao.setSources(urls);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+        BoundedResolvedDefinitionCacheFactory cacheFactory = new BoundedResolvedDefinitionCacheFactory();
+        cacheFactory.setMaximumSize(1);
+        definitionDao.setResolvedDefinitionCacheFactory(cacheFactory);
+
+        Definition first = definitionDao.getDefinition("test.defOne", Locale.ITALY);
+        assertSame(first, definitionDao.getDefinition("test.defOne", Locale.ITALY));
+        definitionDao.getDefinition("test.defTwo", Locale.ITALY);
+        Definition again = definitionDao.getDefinition("test.defOne", Locale.ITALY);
+        assertNotSame(first, again);
+        assertEquals(first, again);
+        assertEquals(1, cacheFactory.getHitCount());
+        assertEquals(2, cacheFactory.getEvictionCount());
+        assertNull(definitionDao.getDefinitions(Locale.ITALY).get("test.defOne"));
+    }
+
+    /**
+     * Tests the cache of unknown definitions.
+     */
+    @Test
+    void testUnknownDefinitionCache() {
+        List<ApplicationResource> urls = new ArrayList<ApplicationResource>();
+        urls.add(urlWildcard);
+        definitionDao.setSources(urls);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+
+        assertNull(definitionDao.getDefinition("unknown.definition", Locale.ITALY));
+        assertNull(definitionDao.getDefinition("unknown.definition", Locale.ITALY));
+        assertNull(definitionDao.getDefinition("unknown.definition", Locale.ITALY));
+        // No localized sources: both locales share the definitions of the root locale.
+        assertNull(definitionDao.getDefinition("unknown.definition", Locale.FRENCH));
+        assertNotNull(definitionDao.getDefinition("test.defName", Locale.ITALY));
+        assertEquals(3, definitionDao.getUnknownDefinitionHitCount());
+        assertEquals(1, definitionDao.getUnknownDefinitionMissCount());
+
+        definitionDao.refreshSources(Collections.singleton(urlWildcard.getLocalePath()));
+        assertNull(definitionDao.getDefinition("unknown.definition", Locale.ITALY));
+        assertEquals(3, definitionDao.getUnknownDefinitionHitCount());
+        assertEquals(2, definitionDao.getUnknownDefinitionMissCount());
+
+        // The size applies to the definitions loaded afterwards.
+        definitionDao.setUnknownDefinitionCacheSize(0);
+        definitionDao.refreshSources(Collections.singleton(urlWildcard.getLocalePath()));
+        assertNull(definitionDao.getDefinition("other.definition", Locale.ITALY));
+        assertNull(definitionDao.getDefinition("other.definition", Locale.ITALY));
+        assertEquals(3, definitionDao.getUnknownDefinitionHitCount());
+        assertEquals(4, definitionDao.getUnknownDefinitionMissCount());
+    }
+
+    /**
+     * Tests {@link CachingLocaleUrlDefinitionDAO#getCanonicalLocale(Locale)}.
+     */
+    @Test
+    void testGetCanonicalLocale() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        sourceURLs.add(url2);
+        definitionDao.setSources(sourceURLs);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+
+        assertEquals(Locale.ROOT, definitionDao.getCanonicalLocale(null));
+        assertEquals(Locale.US, definitionDao.getCanonicalLocale(Locale.US));
+        assertEquals(Locale.CANADA_FRENCH, definitionDao.getCanonicalLocale(Locale.CANADA_FRENCH));
+        assertEquals(Locale.FRENCH, definitionDao.getCanonicalLocale(Locale.FRENCH));
+        assertEquals(Locale.ROOT, definitionDao.getCanonicalLocale(Locale.ENGLISH));
+        assertEquals(Locale.ROOT, definitionDao.getCanonicalLocale(Locale.CHINA));
+        assertEquals(Locale.ROOT, definitionDao.getCanonicalLocale(Locale.ITALY));
+
+        Map<String, Definition> defaultDefinitions = definitionDao.getDefinitions(null);
+        assertSame(defaultDefinitions, definitionDao.getDefinitions(Locale.CHINA));
+        assertSame(defaultDefinitions, definitionDao.getDefinitions(Locale.ITALY));
+        assertNotSame(defaultDefinitions, definitionDao.getDefinitions(Locale.US));
+        assertEquals("default", definitionDao.getDefinition("test.def1", Locale.CHINA)
+                .getAttribute("country").getValue());
+    }
+
+    /**
+     * Tests that localized sources are looked up once, until
+     * {@link CachingLocaleUrlDefinitionDAO#forgetLocalizedResources()} is
+     * called.
+     */
+    @Test
+    void testLocalizedResourceLookups() {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        expect(applicationContext.getResource(url1.getLocalePath())).andReturn(url1).anyTimes();
+        expect(applicationContext.getResource(url1, Locale.ROOT)).andReturn(url1).times(2);
+        expect(applicationContext.getResource(url1, Locale.ITALIAN)).andReturn(null).times(2);
+        expect(applicationContext.getResource(url1, Locale.ITALY)).andReturn(null).times(2);
+        replay(applicationContext);
+        CachingLocaleUrlDefinitionDAO dao = new CachingLocaleUrlDefinitionDAO(applicationContext);
+        WildcardDefinitionPatternMatcherFactory definitionPatternMatcherFactory =
+            new WildcardDefinitionPatternMatcherFactory();
+        dao.setPatternDefinitionResolver(new BasicPatternDefinitionResolver<Locale>(
+                definitionPatternMatcherFactory, definitionPatternMatcherFactory));
+        List<ApplicationResource> urls = new ArrayList<ApplicationResource>();
+        urls.add(url1);
+        dao.setSources(urls);
+        dao.setReader(new DigesterDefinitionsReader());
+
+        Map<String, Definition> defaultDefinitions = dao.getDefinitions(null);
+        assertSame(defaultDefinitions, dao.getDefinitions(Locale.ITALY));
+        assertSame(defaultDefinitions, dao.getDefinitions(Locale.ITALIAN));
+        assertEquals(Locale.ROOT, dao.getCanonicalLocale(Locale.ITALY));
+
+        dao.forgetLocalizedResources();
+        assertEquals(Locale.ROOT, dao.getCanonicalLocale(Locale.ITALY));
+        assertSame(defaultDefinitions, dao.getDefinitions(Locale.ITALY));
+        dao.refreshSources(Collections.singleton(url1.getLocalePath()));
+        verify(applicationContext);
+    }
+
+    /**
+     * Tests that a localized source added after it has been looked up is
+     * found when checking for refresh.
+     */
+    @Test
+    void testLocalizedResourceAdded() {
+        ApplicationResource frenchUrl = this.applicationContext.getResource(url1, Locale.FRENCH);
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        expect(applicationContext.getResource(url1.getLocalePath())).andReturn(url1).anyTimes();
+        expect(applicationContext.getResource(url1, Locale.ROOT)).andReturn(url1).anyTimes();
+        expect(applicationContext.getResource(url1, Locale.FRENCH)).andReturn(null).times(2)
+                .andReturn(frenchUrl).anyTimes();
+        expect(applicationContext.getResource(frenchUrl.getLocalePath())).andReturn(frenchUrl).anyTimes();
+        replay(applicationContext);
+        CachingLocaleUrlDefinitionDAO dao = new CachingLocaleUrlDefinitionDAO(applicationContext);
+        WildcardDefinitionPatternMatcherFactory definitionPatternMatcherFactory =
+            new WildcardDefinitionPatternMatcherFactory();
+        dao.setPatternDefinitionResolver(new BasicPatternDefinitionResolver<Locale>(
+                definitionPatternMatcherFactory, definitionPatternMatcherFactory));
+        List<ApplicationResource> urls = new ArrayList<ApplicationResource>();
+        urls.add(url1);
+        dao.setSources(urls);
+        dao.setReader(new DigesterDefinitionsReader());
+        dao.setCheckRefresh(true);
+        dao.setLocalizedResourceCheckInterval(0);
+
+        // Looked up when computing the canonical locale, then when checking for refresh.
+        assertEquals("default", dao.getDefinition("test.def1", Locale.FRENCH).getAttribute("country").getValue());
+        assertEquals(Locale.ROOT, dao.getCanonicalLocale(Locale.FRENCH));
+
+        assertEquals("France", dao.getDefinition("test.def1", Locale.FRENCH).getAttribute("country").getValue());
+        assertEquals(Locale.FRENCH, dao.getCanonicalLocale(Locale.FRENCH));
+        assertFalse(dao.refreshRequired());
+        verify(applicationContext);
+    }
+
+    /**
+     * Tests {@link CachingLocaleUrlDefinitionDAO#getLocale2definitionMap()}.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    void testGetLocale2definitionMap() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        definitionDao.setSources(sourceURLs);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+
+        assertTrue(definitionDao.getLocale2definitionMap().isEmpty());
+        Map<String, Definition> definitions = definitionDao.getDefinitions(Locale.FRENCH);
+        Map<Locale, Map<String, Definition>> locale2definitionMap = definitionDao.getLocale2definitionMap();
+        assertSame(definitions, locale2definitionMap.get(Locale.FRENCH));
+        assertThrows(UnsupportedOperationException.class, () -> locale2definitionMap.clear());
+    }
+
+    /**
+     * A resource whose content can be changed.
+     */
+    private static final class MutableApplicationResource extends PostfixedApplicationResource {
+
+        private long lastModified = 1000L;
+
+        private String template = "/test.jsp";
+
+        private MutableApplicationResource(String localePath) {
+            super(localePath);
+        }
+
+        public void modify(String template) {
+            lastModified += 1000L;
+            this.template = template;
+        }
+
+        @Override
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\" ?>\n"
+                    + "<!DOCTYPE tiles-definitions PUBLIC "
+                    + "\"-//Apache Software Foundation//DTD Tiles Configuration 3.0//EN\" "
+                    + "\"http://tiles.apache.org/dtds/tiles-config_3_0.dtd\">\n\n" + "<tiles-definitions>"
+                    + "<definition name=\"rewrite.test\" template=\"" + template + "\">"
+                    + "<put-attribute name=\"testparm\" value=\"testval\"/>" + "</definition>"
+                    + "</tiles-definitions>";
+            return new ByteArrayInputStream(xml.getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
 }
@@ -0,0 +1,80 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.tiles.Definition;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link OverlayDefinitionMap}.
+ *
+ * @version $Rev$ $Date$
+ */
+class OverlayDefinitionMapTest {
+
+    /**
+     * Tests lookups, size and iteration order.
+     */
+    @Test
+    void testOverlay() {
+        Definition one = new Definition();
+        Definition two = new Definition();
+        Definition three = new Definition();
+        Definition newTwo = new Definition();
+        Definition four = new Definition();
+        Map<String, Definition> parent = new LinkedHashMap<String, Definition>();
+        parent.put("one", one);
+        parent.put("two", two);
+        parent.put("three", three);
+        Map<String, Definition> overrides = new LinkedHashMap<String, Definition>();
+        overrides.put("four", four);
+        overrides.put("two", newTwo);
+        Map<String, Definition> map = new OverlayDefinitionMap(
+                Collections.unmodifiableMap(parent), overrides);
+
+        assertEquals(4, map.size());
+        assertSame(one, map.get("one"));
+        assertSame(newTwo, map.get("two"));
+        assertSame(four, map.get("four"));
+        assertNull(map.get("five"));
+        assertTrue(map.containsKey("three"));
+        assertTrue(map.containsKey("four"));
+        assertFalse(map.containsKey("five"));
+        assertEquals(Arrays.asList("one", "two", "three", "four"), new ArrayList<String>(map.keySet()));
+        List<Definition> values = new ArrayList<Definition>(map.values());
+        assertSame(newTwo, values.get(1));
+
+        Map<String, Definition> expected = new LinkedHashMap<String, Definition>(parent);
+        expected.putAll(overrides);
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        assertThrows(UnsupportedOperationException.class, () -> map.put("five", new Definition()));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link PrecompiledDefinitions}.
+ *
+ * @version $Rev$ $Date$
+ */
+class PrecompiledDefinitionsTest {
+
+    /**
+     * Tests writing and reading definitions of several locales.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testWriteAndRead() throws IOException {
+        Map<String, Definition> rootDefinitions = read("/org/apache/tiles/config/tiles-defs.xml");
+        Map<String, Definition> frenchDefinitions = read("/org/apache/tiles/config/defs1_fr.xml");
+        PrecompiledDefinitions definitions = new PrecompiledDefinitions();
+        definitions.addDefinitions(Locale.ROOT, rootDefinitions);
+        definitions.addDefinitions(Locale.FRENCH, frenchDefinitions);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        definitions.write(out);
+        PrecompiledDefinitions readDefinitions = PrecompiledDefinitions.read(
+                new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(definitions.getLocales(), readDefinitions.getLocales());
+        assertEquals(rootDefinitions, readDefinitions.getDefinitions(Locale.ROOT));
+        assertEquals(frenchDefinitions, readDefinitions.getDefinitions(Locale.FRENCH));
+        assertNull(readDefinitions.getDefinitions(Locale.ITALIAN));
+    }
+
+    /**
+     * Tests that definitions added later for the same locale override the
+     * previous ones.
+     */
+    @Test
+    void testAddDefinitions() {
+        Definition first = new Definition("test", Attribute.createTemplateAttribute("/first.jsp"), null);
+        Definition second = new Definition("test", Attribute.createTemplateAttribute("/second.jsp"), null);
+        PrecompiledDefinitions definitions = new PrecompiledDefinitions();
+        definitions.addDefinitions(Locale.ROOT, Collections.singletonMap("test", first));
+        definitions.addDefinitions(Locale.ROOT, Collections.singletonMap("test", second));
+        assertSame(second, definitions.getDefinitions(Locale.ROOT).get("test"));
+    }
+
+    /**
+     * Tests that definitions with values that cannot be stored are refused.
+     */
+    @Test
+    void testWriteUnsupportedValue() {
+        Definition definition = new Definition();
+        definition.setName("object");
+        definition.putAttribute("value", new Attribute(Integer.valueOf(1)));
+        PrecompiledDefinitions definitions = new PrecompiledDefinitions();
+        definitions.addDefinitions(Locale.ROOT, Collections.singletonMap("object", definition));
+        assertThrows(DefinitionsFactoryException.class, () -> definitions.write(new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Tests reading a stream that does not contain precompiled definitions.
+     */
+    @Test
+    void testReadInvalid() {
+        assertThrows(IOException.class, () -> PrecompiledDefinitions.read(
+                new ByteArrayInputStream("not precompiled".getBytes())));
+        assertThrows(IOException.class, () -> PrecompiledDefinitions.read(
+                new ByteArrayInputStream(new byte[0])));
+    }
+
+    /**
+     * Reads a definitions file.
+     *
+     * @param path The path of the file in the classpath.
+     * @return The definitions.
+     * @throws IOException If something goes wrong.
+     */
+    private Map<String, Definition> read(String path) throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream(path)) {
+            return new DigesterDefinitionsReader().read(stream);
+        }
+    }
+}
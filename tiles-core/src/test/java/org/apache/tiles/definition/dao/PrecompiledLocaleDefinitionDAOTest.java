@@ -0,0 +1,171 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.dao;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Locale;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.apache.tiles.definition.pattern.BasicPatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.wildcard.WildcardDefinitionPatternMatcherFactory;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.locale.URLApplicationResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link PrecompiledLocaleDefinitionDAO}.
+ *
+ * @version $Rev$ $Date$
+ */
+class PrecompiledLocaleDefinitionDAOTest {
+
+    /**
+     * The directory where precompiled definitions are written.
+     */
+    @TempDir
+    Path directory;
+
+    private ApplicationContext applicationContext;
+
+    private PrecompiledLocaleDefinitionDAO definitionDao;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        applicationContext = createMock(ApplicationContext.class);
+        definitionDao = new PrecompiledLocaleDefinitionDAO(applicationContext);
+        WildcardDefinitionPatternMatcherFactory definitionPatternMatcherFactory =
+            new WildcardDefinitionPatternMatcherFactory();
+        definitionDao.setPatternDefinitionResolver(new BasicPatternDefinitionResolver<Locale>(
+                definitionPatternMatcherFactory, definitionPatternMatcherFactory));
+    }
+
+    /**
+     * Tests that definitions are resolved through locales and inheritance.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testGetDefinition() throws IOException {
+        replay(applicationContext);
+        definitionDao.setPrecompiledDefinitions(createDefinitions());
+
+        Definition definition = definitionDao.getDefinition("test.def.overridden", Locale.FRENCH);
+        assertEquals("/test.jsp", definition.getTemplateAttribute().getValue());
+        assertEquals("France", definition.getAttribute("country").getValue());
+        assertEquals("Definition to be extended", definition.getAttribute("title").getValue());
+        definition = definitionDao.getDefinition("test.def.overridden", Locale.ROOT);
+        assertEquals("default", definition.getAttribute("country").getValue());
+        assertEquals("Definition to be overridden", definition.getAttribute("title").getValue());
+        assertNotNull(definitionDao.getDefinition("test.common.french", Locale.CANADA_FRENCH));
+        assertNull(definitionDao.getDefinition("test.common.french", Locale.ITALIAN));
+        verify(applicationContext);
+    }
+
+    /**
+     * Tests that precompiled definitions are read from a resource, and read
+     * again when it changes.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testPrecompiledResource() throws IOException {
+        File file = directory.resolve("tiles-definitions.bin").toFile();
+        ApplicationResource resource = new URLApplicationResource("/META-INF/tiles-definitions.bin",
+                file.toURI().toURL());
+        expect(applicationContext.getResource("/META-INF/tiles-definitions.bin")).andReturn(resource).anyTimes();
+        replay(applicationContext);
+        PrecompiledDefinitions definitions = createDefinitions();
+        write(definitions, file, 1000L);
+        definitionDao.setCheckRefresh(true);
+        definitionDao.setPrecompiledResource(resource);
+        assertNotNull(definitionDao.getDefinition("test.def1", Locale.ROOT));
+        assertNull(definitionDao.getDefinition("test.added", Locale.ROOT));
+
+        definitions.addDefinitions(Locale.ROOT, Collections.singletonMap("test.added",
+                new Definition("test.added", Attribute.createTemplateAttribute("/added.jsp"), null)));
+        write(definitions, file, 3000L);
+        assertEquals("/added.jsp", definitionDao.getDefinition("test.added", Locale.ROOT)
+                .getTemplateAttribute().getValue());
+        verify(applicationContext);
+    }
+
+    /**
+     * Tests loading definitions when no precompiled definitions are set.
+     */
+    @Test
+    void testNoPrecompiledDefinitions() {
+        replay(applicationContext);
+        assertThrows(DefinitionsFactoryException.class,
+                () -> definitionDao.getDefinition("test.def1", Locale.ROOT));
+        verify(applicationContext);
+    }
+
+    /**
+     * Creates precompiled definitions from test files.
+     *
+     * @return The definitions.
+     * @throws IOException If something goes wrong.
+     */
+    private PrecompiledDefinitions createDefinitions() throws IOException {
+        PrecompiledDefinitions retValue = new PrecompiledDefinitions();
+        DigesterDefinitionsReader reader = new DigesterDefinitionsReader();
+        try (InputStream stream = getClass().getResourceAsStream("/org/apache/tiles/config/defs1.xml")) {
+            retValue.addDefinitions(Locale.ROOT, reader.read(stream));
+        }
+        try (InputStream stream = getClass().getResourceAsStream("/org/apache/tiles/config/defs1_fr.xml")) {
+            retValue.addDefinitions(Locale.FRENCH, reader.read(stream));
+        }
+        return retValue;
+    }
+
+    /**
+     * Writes precompiled definitions to a file.
+     *
+     * @param definitions The definitions.
+     * @param file The file.
+     * @param lastModified The last modification time of the file.
+     * @throws IOException If something goes wrong.
+     */
+    private void write(PrecompiledDefinitions definitions, File file, long lastModified) throws IOException {
+        try (OutputStream stream = new FileOutputStream(file)) {
+            definitions.write(stream);
+        }
+        file.setLastModified(lastModified);
+    }
+}
@@ -26,6 +26,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -88,6 +89,7 @@ class ResolvingLocaleUrlDefinitionDAOTest {
                     .getResource("org/apache/tiles/config/" + filename + "_" + locale.toString() + ".xml"));
             assertNotNull(urlLocale, "Could not load " + filename + "_" + locale.toString() + " file.");
             localeResources.put(locale, urlLocale);
+            expect(applicationContext.getResource(urlLocale.getLocalePath())).andReturn(urlLocale).anyTimes();
         }
         for (Locale locale : new Locale[] { Locale.CANADA_FRENCH, Locale.FRENCH, Locale.US, Locale.ENGLISH,
                 Locale.CHINA, Locale.CHINESE, Locale.ITALY, Locale.ITALIAN, new Locale("es", "CO"), new Locale("es", "CA") }) {
@@ -339,6 +341,69 @@ class ResolvingLocaleUrlDefinitionDAOTest {
         verify(applicationContext);
     }
 
+    /**
+     * Tests {@link ResolvingLocaleUrlDefinitionDAO#refreshSources(java.util.Collection)}.
+     */
+    @Test
+    void testRefreshSources() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        definitionDao.setSources(sourceURLs);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+
+        Map<String, Definition> frenchDefinitions = definitionDao.getDefinitions(Locale.FRENCH);
+
+        definitionDao.refreshSources(Collections.singleton("org/apache/tiles/config/defs1_fr.xml"));
+
+        Map<String, Definition> newDefinitions = definitionDao.getDefinitions(Locale.FRENCH);
+        assertNotSame(frenchDefinitions, newDefinitions);
+        assertEquals(frenchDefinitions, newDefinitions);
+        assertSame(frenchDefinitions.get("test.common"), newDefinitions.get("test.common"));
+        assertSame(frenchDefinitions.get("test.def.toextend"), newDefinitions.get("test.def.toextend"));
+        assertNotSame(frenchDefinitions.get("test.def1"), newDefinitions.get("test.def1"));
+        assertNotSame(frenchDefinitions.get("test.def.overridden"), newDefinitions.get("test.def.overridden"));
+        Definition definition = newDefinitions.get("test.def.overridden");
+        assertEquals("France", definition.getAttribute("country").getValue());
+        assertEquals("/test.jsp", definition.getTemplateAttribute().getValue());
+    }
+
+    /**
+     * Tests that definitions of a locale are shared with its parent locale,
+     * unless overridden.
+     */
+    @Test
+    void testSharedParentDefinitions() {
+        List<ApplicationResource> sourceURLs = new ArrayList<ApplicationResource>();
+        sourceURLs.add(url1);
+        sourceURLs.add(url2);
+        definitionDao.setSources(sourceURLs);
+        definitionDao.setReader(new DigesterDefinitionsReader());
+
+        Map<String, Definition> frenchDefinitions = definitionDao.getDefinitions(Locale.FRENCH);
+        Map<String, Definition> defaultDefinitions = definitionDao.getDefinitions(null);
+        Map<String, Definition> canadaFrenchDefinitions = definitionDao.getDefinitions(Locale.CANADA_FRENCH);
+
+        assertEquals(new ArrayList<String>(defaultDefinitions.keySet()),
+                new ArrayList<String>(frenchDefinitions.keySet()).subList(0, defaultDefinitions.size()));
+        assertEquals(defaultDefinitions.size() + 1, frenchDefinitions.size());
+        assertSame(defaultDefinitions.get("test.common"), frenchDefinitions.get("test.common"));
+        assertSame(defaultDefinitions.get("test.def2"), frenchDefinitions.get("test.def2"));
+        assertNotSame(defaultDefinitions.get("test.def1"), frenchDefinitions.get("test.def1"));
+        assertEquals("France", frenchDefinitions.get("test.def1").getAttribute("country").getValue());
+        Definition definition = frenchDefinitions.get("test.def.overridden");
+        assertEquals("France", definition.getAttribute("country").getValue());
+        assertEquals("Definition to be extended", definition.getAttribute("title").getValue());
+        assertEquals("/test.jsp", definition.getTemplateAttribute().getValue());
+        assertEquals("default", defaultDefinitions.get("test.def.overridden")
+                .getAttribute("country").getValue());
+
+        assertSame(frenchDefinitions.get("test.def.overridden"),
+                canadaFrenchDefinitions.get("test.def.overridden"));
+        assertSame(frenchDefinitions.get("test.common.french"),
+                canadaFrenchDefinitions.get("test.common.french"));
+        assertEquals("Canada", canadaFrenchDefinitions.get("test.def1").getAttribute("country").getValue());
+    }
+
     /**
      * Tests
      * {@link ResolvingLocaleUrlDefinitionDAO#getDefinition(String, Locale)}
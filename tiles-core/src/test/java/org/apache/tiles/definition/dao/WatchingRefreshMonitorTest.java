@@ -0,0 +1,177 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.dao;
+
+import static org.easymock.EasyMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.apache.tiles.definition.pattern.BasicPatternDefinitionResolver;
+import org.apache.tiles.definition.pattern.wildcard.WildcardDefinitionPatternMatcherFactory;
+import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.ApplicationResource;
+import org.apache.tiles.request.locale.URLApplicationResource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link WatchingRefreshMonitor}.
+ *
+ * @version $Rev$ $Date$
+ */
+class WatchingRefreshMonitorTest {
+
+    /**
+     * The maximum time to wait for a refresh, in milliseconds.
+     */
+    private static final long TIMEOUT = 10000L;
+
+    /**
+     * The directory where sources are written.
+     */
+    @TempDir
+    Path directory;
+
+    private File file;
+
+    private CachingLocaleUrlDefinitionDAO dao;
+
+    private WatchingRefreshMonitor monitor;
+
+    /**
+     * Sets up the test.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("tiles.xml").toFile();
+        writeDefinitions("/test.jsp", 1000L);
+        ApplicationResource resource = new URLApplicationResource("/WEB-INF/tiles.xml", file.toURI().toURL());
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        expect(applicationContext.getResource("/WEB-INF/tiles.xml")).andReturn(resource).anyTimes();
+        expect(applicationContext.getResource(resource, Locale.ROOT)).andReturn(resource).anyTimes();
+        replay(applicationContext);
+        dao = new CachingLocaleUrlDefinitionDAO(applicationContext);
+        WildcardDefinitionPatternMatcherFactory definitionPatternMatcherFactory =
+            new WildcardDefinitionPatternMatcherFactory();
+        dao.setPatternDefinitionResolver(new BasicPatternDefinitionResolver<Locale>(
+                definitionPatternMatcherFactory, definitionPatternMatcherFactory));
+        List<ApplicationResource> sources = new ArrayList<ApplicationResource>();
+        sources.add(resource);
+        dao.setSources(sources);
+        dao.setReader(new DigesterDefinitionsReader());
+        monitor = new WatchingRefreshMonitor(dao);
+        monitor.setPollingInterval(50L);
+    }
+
+    /**
+     * Tears down the test.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @AfterEach
+    void tearDown() throws IOException {
+        monitor.close();
+    }
+
+    /**
+     * Tests that a changed file is reloaded in background.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws InterruptedException If something goes wrong.
+     */
+    @Test
+    void testRefresh() throws IOException, InterruptedException {
+        assertEquals("/test.jsp", getTemplate());
+        monitor.start();
+        assertFalse(monitor.refreshRequired());
+
+        writeDefinitions("/newtest.jsp", 3000L);
+
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (!"/newtest.jsp".equals(getTemplate()) && System.currentTimeMillis() < end) {
+            Thread.sleep(50L);
+        }
+        assertEquals("/newtest.jsp", getTemplate());
+    }
+
+    /**
+     * Tests that a deleted file is reloaded in background.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws InterruptedException If something goes wrong.
+     */
+    @Test
+    void testDelete() throws IOException, InterruptedException {
+        assertEquals("/test.jsp", getTemplate());
+        monitor.start();
+
+        Files.delete(file.toPath());
+
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (dao.getDefinition("rewrite.test", null) != null && System.currentTimeMillis() < end) {
+            Thread.sleep(50L);
+        }
+        assertNull(dao.getDefinition("rewrite.test", null));
+    }
+
+    /**
+     * Returns the template of the test definition.
+     *
+     * @return The template.
+     */
+    private Object getTemplate() {
+        return dao.getDefinition("rewrite.test", null).getTemplateAttribute().getValue();
+    }
+
+    /**
+     * Writes the test definition file.
+     *
+     * @param template The template of the definition.
+     * @param lastModified The last modification time of the file.
+     * @throws IOException If something goes wrong.
+     */
+    private void writeDefinitions(String template, long lastModified) throws IOException {
+        String xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\" ?>\n"
+                + "<!DOCTYPE tiles-definitions PUBLIC "
+                + "\"-//Apache Software Foundation//DTD Tiles Configuration 3.0//EN\" "
+                + "\"http://tiles.apache.org/dtds/tiles-config_3_0.dtd\">\n\n" + "<tiles-definitions>"
+                + "<definition name=\"rewrite.test\" template=\"" + template + "\">"
+                + "<put-attribute name=\"testparm\" value=\"testval\"/>" + "</definition>"
+                + "</tiles-definitions>";
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.ISO_8859_1));
+        file.setLastModified(lastModified);
+    }
+}
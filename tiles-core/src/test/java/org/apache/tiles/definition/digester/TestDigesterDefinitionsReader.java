@@ -26,8 +26,16 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.digester3.Digester;
+import org.apache.commons.digester3.Rule;
 
 import org.apache.tiles.Attribute;
 import org.apache.tiles.Definition;
@@ -300,11 +308,103 @@ class TestDigesterDefinitionsReader {
     }
 
     /**
-     * Tests {@link DigesterDefinitionsReader#addDefinition(Definition)}.
+     * Tests {@link DigesterDefinitionsReader.ParseContext#addDefinition(Definition)}.
      */
     @Test
     void testAddDefinitionNoName() {
         Definition def = new Definition();
-        assertThrows(DigesterDefinitionsReaderException.class, () -> reader.addDefinition(def));
+        DigesterDefinitionsReader.ParseContext context = new DigesterDefinitionsReader.ParseContext();
+        assertThrows(DigesterDefinitionsReaderException.class, () -> context.addDefinition(def));
+    }
+
+    /**
+     * Tests the deprecated {@link DigesterDefinitionsReader#addDefinition(Definition)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    void testAddDefinition() throws IOException {
+        DigesterDefinitionsReader addingReader = new DigesterDefinitionsReader() {
+
+            @Override
+            protected void initSyntax(Digester digester) {
+                super.initSyntax(digester);
+                final DigesterDefinitionsReader self = this;
+                digester.addRule("tiles-definitions", new Rule() {
+
+                    @Override
+                    public void end(String namespace, String name) {
+                        Definition definition = new Definition();
+                        definition.setName("added.definition");
+                        self.addDefinition(definition);
+                    }
+                });
+            }
+        };
+        assertNotNull(read(addingReader).get("added.definition"));
+        assertThrows(IllegalStateException.class, () -> addingReader.addDefinition(new Definition()));
+    }
+
+    /**
+     * Tests that changing the validation does not mix Digesters with
+     * different settings.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testSetValidatingAfterRead() throws IOException {
+        Map<String, Definition> expected = read(reader);
+        reader.setValidating(true);
+        reader.setValidating(false);
+        assertEquals(expected, read(reader));
+    }
+
+    /**
+     * Tests that a single reader can be used by several threads at the same
+     * time, and that Digesters are reused.
+     *
+     * @throws Exception If something goes wrong.
+     */
+    @Test
+    void testConcurrentRead() throws Exception {
+        AtomicInteger createdDigesters = new AtomicInteger();
+        DigesterDefinitionsReader countingReader = new DigesterDefinitionsReader() {
+
+            @Override
+            protected Digester createDigester() {
+                createdDigesters.incrementAndGet();
+                return super.createDigester();
+            }
+        };
+        Map<String, Definition> expected = read(countingReader);
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Map<String, Definition>>> futures = new ArrayList<Future<Map<String, Definition>>>();
+            for (int i = 0; i < threads * 10; i++) {
+                futures.add(executor.submit(() -> read(countingReader)));
+            }
+            for (Future<Map<String, Definition>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(createdDigesters.get() <= threads + 1);
+    }
+
+    /**
+     * Reads the test definitions file.
+     *
+     * @param definitionsReader The reader to use.
+     * @return The read definitions.
+     * @throws IOException If something goes wrong.
+     */
+    private Map<String, Definition> read(DigesterDefinitionsReader definitionsReader) throws IOException {
+        try (InputStream source = getClass().getClassLoader()
+                .getResourceAsStream("org/apache/tiles/config/tiles-defs.xml")) {
+            return definitionsReader.read(source);
+        }
     }
 }
@@ -0,0 +1,124 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.pattern.regexp.RegexpDefinitionPatternMatcher;
+import org.apache.tiles.definition.pattern.wildcard.WildcardDefinitionPatternMatcher;
+import org.apache.tiles.util.WildcardHelper;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link DefinitionPatternMatcherIndex}.
+ *
+ * @version $Rev$ $Date$
+ */
+class DefinitionPatternMatcherIndexTest {
+
+    private final WildcardHelper wildcardHelper = new WildcardHelper();
+
+    /**
+     * Tests that the first matching pattern wins, even when it has a shorter
+     * prefix than the following ones.
+     */
+    @Test
+    void testCreateDefinitionOrder() {
+        List<DefinitionPatternMatcher> matchers = new ArrayList<DefinitionPatternMatcher>();
+        matchers.add(wildcard("test.page.*", "/page.jsp"));
+        matchers.add(wildcard("test.*", "/test.jsp"));
+        matchers.add(wildcard("test.page.special", "/special.jsp"));
+        matchers.add(regexp("test\\.other\\.(.*)", "/other{1}.jsp"));
+        matchers.add(wildcard("*", "/any.jsp"));
+        DefinitionPatternMatcherIndex index = new DefinitionPatternMatcherIndex(matchers);
+
+        assertTemplate("/page.jsp", index.createDefinition("test.page.special"));
+        assertTemplate("/test.jsp", index.createDefinition("test.other.one"));
+        assertTemplate("/any.jsp", index.createDefinition("other"));
+        assertNull(index.createDefinition("other/path"));
+    }
+
+    /**
+     * Tests that matchers not implementing {@link IndexableDefinitionPatternMatcher}
+     * are tried in their original position.
+     */
+    @Test
+    void testCreateDefinitionNotIndexable() {
+        final DefinitionPatternMatcher wrapped = regexp("test\\.(.*)", "/notIndexed{1}.jsp");
+        List<DefinitionPatternMatcher> matchers = new ArrayList<DefinitionPatternMatcher>();
+        matchers.add(wildcard("test.first.*", "/first.jsp"));
+        matchers.add(new DefinitionPatternMatcher() {
+            @Override
+            public Definition createDefinition(String definitionName) {
+                return wrapped.createDefinition(definitionName);
+            }
+        });
+        matchers.add(wildcard("test.*", "/test.jsp"));
+        DefinitionPatternMatcherIndex index = new DefinitionPatternMatcherIndex(matchers);
+
+        assertTemplate("/first.jsp", index.createDefinition("test.first.one"));
+        assertTemplate("/notIndexed.jsp", index.createDefinition("test."));
+        assertNull(index.createDefinition("other"));
+    }
+
+    /**
+     * Tests that merged regular expressions keep their order and their
+     * substitution variables.
+     */
+    @Test
+    void testCreateDefinitionMerged() {
+        List<DefinitionPatternMatcher> matchers = new ArrayList<DefinitionPatternMatcher>();
+        matchers.add(regexp("test\\.(a+)(b*)", "/first{1}{2}.jsp"));
+        matchers.add(regexp("test\\.(.*)", "/second{1}.jsp"));
+        matchers.add(regexp("test\\.(.)(.)(.)", "/third{3}.jsp"));
+        DefinitionPatternMatcherIndex index = new DefinitionPatternMatcherIndex(matchers);
+
+        assertTemplate("/firstaab.jsp", index.createDefinition("test.aab"));
+        assertTemplate("/secondxyz.jsp", index.createDefinition("test.xyz"));
+        assertNull(index.createDefinition("other.xyz"));
+    }
+
+    private void assertTemplate(String expected, Definition definition) {
+        assertNotNull(definition);
+        assertEquals(expected, definition.getTemplateAttribute().getValue());
+    }
+
+    private DefinitionPatternMatcher wildcard(String pattern, String template) {
+        return new WildcardDefinitionPatternMatcher(pattern, createDefinition(pattern, template), wildcardHelper);
+    }
+
+    private DefinitionPatternMatcher regexp(String pattern, String template) {
+        return new RegexpDefinitionPatternMatcher(pattern, createDefinition(pattern, template));
+    }
+
+    private Definition createDefinition(String name, String template) {
+        Definition definition = new Definition();
+        definition.setName(name);
+        definition.setTemplateAttribute(Attribute.createTemplateAttribute(template));
+        return definition;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.Expression;
+import org.apache.tiles.ListAttribute;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link DefinitionTemplate}.
+ *
+ * @version $Rev$ $Date$
+ */
+class DefinitionTemplateTest {
+
+    /**
+     * Strings that exercise the placeholder syntax.
+     */
+    private static final String[] STRINGS = {
+        "", "plain", "{0}", "{1}{1}", "a{0}b{1}c{2}", "{5}", "{01}", "{ 1 }",
+        "it's {1}", "'{1}'", "''{1}''", "it''s {1} and {2}'s", "'quoted", "{name}",
+        "{name}{1}{other}", "a{b{1}}", "{1{x}", "{{1}}", "}{1}", "x{y}z{1}{w}'{2}'",
+        "{1,number}", "{1", "{$x}{1}", "INVALID_FORMAT_ELEMENT{1}",
+    };
+
+    /**
+     * Tests that strings are replaced like {@link PatternUtil#replacePlaceholders(Definition, String, Object...)}.
+     */
+    @Test
+    void testStringTemplate() {
+        assertSameReplacement(new Object[] {"zero", "one", "two"});
+        assertSameReplacement(new Object[] {"a'b", "{0}", "INVALID_FORMAT_ELEMENT"});
+        assertSameReplacement(new Object[] {"zero", 1234, ""});
+        assertSameReplacement(new Object[0]);
+        assertNull(DefinitionTemplate.StringTemplate.compile(null).apply(new Object[] {"zero"}));
+    }
+
+    /**
+     * Test method for {@link DefinitionTemplate#createDefinition(String, Object...)}.
+     */
+    @Test
+    void testCreateDefinition() {
+        Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+        attributes.put("attrib1", new Attribute("value{2}"));
+        attributes.put("attrib{1}", new Attribute("value{2}{3}", null, "role{1}", "string"));
+        attributes.put("attrib3", new Attribute(null, Expression
+                .createExpression("expr{1}", "EL"), null, null));
+        attributes.put("attrib4", new Attribute(Integer.valueOf(1)));
+        Definition definition = new Definition("definitionName", new Attribute(
+                "template{1}"), attributes);
+        definition.setExtends("{2}ext");
+        definition.setPreparer("{3}prep");
+        ListAttribute list = new ListAttribute();
+        list.setInherit(true);
+        list.add(new Attribute("item{1}"));
+        ListAttribute subList = new ListAttribute();
+        subList.add(new Attribute("subitem{2}"));
+        list.add(subList);
+        definition.putAttribute("list", list, true);
+
+        DefinitionTemplate template = new DefinitionTemplate(definition);
+        Object[] vars = new Object[] {"value0", "value1", null, "value3"};
+        Definition expected = PatternUtil.replacePlaceholders(definition, "nudef", vars);
+        Definition nudef = template.createDefinition("nudef", vars);
+        assertEquals(expected, nudef);
+        assertEquals("nudef", nudef.getName());
+        assertEquals("ext", nudef.getExtends());
+        assertEquals("value3prep", nudef.getPreparer());
+        assertEquals("rolevalue1", nudef.getAttribute("attribvalue1").getRole());
+        assertEquals("exprvalue1", nudef.getAttribute("attrib3").getExpressionObject().getExpression());
+        assertEquals(Integer.valueOf(1), nudef.getAttribute("attrib4").getValue());
+        ListAttribute nuList = (ListAttribute) nudef.getCascadedAttribute("list");
+        assertTrue(nuList.isInherit());
+        assertEquals("itemvalue1", nuList.getValue().get(0).getValue());
+        assertEquals("subitem", ((ListAttribute) nuList.getValue().get(1)).getValue().get(0).getValue());
+        assertNotSame(nudef, template.createDefinition("nudef", vars));
+    }
+
+    /**
+     * Checks that all the test strings are replaced like
+     * {@link PatternUtil#replace(String, Object...)}.
+     *
+     * @param vars The variables.
+     */
+    private void assertSameReplacement(Object[] vars) {
+        for (String st : STRINGS) {
+            String expected;
+            try {
+                expected = PatternUtil.replace(st, vars);
+            } catch (RuntimeException e) {
+                assertThrows(e.getClass(), () -> DefinitionTemplate.StringTemplate.compile(st).apply(vars), st);
+                continue;
+            }
+            assertEquals(expected, DefinitionTemplate.StringTemplate.compile(st).apply(vars), st);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.definition.pattern.regexp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.pattern.IndexableDefinitionPatternMatcher;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link RegexpDefinitionPatternMatcherGroup}.
+ *
+ * @version $Rev$ $Date$
+ */
+class RegexpDefinitionPatternMatcherGroupTest {
+
+    /**
+     * Test method for {@link RegexpDefinitionPatternMatcherGroup#createDefinition(String)}.
+     */
+    @Test
+    void testCreateDefinition() {
+        RegexpDefinitionPatternMatcher first = createMatcher("test\\.(a|b)(x*)", "/first{1}{2}.jsp");
+        RegexpDefinitionPatternMatcher second = createMatcher("test\\.(.*)\\.(.*)", "/second{1}{2}.jsp");
+        RegexpDefinitionPatternMatcher third = createMatcher("test\\.(.*)", "/third{0}.jsp");
+        IndexableDefinitionPatternMatcher group = new RegexpDefinitionPatternMatcherGroup("test.",
+                Collections.singletonList(first)).merge(second).merge(third);
+
+        Definition result = group.createDefinition("test.axx");
+        assertEquals("test.axx", result.getName());
+        assertEquals("/firstaxx.jsp", result.getTemplateAttribute().getValue());
+        assertEquals("/secondonetwo.jsp", group.createDefinition("test.one.two")
+                .getTemplateAttribute().getValue());
+        assertEquals("/thirdtest.one.jsp", group.createDefinition("test.one")
+                .getTemplateAttribute().getValue());
+        assertNull(group.createDefinition("other"));
+    }
+
+    /**
+     * Test method for {@link RegexpDefinitionPatternMatcherGroup#merge(IndexableDefinitionPatternMatcher)}.
+     */
+    @Test
+    void testMerge() {
+        RegexpDefinitionPatternMatcher first = createMatcher("test\\.(.*)", "/first.jsp");
+        assertNotNull(first.merge(createMatcher("test\\.x(.*)", "/second.jsp")));
+        assertNull(first.merge(createMatcher("test\\.(.)\\1", "/second.jsp")));
+        assertNull(first.merge(createMatcher("test\\.(?<name>.*)", "/second.jsp")));
+        assertNull(first.merge(createMatcher("(?x)test\\..* # comment", "/second.jsp")));
+        assertNotNull(first.merge(createMatcher("test\\.(?<=t\\.).*", "/second.jsp")));
+    }
+
+    private RegexpDefinitionPatternMatcher createMatcher(String pattern, String template) {
+        Definition definition = new Definition();
+        definition.setName(pattern);
+        definition.setTemplateAttribute(Attribute.createTemplateAttribute(template));
+        return new RegexpDefinitionPatternMatcher(pattern, definition);
+    }
+}
@@ -54,4 +54,18 @@ class RegexpDefinitionPatternMatcherTest {
         assertEquals("/testOne.jsp", result.getTemplateAttribute().getValue());
         assertEquals("messageTwo", result.getAttribute("body").getValue());
     }
+
+    /**
+     * Test method for {@link RegexpDefinitionPatternMatcher#getLiteralPrefix()}.
+     */
+    @Test
+    void testGetLiteralPrefix() {
+        assertEquals("testDef", new RegexpDefinitionPatternMatcher("testDef(.*)\\.message(.*)", new Definition())
+                .getLiteralPrefix());
+        assertEquals("test.def", new RegexpDefinitionPatternMatcher("test\\.def\\d+", new Definition()).getLiteralPrefix());
+        assertEquals("tes", new RegexpDefinitionPatternMatcher("test?", new Definition()).getLiteralPrefix());
+        assertEquals("test", new RegexpDefinitionPatternMatcher("test+", new Definition()).getLiteralPrefix());
+        assertEquals("", new RegexpDefinitionPatternMatcher("test|other", new Definition()).getLiteralPrefix());
+        assertEquals("", new RegexpDefinitionPatternMatcher("(?i)test", new Definition()).getLiteralPrefix());
+    }
 }
@@ -54,4 +54,19 @@ class WildcardDefinitionPatternMatcherTest {
         assertEquals("/testOne.jsp", result.getTemplateAttribute().getValue());
         assertEquals("messageTwo", result.getAttribute("body").getValue());
     }
+
+    /**
+     * Test method for {@link WildcardDefinitionPatternMatcher#getLiteralPrefix()}.
+     */
+    @Test
+    void testGetLiteralPrefix() {
+        WildcardHelper wildcardHelper = new WildcardHelper();
+        assertEquals("testDef", new WildcardDefinitionPatternMatcher("testDef*.message*", new Definition(), wildcardHelper)
+                .getLiteralPrefix());
+        assertEquals("test*def", new WildcardDefinitionPatternMatcher("test\\*def**", new Definition(), wildcardHelper)
+                .getLiteralPrefix());
+        assertEquals("", new WildcardDefinitionPatternMatcher("*", new Definition(), wildcardHelper).getLiteralPrefix());
+        assertNull(new WildcardDefinitionPatternMatcher("test", new Definition(), wildcardHelper).merge(
+                new WildcardDefinitionPatternMatcher("test", new Definition(), wildcardHelper)));
+    }
 }
@@ -0,0 +1,138 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.sax;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the time needed by {@link SAXDefinitionsReader} and
+ * {@link DigesterDefinitionsReader} to read a large definitions file. It is
+ * not run by default, run it with:
+ * <pre>
+ * mvn test -pl tiles-core -Dtest=DefinitionsReaderBenchmark -Dtiles.benchmark=true
+ * </pre>
+ *
+ * @version $Rev$ $Date$
+ */
+@EnabledIfSystemProperty(named = "tiles.benchmark", matches = "true")
+class DefinitionsReaderBenchmark {
+
+    /**
+     * The number of definitions in the read file.
+     */
+    private static final int DEFINITIONS = 2000;
+
+    /**
+     * The number of reads done before measuring.
+     */
+    private static final int WARMUP_READS = 50;
+
+    /**
+     * The number of measured reads.
+     */
+    private static final int MEASURED_READS = 100;
+
+    /**
+     * The logging object.
+     */
+    private final Logger log = LoggerFactory.getLogger(DefinitionsReaderBenchmark.class);
+
+    /**
+     * Reads the same file with both readers, and logs the average time of a
+     * read.
+     */
+    @Test
+    void benchmarkRead() {
+        byte[] content = createDefinitions();
+        long digesterTime = measure("Digester", content, DigesterDefinitionsReader::new);
+        long saxTime = measure("SAX", content, SAXDefinitionsReader::new);
+        log.info("SAX reader speedup: {}", (double) digesterTime / saxTime);
+    }
+
+    /**
+     * Measures the average time of a read.
+     *
+     * @param name The name of the reader.
+     * @param content The content to read.
+     * @param readerFactory Creates the reader.
+     * @return The average time, in nanoseconds.
+     */
+    private long measure(String name, byte[] content, Supplier<DefinitionsReader> readerFactory) {
+        DefinitionsReader reader = readerFactory.get();
+        for (int i = 0; i < WARMUP_READS; i++) {
+            reader.read(new ByteArrayInputStream(content));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_READS; i++) {
+            assertEquals(DEFINITIONS * 2, reader.read(new ByteArrayInputStream(content)).size());
+        }
+        long retValue = (System.nanoTime() - start) / MEASURED_READS;
+        log.info("{} reader: {} us per read of {} bytes", name, retValue / 1000, content.length);
+        return retValue;
+    }
+
+    /**
+     * Creates a definitions file, containing definitions with attributes,
+     * lists and nested definitions.
+     *
+     * @return The content of the file.
+     */
+    private byte[] createDefinitions() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+                + "<!DOCTYPE tiles-definitions PUBLIC "
+                + "\"-//Apache Software Foundation//DTD Tiles Configuration 3.0//EN\" "
+                + "\"http://tiles.apache.org/dtds/tiles-config_3_0.dtd\">\n<tiles-definitions>\n");
+        for (int i = 0; i < DEFINITIONS; i++) {
+            builder.append("<definition name=\"page").append(i)
+                    .append("\" extends=\"layout\" template=\"/layout.jsp\">\n")
+                    .append("  <put-attribute name=\"title\" value=\"Page ").append(i).append("\"/>\n")
+                    .append("  <put-attribute name=\"header\" value=\"/header.jsp\" cascade=\"true\"/>\n")
+                    .append("  <put-attribute name=\"body\">\n")
+                    .append("    <definition template=\"/body.jsp\">\n")
+                    .append("      <put-attribute name=\"content\" value=\"/content").append(i)
+                    .append(".jsp\"/>\n")
+                    .append("    </definition>\n")
+                    .append("  </put-attribute>\n")
+                    .append("  <put-list-attribute name=\"menu\" inherit=\"true\">\n")
+                    .append("    <add-attribute value=\"/menu1.jsp\"/>\n")
+                    .append("    <add-attribute value=\"/menu2.jsp\" role=\"admin\"/>\n")
+                    .append("    <add-list-attribute>\n")
+                    .append("      <add-attribute value=\"/submenu.jsp\" type=\"template\"/>\n")
+                    .append("    </add-list-attribute>\n")
+                    .append("  </put-list-attribute>\n")
+                    .append("</definition>\n");
+        }
+        builder.append("</tiles-definitions>\n");
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
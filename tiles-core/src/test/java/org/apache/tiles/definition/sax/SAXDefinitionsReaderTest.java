@@ -0,0 +1,225 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.definition.sax;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.tiles.Attribute;
+import org.apache.tiles.Definition;
+import org.apache.tiles.ListAttribute;
+import org.apache.tiles.definition.DefinitionsFactoryException;
+import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link SAXDefinitionsReader}.
+ *
+ * @version $Rev$ $Date$
+ */
+class SAXDefinitionsReaderTest {
+
+    /**
+     * The definition files that are read by both readers.
+     */
+    private static final String[] DEFINITION_FILES = {"org/apache/tiles/config/tiles-defs.xml",
+        "org/apache/tiles/config/tiles-defs-2.1.xml", "org/apache/tiles/config/tiles-defs-2.1_it.xml",
+        "org/apache/tiles/config/defs1.xml", "org/apache/tiles/config/defs-wildcard.xml",
+        "org/apache/tiles/config/defs_regression_TILES-352.xml", "org/apache/tiles/config/temp-defs.xml",
+        "org/apache/tiles/config/invalid-defs.xml"};
+
+    /**
+     * The definitions reader.
+     */
+    private SAXDefinitionsReader reader;
+
+    /**
+     * Sets up the test.
+     */
+    @BeforeEach
+    void setUp() {
+        reader = new SAXDefinitionsReader();
+    }
+
+    /**
+     * Tests the read method under normal conditions.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testRead() throws IOException {
+        Map<String, Definition> definitions = read(reader, "org/apache/tiles/config/tiles-defs.xml");
+
+        assertEquals("Tiles Library Documentation", definitions.get(
+                "doc.mainLayout").getAttribute("title").getValue());
+        Attribute attribute = definitions.get("doc.role.test").getAttribute("title");
+        assertEquals("myrole", attribute.getRole());
+        attribute = definitions.get("doc.listattribute.test").getAttribute("items");
+        assertInstanceOf(ListAttribute.class, attribute);
+        assertInstanceOf(List.class, attribute.getValue());
+    }
+
+    /**
+     * Tests that the same definitions are read as
+     * {@link DigesterDefinitionsReader}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testSameAsDigester() throws IOException {
+        for (String file : DEFINITION_FILES) {
+            Map<String, Definition> expected = read(new DigesterDefinitionsReader(), file);
+            Map<String, Definition> actual = read(new SAXDefinitionsReader(), file);
+            assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(actual.keySet()), file);
+            for (Map.Entry<String, Definition> entry : expected.entrySet()) {
+                Definition definition = actual.get(entry.getKey());
+                assertEquals(entry.getValue(), definition, file + " " + entry.getKey());
+                assertEquals(entry.getValue().getExtends(), definition.getExtends());
+                assertEquals(entry.getValue().getLocalAttributeNames(), definition.getLocalAttributeNames());
+                assertEquals(entry.getValue().getCascadedAttributeNames(), definition.getCascadedAttributeNames());
+            }
+        }
+    }
+
+    /**
+     * Regression test for bug TILES-352, with nested anonymous definitions.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testNestedDefinition() throws IOException {
+        Map<String, Definition> name2defs = read(reader, "org/apache/tiles/config/defs_regression_TILES-352.xml");
+        Attribute attribute = name2defs.get("root").getAttribute("body");
+        assertEquals("definition", attribute.getRenderer());
+        Definition child = name2defs.get(attribute.getValue());
+        assertEquals("$anonymousDefinition1", child.getName());
+        ListAttribute listAttribute = (ListAttribute) child.getAttribute("list");
+        assertEquals("This is a value", listAttribute.getValue().get(0).getValue());
+
+        // Anonymous names are unique across reads.
+        name2defs = read(reader, "org/apache/tiles/config/defs_regression_TILES-352.xml");
+        assertEquals("$anonymousDefinition2", name2defs.get("root").getAttribute("body").getValue());
+    }
+
+    /**
+     * Tests read with bad input source.
+     */
+    @Test
+    void testBadSource() {
+        assertThrows(DefinitionsFactoryException.class, () -> reader.read("Bad Input"));
+    }
+
+    /**
+     * Tests read with bad XML source.
+     */
+    @Test
+    void testBadXml() {
+        assertThrows(DefinitionsFactoryException.class,
+                () -> read(reader, "org/apache/tiles/config/malformed-defs.xml"));
+    }
+
+    /**
+     * Tests {@link SAXDefinitionsReader#setValidating(boolean)}.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testValidating() throws IOException {
+        assertNotNull(read(reader, "org/apache/tiles/config/invalid-defs.xml"));
+        reader.setValidating(true);
+        assertThrows(DefinitionsFactoryException.class,
+                () -> read(reader, "org/apache/tiles/config/invalid-defs.xml"));
+    }
+
+    /**
+     * Tests reading a definition with no name.
+     */
+    @Test
+    void testReadNoName() {
+        String xml = "<tiles-definitions><definition template=\"/test.jsp\"/></tiles-definitions>";
+        assertThrows(DefinitionsFactoryException.class,
+                () -> reader.read(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8))));
+    }
+
+    /**
+     * Tests {@link SAXDefinitionsReader#read(Object)} with no source.
+     */
+    @Test
+    void testReadNoSource() {
+        assertNull(reader.read(null));
+    }
+
+    /**
+     * Tests that the same reader can be used by many threads.
+     *
+     * @throws IOException If something goes wrong.
+     * @throws InterruptedException If something goes wrong.
+     * @throws ExecutionException If something goes wrong.
+     */
+    @Test
+    void testConcurrentReads() throws IOException, InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Map<String, Definition>>> futures = new ArrayList<Future<Map<String, Definition>>>();
+            for (int i = 0; i < 20; i++) {
+                futures.add(executor.submit(() -> read(reader, "org/apache/tiles/config/tiles-defs.xml")));
+            }
+            Map<String, Definition> expected = read(new DigesterDefinitionsReader(),
+                    "org/apache/tiles/config/tiles-defs.xml");
+            for (Future<Map<String, Definition>> future : futures) {
+                assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Reads a definition file from the classpath.
+     *
+     * @param definitionsReader The reader to use.
+     * @param file The path of the file in the classpath.
+     * @return The read definitions.
+     * @throws IOException If something goes wrong.
+     */
+    private Map<String, Definition> read(DefinitionsReader definitionsReader,
+            String file) throws IOException {
+        URL configFile = this.getClass().getClassLoader().getResource(file);
+        assertNotNull(configFile, "Config file not found");
+        try (InputStream source = configFile.openStream()) {
+            return definitionsReader.read(source);
+        }
+    }
+}
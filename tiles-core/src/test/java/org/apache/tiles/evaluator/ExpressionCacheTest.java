@@ -0,0 +1,82 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.evaluator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ExpressionCache}.
+ *
+ * @version $Rev$ $Date$
+ */
+class ExpressionCacheTest {
+
+    /**
+     * Tests {@link ExpressionCache#get(String)} and
+     * {@link ExpressionCache#putIfAbsent(String, Object)}.
+     */
+    @Test
+    void testGetAndPut() {
+        ExpressionCache<Object> cache = new ExpressionCache<Object>();
+        Object parsed = new Object();
+        assertNull(cache.get("expression"));
+        assertSame(parsed, cache.putIfAbsent("expression", parsed));
+        assertSame(parsed, cache.putIfAbsent("expression", new Object()));
+        assertSame(parsed, cache.get("expression"));
+        assertSame(parsed, cache.get("expression"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3.0, cache.getHitRatio(), 0.0001);
+        cache.clear();
+        assertNull(cache.get("expression"));
+    }
+
+    /**
+     * Tests that the cache does not grow beyond its maximum size.
+     */
+    @Test
+    void testEviction() {
+        final int maximumSize = 3;
+        final int expressionCount = 10;
+        ExpressionCache<Object> cache = new ExpressionCache<Object>(maximumSize);
+        for (int i = 0; i < expressionCount; i++) {
+            Object parsed = new Object();
+            assertSame(parsed, cache.putIfAbsent("expression" + i, parsed));
+            assertSame(parsed, cache.get("expression" + i));
+        }
+        assertEquals(maximumSize, cache.size());
+        assertEquals(expressionCount - maximumSize, cache.getEvictionCount());
+    }
+
+    /**
+     * Tests a cache with no room.
+     */
+    @Test
+    void testDisabled() {
+        ExpressionCache<Object> cache = new ExpressionCache<Object>(0);
+        Object parsed = new Object();
+        assertSame(parsed, cache.putIfAbsent("expression", parsed));
+        assertNull(cache.get("expression"));
+        assertEquals(0.0, cache.getHitRatio(), 0.0);
+    }
+}
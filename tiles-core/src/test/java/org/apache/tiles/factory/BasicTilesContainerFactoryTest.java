@@ -23,12 +23,15 @@ package org.apache.tiles.factory;
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.definition.DefinitionsFactory;
 import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.LocaleDefinitionsFactory;
 import org.apache.tiles.definition.UnresolvingLocaleDefinitionsFactory;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.digester.DigesterDefinitionsReader;
 import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
 import org.apache.tiles.evaluator.impl.DirectAttributeEvaluator;
@@ -80,6 +83,7 @@ class BasicTilesContainerFactoryTest {
         resource = new URLApplicationResource("/org/apache/tiles/config/tiles-defs.xml", getClass().getResource(
                 "/org/apache/tiles/config/tiles-defs.xml"));
         EasyMock.expect(applicationContext.getResource("/WEB-INF/tiles.xml")).andReturn(resource);
+        EasyMock.expect(applicationContext.getInitParams()).andReturn(null).anyTimes();
         EasyMock.replay(applicationContext);
         factory = new BasicTilesContainerFactory();
     }
@@ -260,4 +264,53 @@ class BasicTilesContainerFactoryTest {
         assertInstanceOf(DefinitionRenderer.class, renderer, "The renderer class is not correct");
         verify(container, attributeEvaluatorFactory, rendererFactory);
     }
+
+    /**
+     * Tests
+     * {@link BasicTilesContainerFactory#createRefreshMonitor(ApplicationContext,
+     * CachingLocaleUrlDefinitionDAO)}.
+     */
+    @Test
+    void testCreateRefreshMonitor() {
+        ApplicationContext watchingContext = createMock(ApplicationContext.class);
+        expect(watchingContext.getInitParams()).andReturn(Collections.singletonMap(
+                CachingLocaleUrlDefinitionDAO.WATCH_SOURCES_INIT_PARAMETER, "true"));
+        replay(watchingContext);
+        CachingLocaleUrlDefinitionDAO dao = new CachingLocaleUrlDefinitionDAO(watchingContext);
+        assertNotNull(factory.createRefreshMonitor(watchingContext, dao));
+        assertNull(factory.createRefreshMonitor(applicationContext, dao));
+        verify(watchingContext);
+    }
+
+    /**
+     * Tests
+     * {@link BasicTilesContainerFactory#getDefinitionsLoadingParallelism(ApplicationContext)}.
+     */
+    @Test
+    void testGetDefinitionsLoadingParallelism() {
+        ApplicationContext parallelContext = createMock(ApplicationContext.class);
+        expect(parallelContext.getInitParams()).andReturn(Collections.singletonMap(
+                CachingLocaleUrlDefinitionDAO.PARALLEL_LOADING_INIT_PARAMETER, "4"));
+        replay(parallelContext);
+        assertEquals(4, factory.getDefinitionsLoadingParallelism(parallelContext));
+        assertEquals(0, factory.getDefinitionsLoadingParallelism(applicationContext));
+        verify(parallelContext);
+    }
+
+    /**
+     * Tests
+     * {@link BasicTilesContainerFactory#getDefinitionsFlatteningMode(ApplicationContext)}.
+     */
+    @Test
+    void testGetDefinitionsFlatteningMode() {
+        ApplicationContext flatteningContext = createMock(ApplicationContext.class);
+        expect(flatteningContext.getInitParams()).andReturn(Collections.singletonMap(
+                LocaleDefinitionsFactory.FLATTENING_MODE_INIT_PARAMETER, "copy"));
+        replay(flatteningContext);
+        assertEquals(LocaleDefinitionsFactory.FlatteningMode.COPY,
+                factory.getDefinitionsFlatteningMode(flatteningContext));
+        assertEquals(LocaleDefinitionsFactory.FlatteningMode.NONE,
+                factory.getDefinitionsFlatteningMode(applicationContext));
+        verify(flatteningContext);
+    }
 }
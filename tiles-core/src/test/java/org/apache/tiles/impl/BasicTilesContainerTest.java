@@ -71,6 +71,7 @@ class BasicTilesContainerTest {
 
         EasyMock.expect(context.getResource("/WEB-INF/tiles.xml"))
                 .andReturn(resource);
+        EasyMock.expect(context.getInitParams()).andReturn(null).times(2);
         EasyMock.replay(context);
         AbstractTilesContainerFactory factory = new BasicTilesContainerFactory();
         container = (BasicTilesContainer) factory.createContainer(context);
@@ -24,8 +24,8 @@ import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Map;
 
 import org.apache.tiles.Attribute;
@@ -40,6 +40,7 @@ import org.apache.tiles.preparer.ViewPreparer;
 import org.apache.tiles.preparer.factory.NoSuchPreparerException;
 import org.apache.tiles.preparer.factory.PreparerFactory;
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.CachingRequest;
 import org.apache.tiles.request.Request;
 import org.apache.tiles.request.render.CannotRenderException;
 import org.apache.tiles.request.render.NoSuchRendererException;
@@ -638,17 +639,43 @@ class BasicTilesContainerUnitTest {
 
         expect(request.getContext("request")).andReturn(requestScope);
         expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(null);
-        expect(requestScope.put(eq(ATTRIBUTE_CONTEXT_STACK), isA(LinkedList.class))).andReturn(null);
+        expect(requestScope.put(eq(ATTRIBUTE_CONTEXT_STACK), isA(ArrayDeque.class))).andReturn(null);
 
         replay(applicationContext, attributeEvaluatorFactory,
                 definitionsFactory, preparerFactory, rendererFactory, request,
                 requestScope);
-        assertInstanceOf(LinkedList.class, container.getContextStack(request));
+        assertInstanceOf(ArrayDeque.class, container.getContextStack(request));
         verify(applicationContext, attributeEvaluatorFactory,
                 definitionsFactory, preparerFactory, rendererFactory, request,
                 requestScope);
     }
 
+    /**
+     * Test method for {@link BasicTilesContainer#getContextStack(Request)},
+     * when the stack is cached in the request.
+     */
+    @Test
+    void testGetContextStackCached() {
+        CachingRequest request = createMock(CachingRequest.class);
+        Map<String, Object> requestScope = createMock(Map.class);
+        Deque<AttributeContext> deque = createMock(Deque.class);
+
+        expect(request.getCachedObject(ATTRIBUTE_CONTEXT_STACK)).andReturn(null);
+        expect(request.getContext("request")).andReturn(requestScope);
+        expect(requestScope.get(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+        request.setCachedObject(ATTRIBUTE_CONTEXT_STACK, deque);
+        expect(request.getCachedObject(ATTRIBUTE_CONTEXT_STACK)).andReturn(deque);
+
+        replay(applicationContext, attributeEvaluatorFactory,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                requestScope, deque);
+        assertSame(deque, container.getContextStack(request));
+        assertSame(deque, container.getContextStack(request));
+        verify(applicationContext, attributeEvaluatorFactory,
+                definitionsFactory, preparerFactory, rendererFactory, request,
+                requestScope, deque);
+    }
+
     /**
      * Test method for {@link BasicTilesContainer#pushContext(org.apache.tiles.AttributeContext, Request)}.
      */
@@ -25,11 +25,16 @@ import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 
+import java.io.IOException;
 import java.util.Map;
 
 import org.apache.tiles.TilesContainer;
+import org.apache.tiles.TilesContainerWrapper;
 import org.apache.tiles.access.TilesAccess;
+import org.apache.tiles.definition.UnresolvingLocaleDefinitionsFactory;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.factory.AbstractTilesContainerFactory;
+import org.apache.tiles.impl.BasicTilesContainer;
 import org.apache.tiles.request.ApplicationAccess;
 import org.apache.tiles.request.ApplicationContext;
 import org.junit.jupiter.api.BeforeEach;
@@ -90,6 +95,37 @@ class AbstractTilesInitializerTest {
         verify(containerFactory, context, container, scope);
     }
 
+    /**
+     * Tests that {@link AbstractTilesInitializer#destroy()} closes the
+     * definition DAO of the container.
+     *
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testDestroyClosesDefinitionDao() throws IOException {
+        ApplicationContext context = createMock(ApplicationContext.class);
+        Map<String, Object> scope = createMock(Map.class);
+        CachingLocaleUrlDefinitionDAO definitionDao = createMock(CachingLocaleUrlDefinitionDAO.class);
+        UnresolvingLocaleDefinitionsFactory definitionsFactory = new UnresolvingLocaleDefinitionsFactory();
+        definitionsFactory.setDefinitionDAO(definitionDao);
+        BasicTilesContainer basicContainer = new BasicTilesContainer();
+        basicContainer.setDefinitionsFactory(definitionsFactory);
+        TilesContainer container = new TilesContainerWrapper(basicContainer);
+
+        expect(containerFactory.createContainer(context)).andReturn(container);
+        expect(context.getApplicationScope()).andReturn(scope).anyTimes();
+        expect(scope.put(ApplicationAccess.APPLICATION_CONTEXT_ATTRIBUTE,
+                context)).andReturn(null);
+        expect(scope.put(TilesAccess.CONTAINER_ATTRIBUTE, container)).andReturn(null);
+        expect(scope.remove(TilesAccess.CONTAINER_ATTRIBUTE)).andReturn(container);
+        definitionDao.close();
+
+        replay(containerFactory, context, scope, definitionDao);
+        initializer.initialize(context);
+        initializer.destroy();
+        verify(containerFactory, context, scope, definitionDao);
+    }
+
     /**
      * Test method for {@link AbstractTilesInitializer#createTilesApplicationContext(ApplicationContext)}.
      */
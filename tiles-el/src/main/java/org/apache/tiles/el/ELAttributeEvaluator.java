@@ -25,6 +25,7 @@ import jakarta.el.ExpressionFactory;
 import jakarta.el.ValueExpression;
 
 import org.apache.tiles.evaluator.AbstractAttributeEvaluator;
+import org.apache.tiles.evaluator.ExpressionCache;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 
@@ -33,6 +34,9 @@ import org.apache.tiles.request.Request;
  * You can use normal EL syntax, knowing that the root objects are
  * {@link Request}, {@link ApplicationContext} and beans
  * contained in request, session and application scope.
+ * <p>
+ * Parsed expressions are cached, so that each expression is parsed only once.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.1
@@ -62,6 +66,11 @@ public class ELAttributeEvaluator extends AbstractAttributeEvaluator {
      */
     protected ELResolver resolver;
 
+    /**
+     * The cache of parsed expressions.
+     */
+    private ExpressionCache<ValueExpression> expressionCache = new ExpressionCache<ValueExpression>();
+
     /**
      * Constructor.
      *
@@ -90,16 +99,82 @@ public class ELAttributeEvaluator extends AbstractAttributeEvaluator {
         this.resolver = resolver;
     }
 
+    /**
+     * Sets the cache of parsed expressions. If not called, a cache with the
+     * default size is used.
+     *
+     * @param expressionCache The expression cache.
+     * @since 4.0.0
+     */
+    public void setExpressionCache(ExpressionCache<ValueExpression> expressionCache) {
+        this.expressionCache = expressionCache;
+    }
+
+    /**
+     * Returns the cache of parsed expressions, e.g. to check its statistics.
+     *
+     * @return The expression cache.
+     * @since 4.0.0
+     */
+    public ExpressionCache<ValueExpression> getExpressionCache() {
+        return expressionCache;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Object evaluate(String expression, Request request) {
-        ELContextImpl context = new ELContextImpl(resolver);
-        context.putContext(Request.class, request);
-        context.putContext(ApplicationContext.class,
-                request.getApplicationContext());
-        ValueExpression valueExpression = expressionFactory
-                .createValueExpression(context, expression, Object.class);
+        EvaluationContext context = new EvaluationContext(resolver, request);
+        // The parsed expression does not depend on the context, since it has
+        // no functions nor variables, so it can be shared.
+        ValueExpression valueExpression = expressionCache.get(expression);
+        if (valueExpression == null) {
+            valueExpression = expressionCache.putIfAbsent(expression,
+                    expressionFactory.createValueExpression(context, expression, Object.class));
+        }
 
         return valueExpression.getValue(context);
     }
+
+    /**
+     * The EL context used for a single evaluation. It returns the request and
+     * the application context without storing them in the context map.
+     */
+    private static final class EvaluationContext extends ELContextImpl {
+
+        /**
+         * The request.
+         */
+        private final Request request;
+
+        /**
+         * The application context, retrieved when first needed.
+         */
+        private ApplicationContext applicationContext;
+
+        /**
+         * Constructor.
+         *
+         * @param resolver The EL resolver.
+         * @param request The request.
+         */
+        private EvaluationContext(ELResolver resolver, Request request) {
+            super(resolver);
+            this.request = request;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object getContext(Class<?> key) {
+            if (key == Request.class) {
+                return request;
+            }
+            if (key == ApplicationContext.class) {
+                if (applicationContext == null) {
+                    applicationContext = request.getApplicationContext();
+                }
+                return applicationContext;
+            }
+            return super.getContext(key);
+        }
+    }
 }
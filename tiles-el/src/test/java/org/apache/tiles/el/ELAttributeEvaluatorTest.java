@@ -34,9 +34,11 @@ import jakarta.el.MapELResolver;
 import jakarta.el.ResourceBundleELResolver;
 
 import jakarta.el.StaticFieldELResolver;
+import jakarta.el.ValueExpression;
 import org.apache.el.ExpressionFactoryImpl;
 import org.apache.tiles.Attribute;
 import org.apache.tiles.Expression;
+import org.apache.tiles.evaluator.ExpressionCache;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 import org.junit.jupiter.api.BeforeEach;
@@ -182,6 +184,29 @@ public class ELAttributeEvaluatorTest {
                 .evaluate(expression, request), "The value is not correct");
     }
 
+    /**
+     * Tests that {@link ELAttributeEvaluator#evaluate(String, Request)} parses
+     * an expression only once, and evaluates it against the current request.
+     */
+    @Test
+    void testEvaluateCached() {
+        String expression = "${requestScope.object1}";
+        assertEquals("value", evaluator.evaluate(expression, request));
+        assertEquals("value", evaluator.evaluate(expression, request));
+        ExpressionCache<ValueExpression> cache = evaluator.getExpressionCache();
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put("object1", "other value");
+        Request otherRequest = createMock(Request.class);
+        expect(otherRequest.getContext("request")).andReturn(requestScope).anyTimes();
+        replay(otherRequest);
+        assertEquals("other value", evaluator.evaluate(expression, otherRequest));
+        assertEquals(2, cache.getHitCount());
+    }
+
     /**
      * This is The Brillant Paula Bean (sic) just like it was posted to:
      * http://thedailywtf.com/Articles/The_Brillant_Paula_Bean.aspx
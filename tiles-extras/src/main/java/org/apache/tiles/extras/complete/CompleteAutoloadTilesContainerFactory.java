@@ -35,6 +35,9 @@ import org.apache.tiles.TilesContainer;
 import org.apache.tiles.compat.definition.digester.CompatibilityDigesterDefinitionsReader;
 import org.apache.tiles.context.TilesRequestContextHolder;
 import org.apache.tiles.definition.DefinitionsReader;
+import org.apache.tiles.definition.dao.BaseLocaleUrlDefinitionDAO;
+import org.apache.tiles.definition.dao.BinaryDefinitionsCache;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.pattern.DefinitionPatternMatcherFactory;
 import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
 import org.apache.tiles.definition.pattern.PrefixedPatternDefinitionResolver;
@@ -47,6 +50,7 @@ import org.apache.tiles.el.TilesContextBeanELResolver;
 import org.apache.tiles.el.TilesContextELResolver;
 import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
 import org.apache.tiles.evaluator.BasicAttributeEvaluatorFactory;
+import org.apache.tiles.extras.definition.dao.CaffeineResolvedDefinitionCacheFactory;
 import org.apache.tiles.factory.BasicTilesContainerFactory;
 import org.apache.tiles.factory.TilesContainerFactoryException;
 import org.apache.tiles.freemarker.TilesSharedVariableFactory;
@@ -76,10 +80,12 @@ import org.apache.tiles.request.render.ChainedDelegateRenderer;
 import org.apache.tiles.request.render.Renderer;
 import org.mvel2.integration.VariableResolverFactory;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.regex.Pattern;
 
 /**
@@ -89,6 +95,11 @@ import java.util.regex.Pattern;
  * <li>create renderers for Velocity, FreeMarker, and Mustache templates;</li>
  * <li>allows using EL, MVEL and OGNL as attribute expressions;</li>
  * <li>allows using Wildcards and Regular Expressions in definition names;</li>
+ * <li>caches the definitions resolved through patterns with Caffeine;</li>
+ * <li>caches the parsed definition files in the temporary directory of the
+ * web application, if any, when the
+ * {@link CachingLocaleUrlDefinitionDAO#DEFINITIONS_CACHE_INIT_PARAMETER}
+ * initialization parameter is <code>true</code>;</li>
  * <li>loads Tiles 1.x definition files;</li>
  * <li>loads all the definition files that have the "tiles*.xml" pattern under
  * <code>/WEB-INF</code> directory (and subdirectories) and under
@@ -114,6 +125,17 @@ public class CompleteAutoloadTilesContainerFactory extends BasicTilesContainerFa
      */
     private static final String MUSTACHE_RENDERER_NAME = "mustache";
 
+    /**
+     * The application scope attribute holding the temporary directory of the
+     * web application.
+     */
+    private static final String TEMPDIR_ATTRIBUTE = "jakarta.servlet.context.tempdir";
+
+    /**
+     * The name of the file where parsed definitions are cached.
+     */
+    private static final String DEFINITIONS_CACHE_FILE = "tiles-definitions.bin";
+
     /** {@inheritDoc} */
     @Override
     public TilesContainer createDecoratedContainer(TilesContainer originalContainer,
@@ -180,6 +202,42 @@ public class CompleteAutoloadTilesContainerFactory extends BasicTilesContainerFa
         return attributeEvaluatorFactory;
     }
 
+    /** {@inheritDoc} */
+    @Override
+    protected BaseLocaleUrlDefinitionDAO instantiateLocaleDefinitionDao(ApplicationContext applicationContext,
+            LocaleResolver resolver) {
+        BaseLocaleUrlDefinitionDAO dao = super.instantiateLocaleDefinitionDao(applicationContext, resolver);
+        if (dao instanceof CachingLocaleUrlDefinitionDAO) {
+            CachingLocaleUrlDefinitionDAO cachingDao = (CachingLocaleUrlDefinitionDAO) dao;
+            cachingDao.setResolvedDefinitionCacheFactory(new CaffeineResolvedDefinitionCacheFactory());
+        }
+        return dao;
+    }
+
+    /**
+     * Creates a cache of the parsed definition files in the temporary
+     * directory of the web application, if the
+     * {@link CachingLocaleUrlDefinitionDAO#DEFINITIONS_CACHE_INIT_PARAMETER}
+     * initialization parameter is <code>true</code>.
+     *
+     * @param applicationContext The Tiles application context.
+     * @return The cache, or <code>null</code> if disabled or if there is no
+     * temporary directory.
+     */
+    @Override
+    protected BinaryDefinitionsCache createDefinitionsCache(ApplicationContext applicationContext) {
+        Map<String, String> initParams = applicationContext.getInitParams();
+        if (initParams == null || !Boolean.parseBoolean(
+                initParams.get(CachingLocaleUrlDefinitionDAO.DEFINITIONS_CACHE_INIT_PARAMETER))) {
+            return null;
+        }
+        Object tempDir = applicationContext.getApplicationScope().get(TEMPDIR_ATTRIBUTE);
+        if (tempDir instanceof File) {
+            return new BinaryDefinitionsCache(new File((File) tempDir, DEFINITIONS_CACHE_FILE));
+        }
+        return null;
+    }
+
     /** {@inheritDoc} */
     @Override
     protected <T> PatternDefinitionResolver<T> createPatternDefinitionResolver(Class<T> customizationKeyClass) {
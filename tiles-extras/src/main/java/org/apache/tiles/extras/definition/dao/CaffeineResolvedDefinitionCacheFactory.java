@@ -0,0 +1,168 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.extras.definition.dao;
+
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.ResolvedDefinitionCache;
+import org.apache.tiles.definition.dao.ResolvedDefinitionCacheFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+
+/**
+ * Creates Caffeine caches of pattern-resolved definitions. Caffeine uses a
+ * frequency-aware eviction policy, so definitions that are requested often
+ * survive a burst of one-shot names. The caches can be bounded by the number
+ * of definitions, or by a weight that grows with the number of attributes of
+ * each definition. Statistics are collected for all the created caches.
+ *
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class CaffeineResolvedDefinitionCacheFactory implements ResolvedDefinitionCacheFactory {
+
+    /**
+     * The default maximum number of definitions cached for each locale.
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1000L;
+
+    /**
+     * The maximum number of definitions cached for each locale.
+     */
+    private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+    /**
+     * The maximum weight of the definitions cached for each locale, or
+     * <code>-1</code> if the caches are bounded by size.
+     */
+    private long maximumWeight = -1L;
+
+    /**
+     * Collects the statistics of all the created caches.
+     */
+    private final ConcurrentStatsCounter statsCounter = new ConcurrentStatsCounter();
+
+    /**
+     * Sets the maximum number of definitions cached for each locale. It
+     * applies to the caches created afterwards. If not called, the default is
+     * {@link #DEFAULT_MAXIMUM_SIZE}.
+     *
+     * @param maximumSize The maximum number of definitions.
+     */
+    public void setMaximumSize(long maximumSize) {
+        this.maximumSize = maximumSize;
+        this.maximumWeight = -1L;
+    }
+
+    /**
+     * Bounds the caches created afterwards by weight instead of size. A
+     * definition weighs one, plus one for each of its local and cascaded
+     * attributes.
+     *
+     * @param maximumWeight The maximum weight of the definitions cached for
+     * each locale.
+     */
+    public void setMaximumWeight(long maximumWeight) {
+        this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Returns the statistics collected so far, for all the created caches.
+     *
+     * @return The statistics.
+     */
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ResolvedDefinitionCache createCache(Locale locale) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats(() -> statsCounter);
+        Cache<String, Definition> cache;
+        if (maximumWeight >= 0) {
+            cache = builder.maximumWeight(maximumWeight)
+                    .weigher(CaffeineResolvedDefinitionCacheFactory::weigh).build();
+        } else {
+            cache = builder.maximumSize(maximumSize).build();
+        }
+        return new CaffeineResolvedDefinitionCache(cache);
+    }
+
+    /**
+     * Computes the weight of a definition.
+     *
+     * @param name The name of the definition.
+     * @param definition The definition.
+     * @return The weight.
+     */
+    private static int weigh(String name, Definition definition) {
+        int weight = 1;
+        Set<String> names = definition.getLocalAttributeNames();
+        if (names != null) {
+            weight += names.size();
+        }
+        names = definition.getCascadedAttributeNames();
+        if (names != null) {
+            weight += names.size();
+        }
+        return weight;
+    }
+
+    /**
+     * A cache of definitions backed by a Caffeine cache.
+     */
+    private static final class CaffeineResolvedDefinitionCache implements ResolvedDefinitionCache {
+
+        /**
+         * The Caffeine cache.
+         */
+        private final Cache<String, Definition> cache;
+
+        /**
+         * Constructor.
+         *
+         * @param cache The Caffeine cache.
+         */
+        private CaffeineResolvedDefinitionCache(Cache<String, Definition> cache) {
+            this.cache = cache;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Definition get(String name) {
+            return cache.getIfPresent(name);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Definition putIfAbsent(String name, Definition definition) {
+            Definition retValue = cache.asMap().putIfAbsent(name, definition);
+            return retValue != null ? retValue : definition;
+        }
+    }
+}
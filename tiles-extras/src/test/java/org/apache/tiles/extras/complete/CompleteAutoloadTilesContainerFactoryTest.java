@@ -25,9 +25,11 @@ import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertInstanceOf;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
@@ -45,6 +47,7 @@ import org.apache.tiles.Attribute;
 import org.apache.tiles.Definition;
 import org.apache.tiles.TilesContainer;
 import org.apache.tiles.compat.definition.digester.CompatibilityDigesterDefinitionsReader;
+import org.apache.tiles.definition.dao.CachingLocaleUrlDefinitionDAO;
 import org.apache.tiles.definition.pattern.PatternDefinitionResolver;
 import org.apache.tiles.definition.pattern.PrefixedPatternDefinitionResolver;
 import org.apache.tiles.evaluator.AttributeEvaluatorFactory;
@@ -330,4 +333,26 @@ class CompleteAutoloadTilesContainerFactoryTest {
         verify(applicationContext);
     }
 
+    /**
+     * Test method for
+     * {@link CompleteAutoloadTilesContainerFactory
+     * #createDefinitionsCache(ApplicationContext)}
+     * .
+     */
+    @Test
+    void testCreateDefinitionsCache() {
+        ApplicationContext applicationContext = createMock(ApplicationContext.class);
+        Map<String, String> initParams = new HashMap<String, String>();
+        Map<String, Object> applicationScope = new HashMap<String, Object>();
+        applicationScope.put("jakarta.servlet.context.tempdir", new File(System.getProperty("java.io.tmpdir")));
+
+        expect(applicationContext.getInitParams()).andReturn(initParams).times(2);
+        expect(applicationContext.getApplicationScope()).andReturn(applicationScope);
+
+        replay(applicationContext);
+        assertNull(factory.createDefinitionsCache(applicationContext));
+        initParams.put(CachingLocaleUrlDefinitionDAO.DEFINITIONS_CACHE_INIT_PARAMETER, "true");
+        assertNotNull(factory.createDefinitionsCache(applicationContext));
+        verify(applicationContext);
+    }
 }
@@ -0,0 +1,61 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.tiles.extras.definition.dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Locale;
+
+import org.apache.tiles.Definition;
+import org.apache.tiles.definition.dao.ResolvedDefinitionCache;
+import org.junit.jupiter.api.Test;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Tests {@link CaffeineResolvedDefinitionCacheFactory}.
+ *
+ * @version $Rev$ $Date$
+ */
+class CaffeineResolvedDefinitionCacheFactoryTest {
+
+    /**
+     * Tests that cached definitions are found, and that statistics are
+     * collected for all the caches.
+     */
+    @Test
+    void testCreateCache() {
+        CaffeineResolvedDefinitionCacheFactory factory = new CaffeineResolvedDefinitionCacheFactory();
+        ResolvedDefinitionCache cache = factory.createCache(Locale.ROOT);
+        Definition definition = new Definition();
+
+        assertNull(cache.get("definition"));
+        assertSame(definition, cache.putIfAbsent("definition", definition));
+        assertSame(definition, cache.putIfAbsent("definition", new Definition()));
+        assertSame(definition, cache.get("definition"));
+        assertNull(factory.createCache(Locale.ITALY).get("definition"));
+
+        CacheStats stats = factory.stats();
+        assertEquals(1L, stats.hitCount());
+        assertEquals(2L, stats.missCount());
+    }
+}
@@ -30,6 +30,7 @@ import java.net.URL;
 import jakarta.servlet.ServletContext;
 
 import org.apache.tiles.request.ApplicationContext;
+import org.apache.tiles.request.servlet.wildcard.WildcardServletApplicationContext;
 import org.apache.tiles.startup.TilesInitializer;
 import org.junit.jupiter.api.Test;
 
@@ -54,6 +55,8 @@ class ModularTilesInitializerTest {
 
         expect(preliminaryContext.getContext()).andReturn(servletContext);
         expect(servletContext.getResource("/META-INF/MANIFEST.MF")).andReturn(manifestUrl);
+        expect(servletContext.getInitParameter(WildcardServletApplicationContext.CLASSPATH_INDEX_INIT_PARAMETER))
+                .andReturn(null);
 
         replay(preliminaryContext, servletContext);
         ModularTilesInitializer initializer = new ModularTilesInitializer();
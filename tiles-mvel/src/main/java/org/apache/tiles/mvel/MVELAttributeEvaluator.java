@@ -21,11 +21,20 @@
 
 package org.apache.tiles.mvel;
 
+import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
+
 import org.apache.tiles.context.TilesRequestContextHolder;
 import org.apache.tiles.evaluator.AbstractAttributeEvaluator;
+import org.apache.tiles.evaluator.ExpressionCache;
 import org.apache.tiles.request.Request;
 import org.mvel2.MVEL;
+import org.mvel2.OptimizationFailure;
+import org.mvel2.PropertyAccessException;
 import org.mvel2.integration.VariableResolverFactory;
+import org.mvel2.optimizers.OptimizationNotSupported;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Allows to use MVEL as the language to evaluate attribute values.
@@ -35,6 +44,11 @@ import org.mvel2.integration.VariableResolverFactory;
  */
 public class MVELAttributeEvaluator extends AbstractAttributeEvaluator {
 
+    /**
+     * The logging object.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(MVELAttributeEvaluator.class);
+
     /**
      * Holds the Tiles request context of the current thread.
      */
@@ -47,6 +61,11 @@ public class MVELAttributeEvaluator extends AbstractAttributeEvaluator {
      */
     private final VariableResolverFactory variableResolverFactory;
 
+    /**
+     * The cache of compiled expressions.
+     */
+    private ExpressionCache<CompiledExpression> expressionCache = new ExpressionCache<CompiledExpression>();
+
     /**
      * Constructor.
      *
@@ -61,17 +80,154 @@ public class MVELAttributeEvaluator extends AbstractAttributeEvaluator {
         this.variableResolverFactory = variableResolverFactory;
     }
 
+    /**
+     * Sets the cache of compiled expressions. If not called, a cache with the
+     * default size is used.
+     *
+     * @param expressionCache The expression cache.
+     * @since 4.0.0
+     */
+    public void setExpressionCache(ExpressionCache<CompiledExpression> expressionCache) {
+        this.expressionCache = expressionCache;
+    }
+
+    /**
+     * Returns the cache of compiled expressions, e.g. to check its statistics.
+     *
+     * @return The expression cache.
+     * @since 4.0.0
+     */
+    public ExpressionCache<CompiledExpression> getExpressionCache() {
+        return expressionCache;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Object evaluate(String expression, Request request) {
         if (expression == null) {
             throw new IllegalArgumentException("The expression parameter cannot be null");
         }
+        // Compiled expressions do not keep any variable, they are resolved
+        // through the factory at each execution, so they can be shared.
+        CompiledExpression compiledExpression = expressionCache.get(expression);
+        if (compiledExpression == null) {
+            compiledExpression = expressionCache.putIfAbsent(expression,
+                    new CompiledExpression(expression, MVEL.compileExpression(expression)));
+        }
         try {
             requestHolder.setTilesRequestContext(request);
-            return MVEL.eval(expression, variableResolverFactory);
+            return compiledExpression.getValue(variableResolverFactory);
         } finally {
             requestHolder.clearTilesRequestContext();
         }
     }
+
+    /**
+     * An MVEL expression compiled once and shared among threads. If the
+     * accessors of the compiled form cannot be optimized, e.g. because it
+     * needs to access a bean whose class is not public, the expression is
+     * interpreted from then on.
+     *
+     * @since 4.0.0
+     */
+    public static final class CompiledExpression {
+
+        /**
+         * The expression string.
+         */
+        private final String expression;
+
+        /**
+         * The compiled expression.
+         */
+        private final Serializable compiled;
+
+        /**
+         * <code>true</code> if the expression must be interpreted.
+         */
+        private volatile boolean interpreted = false;
+
+        /**
+         * Constructor.
+         *
+         * @param expression The expression string.
+         * @param compiled The compiled expression.
+         */
+        private CompiledExpression(String expression, Serializable compiled) {
+            this.expression = expression;
+            this.compiled = compiled;
+        }
+
+        /**
+         * Checks if this expression is interpreted instead of executing its
+         * compiled form.
+         *
+         * @return <code>true</code> if the expression is interpreted.
+         */
+        public boolean isInterpreted() {
+            return interpreted;
+        }
+
+        /**
+         * Evaluates the expression.
+         *
+         * @param variableResolverFactory The factory that resolves variables.
+         * @return The value of the expression.
+         */
+        private Object getValue(VariableResolverFactory variableResolverFactory) {
+            if (!interpreted) {
+                try {
+                    return MVEL.executeExpression(compiled, variableResolverFactory);
+                } catch (RuntimeException | LinkageError e) {
+                    if (!isOptimizerFailure(e)) {
+                        throw e;
+                    }
+                    return interpret(variableResolverFactory, e);
+                }
+            }
+            return MVEL.eval(expression, variableResolverFactory);
+        }
+
+        /**
+         * Checks if the compiled form failed because its accessors could not
+         * be optimized, and not because of the evaluated objects: in the
+         * latter case running the expression again would repeat their side
+         * effects and fail the same way.
+         *
+         * @param e The failure of the compiled form.
+         * @return <code>true</code> if the interpreter may succeed.
+         */
+        private boolean isOptimizerFailure(Throwable e) {
+            if (e instanceof OptimizationFailure || e instanceof OptimizationNotSupported
+                    || e instanceof LinkageError) {
+                return true;
+            }
+            if (!(e instanceof PropertyAccessException)) {
+                return false;
+            }
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof InvocationTargetException) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Interprets the expression after its compiled form failed, and
+         * interprets it from now on if the interpreter succeeds.
+         *
+         * @param variableResolverFactory The factory that resolves variables.
+         * @param e The failure of the compiled form.
+         * @return The value of the expression.
+         */
+        private Object interpret(VariableResolverFactory variableResolverFactory, Throwable e) {
+            // If the interpreter fails too, the expression itself is wrong.
+            Object value = MVEL.eval(expression, variableResolverFactory);
+            LOG.debug("Cannot execute compiled MVEL expression '{}', it will be interpreted",
+                    expression, e);
+            interpreted = true;
+            return value;
+        }
+    }
 }
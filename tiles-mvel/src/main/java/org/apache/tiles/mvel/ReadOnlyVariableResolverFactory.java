@@ -20,7 +20,7 @@
  */
 package org.apache.tiles.mvel;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.tiles.context.TilesRequestContextHolder;
 import org.mvel2.UnresolveablePropertyException;
@@ -48,7 +48,8 @@ public abstract class ReadOnlyVariableResolverFactory extends
      */
     public ReadOnlyVariableResolverFactory(TilesRequestContextHolder requestHolder) {
         this.requestHolder = requestHolder;
-        variableResolvers = new HashMap<String, VariableResolver>();
+        // The factory is shared among threads.
+        variableResolvers = new ConcurrentHashMap<String, VariableResolver>();
     }
 
     /** {@inheritDoc} */
@@ -64,7 +65,7 @@ public abstract class ReadOnlyVariableResolverFactory extends
     @Override
     public VariableResolver createVariable(String name, Object value,
                                            Class<?> type) {
-        variableResolvers = new HashMap<String, VariableResolver>();
+        variableResolvers = new ConcurrentHashMap<String, VariableResolver>();
         if (nextFactory != null) {
             return nextFactory.createVariable(name, value, type);
         }
@@ -80,16 +81,20 @@ public abstract class ReadOnlyVariableResolverFactory extends
     /** {@inheritDoc} */
     @Override
     public VariableResolver getVariableResolver(String name) {
-        if (isResolveable(name)) {
-            if (variableResolvers != null && variableResolvers.containsKey(name)) {
-                return variableResolvers.get(name);
-            } else if (isTarget(name)) {
-                VariableResolver variableResolver = createVariableResolver(name);
-                variableResolvers.put(name, variableResolver);
-                return variableResolver;
-            } else if (nextFactory != null) {
-                return nextFactory.getVariableResolver(name);
+        if (isTarget(name)) {
+            VariableResolver variableResolver = variableResolvers.get(name);
+            if (variableResolver == null) {
+                variableResolver = createVariableResolver(name);
+                if (variableResolver != null) {
+                    VariableResolver existing = variableResolvers.putIfAbsent(name, variableResolver);
+                    if (existing != null) {
+                        variableResolver = existing;
+                    }
+                }
             }
+            return variableResolver;
+        } else if (isNextResolveable(name)) {
+            return nextFactory.getVariableResolver(name);
         }
 
         throw new UnresolveablePropertyException("unable to resolve variable '" + name + "'");
@@ -21,6 +21,7 @@
 
 package org.apache.tiles.mvel;
 
+import java.util.List;
 import java.util.Map;
 
 import org.apache.tiles.context.TilesRequestContextHolder;
@@ -37,9 +38,9 @@ public class ScopeVariableResolverFactory extends
         ReadOnlyVariableResolverFactory {
 
     /**
-     * The length of the scope suffix: "Scope".
+     * The suffix of the variables that are scopes.
      */
-    private static final int SCOPE_SUFFIX_LENGTH = 5;
+    private static final String SCOPE_SUFFIX = "Scope";
 
     /**
      * Constructor.
@@ -60,11 +61,13 @@ public class ScopeVariableResolverFactory extends
     /** {@inheritDoc} */
     @Override
     public boolean isTarget(String name) {
-        Request request = requestHolder.getTilesRequestContext();
-        if (name.endsWith("Scope")) {
-            String scopeName = name.substring(0, name.length() - SCOPE_SUFFIX_LENGTH);
-            for (String availableScope : request.getAvailableScopes()) {
-                if (scopeName.equals(availableScope)) {
+        if (name.endsWith(SCOPE_SUFFIX)) {
+            // Compares in place, to avoid creating the scope name at each lookup.
+            int scopeNameLength = name.length() - SCOPE_SUFFIX.length();
+            List<String> availableScopes = requestHolder.getTilesRequestContext().getAvailableScopes();
+            for (int i = 0; i < availableScopes.size(); i++) {
+                String availableScope = availableScopes.get(i);
+                if (availableScope.length() == scopeNameLength && name.startsWith(availableScope)) {
                     return true;
                 }
             }
@@ -80,6 +83,11 @@ public class ScopeVariableResolverFactory extends
      */
     private class ScopeVariableResolver extends ReadOnlyVariableResolver {
 
+        /**
+         * The name of the scope.
+         */
+        private final String scopeName;
+
         /**
          * Constructor.
          *
@@ -88,6 +96,7 @@ public class ScopeVariableResolverFactory extends
          */
         public ScopeVariableResolver(String name) {
             super(name);
+            scopeName = name.substring(0, name.length() - SCOPE_SUFFIX.length());
         }
 
         /** {@inheritDoc} */
@@ -101,7 +110,7 @@ public class ScopeVariableResolverFactory extends
         @Override
         public Object getValue() {
             Request request = requestHolder.getTilesRequestContext();
-            return request.getContext(name.substring(0, name.length() - SCOPE_SUFFIX_LENGTH));
+            return request.getContext(scopeName);
         }
     }
 }
@@ -21,6 +21,8 @@
 
 package org.apache.tiles.mvel;
 
+import java.util.List;
+
 import org.apache.tiles.context.TilesRequestContextHolder;
 import org.apache.tiles.request.Request;
 import org.mvel2.integration.VariableResolver;
@@ -54,8 +56,9 @@ public class TilesContextBeanVariableResolverFactory extends
     @Override
     public boolean isTarget(String name) {
         Request request = requestHolder.getTilesRequestContext();
-        for (String scope : request.getAvailableScopes()) {
-            if (request.getContext(scope).containsKey(name)) {
+        List<String> availableScopes = request.getAvailableScopes();
+        for (int i = 0; i < availableScopes.size(); i++) {
+            if (request.getContext(availableScopes.get(i)).containsKey(name)) {
                 return true;
             }
         }
@@ -95,8 +98,9 @@ public class TilesContextBeanVariableResolverFactory extends
         @Override
         public Object getValue() {
             Request request = requestHolder.getTilesRequestContext();
-            for (String scope : request.getAvailableScopes()) {
-                Object value = request.getContext(scope).get(name);
+            List<String> availableScopes = request.getAvailableScopes();
+            for (int i = 0; i < availableScopes.size(); i++) {
+                Object value = request.getContext(availableScopes.get(i)).get(name);
                 if (value != null) {
                     return value;
                 }
@@ -22,8 +22,9 @@
 package org.apache.tiles.mvel;
 
 import java.beans.PropertyDescriptor;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 
 import org.apache.tiles.context.TilesRequestContextHolder;
 import org.apache.tiles.request.ApplicationContext;
@@ -42,6 +43,11 @@ import org.mvel2.integration.VariableResolver;
 public class TilesContextVariableResolverFactory extends
         ReadOnlyVariableResolverFactory {
 
+    /**
+     * The type of the getter handles, once adapted.
+     */
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
     /**
      * Beaninfo about {@link org.apache.tiles.request.Request} and
      * {@link org.apache.tiles.request.ApplicationContext}.
@@ -85,28 +91,41 @@ public class TilesContextVariableResolverFactory extends
     }
 
     /**
-     * Resolves a {@link org.apache.tiles.request.Request} property as a variable.
+     * Resolves a property as a variable, using a method handle to its getter
+     * that is computed once.
      *
      * @version $Rev$ $Date$
-     * @since 2.2.0
+     * @since 4.0.0
      */
-    private class RequestVariableResolver extends ReadOnlyVariableResolver {
+    private abstract class PropertyVariableResolver extends ReadOnlyVariableResolver {
 
         /**
          * The property descriptor.
          */
-        private PropertyDescriptor descriptor;
+        private final PropertyDescriptor descriptor;
+
+        /**
+         * The handle to the getter of the property.
+         */
+        private final MethodHandle getter;
 
         /**
          * Constructor.
          *
          * @param name The name of the property.
          * @param descriptor The property descriptor.
-         * @since 2.2.0
          */
-        public RequestVariableResolver(String name, PropertyDescriptor descriptor) {
+        public PropertyVariableResolver(String name, PropertyDescriptor descriptor) {
             super(name);
             this.descriptor = descriptor;
+            try {
+                getter = MethodHandles.publicLookup().unreflect(descriptor.getReadMethod())
+                        .asType(GETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new CannotAccessMethodException(
+                        "Cannot access getter method for property '"
+                                + descriptor.getName() + "'", e);
+            }
         }
 
         /** {@inheritDoc} */
@@ -119,41 +138,58 @@ public class TilesContextVariableResolverFactory extends
         /** {@inheritDoc} */
         @Override
         public Object getValue() {
-            Method method = descriptor.getReadMethod();
             try {
-                return method.invoke(requestHolder.getTilesRequestContext());
-            } catch (IllegalArgumentException e) {
-                throw new CannotAccessMethodException(
-                        "Arguments are wrong for property '"
-                                + descriptor.getName() + "'", e);
-            } catch (IllegalAccessException e) {
-                throw new CannotAccessMethodException(
-                        "Cannot access getter method for property '"
-                                + descriptor.getName() + "'", e);
-            } catch (InvocationTargetException e) {
+                return getter.invokeExact(getBean());
+            } catch (Throwable e) {
                 throw new CannotAccessMethodException(
                         "The getter method for property '"
                                 + descriptor.getName() + "' threw an exception",
                         e);
             }
         }
+
+        /**
+         * Returns the object that owns the property.
+         *
+         * @return The bean.
+         */
+        protected abstract Object getBean();
     }
 
     /**
-     * Resolves a {@link org.apache.tiles.request.ApplicationContext} property as a
-     * variable.
+     * Resolves a {@link org.apache.tiles.request.Request} property as a variable.
      *
      * @version $Rev$ $Date$
      * @since 2.2.0
      */
-    private class ApplicationVariableResolver extends ReadOnlyVariableResolver {
+    private class RequestVariableResolver extends PropertyVariableResolver {
 
         /**
-         * The property descriptor.
+         * Constructor.
          *
+         * @param name The name of the property.
+         * @param descriptor The property descriptor.
          * @since 2.2.0
          */
-        private PropertyDescriptor descriptor;
+        public RequestVariableResolver(String name, PropertyDescriptor descriptor) {
+            super(name, descriptor);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        protected Object getBean() {
+            return requestHolder.getTilesRequestContext();
+        }
+    }
+
+    /**
+     * Resolves a {@link org.apache.tiles.request.ApplicationContext} property as a
+     * variable.
+     *
+     * @version $Rev$ $Date$
+     * @since 2.2.0
+     */
+    private class ApplicationVariableResolver extends PropertyVariableResolver {
 
         /**
          * Constructor.
@@ -163,38 +199,13 @@ public class TilesContextVariableResolverFactory extends
          * @since 2.2.0
          */
         public ApplicationVariableResolver(String name, PropertyDescriptor descriptor) {
-            super(name);
-            this.descriptor = descriptor;
+            super(name, descriptor);
         }
 
         /** {@inheritDoc} */
         @Override
-        @SuppressWarnings("rawtypes")
-        public Class getType() {
-            return descriptor.getPropertyType();
-        }
-
-        /** {@inheritDoc} */
-        @Override
-        public Object getValue() {
-            Method method = descriptor.getReadMethod();
-            try {
-                return method.invoke(requestHolder.getTilesRequestContext()
-                        .getApplicationContext());
-            } catch (IllegalArgumentException e) {
-                throw new CannotAccessMethodException(
-                        "Arguments are wrong for property '"
-                                + descriptor.getName() + "'", e);
-            } catch (IllegalAccessException e) {
-                throw new CannotAccessMethodException(
-                        "Cannot access getter method for property '"
-                                + descriptor.getName() + "'", e);
-            } catch (InvocationTargetException e) {
-                throw new CannotAccessMethodException(
-                        "The getter method for property '"
-                                + descriptor.getName() + "' threw an exception",
-                        e);
-            }
+        protected Object getBean() {
+            return requestHolder.getTilesRequestContext().getApplicationContext();
         }
     }
 }
@@ -23,7 +23,9 @@ package org.apache.tiles.mvel;
 import java.util.Arrays;
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -31,6 +33,7 @@ import java.util.Map;
 import org.apache.tiles.Attribute;
 import org.apache.tiles.Expression;
 import org.apache.tiles.context.TilesRequestContextHolder;
+import org.apache.tiles.evaluator.ExpressionCache;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 import org.junit.jupiter.api.BeforeEach;
@@ -178,6 +181,100 @@ class MVELAttributeEvaluatorTest {
         verify(request, applicationContext);
     }
 
+    /**
+     * Tests that {@link MVELAttributeEvaluator#evaluate(String, Request)}
+     * compiles an expression only once, and evaluates it against the current
+     * request.
+     */
+    @Test
+    void testEvaluateCached() {
+        String expression = "requestScope.object1";
+        assertEquals("value", evaluator.evaluate(expression, request));
+        assertEquals("value", evaluator.evaluate(expression, request));
+        ExpressionCache<MVELAttributeEvaluator.CompiledExpression> cache = evaluator.getExpressionCache();
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put("object1", "other value");
+        Request otherRequest = createMock(Request.class);
+        expect(otherRequest.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(otherRequest.getAvailableScopes()).andReturn(
+                Arrays.asList(new String[] { "request" })).anyTimes();
+        replay(otherRequest);
+        assertEquals("other value", evaluator.evaluate(expression, otherRequest));
+        assertEquals(2, cache.getHitCount());
+        assertFalse(cache.get(expression).isInterpreted());
+        verify(request, applicationContext);
+    }
+
+    /**
+     * Tests that {@link MVELAttributeEvaluator#evaluate(String, Request)}
+     * interprets the expressions that cannot be executed once compiled.
+     */
+    @Test
+    void testEvaluateInterpreted() {
+        // PaulaBean is not public, so only the interpreter can call its getter.
+        String expression = "paulaBean.paula";
+        assertEquals("Brillant", evaluator.evaluate(expression, request));
+        assertTrue(evaluator.getExpressionCache().get(expression).isInterpreted());
+        assertEquals("Brillant", evaluator.evaluate(expression, request));
+        verify(request, applicationContext);
+    }
+
+    /**
+     * Tests that {@link MVELAttributeEvaluator#evaluate(String, Request)}
+     * does not interpret again the expressions that fail because of the
+     * evaluated objects.
+     */
+    @Test
+    void testEvaluateFailingBean() {
+        FailingBean bean = new FailingBean();
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        requestScope.put("failingBean", bean);
+        Request failingRequest = createMock(Request.class);
+        expect(failingRequest.getContext("request")).andReturn(requestScope).anyTimes();
+        expect(failingRequest.getAvailableScopes()).andReturn(
+                Arrays.asList(new String[] { "request" })).anyTimes();
+        replay(failingRequest);
+        String expression = "failingBean.value";
+        assertThrows(RuntimeException.class, () -> evaluator.evaluate(expression, failingRequest));
+        assertEquals(1, bean.getCallCount());
+        assertFalse(evaluator.getExpressionCache().get(expression).isInterpreted());
+        verify(failingRequest);
+    }
+
+    /**
+     * A bean whose property cannot be read.
+     */
+    public static class FailingBean {
+
+        /**
+         * The number of times the property has been read.
+         */
+        private int callCount;
+
+        /**
+         * Always fails.
+         *
+         * @return Nothing.
+         */
+        public String getValue() {
+            callCount++;
+            throw new NullPointerException("No value");
+        }
+
+        /**
+         * Returns the number of times the property has been read.
+         *
+         * @return The number of calls.
+         */
+        public int getCallCount() {
+            return callCount;
+        }
+    }
+
     /**
      * This is The Brillant Paula Bean (sic) just like it was posted to:
      * http://thedailywtf.com/Articles/The_Brillant_Paula_Bean.aspx I hope that
@@ -21,21 +21,90 @@
 
 package org.apache.tiles.ognl;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ognl.Node;
 import ognl.Ognl;
 import ognl.OgnlException;
+import ognl.enhance.ExpressionAccessor;
 
 import org.apache.tiles.evaluator.AbstractAttributeEvaluator;
 import org.apache.tiles.evaluator.EvaluationException;
+import org.apache.tiles.evaluator.ExpressionCache;
 import org.apache.tiles.request.Request;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Evaluates attribute expressions and expressions with OGNL language.
+ * <p>
+ * Parsed expressions are cached, so that each expression is parsed only once.
+ * Optionally, expressions evaluated many times are compiled to bytecode: see
+ * {@link #setCompilationThreshold(int)}.
+ * </p>
  *
  * @version $Rev$ $Date$
  * @since 2.2.0
  */
 public class OGNLAttributeEvaluator extends AbstractAttributeEvaluator {
 
+    /**
+     * The logging object.
+     */
+    private static final Logger LOG = LoggerFactory.getLogger(OGNLAttributeEvaluator.class);
+
+    /**
+     * The cache of parsed expressions.
+     */
+    private ExpressionCache<ParsedExpression> expressionCache = new ExpressionCache<ParsedExpression>();
+
+    /**
+     * The number of evaluations after which an expression is compiled, or 0
+     * if expressions are never compiled.
+     */
+    private int compilationThreshold = 0;
+
+    /**
+     * Sets the cache of parsed expressions. If not called, a cache with the
+     * default size is used.
+     *
+     * @param expressionCache The expression cache.
+     * @since 4.0.0
+     */
+    public void setExpressionCache(ExpressionCache<ParsedExpression> expressionCache) {
+        this.expressionCache = expressionCache;
+    }
+
+    /**
+     * Returns the cache of parsed expressions, e.g. to check its statistics.
+     *
+     * @return The expression cache.
+     * @since 4.0.0
+     */
+    public ExpressionCache<ParsedExpression> getExpressionCache() {
+        return expressionCache;
+    }
+
+    /**
+     * Sets the number of evaluations after which an expression is compiled to
+     * bytecode. Expressions that cannot be compiled are interpreted. If not
+     * called, or 0, expressions are never compiled.
+     * <p>
+     * OGNL defines the classes of compiled expressions through
+     * <code>ClassLoader.defineClass</code>, so on Java 9 and later the JVM
+     * must be started with
+     * <code>--add-opens java.base/java.lang=ALL-UNNAMED</code>. Otherwise
+     * every compilation fails and expressions are always interpreted, after
+     * paying for the failed attempt.
+     * </p>
+     *
+     * @param compilationThreshold The number of evaluations.
+     * @since 4.0.0
+     */
+    public void setCompilationThreshold(int compilationThreshold) {
+        this.compilationThreshold = compilationThreshold;
+    }
+
     /** {@inheritDoc} */
     @Override
     public Object evaluate(String expression, Request request) {
@@ -43,10 +112,155 @@ public class OGNLAttributeEvaluator extends AbstractAttributeEvaluator {
             throw new IllegalArgumentException("The expression parameter cannot be null");
         }
         try {
-            return Ognl.getValue(expression, request);
+            ParsedExpression parsedExpression = expressionCache.get(expression);
+            if (parsedExpression == null) {
+                parsedExpression = expressionCache.putIfAbsent(expression,
+                        new ParsedExpression(expression, Ognl.parseExpression(expression)));
+            }
+            return parsedExpression.getValue(request, compilationThreshold);
         } catch (OgnlException e) {
             throw new EvaluationException("Cannot evaluate OGNL expression '"
                     + expression + "'", e);
         }
     }
+
+    /**
+     * A parsed OGNL expression, possibly compiled.
+     *
+     * @since 4.0.0
+     */
+    public static final class ParsedExpression {
+
+        /**
+         * The expression string.
+         */
+        private final String expression;
+
+        /**
+         * The parsed expression tree.
+         */
+        private final Object tree;
+
+        /**
+         * The number of evaluations done before trying to compile.
+         */
+        private final AtomicInteger evaluationCount = new AtomicInteger();
+
+        /**
+         * The compiled expression, or <code>null</code> if not compiled yet.
+         */
+        private volatile CompiledExpression compiledExpression;
+
+        /**
+         * <code>true</code> if the expression cannot be compiled.
+         */
+        private volatile boolean compilationFailed = false;
+
+        /**
+         * Constructor.
+         *
+         * @param expression The expression string.
+         * @param tree The parsed expression tree.
+         */
+        ParsedExpression(String expression, Object tree) {
+            this.expression = expression;
+            this.tree = tree;
+        }
+
+        /**
+         * Checks if the expression has been compiled.
+         *
+         * @return <code>true</code> if compiled.
+         */
+        public boolean isCompiled() {
+            return compiledExpression != null;
+        }
+
+        /**
+         * Evaluates the expression.
+         *
+         * @param root The root object.
+         * @param compilationThreshold The number of evaluations after which the
+         * expression is compiled, or 0 if it must not be compiled.
+         * @return The value of the expression.
+         * @throws OgnlException If the evaluation fails.
+         */
+        Object getValue(Object root, int compilationThreshold) throws OgnlException {
+            CompiledExpression compiled = compiledExpression;
+            if (compiled == null && compilationThreshold > 0 && !compilationFailed
+                    && evaluationCount.incrementAndGet() >= compilationThreshold) {
+                compiled = compile(root);
+            }
+            if (compiled != null && compiled.rootClass == root.getClass()) {
+                try {
+                    return Ognl.getValue(compiled.accessor, Ognl.createDefaultContext(root), root);
+                } catch (ClassCastException | LinkageError e) {
+                    // The compiled code does not fit the evaluated objects.
+                    LOG.debug("Compiled OGNL expression '" + expression
+                            + "' failed, it will be interpreted", e);
+                    compilationFailed = true;
+                    compiledExpression = null;
+                } catch (RuntimeException e) {
+                    // Thrown by the evaluated objects, interpreting the
+                    // expression again would repeat their side effects.
+                    throw new OgnlException("Compiled OGNL expression '" + expression
+                            + "' failed", e);
+                }
+            }
+            return Ognl.getValue(tree, root);
+        }
+
+        /**
+         * Compiles the expression for the class of the given root object.
+         *
+         * @param root The root object.
+         * @return The compiled expression, or <code>null</code> if it cannot be
+         * compiled.
+         */
+        private synchronized CompiledExpression compile(Object root) {
+            if (compiledExpression != null || compilationFailed) {
+                return compiledExpression;
+            }
+            try {
+                Node node = Ognl.compileExpression(Ognl.createDefaultContext(root), root, expression);
+                if (node.getAccessor() != null) {
+                    compiledExpression = new CompiledExpression(root.getClass(), node.getAccessor());
+                } else {
+                    compilationFailed = true;
+                }
+            } catch (Exception e) {
+                LOG.debug("Cannot compile OGNL expression '" + expression
+                        + "', it will be interpreted", e);
+                compilationFailed = true;
+            }
+            return compiledExpression;
+        }
+    }
+
+    /**
+     * An expression compiled for a class of root objects.
+     */
+    private static final class CompiledExpression {
+
+        /**
+         * The class of the root objects the expression has been compiled for.
+         */
+        private final Class<?> rootClass;
+
+        /**
+         * The compiled accessor.
+         */
+        private final ExpressionAccessor accessor;
+
+        /**
+         * Constructor.
+         *
+         * @param rootClass The class of the root objects.
+         * @param accessor The compiled accessor.
+         */
+        private CompiledExpression(Class<?> rootClass, ExpressionAccessor accessor) {
+            this.rootClass = rootClass;
+            this.accessor = accessor;
+        }
+    }
 }
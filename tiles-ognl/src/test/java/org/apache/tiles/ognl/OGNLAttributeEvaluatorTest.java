@@ -23,6 +23,7 @@ package org.apache.tiles.ognl;
 import java.util.Arrays;
 import static org.easymock.EasyMock.*;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.HashMap;
@@ -35,6 +36,7 @@ import ognl.PropertyAccessor;
 import org.apache.tiles.Attribute;
 import org.apache.tiles.Expression;
 import org.apache.tiles.evaluator.EvaluationException;
+import org.apache.tiles.evaluator.ExpressionCache;
 import org.apache.tiles.request.ApplicationContext;
 import org.apache.tiles.request.Request;
 import org.junit.jupiter.api.AfterEach;
@@ -201,6 +203,38 @@ class OGNLAttributeEvaluatorTest {
         assertThrows(EvaluationException.class, () -> evaluator.evaluate("wrong|||!!!!yes###", request));
     }
 
+    /**
+     * Tests that {@link OGNLAttributeEvaluator#evaluate(String, Request)}
+     * parses an expression only once.
+     */
+    @Test
+    void testEvaluateCached() {
+        assertEquals("value", evaluator.evaluate("requestScope.object1", request));
+        assertEquals("value", evaluator.evaluate("requestScope.object1", request));
+        ExpressionCache<OGNLAttributeEvaluator.ParsedExpression> cache = evaluator.getExpressionCache();
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertFalse(cache.get("requestScope.object1").isCompiled());
+    }
+
+    /**
+     * Tests {@link OGNLAttributeEvaluator#evaluate(String, Request)} with
+     * compilation enabled, falling back to interpretation if needed.
+     */
+    @Test
+    void testEvaluateCompiled() {
+        evaluator.setCompilationThreshold(2);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("value", evaluator.evaluate("requestScope.object1", request));
+            assertEquals(new Integer(1), evaluator.evaluate("object2", request));
+            assertEquals("Brillant", evaluator.evaluate("paulaBean.paula", request));
+            assertEquals("String literal", evaluator.evaluate("'String literal'", request));
+        }
+        // Mock requests cannot be compiled against, expressions are interpreted.
+        assertFalse(evaluator.getExpressionCache().get("object2").isCompiled());
+    }
+
     /**
      * This is The Brillant Paula Bean (sic) just like it was posted to:
      * http://thedailywtf.com/Articles/The_Brillant_Paula_Bean.aspx I hope that
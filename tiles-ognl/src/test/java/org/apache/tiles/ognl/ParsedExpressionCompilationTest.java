@@ -0,0 +1,109 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.ognl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import ognl.Ognl;
+import ognl.OgnlException;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the compilation of {@link OGNLAttributeEvaluator.ParsedExpression}.
+ * OGNL defines the classes of compiled expressions through
+ * <code>ClassLoader.defineClass</code>, so this test needs
+ * <code>--add-opens java.base/java.lang=ALL-UNNAMED</code>, that is passed
+ * only to the tests whose name ends with <code>CompilationTest</code>.
+ *
+ * @version $Rev$ $Date$
+ */
+class ParsedExpressionCompilationTest {
+
+    /**
+     * Tests that a compiled expression is not interpreted again when it fails
+     * because of the evaluated objects.
+     *
+     * @throws OgnlException If something goes wrong.
+     */
+    @Test
+    void testEvaluateCompiledFailingBean() throws OgnlException {
+        OGNLAttributeEvaluator.ParsedExpression expression = new OGNLAttributeEvaluator.ParsedExpression(
+                "value", Ognl.parseExpression("value"));
+        FailingBean bean = new FailingBean();
+        assertEquals("value", expression.getValue(bean, 1));
+        assertTrue(expression.isCompiled());
+        bean.setFailing(true);
+        int callCount = bean.getCallCount();
+        assertThrows(OgnlException.class, () -> expression.getValue(bean, 1));
+        assertEquals(callCount + 1, bean.getCallCount());
+        assertTrue(expression.isCompiled());
+    }
+
+    /**
+     * A bean whose property can be made unreadable.
+     */
+    public static class FailingBean {
+
+        /**
+         * <code>true</code> if reading the property fails.
+         */
+        private boolean failing;
+
+        /**
+         * The number of times the property has been read.
+         */
+        private int callCount;
+
+        /**
+         * Returns the value, if not failing.
+         *
+         * @return "value".
+         */
+        public String getValue() {
+            callCount++;
+            if (failing) {
+                throw new NullPointerException("No value");
+            }
+            return "value";
+        }
+
+        /**
+         * Sets whether reading the property fails.
+         *
+         * @param failing <code>true</code> if reading the property fails.
+         */
+        public void setFailing(boolean failing) {
+            this.failing = failing;
+        }
+
+        /**
+         * Returns the number of times the property has been read.
+         *
+         * @return The number of calls.
+         */
+        public int getCallCount() {
+            return callCount;
+        }
+    }
+}
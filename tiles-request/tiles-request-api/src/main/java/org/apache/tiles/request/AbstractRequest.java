@@ -20,12 +20,15 @@
  */
 package org.apache.tiles.request;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Base request.
  *
  * @version $Rev$ $Date: 2010-11-14 21:32:50 +0100 (dom, 14 nov 2010)$
  */
-public abstract class AbstractRequest implements DispatchRequest {
+public abstract class AbstractRequest implements DispatchRequest, CachingRequest {
 
     /**
      * Name of the attribute used to store the force-include option.
@@ -34,6 +37,11 @@ public abstract class AbstractRequest implements DispatchRequest {
     public static final String FORCE_INCLUDE_ATTRIBUTE_NAME = AbstractRequest.class
             .getName() + ".FORCE_INCLUDE";
 
+    /**
+     * The objects cached in this request, created lazily.
+     */
+    private Map<String, Object> cachedObjects;
+
     /**
      * Sets the flag to force inclusion at next dispatch.
      *
@@ -58,4 +66,28 @@ public abstract class AbstractRequest implements DispatchRequest {
         }
         return false;
     }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getCachedObject(String key) {
+        if (cachedObjects == null) {
+            return null;
+        }
+        return cachedObjects.get(key);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void setCachedObject(String key, Object value) {
+        if (value == null) {
+            if (cachedObjects != null) {
+                cachedObjects.remove(key);
+            }
+            return;
+        }
+        if (cachedObjects == null) {
+            cachedObjects = new HashMap<String, Object>();
+        }
+        cachedObjects.put(key, value);
+    }
 }
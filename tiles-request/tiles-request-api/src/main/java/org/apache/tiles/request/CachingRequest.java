@@ -0,0 +1,51 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request;
+
+/**
+ * A request that can hold objects for its own lifetime, without going through
+ * its scopes. It is useful for objects that are looked up many times while
+ * rendering, like the stacks of Tiles, since a scope lookup may be expensive.
+ * The cached objects are not visible to other request objects wrapping the
+ * same underlying request, so they must also be stored in a scope if they
+ * need to be shared.
+ *
+ * @version $Rev$ $Date$
+ */
+public interface CachingRequest extends Request {
+
+    /**
+     * Returns an object cached in this request.
+     *
+     * @param key The key of the object.
+     * @return The cached object, or <code>null</code> if not present.
+     */
+    Object getCachedObject(String key);
+
+    /**
+     * Caches an object in this request.
+     *
+     * @param key The key of the object.
+     * @param value The object to cache. If <code>null</code>, the cached
+     * object, if any, is removed.
+     */
+    void setCachedObject(String key, Object value);
+}
@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -36,13 +37,19 @@ import org.apache.tiles.request.attribute.Addable;
  *
  * @version $Rev: 1215009 $ $Date: 2011-12-16 01:32:31 +0100 (Fri, 16 Dec 2011) $
  */
-public class DefaultRequestWrapper implements RequestWrapper {
+public class DefaultRequestWrapper implements RequestWrapper, CachingRequest {
 
     /**
      * The wrapper request context object.
      */
     private final Request context;
 
+    /**
+     * The objects cached in this request, created lazily. Used only if the
+     * wrapped request is not a {@link CachingRequest}.
+     */
+    private Map<String, Object> cachedObjects;
+
     /**
      * Constructor.
      *
@@ -142,4 +149,47 @@ public class DefaultRequestWrapper implements RequestWrapper {
     public List<String> getAvailableScopes() {
         return context.getAvailableScopes();
     }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the wrapped request is a {@link CachingRequest}, the call is
+     * delegated to it.
+     * </p>
+     */
+    @Override
+    public Object getCachedObject(String key) {
+        if (context instanceof CachingRequest) {
+            return ((CachingRequest) context).getCachedObject(key);
+        }
+        if (cachedObjects == null) {
+            return null;
+        }
+        return cachedObjects.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the wrapped request is a {@link CachingRequest}, the call is
+     * delegated to it.
+     * </p>
+     */
+    @Override
+    public void setCachedObject(String key, Object value) {
+        if (context instanceof CachingRequest) {
+            ((CachingRequest) context).setCachedObject(key, value);
+            return;
+        }
+        if (value == null) {
+            if (cachedObjects != null) {
+                cachedObjects.remove(key);
+            }
+            return;
+        }
+        if (cachedObjects == null) {
+            cachedObjects = new HashMap<String, Object>();
+        }
+        cachedObjects.put(key, value);
+    }
 }
@@ -0,0 +1,300 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.collection;
+
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded cache that can be read by many threads without locking. When
+ * the cache is full, the least recently used entries are evicted to make room
+ * for a new one, so that the cache never needs to be emptied at once and
+ * frequently read entries survive a stream of one-off keys.
+ * <p>
+ * Recency is approximated with the CLOCK algorithm: a read only marks its
+ * entry as referenced, while adding an entry takes a lock to append it to
+ * the eviction queue and to evict, from the head of the queue, the first
+ * entry that has not been read since the last time the queue went past it.
+ * </p>
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the values.
+ * @version $Rev$ $Date$
+ * @since 4.0.0
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * The maximum number of entries.
+     */
+    private final int maximumSize;
+
+    /**
+     * The cached entries.
+     */
+    private final ConcurrentMap<K, Node<K, V>> entries = new ConcurrentHashMap<K, Node<K, V>>();
+
+    /**
+     * The entries in eviction order. It may contain entries that have been
+     * removed or replaced in the meantime, they are skipped when evicting.
+     * Guarded by {@link #evictionLock}.
+     */
+    private final Queue<Node<K, V>> evictionQueue = new ArrayDeque<Node<K, V>>();
+
+    /**
+     * The lock guarding {@link #evictionQueue}.
+     */
+    private final Lock evictionLock = new ReentrantLock();
+
+    /**
+     * The number of evicted entries.
+     */
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param maximumSize The maximum number of entries, 0 or less to disable
+     * the cache.
+     */
+    public BoundedCache(int maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * Returns a cached value.
+     *
+     * @param key The key.
+     * @return The value, or <code>null</code> if not cached.
+     */
+    public V get(K key) {
+        Node<K, V> node = entries.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (!node.referenced) {
+            node.referenced = true;
+        }
+        return node.value;
+    }
+
+    /**
+     * Caches a value, if no value is cached for the key, evicting the least
+     * recently used entries if the cache is full.
+     *
+     * @param key The key.
+     * @param value The value.
+     * @return The cached value, that may be another one if it has been cached
+     * by another thread in the meantime.
+     */
+    public V putIfAbsent(K key, V value) {
+        if (maximumSize <= 0) {
+            return value;
+        }
+        Node<K, V> node = new Node<K, V>(key, value);
+        Node<K, V> existing = entries.putIfAbsent(key, node);
+        if (existing != null) {
+            existing.referenced = true;
+            return existing.value;
+        }
+        evictionLock.lock();
+        try {
+            while (entries.size() > maximumSize) {
+                Node<K, V> evicted = nextToEvict();
+                if (evicted == null) {
+                    break;
+                }
+                if (entries.remove(evicted.key, evicted)) {
+                    evictionCount.increment();
+                    entryEvicted(evicted.key, evicted.value);
+                }
+            }
+            evictionQueue.add(node);
+            if (evictionQueue.size() > 2 * maximumSize) {
+                evictionQueue.removeIf(n -> entries.get(n.key) != n);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Removes a cached value.
+     *
+     * @param key The key.
+     */
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all the cached entries.
+     */
+    public void clear() {
+        evictionLock.lock();
+        try {
+            entries.clear();
+            evictionQueue.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns a read-only view of the cached values. Iterating over it does
+     * not block other threads, and may or may not reflect the changes made
+     * in the meantime.
+     *
+     * @return The cached values.
+     */
+    public Collection<V> values() {
+        return new AbstractCollection<V>() {
+
+            @Override
+            public Iterator<V> iterator() {
+                final Iterator<Node<K, V>> nodeIt = entries.values().iterator();
+                return new Iterator<V>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return nodeIt.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return nodeIt.next().value;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the maximum number of entries.
+     *
+     * @return The maximum number of entries.
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Called after an entry has been evicted to make room for another one.
+     * By default it does nothing.
+     *
+     * @param key The key of the evicted entry.
+     * @param value The value of the evicted entry.
+     */
+    protected void entryEvicted(K key, V value) {
+        // Nothing to do by default.
+    }
+
+    /**
+     * Returns the number of entries that have been evicted.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Returns the next entry to evict, giving a second chance to the entries
+     * that have been read since they were last examined. Must be called while
+     * holding {@link #evictionLock}.
+     *
+     * @return The entry to evict, or <code>null</code> if the queue is empty.
+     */
+    private Node<K, V> nextToEvict() {
+        Node<K, V> node;
+        while ((node = evictionQueue.poll()) != null) {
+            if (entries.get(node.key) != node) {
+                continue;
+            }
+            if (node.referenced) {
+                node.referenced = false;
+                evictionQueue.add(node);
+            } else {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A cached entry.
+     *
+     * @param <K> The type of the key.
+     * @param <V> The type of the value.
+     */
+    private static final class Node<K, V> {
+
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The value.
+         */
+        private final V value;
+
+        /**
+         * Whether the entry has been read since the eviction queue last went
+         * past it.
+         */
+        private volatile boolean referenced;
+
+        /**
+         * Constructor.
+         *
+         * @param key The key.
+         * @param value The value.
+         */
+        private Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
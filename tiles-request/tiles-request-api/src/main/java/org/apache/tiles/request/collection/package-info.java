@@ -31,6 +31,8 @@
  * <li> {@link org.apache.tiles.request.collection.HeaderValuesMap}
  * provides get-only access to a multi-valued map (typically, headers).
  * </ul>
+ * {@link org.apache.tiles.request.collection.BoundedCache} is a bounded cache
+ * that can be shared between threads.
  */
 package org.apache.tiles.request.collection;
 
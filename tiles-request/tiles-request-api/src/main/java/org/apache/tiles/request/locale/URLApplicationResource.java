@@ -208,7 +208,13 @@ public class URLApplicationResource extends PostfixedApplicationResource {
         return url;
     }
 
-    protected File getFile(){
+    /**
+     * Returns the file this resource points to.
+     *
+     * @return The file, or <code>null</code> if the URL does not point to a
+     * file.
+     */
+    public File getFile(){
         return file;
     }
 }
@@ -30,6 +30,8 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -55,4 +57,22 @@ class AbstractRequestTest {
         assertTrue(request.isForceInclude());
         verify(request);
     }
+
+    /**
+     * Test method for {@link AbstractRequest#getCachedObject(String)} and
+     * {@link AbstractRequest#setCachedObject(String, Object)}.
+     */
+    @Test
+    void testCachedObject() {
+        AbstractRequest request = createMockBuilder(AbstractRequest.class).createMock();
+        Object value = new Object();
+
+        replay(request);
+        assertNull(request.getCachedObject("key"));
+        request.setCachedObject("key", value);
+        assertSame(value, request.getCachedObject("key"));
+        request.setCachedObject("key", null);
+        assertNull(request.getCachedObject("key"));
+        verify(request);
+    }
 }
@@ -26,6 +26,8 @@ import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.IOException;
@@ -315,4 +317,42 @@ class DefaultRequestWrapperTest {
         verify(wrappedRequest);
     }
 
+
+    /**
+     * Test method for {@link DefaultRequestWrapper#getCachedObject(String)},
+     * when the wrapped request does not cache objects.
+     */
+    @Test
+    void testCachedObject() {
+        Request wrappedRequest = createMockRequest();
+        Object value = new Object();
+
+        replay(wrappedRequest);
+        DefaultRequestWrapper request = new DefaultRequestWrapper(wrappedRequest);
+        assertNull(request.getCachedObject("key"));
+        request.setCachedObject("key", value);
+        assertSame(value, request.getCachedObject("key"));
+        request.setCachedObject("key", null);
+        assertNull(request.getCachedObject("key"));
+        verify(wrappedRequest);
+    }
+
+    /**
+     * Test method for {@link DefaultRequestWrapper#getCachedObject(String)},
+     * when the wrapped request caches objects.
+     */
+    @Test
+    void testCachedObjectDelegate() {
+        CachingRequest wrappedRequest = createMock(CachingRequest.class);
+        Object value = new Object();
+
+        wrappedRequest.setCachedObject("key", value);
+        expect(wrappedRequest.getCachedObject("key")).andReturn(value);
+
+        replay(wrappedRequest);
+        DefaultRequestWrapper request = new DefaultRequestWrapper(wrappedRequest);
+        request.setCachedObject("key", value);
+        assertSame(value, request.getCachedObject("key"));
+        verify(wrappedRequest);
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * $Id$
+ *
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.tiles.request.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests {@link BoundedCache}.
+ *
+ */
+class BoundedCacheTest {
+
+    /**
+     * Tests {@link BoundedCache#get(Object)},
+     * {@link BoundedCache#putIfAbsent(Object, Object)},
+     * {@link BoundedCache#values()} and {@link BoundedCache#remove(Object)}.
+     */
+    @Test
+    void testGetAndPut() {
+        BoundedCache<String, Object> cache = new BoundedCache<String, Object>(10);
+        Object value = new Object();
+        assertNull(cache.get("key"));
+        assertSame(value, cache.putIfAbsent("key", value));
+        assertSame(value, cache.putIfAbsent("key", new Object()));
+        assertSame(value, cache.get("key"));
+        assertEquals(Collections.singletonList(value), new ArrayList<Object>(cache.values()));
+        cache.remove("key");
+        assertNull(cache.get("key"));
+        cache.putIfAbsent("key", value);
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that the cache does not grow beyond its maximum size, and keeps
+     * the last added entry.
+     */
+    @Test
+    void testEviction() {
+        final int maximumSize = 3;
+        final int entryCount = 10;
+        BoundedCache<Integer, Object> cache = new BoundedCache<Integer, Object>(maximumSize);
+        for (int i = 0; i < entryCount; i++) {
+            Object value = new Object();
+            assertSame(value, cache.putIfAbsent(i, value));
+            assertSame(value, cache.get(i));
+        }
+        assertEquals(maximumSize, cache.size());
+        assertEquals(entryCount - maximumSize, cache.getEvictionCount());
+    }
+
+    /**
+     * Tests that an entry that keeps being read survives a stream of keys
+     * that are read only once.
+     */
+    @Test
+    void testHotEntrySurvivesChurn() {
+        final int maximumSize = 4;
+        final int entryCount = 1000;
+        BoundedCache<String, Object> cache = new BoundedCache<String, Object>(maximumSize);
+        Object hotValue = new Object();
+        cache.putIfAbsent("hot", hotValue);
+        for (int i = 0; i < entryCount; i++) {
+            assertSame(hotValue, cache.get("hot"));
+            cache.putIfAbsent("cold" + i, new Object());
+            assertTrue(cache.size() <= maximumSize);
+        }
+        assertSame(hotValue, cache.get("hot"));
+        assertNull(cache.get("cold0"));
+        assertEquals(entryCount + 1 - maximumSize, cache.getEvictionCount());
+    }
+
+    /**
+     * Tests that removed entries are not evicted again, and that re-adding
+     * them after removal works.
+     */
+    @Test
+    void testRemoveAndPutAgain() {
+        final List<String> evictedKeys = new ArrayList<String>();
+        BoundedCache<String, Object> cache = new BoundedCache<String, Object>(2) {
+
+            @Override
+            protected void entryEvicted(String key, Object value) {
+                evictedKeys.add(key);
+            }
+        };
+        cache.putIfAbsent("first", new Object());
+        cache.putIfAbsent("second", new Object());
+        cache.remove("first");
+        Object value = new Object();
+        cache.putIfAbsent("first", value);
+        cache.putIfAbsent("third", new Object());
+        assertEquals(Collections.singletonList("second"), evictedKeys);
+        assertSame(value, cache.get("first"));
+    }
+
+    /**
+     * Tests that {@link BoundedCache#entryEvicted(Object, Object)} is called
+     * for each evicted entry.
+     */
+    @Test
+    void testEntryEvicted() {
+        final List<String> evictedKeys = new ArrayList<String>();
+        BoundedCache<String, Object> cache = new BoundedCache<String, Object>(1) {
+
+            @Override
+            protected void entryEvicted(String key, Object value) {
+                evictedKeys.add(key);
+            }
+        };
+        cache.putIfAbsent("first", new Object());
+        cache.putIfAbsent("second", new Object());
+        assertEquals(Collections.singletonList("first"), evictedKeys);
+    }
+
+    /**
+     * Tests a cache with no room.
+     */
+    @Test
+    void testDisabled() {
+        BoundedCache<String, Object> cache = new BoundedCache<String, Object>(0);
+        Object value = new Object();
+        assertSame(value, cache.putIfAbsent("key", value));
+        assertNull(cache.get("key"));
+    }
+}
@@ -21,12 +21,20 @@
 
 package org.apache.tiles.request.servlet.wildcard;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import jakarta.servlet.ServletContext;
 
@@ -35,21 +43,69 @@ import org.apache.tiles.request.locale.URLApplicationResource;
 import org.apache.tiles.request.servlet.ServletApplicationContext;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.PathMatcher;
 import org.springframework.web.context.support.ServletContextResourcePatternResolver;
 
 /**
+ * <p>
  * Servlet-based implementation of the TilesApplicationContext interface that
  * can resolve resources even using wildcards.
+ * </p>
+ * <p>
+ * Resolving a <code>classpath*:</code> pattern opens every jar of the
+ * classpath. If the {@link #CLASSPATH_INDEX_INIT_PARAMETER} context parameter
+ * is <code>true</code>, these patterns are matched against the entries listed
+ * in the {@link #CLASSPATH_INDEX} files of the classpath instead, as written
+ * by the <code>index-resources</code> goal of the Tiles Maven plugin.
+ * Entries of jars without an index are then not found. Resources are returned
+ * in the order of the classpath, as the class loader would.
+ * </p>
  *
  * @version $Rev$ $Date$
  */
 public class WildcardServletApplicationContext extends ServletApplicationContext {
 
+    /**
+     * Context parameter that, when <code>true</code>, makes
+     * <code>classpath*:</code> patterns resolve through the
+     * {@link #CLASSPATH_INDEX} files.
+     *
+     * @since 4.0.0
+     */
+    public static final String CLASSPATH_INDEX_INIT_PARAMETER =
+        "org.apache.tiles.request.servlet.wildcard.WildcardServletApplicationContext.CLASSPATH_INDEX";
+
+    /**
+     * The path of the files that list the resources of a classpath entry, one
+     * path per line, relative to the root of the entry.
+     *
+     * @since 4.0.0
+     */
+    public static final String CLASSPATH_INDEX = "META-INF/tiles.index";
+
+    /**
+     * The prefix of patterns searched in the whole classpath.
+     */
+    private static final String CLASSPATH_ALL_URL_PREFIX = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX;
+
     /**
      * The pattern resolver.
      */
     protected ResourcePatternResolver resolver;
 
+    /**
+     * Matches the indexed entries against the patterns.
+     */
+    private final PathMatcher pathMatcher = new AntPathMatcher();
+
+    /**
+     * For each indexed entry of the classpath, in classpath order, maps the
+     * indexed paths to their URLs. Empty if the index is not used. Read once.
+     */
+    private volatile List<Map<String, URL>> classpathIndex;
+
     /**
      * Constructor.
      *
@@ -85,6 +141,12 @@ public class WildcardServletApplicationContext extends ServletApplicationContext
     /** {@inheritDoc} */
     @Override
     public Collection<ApplicationResource> getResources(String path) {
+        if (path.startsWith(CLASSPATH_ALL_URL_PREFIX)) {
+            List<Map<String, URL>> index = getClasspathIndex();
+            if (!index.isEmpty()) {
+                return getIndexedResources(path.substring(CLASSPATH_ALL_URL_PREFIX.length()), index);
+            }
+        }
         Resource[] resources;
         try {
             resources = resolver.getResources(path);
@@ -106,4 +168,83 @@ public class WildcardServletApplicationContext extends ServletApplicationContext
         }
         return resourceList;
     }
+
+    /**
+     * Returns the entries listed in the {@link #CLASSPATH_INDEX} files of the
+     * classpath, reading them the first time.
+     *
+     * @return The indexed entries of each classpath entry, empty if the index
+     * is not used.
+     */
+    private List<Map<String, URL>> getClasspathIndex() {
+        List<Map<String, URL>> retValue = classpathIndex;
+        if (retValue == null) {
+            if (Boolean.parseBoolean(getInitParams().get(CLASSPATH_INDEX_INIT_PARAMETER))) {
+                retValue = readClasspathIndex();
+            } else {
+                retValue = Collections.emptyList();
+            }
+            classpathIndex = retValue;
+        }
+        return retValue;
+    }
+
+    /**
+     * Reads the {@link #CLASSPATH_INDEX} files of the classpath.
+     *
+     * @return The indexed entries of each classpath entry, in classpath order.
+     */
+    private List<Map<String, URL>> readClasspathIndex() {
+        List<Map<String, URL>> retValue = new ArrayList<Map<String, URL>>();
+        try {
+            Enumeration<URL> indexUrls = ClassUtils.getDefaultClassLoader().getResources(CLASSPATH_INDEX);
+            while (indexUrls.hasMoreElements()) {
+                URL indexUrl = indexUrls.nextElement();
+                String indexLocation = indexUrl.toExternalForm();
+                String root = indexLocation.substring(0, indexLocation.length() - CLASSPATH_INDEX.length());
+                Map<String, URL> entries = new LinkedHashMap<String, URL>();
+                InputStream stream = indexUrl.openStream();
+                try {
+                    BufferedReader reader = new BufferedReader(new InputStreamReader(stream,
+                            StandardCharsets.UTF_8));
+                    String entry;
+                    while ((entry = reader.readLine()) != null) {
+                        entry = entry.trim();
+                        if (!entry.isEmpty() && !entry.startsWith("#")) {
+                            entries.put(entry, new URL(root + entry));
+                        }
+                    }
+                } finally {
+                    stream.close();
+                }
+                retValue.add(entries);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read the classpath index " + CLASSPATH_INDEX, e);
+        }
+        return retValue;
+    }
+
+    /**
+     * Returns the indexed resources matching a pattern.
+     *
+     * @param pattern The pattern, relative to the roots of the classpath.
+     * @param index The indexed entries of each classpath entry.
+     * @return The matching resources, in classpath order.
+     */
+    private Collection<ApplicationResource> getIndexedResources(String pattern, List<Map<String, URL>> index) {
+        if (pattern.startsWith("/")) {
+            pattern = pattern.substring(1);
+        }
+        Collection<ApplicationResource> resourceList = new ArrayList<ApplicationResource>();
+        for (Map<String, URL> entries : index) {
+            for (Map.Entry<String, URL> entry : entries.entrySet()) {
+                if (pathMatcher.match(pattern, entry.getKey())) {
+                    URL url = entry.getValue();
+                    resourceList.add(new URLApplicationResource(url.toExternalForm(), url));
+                }
+            }
+        }
+        return resourceList;
+    }
 }
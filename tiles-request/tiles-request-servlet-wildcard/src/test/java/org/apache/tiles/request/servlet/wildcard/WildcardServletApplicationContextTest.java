@@ -21,17 +21,26 @@
 package org.apache.tiles.request.servlet.wildcard;
 
 import jakarta.servlet.ServletContext;
+import org.apache.tiles.request.ApplicationResource;
 import org.apache.tiles.request.locale.URLApplicationResource;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 
@@ -40,6 +49,7 @@ import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
 import static org.easymock.EasyMock.verify;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 /**
@@ -110,6 +120,8 @@ class WildcardServletApplicationContextTest {
         Set<String> elementSet = new HashSet<String>();
         elementSet.add("/WEB-INF/pom.xml");
         expect(servletContext.getResourcePaths("/WEB-INF/")).andReturn(elementSet).anyTimes();
+        expect(servletContext.getInitParameter(WildcardServletApplicationContext.CLASSPATH_INDEX_INIT_PARAMETER))
+                .andReturn(null);
         replay(servletContext);
 
         assertEquals(new URLApplicationResource(u.toExternalForm(), u), context.getResource(url));
@@ -122,6 +134,80 @@ class WildcardServletApplicationContextTest {
         verify(servletContext);
     }
 
+    /**
+     * Tests resource getting through the classpath index.
+     *
+     * @param directory The root of the indexed classpath entry.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testGetResourcesIndexed(@TempDir Path directory) throws IOException {
+        Path index = directory.resolve(WildcardServletApplicationContext.CLASSPATH_INDEX);
+        Files.createDirectories(index.getParent());
+        Files.write(index, "META-INF/tiles.xml\nMETA-INF/sub/tiles-sub.xml\nMETA-INF/MANIFEST.MF\n"
+                .getBytes(StandardCharsets.UTF_8));
+        final URL indexUrl = index.toUri().toURL();
+        Thread.currentThread().setContextClassLoader(new MockClassLoader() {
+            @Override
+            public Enumeration<URL> findResources(String path) throws IOException {
+                if (WildcardServletApplicationContext.CLASSPATH_INDEX.equals(path)) {
+                    return Collections.enumeration(Collections.singleton(indexUrl));
+                }
+                return super.findResources(path);
+            }
+        });
+        expect(servletContext.getInitParameter(WildcardServletApplicationContext.CLASSPATH_INDEX_INIT_PARAMETER))
+                .andReturn("true");
+        replay(servletContext);
+
+        Collection<ApplicationResource> resources = context.getResources("classpath*:META-INF/**/tiles*.xml");
+        assertEquals(2, resources.size());
+        URL url = directory.resolve("META-INF/sub/tiles-sub.xml").toUri().toURL();
+        assertTrue(resources.contains(new URLApplicationResource(url.toExternalForm(), url)));
+        assertEquals(1, context.getResources("classpath*:/META-INF/MANIFEST.MF").size());
+        assertTrue(context.getResources("classpath*:META-INF/*.properties").isEmpty());
+        verify(servletContext);
+    }
+
+    /**
+     * Tests that indexed resources are returned in classpath order, since
+     * later definition sources override earlier ones.
+     *
+     * @param directory The parent of the indexed classpath entries.
+     * @throws IOException If something goes wrong.
+     */
+    @Test
+    void testGetResourcesIndexedOrder(@TempDir Path directory) throws IOException {
+        String[][] entries = {{"META-INF/tiles.xml"}, {"META-INF/tiles-b.xml"}, {"META-INF/tiles.xml"}};
+        final List<URL> indexUrls = new ArrayList<URL>();
+        List<ApplicationResource> expectedResources = new ArrayList<ApplicationResource>();
+        for (int i = 0; i < entries.length; i++) {
+            Path root = directory.resolve("root" + i);
+            Path index = root.resolve(WildcardServletApplicationContext.CLASSPATH_INDEX);
+            Files.createDirectories(index.getParent());
+            Files.write(index, (entries[i][0] + "\n").getBytes(StandardCharsets.UTF_8));
+            indexUrls.add(index.toUri().toURL());
+            URL url = root.resolve(entries[i][0]).toUri().toURL();
+            expectedResources.add(new URLApplicationResource(url.toExternalForm(), url));
+        }
+        Thread.currentThread().setContextClassLoader(new MockClassLoader() {
+            @Override
+            public Enumeration<URL> findResources(String path) throws IOException {
+                if (WildcardServletApplicationContext.CLASSPATH_INDEX.equals(path)) {
+                    return Collections.enumeration(indexUrls);
+                }
+                return super.findResources(path);
+            }
+        });
+        expect(servletContext.getInitParameter(WildcardServletApplicationContext.CLASSPATH_INDEX_INIT_PARAMETER))
+                .andReturn("true");
+        replay(servletContext);
+
+        assertEquals(expectedResources, new ArrayList<ApplicationResource>(
+                context.getResources("classpath*:META-INF/tiles*.xml")));
+        verify(servletContext);
+    }
+
     /**
      * A mock class loader.
      */
@@ -21,10 +21,11 @@
 
 package org.apache.tiles.template;
 
+import java.util.ArrayDeque;
 import java.util.Deque;
-import java.util.LinkedList;
 import java.util.Map;
 
+import org.apache.tiles.request.CachingRequest;
 import org.apache.tiles.request.Request;
 
 /**
@@ -67,6 +68,13 @@ public final class ComposeStackUtil {
 
     /**
      * Returns the current compose stack, or creates a new one if not present.
+     * <p>
+     * The stack is stored in the request scope and cached in the request
+     * object, if it is a {@link CachingRequest}. The cache saves the request
+     * scope lookup only for later calls with the same request object: JSP,
+     * FreeMarker and Velocity create one for each tag, so each tag still
+     * looks the stack up once in the request scope.
+     * </p>
      *
      * @param request The request.
      * @return The compose stack.
@@ -74,13 +82,25 @@ public final class ComposeStackUtil {
      */
     @SuppressWarnings("unchecked")
     public static Deque<Object> getComposeStack(Request request) {
+        CachingRequest cachingRequest = null;
+        if (request instanceof CachingRequest) {
+            cachingRequest = (CachingRequest) request;
+            Deque<Object> composeStack = (Deque<Object>) cachingRequest
+                    .getCachedObject(COMPOSE_STACK_ATTRIBUTE_NAME);
+            if (composeStack != null) {
+                return composeStack;
+            }
+        }
         Map<String, Object> requestScope = request.getContext("request");
         Deque<Object> composeStack = (Deque<Object>) requestScope
                 .get(COMPOSE_STACK_ATTRIBUTE_NAME);
         if (composeStack == null) {
-            composeStack = new LinkedList<>();
+            composeStack = new ArrayDeque<>();
             requestScope.put(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME, composeStack);
         }
+        if (cachingRequest != null) {
+            cachingRequest.setCachedObject(COMPOSE_STACK_ATTRIBUTE_NAME, composeStack);
+        }
         return composeStack;
     }
 }
@@ -32,6 +32,7 @@ import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.apache.tiles.request.CachingRequest;
 import org.apache.tiles.request.Request;
 import org.junit.jupiter.api.Test;
 
@@ -123,4 +124,30 @@ class ComposeStackUtilTest {
                 requestScope.get(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME));
         verify(request);
     }
+
+    /**
+     * Tests {@link ComposeStackUtil#getComposeStack(org.apache.tiles.request.Request)},
+     * when the stack is cached in the request.
+     */
+    @Test
+    public void testGetComposeStackCached() {
+        CachingRequest request = createMock(CachingRequest.class);
+
+        Map<String, Object> requestScope = new HashMap<String, Object>();
+        expect(request.getCachedObject(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME)).andReturn(null);
+        expect(request.getContext("request")).andReturn(requestScope);
+        request.setCachedObject(eq(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME), isA(ArrayDeque.class));
+
+        replay(request);
+        Deque<Object> composeStack = ComposeStackUtil.getComposeStack(request);
+        assertSame(composeStack, requestScope.get(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME));
+        verify(request);
+
+        reset(request);
+        expect(request.getCachedObject(ComposeStackUtil.COMPOSE_STACK_ATTRIBUTE_NAME)).andReturn(composeStack);
+
+        replay(request);
+        assertSame(composeStack, ComposeStackUtil.getComposeStack(request));
+        verify(request);
+    }
 }